@@ -0,0 +1,65 @@
+package com.example.demo.service;
+
+// 引入 JMH 相關的類別
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 引入 Java 標準庫相關類別
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HMAC 驗證的 JMH 效能基準測試
+ * base64Compare 為改寫前 v1 的驗證方式（每次解碼金鑰、init Mac，再以 Base64 字串比對），
+ * engineVerify 為保存已初始化 Mac 的 {@link HmacEngine} 以原始位元組固定時間比對
+ *
+ * 執行方式：mvn -P benchmark test-compile exec:exec -Djmh.args="HmacBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class HmacBenchmark {
+
+    private HMACService hmacService;
+    private HmacEngine engine;
+    private String hmacKey;
+    private String data;
+    private byte[] dataBytes;
+    private String expectedBase64;
+    private byte[] expectedTag;
+
+    @Setup
+    public void setUp() throws Exception {
+        hmacService = new HMACService();
+        hmacKey = hmacService.generateHMACKey().get("hmacKey");
+        engine = new HmacEngine(hmacService.parseKey(hmacKey));
+        // 約與單筆取件人資料的 JSON 長度相當
+        data = "{\"name\":\"王小明\",\"phone\":\"0912345678\",\"address\":\"台北市信義區市府路1號\","
+            + "\"totp\":\"123456\",\"timestamp\":\"1700000000000\"}";
+        dataBytes = data.getBytes(StandardCharsets.UTF_8);
+        expectedBase64 = hmacService.calculateHMAC(data, hmacKey);
+        expectedTag = Base64.getDecoder().decode(expectedBase64);
+    }
+
+    @Benchmark
+    public boolean base64Compare() throws Exception {
+        return hmacService.calculateHMAC(data, hmacKey).equals(expectedBase64);
+    }
+
+    @Benchmark
+    public boolean engineVerify() throws Exception {
+        return engine.verify(dataBytes, expectedTag);
+    }
+}
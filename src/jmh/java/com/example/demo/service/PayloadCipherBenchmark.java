@@ -0,0 +1,76 @@
+package com.example.demo.service;
+
+// 引入 JMH 相關的類別
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 引入 Java 加密相關類別
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+// 引入 Java 標準庫相關類別
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各 {@link PayloadCipher} 實作的 JMH 吞吐量比較（v1 信封 d 欄位的加解密）
+ * RSA 的私鑰解密遠比 X25519 慢，此基準測試用來估算驗證端改用 RSA 時需要的運算量
+ *
+ * 金鑰已預先解析（與批次產生、伺服器端金鑰環相同），量測的只有加解密本身
+ *
+ * 執行方式：mvn -P benchmark test-compile exec:exec -Djmh.args="PayloadCipherBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class PayloadCipherBenchmark {
+
+    /**
+     * 演算法識別碼
+     */
+    @Param({PayloadCipher.X25519, PayloadCipher.RSA_OAEP_2048})
+    public String algorithm;
+
+    private PayloadCipher cipher;
+    private PublicKey publicKey;
+    private PrivateKey privateKey;
+    private String plaintext;
+    private String encrypted;
+
+    @Setup
+    public void setUp() throws Exception {
+        // 停用臨時金鑰對池，X25519 的加密包含即時產生臨時金鑰對的成本
+        PayloadCipherRegistry registry = new PayloadCipherRegistry(List.of(new ECCService(256, 0), new RSA2048Service()));
+        cipher = registry.get(algorithm);
+        Map<String, String> keys = cipher.generateKeyPairMap();
+        publicKey = cipher.parsePublicKey(keys.get("publicKey"));
+        privateKey = cipher.parsePrivateKey(keys.get("privateKey"));
+        // 約與單筆取件人資料的 JSON 長度相當
+        plaintext = "{\"name\":\"王小明\",\"phone\":\"0912345678\",\"address\":\"台北市信義區市府路1號\","
+            + "\"totp\":\"123456\"}";
+        encrypted = cipher.encrypt(plaintext, publicKey);
+    }
+
+    @Benchmark
+    public String encrypt() throws Exception {
+        return cipher.encrypt(plaintext, publicKey);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return cipher.decrypt(encrypted, privateKey);
+    }
+}
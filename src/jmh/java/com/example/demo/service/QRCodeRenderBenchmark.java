@@ -0,0 +1,143 @@
+package com.example.demo.service;
+
+// 引入 ZXing 相關的類別
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.common.BitMatrix;
+
+// 引入 JMH 相關的類別
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 引入 Java 標準庫相關類別
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QR Code 產生流程的 JMH 效能基準測試
+ * 以實際常見的信封長度（200–900 字元）與輸出尺寸量測吞吐量，搭配 -prof gc 取得每次呼叫的配置量（gc.alloc.rate.norm），
+ * 作為渲染最佳化前後比較的基準
+ *
+ * 執行方式：mvn -P benchmark test-compile exec:exec，結果另存於 target/jmh-result.json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xms512m", "-Xmx512m"})
+public class QRCodeRenderBenchmark {
+
+    private static final String BASE64_ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    /**
+     * QR Code 內容長度（字元數），涵蓋單筆信封到含多個動態欄位的信封
+     */
+    @Param({"200", "500", "900"})
+    public int payloadLength;
+
+    /**
+     * 輸出邊長（像素）
+     */
+    @Param({"400", "1000", "2000"})
+    public int size;
+
+    private QRCodeService qrCodeService;
+    private String payload;
+    private BufferedImage logo;
+    private int logoSize;
+    private BitMatrix bitMatrix;
+    private BufferedImage qrImage;
+
+    @Setup
+    public void setUp() throws Exception {
+        qrCodeService = new QRCodeService();
+        payload = envelope(payloadLength);
+        // logo 佔邊長的比例與預設（60 / 400）相同
+        logoSize = size * 60 / 400;
+        try (InputStream in = QRCodeRenderBenchmark.class.getResourceAsStream("/static/images/twdiw.png")) {
+            if (in == null) {
+                throw new IllegalStateException("找不到 logo 資源 static/images/twdiw.png");
+            }
+            logo = ImageIO.read(in);
+        }
+        bitMatrix = new MultiFormatWriter().encode(payload, BarcodeFormat.QR_CODE, size, size,
+            Map.of(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name()));
+        qrImage = qrCodeService.matrixToImage(bitMatrix);
+    }
+
+    @Benchmark
+    public String generateQRCodeBase64() throws Exception {
+        return qrCodeService.generateQRCodeBase64(payload, size, size);
+    }
+
+    @Benchmark
+    public String generateQRCodeWithLogoSpace() throws Exception {
+        return qrCodeService.generateQRCodeWithLogoSpace(payload, logo, size, size, logoSize);
+    }
+
+    /**
+     * 原本以 BitMatrix、BufferedImage 與 ImageIO 產生的流程，作為直接編碼 PNG 的比較基準
+     */
+    @Benchmark
+    public String generateQRCodeWithLogoSpaceImageIO() throws Exception {
+        return qrCodeService.generateQRCodeWithLogoSpaceImageIO(payload, logo, size, size, logoSize);
+    }
+
+    /**
+     * 就地清除 logo 區域；計時包含複製 BitMatrix 的成本，避免重複清除同一份矩陣
+     */
+    @Benchmark
+    public BitMatrix createLogoSpaceInBitMatrix() {
+        return qrCodeService.createLogoSpaceInBitMatrix(bitMatrix.clone(), logoSize);
+    }
+
+    @Benchmark
+    public BufferedImage matrixToImage() {
+        return qrCodeService.matrixToImage(bitMatrix);
+    }
+
+    @Benchmark
+    public String imageToBase64() throws Exception {
+        return qrCodeService.imageToBase64(qrImage, "PNG");
+    }
+
+    /**
+     * 產生指定長度的 v1 信封 JSON（{t, d, h, k}），d 與 h 以固定種子的 Base64 字元填入，確保每次執行內容相同
+     */
+    static String envelope(int length) {
+        Random random = new Random(length);
+        String hmac = randomBase64(random, 43) + "=";
+        String prefix = "{\"t\":\"SS\",\"d\":\"";
+        String suffix = "\",\"h\":\"" + hmac + "\",\"k\":\"default\"}";
+        int dataLength = length - prefix.length() - suffix.length();
+        if (dataLength < 1) {
+            throw new IllegalArgumentException("信封長度過短：" + length);
+        }
+        return prefix + randomBase64(random, dataLength) + suffix;
+    }
+
+    private static String randomBase64(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(BASE64_ALPHABET.charAt(random.nextInt(BASE64_ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+}
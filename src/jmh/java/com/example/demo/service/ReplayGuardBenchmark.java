@@ -0,0 +1,62 @@
+package com.example.demo.service;
+
+// 引入 JMH 相關的類別
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 引入 Java 標準庫相關類別
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReplayGuard 多執行緒寫入的 JMH 效能基準測試
+ * 以 10 毫秒為一個時間區間快速輪替時間輪，量測長時間運作下（包含清空桶）的寫入吞吐量
+ *
+ * 執行方式：mvn -P benchmark test-compile exec:exec -Djmh.args="ReplayGuardBenchmark -t max"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@Threads(Threads.MAX)
+public class ReplayGuardBenchmark {
+
+    private ReplayGuard guard;
+
+    @Setup
+    public void setUp() {
+        guard = new ReplayGuard(() -> System.nanoTime() / 10_000_000L, 3, 1 << 20);
+    }
+
+    /**
+     * 每個執行緒各自的指紋序列
+     */
+    @State(Scope.Thread)
+    public static class Fingerprints {
+        long next = ThreadLocalRandom.current().nextLong();
+    }
+
+    @Benchmark
+    public ReplayGuard.Result checkUnique(Fingerprints fingerprints) {
+        fingerprints.next += 0x9E3779B97F4A7C15L;
+        return guard.check(fingerprints.next);
+    }
+
+    @Benchmark
+    public long fingerprint(Fingerprints fingerprints) {
+        byte[] sealed = new byte[120];
+        sealed[0] = (byte) fingerprints.next++;
+        return ReplayGuard.fingerprint(sealed);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+// 引入 JMH 相關的類別
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 引入 Java 加密相關類別
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+// 引入 Java 標準庫相關類別
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * v3 工作階段模式與 v2 單次 ECDH 加解密的 JMH 效能基準測試
+ * v2 每則訊息都產生臨時金鑰對並做一次 X25519 金鑰協商；v3 在同一期間內重用工作階段金鑰，只剩 ChaCha20-Poly1305
+ *
+ * ephemeralPoolSize 為 0 時臨時金鑰對即時產生，大於 0 時由背景執行緒預先產生（量測的是池足夠時的情形）
+ *
+ * 執行方式：mvn -P benchmark test-compile exec:exec -Djmh.args="SessionEncryptionBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class SessionEncryptionBenchmark {
+
+    /**
+     * 臨時金鑰對池的容量（0 為停用）
+     */
+    @Param({"0", "256"})
+    public int ephemeralPoolSize;
+
+    private ECCService eccService;
+    private PublicKey publicKey;
+    private PrivateKey privateKey;
+    private byte[] plaintext;
+    private byte[] compactSealed;
+    private byte[] sessionSealed;
+
+    @Setup
+    public void setUp() throws Exception {
+        eccService = new ECCService(256, ephemeralPoolSize);
+        eccService.start();
+        String[] keyPair = eccService.generateKeyPair();
+        publicKey = eccService.parsePublicKey(keyPair[0]);
+        privateKey = eccService.parsePrivateKey(keyPair[1]);
+        // 約與單筆取件人資料的 JSON 長度相當
+        plaintext = ("{\"name\":\"王小明\",\"phone\":\"0912345678\",\"address\":\"台北市信義區市府路1號\","
+            + "\"totp\":\"123456\",\"timestamp\":\"1700000000000\"}").getBytes(StandardCharsets.UTF_8);
+        compactSealed = eccService.encryptCompact(plaintext, publicKey);
+        sessionSealed = eccService.encryptSession(plaintext, publicKey);
+    }
+
+    @TearDown
+    public void tearDown() {
+        eccService.shutdown();
+    }
+
+    @Benchmark
+    public byte[] encryptCompact() throws Exception {
+        return eccService.encryptCompact(plaintext, publicKey);
+    }
+
+    @Benchmark
+    public byte[] encryptSession() throws Exception {
+        return eccService.encryptSession(plaintext, publicKey);
+    }
+
+    @Benchmark
+    public String decryptCompact() throws Exception {
+        return eccService.decryptCompact(compactSealed, privateKey);
+    }
+
+    /**
+     * 驗證端已快取此工作階段的對稱金鑰（同一期間內的第二則之後的訊息）
+     */
+    @Benchmark
+    public String decryptSession() throws Exception {
+        return eccService.decryptSession(sessionSealed, privateKey);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.service;
+
+// 引入 JMH 相關的類別
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 引入 Java 加密相關類別
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+// 引入 Java 標準庫相關類別
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TOTP 產生與驗證的 JMH 效能基準測試
+ * singleHmac 為同一把金鑰計算一次 HMAC-SHA256 的成本，作為驗證成本的比較基準
+ * 同一把金鑰在同一個時間區間內的產生與驗證由 {@link TotpCodeCache} 命中；uncachedVerify 為直接計算三個窗口的成本
+ *
+ * 執行方式：mvn -P benchmark test-compile exec:exec -Djmh.args="TotpBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class TotpBenchmark {
+
+    private TOTPService totpService;
+    private TotpEngine engine;
+    private String base64Key;
+    private SecretKey secretKey;
+    private String code;
+    private Mac mac;
+    private byte[] message;
+
+    @Setup
+    public void setUp() throws Exception {
+        totpService = new TOTPService();
+        base64Key = totpService.generateTOTPKey().get("totpKey");
+        secretKey = TotpEngine.decodeKey(base64Key);
+        engine = new TotpEngine(Clock.systemUTC(), 60, 30, 1);
+        // 以不符合任何窗口的碼量測最差情形（三個窗口都要計算）
+        code = "000000".equals(totpService.generateTOTP(base64Key)) ? "000001" : "000000";
+        mac = Mac.getInstance("HmacSHA256");
+        mac.init(secretKey);
+        message = "0123456".getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public String generate() {
+        return totpService.generateTOTP(base64Key);
+    }
+
+    @Benchmark
+    public boolean verifyBase64Key() {
+        return totpService.verifyTOTP(code, base64Key);
+    }
+
+    /**
+     * 驗證端使用金鑰環中已解碼的金鑰
+     */
+    @Benchmark
+    public boolean verifyDecodedKey() {
+        return totpService.verifyTOTP(code, secretKey);
+    }
+
+    @Benchmark
+    public boolean uncachedVerify() throws Exception {
+        return engine.verify(secretKey, code);
+    }
+
+    @Benchmark
+    public byte[] singleHmac() {
+        return mac.doFinal(message);
+    }
+}
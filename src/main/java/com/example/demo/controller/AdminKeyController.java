@@ -1,34 +1,71 @@
 package com.example.demo.controller;
 
 // 引入 Spring 框架相關類別
+import com.example.demo.service.CryptoPools;
 import com.example.demo.service.ECCService;
+import com.example.demo.service.KeyProvisioningService;
+import com.example.demo.service.PayloadCipher;
+import com.example.demo.service.PayloadCipherRegistry;
+import com.example.demo.service.RSA2048Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 // 引入服務層類別
 import com.example.demo.service.TOTPService;
 import com.example.demo.service.HMACService;
+import com.example.demo.service.ReplayGuard;
+
+// 引入 JSON 處理相關類別
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// 引入日誌相關類別
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 // 引入 Java 標準庫相關類別
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 /**
  * 管理者金鑰控制器
  * 此控制器提供管理者相關的金鑰產生 API，包含：
- * 1. RSA 金鑰對產生
+ * 1. 加密金鑰對產生（預設 X25519，可指定 RSA-OAEP-2048）
  * 2. TOTP 金鑰產生
  * 3. HMAC 金鑰產生
+ * 4. 加密元件物件池與金鑰快取統計
+ * 5. 批次配發發行端金鑰組（NDJSON 串流或金鑰檔）
  */
 @RestController
 @RequestMapping("/api/admin")
 public class AdminKeyController {
 
+    // 設定日誌記錄器
+    private static final Logger logger = LoggerFactory.getLogger(AdminKeyController.class);
+
+    // 建立 JSON 處理器
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     // 注入加解密服務
     @Autowired
     private ECCService eccService;
 
+    // 注入 RSA 加解密服務
+    @Autowired
+    private RSA2048Service rsaService;
+
+    // 注入加密演算法選擇服務
+    @Autowired
+    private PayloadCipherRegistry payloadCiphers;
+
+    // 注入金鑰配發服務
+    @Autowired
+    private KeyProvisioningService provisioningService;
+
     // 注入 TOTP 服務
     @Autowired
     private TOTPService totpService;
@@ -37,16 +74,24 @@ public class AdminKeyController {
     @Autowired
     private HMACService hmacService;
 
+    // 注入重複使用檢查服務（統計資料）
+    @Autowired
+    private ReplayGuard replayGuard;
+
     /**
      * 產生 金鑰對
+     * 路徑沿用舊名稱，未指定演算法時產生 X25519 金鑰對
      * 
-     * @return 包含公鑰和私鑰的 Map，金鑰以 Base64 格式儲存
+     * @param algorithm 加密演算法識別碼（X25519 或 RSA-OAEP-2048）
+     * @return 包含公鑰、私鑰與演算法的 Map，金鑰以 Base64 格式儲存
      */
     @PostMapping("/generate/rsa")
-    public ResponseEntity<Map<String, String>> generateRSAKeys() {
+    public ResponseEntity<Map<String, String>> generateRSAKeys(@RequestParam(value = "algorithm", required = false) String algorithm) {
         try {
             // 產生 金鑰對
-            Map<String, String> keys = eccService.generateKeyPairMap();
+            PayloadCipher cipher = payloadCiphers.get(algorithm);
+            Map<String, String> keys = new HashMap<>(cipher.generateKeyPairMap());
+            keys.put("algorithm", cipher.getAlgorithm());
             return ResponseEntity.ok(keys);
         } catch (Exception e) {
             // 處理錯誤情況
@@ -93,4 +138,83 @@ public class AdminKeyController {
             return ResponseEntity.badRequest().body(error);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 批次配發發行端金鑰組（加密金鑰對、TOTP 金鑰與 HMAC 金鑰）
+     * 以所有 CPU 核心平行產生，format = ndjson（預設）時依序號順序以 NDJSON 串流回傳，
+     * format = keyring 時回傳伺服器端金鑰環的金鑰檔（提供 password 時以密碼加密）
+     *
+     * @param request 包含 count、algorithm、keyCodePrefix、start、format 與 password 的請求
+     * @return 串流回應，參數錯誤時回傳 400 與錯誤訊息
+     */
+    @PostMapping("/provision")
+    public ResponseEntity<StreamingResponseBody> provisionKeys(@RequestBody Map<String, Object> request) {
+        KeyProvisioningService.ProvisioningPlan plan;
+        try {
+            plan = provisioningService.plan(
+                (String) request.get("algorithm"),
+                (String) request.get("keyCodePrefix"),
+                toInteger(request.get("start"), "start"),
+                toInteger(request.get("count"), "count"),
+                (String) request.get("format"));
+        } catch (IllegalArgumentException | ClassCastException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e instanceof ClassCastException ? "參數格式錯誤" : e.getMessage());
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write(objectMapper.writeValueAsBytes(error)));
+        }
+
+        logger.info("開始配發 {} 組 {} 金鑰（{}）", plan.getCount(), plan.getAlgorithm(), plan.getFormat());
+        if (KeyProvisioningService.FORMAT_KEYRING.equals(plan.getFormat())) {
+            Object password = request.get("password");
+            char[] passwordChars = password != null ? password.toString().toCharArray() : null;
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CACHE_CONTROL, "no-store, private")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"keyring.json\"")
+                .body(out -> provisioningService.writeKeyring(plan, passwordChars, out));
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CACHE_CONTROL, "no-store, private")
+            .body(out -> provisioningService.writeNdjson(plan, out));
+    }
+
+    /**
+     * 取得加密元件物件池（取用、重複使用、新建與競爭次數）、已解析金鑰快取與預先產生金鑰對池的統計資料
+     * 
+     * @return 包含 cryptoPools、keyCache、rsaKeyCache、ephemeralKeys 與 provisioningPools 的 Map
+     */
+    @GetMapping("/crypto-stats")
+    public ResponseEntity<Map<String, Object>> getCryptoStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cryptoPools", CryptoPools.getStats());
+        stats.put("keyCache", eccService.getKeyCacheStats());
+        stats.put("rsaKeyCache", rsaService.getKeyCacheStats());
+        stats.put("ephemeralKeys", eccService.getEphemeralKeyPoolStats());
+        stats.put("provisioningPools", provisioningService.getPoolStats());
+        stats.put("totpCodeCache", totpService.getCodeCacheStats());
+        stats.put("replayGuard", replayGuard.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * 將請求中的數值參數轉為整數（接受數字或數字字串）
+     *
+     * @throws IllegalArgumentException 當參數不是整數時拋出
+     */
+    private Integer toInteger(Object value, String name) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " 必須為整數");
+        }
+    }
+}
@@ -3,8 +3,12 @@ package com.example.demo.controller;
 // 引入 Spring 框架相關類別
 import com.example.demo.service.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 // 引入服務層類別
 
@@ -12,194 +16,144 @@ import org.springframework.web.bind.annotation.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 // 引入 Java 標準庫相關類別
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.io.BufferedWriter;
+import java.math.BigDecimal;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.crypto.SecretKey;
 
 // 引入日誌相關類別
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 // 引入圖片處理相關類別
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import org.springframework.core.io.ClassPathResource;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+// 引入 Servlet 相關類別
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * 取件人資料控制器
  * 此控制器負責處理取件人資料的產生和加密，包含：
  * 1. 產生 TOTP 碼
  * 2. 計算 HMAC 值
- * 3. RSA 加密
+ * 3. 加密（預設 X25519，可指定 algorithm = RSA-OAEP-2048，見 {@link PayloadCipher}）
  * 4. 產生 QR Code
+ *
+ * 產生 API 依 Accept 標頭回傳 JSON（含 Base64 QR Code）、PNG 圖片或 SVG 向量圖；
+ * QR Code 內容預設為 JSON {t, d, h, k}（v1），指定 envelopeVersion = 2 時改用 Base45 精簡格式（v2，見 {@link EnvelopeCodec}），
+ * envelopeVersion = 3 時為精簡格式的工作階段模式（v3，每個期間只做一次 ECDH，適合大量產生）；
+ * 非預設演算法只支援 v1，演算法識別碼記錄在信封的 a 欄位；
+ * 批次產生 API 以共用金鑰產生多筆資料，並以 NDJSON 串流回傳；
+ * CSV 匯入 API 將每一列產生為 QR Code PNG，以 ZIP 串流回傳
  */
 @RestController
 @RequestMapping("/api/pickup-person")
 public class PickupPersonController {
-    
+
     // 設定日誌記錄器
     private static final Logger logger = LoggerFactory.getLogger(PickupPersonController.class);
-    
+
     // 建立 JSON 處理器
     private final ObjectMapper objectMapper = new ObjectMapper();
-    
+
+    // SVG 的 MIME 類型
+    private static final String SVG_MEDIA_TYPE = "image/svg+xml";
+
+    // 批次產生的最大筆數（超過請分多次呼叫）
+    private static final int MAX_BATCH_ITEMS = 10000;
+
+    // 批次產生使用的執行緒數量與同時處理中的最大筆數
+    // 限制處理中的筆數，讓記憶體用量不隨批次大小增加
+    private static final int BATCH_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final int BATCH_WINDOW = BATCH_PARALLELISM * 4;
+
+    // 批次產生專用的 fork-join 執行緒池（不使用 commonPool，避免影響其他工作）
+    private final ForkJoinPool issuancePool = new ForkJoinPool(BATCH_PARALLELISM, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("pickup-issuance-" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+
     // 注入 TOTP 服務
     @Autowired
     private TOTPService totpService;
-    
+
     // 注入 HMAC 服務
     @Autowired
     private HMACService hmacService;
-    
+
     // 注入加解密服務
     @Autowired
     private ECCService eccService;
 
+    // 注入加密演算法選擇服務
+    @Autowired
+    private PayloadCipherRegistry payloadCiphers;
+
     // 注入 QR Code 服務
     @Autowired
     private QRCodeService qrCodeService;
 
     /**
      * 產生取件人資料並進行加密
-     * 
+     *
      * @param request 包含取件人資料和金鑰的請求
      * @return 包含明碼資料、加密資料和 QR Code 的回應
      */
     @PostMapping("/generate")
     public ResponseEntity<Map<String, Object>> generatePickupPersonData(@RequestBody Map<String, Object> request) {
         try {
-            // 從請求中取得金鑰參數
-            String totpKey = (String) request.get("totpKey");
-            String hmacKey = (String) request.get("hmacKey");
-            String rsaPublicKey = (String) request.get("rsaPublicKey");
-            String keyCode = (String) request.get("keyCode");
-            String dataType = (String) request.get("dataType");
-
-            // 取得動態欄位資料
-            @SuppressWarnings("unchecked")
-            Map<String, String> dynamicFields = (Map<String, String>) request.get("dynamicFields");
-
-            // 驗證所有必要參數是否存在
-            if (totpKey == null || hmacKey == null || rsaPublicKey == null) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "缺少必要的金鑰參數");
-                return ResponseEntity.badRequest().body(error);
-            }
-
-            // 驗證動態欄位是否存在
-            if (dynamicFields == null || dynamicFields.isEmpty()) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "請至少提供一個欄位");
-                return ResponseEntity.badRequest().body(error);
-            }
-
-            // 驗證資料類型 t 值
-            if (dataType == null || dataType.trim().isEmpty()) {
-                dataType = "SS";
-            } else {
-                dataType = dataType.trim();
-                if (!dataType.matches("^[A-Za-z0-9_-]{1,32}$")) {
-                    Map<String, Object> error = new HashMap<>();
-                    error.put("error", "資料類型 (t) 只允許英數字、底線、連字號，長度 1-32 字元");
-                    return ResponseEntity.badRequest().body(error);
-                }
-            }
+            // 解析並驗證金鑰與產生設定
+            IssuanceSettings settings = parseSettings(request);
 
-            // 驗證動態欄位的 Key 格式（只允許英數字和底線）
-            for (String key : dynamicFields.keySet()) {
-                // 檢查 Key 是否為空
-                if (key == null || key.trim().isEmpty()) {
-                    Map<String, Object> error = new HashMap<>();
-                    error.put("error", "欄位名稱不可為空");
-                    return ResponseEntity.badRequest().body(error);
-                }
+            // 取得並驗證動態欄位資料
+            Map<String, String> dynamicFields = validateDynamicFields(request.get("dynamicFields"));
 
-                // 檢查 Key 格式
-                if (!key.matches("^[a-zA-Z0-9_]+$")) {
-                    Map<String, Object> error = new HashMap<>();
-                    error.put("error", "欄位名稱「" + key + "」格式錯誤，只允許英文字母、數字和底線");
-                    return ResponseEntity.badRequest().body(error);
-                }
-
-                // 檢查 Value 是否為空
-                String value = dynamicFields.get(key);
-                if (value == null || value.trim().isEmpty()) {
-                    Map<String, Object> error = new HashMap<>();
-                    error.put("error", "欄位「" + key + "」的值不可為空");
-                    return ResponseEntity.badRequest().body(error);
-                }
+            // 產生明碼資料與加密後的資料結構
+            IssuedEnvelope envelope = issueEnvelope(settings, dynamicFields);
 
-                // 檢查 Value 長度（防止過長）
-                if (value.length() > 500) {
-                    Map<String, Object> error = new HashMap<>();
-                    error.put("error", "欄位「" + key + "」的值過長（最多 500 字元）");
-                    return ResponseEntity.badRequest().body(error);
-                }
-            }
-
-            // 如果沒有提供金鑰代碼，使用預設值
-            if (keyCode == null || keyCode.trim().isEmpty()) {
-                keyCode = "default";
-            }
-
-            // 產生 TOTP 碼
-            String totp = totpService.generateTOTP(totpKey);
-
-            // 準備明碼資料（將動態欄位複製過來）
-            Map<String, String> plainData = new HashMap<>(dynamicFields);
-
-            // 加入 TOTP
-            plainData.put("totp", totp);
-            
-            // 將明碼資料轉換為 JSON 字串
-            String plainDataJson = objectMapper.writeValueAsString(plainData);
-            
-            // 針對整個 JSON 資料計算 HMAC 值
-            String hmac = hmacService.calculateHMAC(plainDataJson, hmacKey);
-            
-            // 使用 公鑰加密資料
-            String encryptedData = eccService.encrypt(plainDataJson, rsaPublicKey);
-            
-            // 準備加密後的資料結構，包含 HMAC 欄位和金鑰代碼
-            Map<String, String> encryptedResult = new HashMap<>();
-            encryptedResult.put("t", dataType);  // 使用自訂資料類型
-            encryptedResult.put("d", encryptedData);
-            encryptedResult.put("h", hmac);  // 將 HMAC 值放在加密後的資料 JSON 中
-            encryptedResult.put("k", keyCode);  // 將金鑰代碼放在加密後的資料 JSON 中
-            
             // 準備回傳資料
             Map<String, Object> result = new HashMap<>();
-            result.put("plainData", plainData);
-            result.put("encryptedData", encryptedResult);
+            result.put("plainData", envelope.plainData);
+            result.put("encryptedData", envelope.encryptedResult);
 
             // 產生 QR Code
-            String encryptedResultJson = objectMapper.writeValueAsString(encryptedResult);
-            
-            // 註解掉標準 QR Code 生成
-            // result.put("qrCode", qrCodeService.generateQRCodeBase64(encryptedResultJson));
-            
-            // 使用 TWDIW logo 生成 QR Code
-            try {
-                // 讀取 TWDIW logo 圖片
-                ClassPathResource logoResource = new ClassPathResource("static/images/twdiw.png");
-                BufferedImage logoImage = ImageIO.read(logoResource.getInputStream());
-                
-                // 使用帶 logo 的 QR Code 生成方法
-                result.put("qrCode", qrCodeService.generateQRCodeWithLogoSpace(
-                    encryptedResultJson, 
-                    logoImage, 
-                    400,  // QR Code 尺寸
-                    400,  // QR Code 尺寸
-                    60    // Logo 尺寸
-                ));
-            } catch (IOException e) {
-                logger.error("讀取 TWDIW logo 失敗，使用標準 QR Code", e);
-                // 如果讀取 logo 失敗，回退到標準 QR Code
-                result.put("qrCode", qrCodeService.generateQRCodeBase64(encryptedResultJson));
-            }
-            
+            result.put("qrCode", renderQRCodeBase64(settings, envelope.qrContent));
+
             return ResponseEntity.ok(result);
-            
+
+        } catch (IllegalArgumentException e) {
+            // 請求參數驗證失敗
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             // 記錄錯誤並回傳錯誤訊息
             logger.error("產生資料時發生錯誤", e);
@@ -208,4 +162,844 @@ public class PickupPersonController {
             return ResponseEntity.badRequest().body(error);
         }
     }
-} 
+
+    /**
+     * 產生取件人資料並直接回傳 QR Code PNG 圖片（Accept: image/png）
+     * PNG 直接寫入回應串流，不經過 Base64 與 JSON，並設定 Content-Length 與禁止快取標頭
+     *
+     * @param request 包含取件人資料和金鑰的請求
+     * @param response HTTP 回應
+     * @throws IOException 當寫入回應失敗時拋出
+     */
+    @PostMapping(value = "/generate", produces = MediaType.IMAGE_PNG_VALUE)
+    public void generatePickupPersonQRCode(@RequestBody Map<String, Object> request,
+                                           HttpServletResponse response) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream(16 * 1024);
+        IssuedEnvelope envelope;
+        try {
+            IssuanceSettings settings = parseSettings(request);
+            requireHeaderSafeKeyCode(settings);
+            Map<String, String> dynamicFields = validateDynamicFields(request.get("dynamicFields"));
+            envelope = issueEnvelope(settings, dynamicFields);
+            writeQRCodePng(settings, envelope.qrContent, png);
+        } catch (IllegalArgumentException e) {
+            writeJsonError(response, e.getMessage());
+            return;
+        } catch (Exception e) {
+            logger.error("產生 QR Code 圖片時發生錯誤", e);
+            writeJsonError(response, "資料產生失敗：" + e.getMessage());
+            return;
+        }
+
+        writeImageResponse(response, envelope, MediaType.IMAGE_PNG_VALUE, "pickup-qrcode.png", png);
+    }
+
+    /**
+     * 產生取件人資料並回傳 SVG 向量 QR Code（Accept: image/svg+xml），供印刷使用
+     * 以模組格線輸出，可搭配 moduleSize 或 printSizeMm 指定尺寸（printSizeMm 時不需 dpi）
+     *
+     * @param request 包含取件人資料和金鑰的請求
+     * @param response HTTP 回應
+     * @throws IOException 當寫入回應失敗時拋出
+     */
+    @PostMapping(value = "/generate", produces = SVG_MEDIA_TYPE)
+    public void generatePickupPersonSvg(@RequestBody Map<String, Object> request,
+                                        HttpServletResponse response) throws IOException {
+        ByteArrayOutputStream svg = new ByteArrayOutputStream(16 * 1024);
+        IssuedEnvelope envelope;
+        try {
+            // 向量輸出不需要 DPI，列印尺寸直接以公釐輸出
+            IssuanceSettings settings = parseSettings(request, true);
+            requireHeaderSafeKeyCode(settings);
+            Map<String, String> dynamicFields = validateDynamicFields(request.get("dynamicFields"));
+            envelope = issueEnvelope(settings, dynamicFields);
+            Writer writer = new OutputStreamWriter(svg, StandardCharsets.UTF_8);
+            qrCodeService.writeQRCodeSvg(envelope.qrContent, resolveLogo(settings), settings.renderOptions, writer);
+        } catch (IllegalArgumentException e) {
+            writeJsonError(response, e.getMessage());
+            return;
+        } catch (Exception e) {
+            logger.error("產生 SVG QR Code 時發生錯誤", e);
+            writeJsonError(response, "資料產生失敗：" + e.getMessage());
+            return;
+        }
+
+        writeImageResponse(response, envelope, SVG_MEDIA_TYPE, "pickup-qrcode.svg", svg);
+    }
+
+    /**
+     * 圖片回應會將金鑰代碼放入 X-QR-Key-Code 標頭，只接受與 v2 標籤相同長度限制的安全字元
+     *
+     * @throws IllegalArgumentException 當金鑰代碼含有其他字元或超過長度限制時拋出
+     */
+    private void requireHeaderSafeKeyCode(IssuanceSettings settings) {
+        if (!EnvelopeCodec.isSafeLabel(settings.keyCode)) {
+            throw new IllegalArgumentException("圖片回應的金鑰代碼 (k) 只允許英數字、底線、連字號，長度 1-" + EnvelopeCodec.MAX_LABEL_BYTES + " 字元");
+        }
+    }
+
+    /**
+     * 將 QR Code 圖片寫入回應，並設定 Content-Length 與禁止快取標頭
+     */
+    private void writeImageResponse(HttpServletResponse response, IssuedEnvelope envelope, String contentType,
+                                    String fileName, ByteArrayOutputStream image) throws IOException {
+        // QR Code 內含有時效性的 TOTP，不允許任何快取
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(contentType);
+        response.setContentLength(image.size());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store, private");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+        response.setHeader("X-QR-Key-Code", envelope.encryptedResult.get("k"));
+        response.setHeader("X-QR-Data-Type", envelope.encryptedResult.get("t"));
+
+        // 直接將緩衝區內容寫入回應串流，不再複製成新的位元組陣列
+        image.writeTo(response.getOutputStream());
+    }
+
+    /**
+     * 批次產生取件人資料
+     * 所有資料共用同一組金鑰與產生設定，金鑰只解析一次；各筆資料平行產生，
+     * 並依 items 的順序以 NDJSON（每行一筆 JSON）串流回傳：
+     * 成功：{"index", "plainData", "encryptedData", "qrCode"}；失敗：{"index", "error"}
+     *
+     * @param request 包含金鑰、產生設定與 items（各筆 dynamicFields）的請求
+     * @return NDJSON 串流回應，金鑰或設定錯誤時回傳 400 與錯誤訊息
+     */
+    @PostMapping("/generate-batch")
+    public ResponseEntity<StreamingResponseBody> generatePickupPersonBatch(@RequestBody Map<String, Object> request) {
+        IssuanceSettings settings;
+        List<?> items;
+        try {
+            settings = parseSettings(request);
+            items = validateBatchItems(request.get("items"));
+            parseKeys(settings);
+        } catch (IllegalArgumentException e) {
+            return streamingError(e.getMessage());
+        }
+
+        logger.info("開始批次產生取件人資料，共 {} 筆", items.size());
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.CACHE_CONTROL, "no-store, private")
+            .body(out -> streamBatch(settings, items, out));
+    }
+
+    /**
+     * 平行產生批次資料並依原始順序寫入輸出串流
+     * 同時處理中的筆數不超過 BATCH_WINDOW，最早送出的資料完成後立即寫出
+     */
+    private void streamBatch(IssuanceSettings settings, List<?> items, OutputStream out) throws IOException {
+        Deque<ForkJoinTask<byte[]>> inFlight = new ArrayDeque<>(BATCH_WINDOW);
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                final int index = i;
+                final Object item = items.get(i);
+                inFlight.addLast(issuancePool.submit(() -> issueBatchLine(settings, index, item)));
+                if (inFlight.size() >= BATCH_WINDOW) {
+                    out.write(inFlight.pollFirst().join());
+                    out.flush();
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                out.write(inFlight.pollFirst().join());
+            }
+            out.flush();
+        } finally {
+            // 用戶端中斷連線時取消尚未完成的工作
+            for (ForkJoinTask<byte[]> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 產生單筆批次資料，回傳一行 NDJSON（含換行字元）
+     * 單筆資料驗證或產生失敗時回傳錯誤行，不影響其他資料
+     */
+    private byte[] issueBatchLine(IssuanceSettings settings, int index, Object item) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", index);
+        try {
+            Map<String, String> dynamicFields = validateDynamicFields(item);
+            IssuedEnvelope envelope = issueEnvelope(settings, dynamicFields);
+            line.put("plainData", envelope.plainData);
+            line.put("encryptedData", envelope.encryptedResult);
+            line.put("qrCode", renderQRCodeBase64(settings, envelope.qrContent));
+        } catch (IllegalArgumentException e) {
+            line.put("error", e.getMessage());
+        } catch (Exception e) {
+            logger.error("批次產生第 {} 筆資料時發生錯誤", index, e);
+            line.put("error", "資料產生失敗：" + e.getMessage());
+        }
+
+        byte[] json = objectMapper.writeValueAsBytes(line);
+        byte[] result = new byte[json.length + 1];
+        System.arraycopy(json, 0, result, 0, json.length);
+        result[json.length] = '\n';
+        return result;
+    }
+
+    /**
+     * 匯入 CSV 並產生 QR Code 圖片 ZIP 檔
+     * CSV 第一列為標題列，各欄位名稱對應 dynamicFields 的 Key，之後每一列產生一個 QR Code PNG。
+     * CSV 逐列讀取、平行產生，每個 PNG 完成後立即寫入 ZIP 串流（依完成順序），
+     * 最後加入 manifest.csv 記錄每一列的檔名與處理結果，整個過程不會將檔案完整載入記憶體
+     *
+     * @param file CSV 檔案（UTF-8）
+     * @param params 金鑰與產生設定，參數名稱與 /generate 相同
+     * @return ZIP 串流回應，金鑰、設定或標題列錯誤時回傳 400 與錯誤訊息
+     */
+    @PostMapping(value = "/import-csv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> importPickupPersonCsv(@RequestParam("file") MultipartFile file,
+                                                                      @RequestParam Map<String, String> params) {
+        IssuanceSettings settings;
+        CsvRecordReader csv = null;
+        List<String> header;
+        try {
+            settings = parseSettings(new HashMap<>(params));
+            parseKeys(settings);
+
+            csv = new CsvRecordReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
+            header = validateCsvHeader(csv.readRecord());
+        } catch (IllegalArgumentException e) {
+            closeQuietly(csv);
+            return streamingError(e.getMessage());
+        } catch (IOException e) {
+            closeQuietly(csv);
+            logger.error("讀取 CSV 檔案時發生錯誤", e);
+            return streamingError("CSV 讀取失敗：" + e.getMessage());
+        }
+
+        logger.info("開始匯入 CSV：{}，欄位 {}", file.getOriginalFilename(), header);
+        CsvRecordReader records = csv;
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/zip"))
+            .header(HttpHeaders.CACHE_CONTROL, "no-store, private")
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"pickup-qrcodes.zip\"")
+            .body(out -> streamCsvImport(settings, records, header, out));
+    }
+
+    /**
+     * 逐列讀取 CSV、平行產生 QR Code，並依完成順序寫入 ZIP
+     * 同時處理中的列數不超過 BATCH_WINDOW；manifest 先寫入暫存檔，最後加入 ZIP
+     */
+    private void streamCsvImport(IssuanceSettings settings, CsvRecordReader csv, List<String> header,
+                                 OutputStream out) throws IOException {
+        Path manifestFile = Files.createTempFile("pickup-import-", ".csv");
+        CompletionService<ImportedRow> completion = new ExecutorCompletionService<>(issuancePool);
+        int inFlight = 0;
+        long rowNumber = 0;
+        int succeeded = 0;
+
+        try (CsvRecordReader records = csv;
+             BufferedWriter manifest = Files.newBufferedWriter(manifestFile, StandardCharsets.UTF_8);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            manifest.write("row,file,status,message\r\n");
+
+            while (true) {
+                List<String> values;
+                try {
+                    values = records.readRecord();
+                } catch (IllegalArgumentException e) {
+                    // CSV 格式錯誤時停止讀取，已產生的資料仍會輸出
+                    writeManifestLine(manifest, rowNumber + 1, "", "ERROR", e.getMessage());
+                    break;
+                }
+                if (values == null) {
+                    break;
+                }
+
+                final long row = ++rowNumber;
+                final List<String> rowValues = values;
+                completion.submit(() -> issueImportRow(settings, header, row, rowValues));
+                if (++inFlight >= BATCH_WINDOW) {
+                    succeeded += writeImportedRow(takeImportedRow(completion), zip, manifest);
+                    inFlight--;
+                }
+            }
+            while (inFlight > 0) {
+                succeeded += writeImportedRow(takeImportedRow(completion), zip, manifest);
+                inFlight--;
+            }
+
+            // manifest 為最後一個項目
+            manifest.flush();
+            zip.putNextEntry(new ZipEntry("manifest.csv"));
+            Files.copy(manifestFile, zip);
+            zip.closeEntry();
+            zip.finish();
+            logger.info("CSV 匯入完成，共 {} 列，成功 {} 列", rowNumber, succeeded);
+        } finally {
+            Files.deleteIfExists(manifestFile);
+        }
+    }
+
+    /**
+     * 產生單列 CSV 資料的 QR Code PNG
+     * 單列資料驗證或產生失敗時記錄錯誤訊息，不影響其他列
+     */
+    private ImportedRow issueImportRow(IssuanceSettings settings, List<String> header, long row, List<String> values) {
+        ImportedRow result = new ImportedRow();
+        result.row = row;
+        try {
+            if (values.size() != header.size()) {
+                throw new IllegalArgumentException("欄位數量（" + values.size() + "）與標題列（" + header.size() + "）不符");
+            }
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                fields.put(header.get(i), values.get(i));
+            }
+            IssuedEnvelope envelope = issueEnvelope(settings, validateDynamicFields(fields));
+
+            ByteArrayOutputStream png = new ByteArrayOutputStream(16 * 1024);
+            writeQRCodePng(settings, envelope.qrContent, png);
+            result.png = png.toByteArray();
+
+            // 預先計算 CRC，讓 PNG 以 STORED（不再壓縮）方式寫入 ZIP
+            CRC32 crc = new CRC32();
+            crc.update(result.png);
+            result.crc = crc.getValue();
+            result.fileName = String.format("qrcode-%06d.png", row);
+        } catch (IllegalArgumentException e) {
+            result.error = e.getMessage();
+        } catch (Exception e) {
+            logger.error("匯入 CSV 第 {} 列時發生錯誤", row, e);
+            result.error = "資料產生失敗：" + e.getMessage();
+        }
+        return result;
+    }
+
+    /**
+     * 將完成的列寫入 ZIP 與 manifest
+     *
+     * @return 成功時回傳 1，失敗時回傳 0
+     */
+    private int writeImportedRow(ImportedRow result, ZipOutputStream zip, BufferedWriter manifest) throws IOException {
+        if (result.error != null) {
+            writeManifestLine(manifest, result.row, "", "ERROR", result.error);
+            return 0;
+        }
+        ZipEntry entry = new ZipEntry(result.fileName);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(result.png.length);
+        entry.setCompressedSize(result.png.length);
+        entry.setCrc(result.crc);
+        zip.putNextEntry(entry);
+        zip.write(result.png);
+        zip.closeEntry();
+        writeManifestLine(manifest, result.row, result.fileName, "OK", "");
+        return 1;
+    }
+
+    /**
+     * 取得下一個完成的列
+     */
+    private ImportedRow takeImportedRow(CompletionService<ImportedRow> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("CSV 匯入已中斷", e);
+        } catch (ExecutionException e) {
+            throw new IOException("CSV 匯入失敗", e.getCause());
+        }
+    }
+
+    /**
+     * 寫入一行 manifest（CSV 格式）
+     */
+    private void writeManifestLine(BufferedWriter manifest, long row, String fileName, String status,
+                                   String message) throws IOException {
+        manifest.write(row + "," + fileName + "," + status + "," + csvField(message) + "\r\n");
+    }
+
+    /**
+     * 將欄位值轉換為 CSV 格式（含逗號、引號或換行時加上引號）
+     */
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * 驗證 CSV 標題列
+     * 欄位名稱規則與 dynamicFields 的 Key 相同，且不可重複
+     *
+     * @param header 標題列
+     * @return 欄位名稱清單
+     * @throws IllegalArgumentException 當標題列不存在或格式錯誤時拋出
+     */
+    private List<String> validateCsvHeader(List<String> header) {
+        if (header == null) {
+            throw new IllegalArgumentException("CSV 檔案沒有任何資料");
+        }
+        Set<String> names = new HashSet<>();
+        for (String name : header) {
+            validateFieldName(name);
+            if (!names.add(name)) {
+                throw new IllegalArgumentException("CSV 標題列的欄位「" + name + "」重複");
+            }
+        }
+        return header;
+    }
+
+    /**
+     * 解析金鑰，供批次產生時所有資料共用
+     *
+     * @throws IllegalArgumentException 當金鑰格式錯誤時拋出
+     */
+    private void parseKeys(IssuanceSettings settings) {
+        try {
+            settings.publicKey = settings.cipher.parsePublicKey(settings.rsaPublicKey);
+            settings.hmacSecretKey = hmacService.parseKey(settings.hmacKey);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("金鑰格式錯誤：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 以 JSON 格式回傳錯誤訊息（用於串流回應的 API）
+     */
+    private ResponseEntity<StreamingResponseBody> streamingError(String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", message);
+        return ResponseEntity.badRequest()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(out -> out.write(objectMapper.writeValueAsBytes(error)));
+    }
+
+    /**
+     * 關閉 CSV 讀取器，忽略錯誤
+     */
+    private void closeQuietly(CsvRecordReader csv) {
+        if (csv == null) {
+            return;
+        }
+        try {
+            csv.close();
+        } catch (IOException e) {
+            logger.warn("關閉 CSV 檔案失敗", e);
+        }
+    }
+
+    /**
+     * 驗證批次資料清單
+     *
+     * @param value 請求中的 items 欄位
+     * @return 各筆資料的 dynamicFields（個別內容於產生時驗證）
+     * @throws IllegalArgumentException 當清單不存在、為空或超過上限時拋出
+     */
+    private List<?> validateBatchItems(Object value) {
+        if (!(value instanceof List) || ((List<?>) value).isEmpty()) {
+            throw new IllegalArgumentException("請至少提供一筆資料（items）");
+        }
+        List<?> items = (List<?>) value;
+        if (items.size() > MAX_BATCH_ITEMS) {
+            throw new IllegalArgumentException("批次資料過多（最多 " + MAX_BATCH_ITEMS + " 筆）");
+        }
+        return items;
+    }
+
+    /**
+     * 關閉批次產生執行緒池
+     */
+    @PreDestroy
+    public void shutdown() {
+        issuancePool.shutdown();
+    }
+
+    /**
+     * 從請求中解析並驗證金鑰、資料類型、金鑰代碼、logo 與渲染設定
+     * 動態欄位不在此驗證，由各筆資料產生前透過 validateDynamicFields 驗證
+     *
+     * @param request 請求內容
+     * @return 產生設定
+     * @throws IllegalArgumentException 當參數驗證失敗時拋出，訊息可直接回傳給前端
+     */
+    private IssuanceSettings parseSettings(Map<String, Object> request) {
+        return parseSettings(request, false);
+    }
+
+    /**
+     * 從請求中解析產生設定
+     *
+     * @param request 請求內容
+     * @param vector 是否為向量輸出（SVG）；向量輸出只指定 printSizeMm 時不需要 dpi
+     * @return 產生設定
+     * @throws IllegalArgumentException 當參數驗證失敗時拋出，訊息可直接回傳給前端
+     */
+    private IssuanceSettings parseSettings(Map<String, Object> request, boolean vector) {
+        IssuanceSettings settings = new IssuanceSettings();
+
+        // 從請求中取得金鑰參數
+        settings.totpKey = (String) request.get("totpKey");
+        settings.hmacKey = (String) request.get("hmacKey");
+        settings.rsaPublicKey = (String) request.get("rsaPublicKey");
+        String keyCode = (String) request.get("keyCode");
+        String dataType = (String) request.get("dataType");
+
+        // 驗證所有必要參數是否存在
+        if (settings.totpKey == null || settings.hmacKey == null || settings.rsaPublicKey == null) {
+            throw new IllegalArgumentException("缺少必要的金鑰參數");
+        }
+
+        // 驗證資料類型 t 值
+        if (dataType == null || dataType.trim().isEmpty()) {
+            dataType = "SS";
+        } else {
+            dataType = dataType.trim();
+            if (!dataType.matches("^[A-Za-z0-9_-]{1,32}$")) {
+                throw new IllegalArgumentException("資料類型 (t) 只允許英數字、底線、連字號，長度 1-32 字元");
+            }
+        }
+        settings.dataType = dataType;
+
+        // 如果沒有提供金鑰代碼，使用預設值
+        if (keyCode == null || keyCode.trim().isEmpty()) {
+            keyCode = "default";
+        }
+        settings.keyCode = keyCode;
+
+        // QR Code 內容格式：1 = JSON {t, d, h, k}（預設），2 = Base45 精簡格式，3 = 精簡格式的工作階段模式
+        Integer envelopeVersion = toInteger(request.get("envelopeVersion"), "envelopeVersion");
+        if (envelopeVersion == null) {
+            envelopeVersion = 1;
+        } else if (envelopeVersion < 1 || envelopeVersion > 3) {
+            throw new IllegalArgumentException("envelopeVersion 只支援 1、2 或 3");
+        }
+        if (envelopeVersion >= 2 && keyCode.getBytes(StandardCharsets.UTF_8).length > EnvelopeCodec.MAX_LABEL_BYTES) {
+            throw new IllegalArgumentException("v" + envelopeVersion + " 格式的金鑰代碼 (k) 最多 " + EnvelopeCodec.MAX_LABEL_BYTES + " 位元組");
+        }
+        settings.envelopeVersion = envelopeVersion;
+
+        // 加密演算法：未指定時為 X25519；其他演算法的密文較長，只支援 v1 格式
+        settings.cipher = payloadCiphers.get((String) request.get("algorithm"));
+        if (envelopeVersion >= 2 && !PayloadCipher.X25519.equals(settings.cipher.getAlgorithm())) {
+            throw new IllegalArgumentException(settings.cipher.getAlgorithm() + " 只支援 v1 格式（envelopeVersion = 1）");
+        }
+
+        // 取得 logo 代碼，未提供時使用內建 TWDIW logo
+        String logoId = (String) request.get("logoId");
+        if (logoId == null || logoId.trim().isEmpty()) {
+            settings.logoId = QRCodeLogoRegistry.DEFAULT_LOGO_ID;
+        } else if (qrCodeService.findLogo(logoId.trim()) == null) {
+            throw new IllegalArgumentException("找不到指定的 logo：" + logoId);
+        } else {
+            settings.logoId = logoId.trim();
+        }
+
+        // 解析 QR Code 渲染設定（模組大小或列印尺寸與 DPI），未提供時使用固定 400px
+        try {
+            settings.renderOptions = resolveRenderOptions(request, vector);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("QR Code 渲染設定錯誤：" + e.getMessage());
+        }
+        return settings;
+    }
+
+    /**
+     * 驗證動態欄位資料
+     * Key 只允許英數字和底線，Value 必須為字串，不可為空且最多 500 字元
+     *
+     * @param value 請求中的 dynamicFields 欄位
+     * @return 動態欄位資料
+     * @throws IllegalArgumentException 當欄位驗證失敗時拋出，訊息可直接回傳給前端
+     */
+    private Map<String, String> validateDynamicFields(Object value) {
+        // 驗證動態欄位是否存在
+        if (!(value instanceof Map) || ((Map<?, ?>) value).isEmpty()) {
+            throw new IllegalArgumentException("請至少提供一個欄位");
+        }
+
+        // 驗證動態欄位的 Key 格式（只允許英數字和底線）
+        Map<String, String> dynamicFields = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> field : ((Map<?, ?>) value).entrySet()) {
+            if (!(field.getKey() instanceof String)) {
+                throw new IllegalArgumentException("欄位名稱必須為字串");
+            }
+            String key = (String) field.getKey();
+            validateFieldName(key);
+
+            // 檢查 Value 是否為字串（數字、布林或巢狀物件不接受）
+            Object fieldValue = field.getValue();
+            if (fieldValue != null && !(fieldValue instanceof String)) {
+                throw new IllegalArgumentException("欄位「" + key + "」的值必須為字串");
+            }
+
+            // 檢查 Value 是否為空
+            String text = (String) fieldValue;
+            if (text == null || text.trim().isEmpty()) {
+                throw new IllegalArgumentException("欄位「" + key + "」的值不可為空");
+            }
+
+            // 檢查 Value 長度（防止過長）
+            if (text.length() > 500) {
+                throw new IllegalArgumentException("欄位「" + key + "」的值過長（最多 500 字元）");
+            }
+            dynamicFields.put(key, text);
+        }
+        return dynamicFields;
+    }
+
+    /**
+     * 驗證欄位名稱（只允許英數字和底線）
+     *
+     * @throws IllegalArgumentException 當欄位名稱為空或格式錯誤時拋出
+     */
+    private void validateFieldName(String key) {
+        // 檢查 Key 是否為空
+        if (key == null || key.trim().isEmpty()) {
+            throw new IllegalArgumentException("欄位名稱不可為空");
+        }
+
+        // 檢查 Key 格式
+        if (!key.matches("^[a-zA-Z0-9_]+$")) {
+            throw new IllegalArgumentException("欄位名稱「" + key + "」格式錯誤，只允許英文字母、數字和底線");
+        }
+    }
+
+    /**
+     * 產生 TOTP、計算 HMAC 並加密，組成 QR Code 內容
+     * v1 的加密資料結構為 {t, d, h, k}（非預設演算法另有 a），內容為其 JSON；v2 的加密資料結構為 {v, t, k, qr}，qr 即 QR Code 內容
+     *
+     * @param settings 產生設定
+     * @param dynamicFields 已驗證的動態欄位資料
+     * @return 明碼資料與加密後的資料結構
+     * @throws Exception 當加密或 HMAC 計算失敗時拋出
+     */
+    private IssuedEnvelope issueEnvelope(IssuanceSettings settings, Map<String, String> dynamicFields) throws Exception {
+        // 產生 TOTP 碼
+        String totp = totpService.generateTOTP(settings.totpKey);
+
+        // 準備明碼資料（將動態欄位複製過來）
+        Map<String, String> plainData = new HashMap<>(dynamicFields);
+
+        // 加入 TOTP
+        plainData.put("totp", totp);
+
+        // 將明碼資料轉換為 JSON 字串
+        String plainDataJson = objectMapper.writeValueAsString(plainData);
+
+        if (settings.envelopeVersion >= 2) {
+            return issueCompactEnvelope(settings, plainData, plainDataJson);
+        }
+
+        // 針對整個 JSON 資料計算 HMAC 值（批次產生時使用已解析的金鑰）
+        String hmac = settings.hmacSecretKey != null
+            ? hmacService.calculateHMAC(plainDataJson, settings.hmacSecretKey)
+            : hmacService.calculateHMAC(plainDataJson, settings.hmacKey);
+
+        // 使用 公鑰加密資料
+        String encryptedData = settings.publicKey != null
+            ? settings.cipher.encrypt(plainDataJson, settings.publicKey)
+            : settings.cipher.encrypt(plainDataJson, settings.rsaPublicKey);
+
+        // 準備加密後的資料結構，包含 HMAC 欄位和金鑰代碼
+        Map<String, String> encryptedResult = new HashMap<>();
+        encryptedResult.put("t", settings.dataType);  // 使用自訂資料類型
+        encryptedResult.put("d", encryptedData);
+        encryptedResult.put("h", hmac);  // 將 HMAC 值放在加密後的資料 JSON 中
+        encryptedResult.put("k", settings.keyCode);  // 將金鑰代碼放在加密後的資料 JSON 中
+        if (!PayloadCipher.X25519.equals(settings.cipher.getAlgorithm())) {
+            encryptedResult.put("a", settings.cipher.getAlgorithm());  // 非預設演算法時記錄演算法識別碼
+        }
+
+        IssuedEnvelope envelope = new IssuedEnvelope();
+        envelope.plainData = plainData;
+        envelope.encryptedResult = encryptedResult;
+        envelope.qrContent = objectMapper.writeValueAsString(encryptedResult);
+        return envelope;
+    }
+
+    /**
+     * 組成 v2 精簡格式的 QR Code 內容：HMAC 與密文都以原始位元組放入，整段以 Base45 編碼
+     * v3 的結構相同，密文改以工作階段金鑰加密
+     */
+    private IssuedEnvelope issueCompactEnvelope(IssuanceSettings settings, Map<String, String> plainData,
+                                                String plainDataJson) throws Exception {
+        SecretKey hmacSecretKey = settings.hmacSecretKey != null
+            ? settings.hmacSecretKey
+            : hmacService.parseKey(settings.hmacKey);
+        PublicKey publicKey = settings.publicKey != null
+            ? settings.publicKey
+            : eccService.parsePublicKey(settings.rsaPublicKey);
+
+        byte[] hmac = hmacService.calculateRawHMAC(plainDataJson, hmacSecretKey);
+        byte[] plainBytes = plainDataJson.getBytes(StandardCharsets.UTF_8);
+        String qrContent;
+        if (settings.envelopeVersion == 3) {
+            byte[] sealed = eccService.encryptSession(plainBytes, publicKey);
+            qrContent = EnvelopeCodec.encodeSession(settings.dataType, settings.keyCode, hmac, sealed);
+        } else {
+            byte[] sealed = eccService.encryptCompact(plainBytes, publicKey);
+            qrContent = EnvelopeCodec.encode(settings.dataType, settings.keyCode, hmac, sealed);
+        }
+
+        Map<String, String> encryptedResult = new HashMap<>();
+        encryptedResult.put("v", String.valueOf(settings.envelopeVersion));
+        encryptedResult.put("t", settings.dataType);
+        encryptedResult.put("k", settings.keyCode);
+        encryptedResult.put("qr", qrContent);
+
+        IssuedEnvelope envelope = new IssuedEnvelope();
+        envelope.plainData = plainData;
+        envelope.encryptedResult = encryptedResult;
+        envelope.qrContent = qrContent;
+        return envelope;
+    }
+
+    /**
+     * 產生 Base64 編碼的 QR Code
+     */
+    private String renderQRCodeBase64(IssuanceSettings settings, String qrContent) throws Exception {
+        // 使用已預先載入的 logo 生成 QR Code（預設為 TWDIW logo）
+        BufferedImage logoImage = resolveLogo(settings);
+
+        // 使用帶 logo 的 QR Code 生成方法
+        if (settings.renderOptions != null) {
+            // 依呼叫端指定的模組大小或 DPI，以模組解析度產生
+            return qrCodeService.generateQRCodeWithLogoSpace(qrContent, logoImage, settings.renderOptions);
+        }
+        return qrCodeService.generateQRCodeWithLogoSpace(
+            qrContent,
+            logoImage,
+            400,  // QR Code 尺寸
+            400,  // QR Code 尺寸
+            60    // Logo 尺寸
+        );
+    }
+
+    /**
+     * 將 QR Code PNG 直接寫入輸出串流
+     */
+    private void writeQRCodePng(IssuanceSettings settings, String qrContent, OutputStream out) throws Exception {
+        BufferedImage logoImage = resolveLogo(settings);
+        if (settings.renderOptions != null) {
+            qrCodeService.writeQRCodeWithLogoSpace(qrContent, logoImage, settings.renderOptions, out);
+        } else {
+            qrCodeService.writeQRCodeWithLogoSpace(qrContent, logoImage, 400, 400, 60, out);
+        }
+    }
+
+    /**
+     * 取得設定中的 logo 圖片
+     */
+    private BufferedImage resolveLogo(IssuanceSettings settings) {
+        BufferedImage logoImage = qrCodeService.findLogo(settings.logoId);
+        if (logoImage == null) {
+            // 如果內建 logo 載入失敗，產生不含 logo 的標準 QR Code
+            logger.error("找不到 logo「{}」，使用標準 QR Code", settings.logoId);
+        }
+        return logoImage;
+    }
+
+    /**
+     * 以 JSON 格式回傳錯誤訊息（用於直接寫入回應串流的 API）
+     */
+    private void writeJsonError(HttpServletResponse response, String message) throws IOException {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", message);
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    /**
+     * 從請求中解析 QR Code 渲染設定
+     * 支援 moduleSize（每個模組的像素數，可搭配 dpi）或 printSizeMm + dpi（列印尺寸，向量輸出可省略 dpi）
+     *
+     * @param request 請求內容
+     * @param vector 是否為向量輸出（SVG）
+     * @return 渲染設定，未提供任何渲染參數時回傳 null
+     * @throws IllegalArgumentException 當渲染參數格式或數值不合法時拋出
+     */
+    private QRCodeRenderOptions resolveRenderOptions(Map<String, Object> request, boolean vector) {
+        Integer moduleSize = toInteger(request.get("moduleSize"), "moduleSize");
+        Integer dpi = toInteger(request.get("dpi"), "dpi");
+        Object printSize = request.get("printSizeMm");
+
+        if (moduleSize != null) {
+            return QRCodeRenderOptions.ofModuleSize(moduleSize, dpi != null ? dpi : 0);
+        }
+        if (printSize != null) {
+            if (dpi == null && !vector) {
+                throw new IllegalArgumentException("指定 printSizeMm 時必須同時提供 dpi");
+            }
+            double printSizeMillimeters;
+            try {
+                printSizeMillimeters = Double.parseDouble(printSize.toString());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("printSizeMm 必須為數字");
+            }
+            return dpi == null
+                ? QRCodeRenderOptions.ofVectorPrintSize(printSizeMillimeters)
+                : QRCodeRenderOptions.ofPrintSize(printSizeMillimeters, dpi);
+        }
+        if (dpi != null) {
+            throw new IllegalArgumentException("指定 dpi 時必須同時提供 moduleSize 或 printSizeMm");
+        }
+        return null;
+    }
+
+    /**
+     * 將請求參數轉換為整數
+     * JSON 數字不直接截斷：含小數、非有限值或超出 int 範圍時視為格式錯誤
+     */
+    private Integer toInteger(Object value, String name) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            try {
+                return new BigDecimal(value.toString()).intValueExact();
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new IllegalArgumentException(name + " 必須為整數");
+            }
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " 必須為整數");
+        }
+    }
+
+    /**
+     * 產生設定：金鑰、資料類型、金鑰代碼、logo 與渲染設定
+     */
+    private static class IssuanceSettings {
+        private String totpKey;       // TOTP 金鑰
+        private String hmacKey;       // HMAC 金鑰
+        private String rsaPublicKey;  // 加密用公鑰
+        private String dataType;      // 資料類型 (t)
+        private String keyCode;       // 金鑰代碼 (k)
+        private int envelopeVersion;  // QR Code 內容格式（1、2 或 3）
+        private PayloadCipher cipher; // 加密演算法
+        private String logoId;        // logo 代碼
+        private QRCodeRenderOptions renderOptions;  // 渲染設定（null 表示固定 400px）
+        private PublicKey publicKey;                // 已解析的公鑰（批次產生時使用）
+        private SecretKey hmacSecretKey;            // 已解析的 HMAC 金鑰（批次產生時使用）
+    }
+
+    /**
+     * 產生完成的 QR Code 內容
+     */
+    private static class IssuedEnvelope {
+        private Map<String, String> plainData;        // 明碼資料（含 TOTP）
+        private Map<String, String> encryptedResult;  // 加密後的資料結構 {t, d, h, k} 或 {v, t, k, qr}
+        private String qrContent;           // QR Code 內容
+    }
+
+    /**
+     * CSV 匯入的單列產生結果
+     */
+    private static class ImportedRow {
+        private long row;          // CSV 資料列編號（從 1 開始，不含標題列）
+        private String fileName;   // ZIP 內的檔名
+        private byte[] png;        // QR Code PNG
+        private long crc;          // PNG 的 CRC-32
+        private String error;      // 錯誤訊息（成功時為 null）
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.controller;
+
+// 引入 Spring 框架相關類別
+import com.example.demo.service.QRCodeLogoRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+// 引入日誌相關類別
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// 引入 Java 標準庫相關類別
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * QR Code Logo 控制器
+ * 此控制器提供上傳自訂 logo 的 API，上傳後回傳以內容雜湊值產生的 logo 代碼，
+ * 產生 QR Code 時可透過 logoId 參數指定使用的 logo
+ */
+@RestController
+@RequestMapping("/api/qrcode/logos")
+public class QRCodeLogoController {
+
+    // 設定日誌記錄器
+    private static final Logger logger = LoggerFactory.getLogger(QRCodeLogoController.class);
+
+    // 注入 logo 註冊服務
+    @Autowired
+    private QRCodeLogoRegistry logoRegistry;
+
+    /**
+     * 上傳 logo
+     *
+     * @param file logo 圖片（PNG 或 JPEG）
+     * @return 包含 logo 代碼的 Map
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, String>> uploadLogo(@RequestParam("file") MultipartFile file) {
+        try {
+            String logoId = logoRegistry.registerLogo(file.getBytes());
+
+            Map<String, String> result = new HashMap<>();
+            result.put("logoId", logoId);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            // 處理錯誤情況
+            logger.error("上傳 logo 失敗", e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "logo 上傳失敗：" + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
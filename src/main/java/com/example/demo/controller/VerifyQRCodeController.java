@@ -6,6 +6,9 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.StringUtils;
@@ -21,17 +24,35 @@ import com.fasterxml.jackson.databind.JsonNode;
 // 引入服務層類別
 import com.example.demo.service.TOTPService;
 import com.example.demo.service.HMACService;
-
+import com.example.demo.service.QRCodeDecodeService;
+import com.example.demo.service.EnvelopeCodec;
+import com.example.demo.service.KeyringEntry;
+import com.example.demo.service.KeyringService;
+import com.example.demo.service.PayloadCipher;
+import com.example.demo.service.PayloadCipherRegistry;
+import com.example.demo.service.ReplayGuard;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * QR Code 驗證控制器
  * 此控制器負責驗證 QR Code 的內容，包含：
- * 1. RSA 解密
+ * 1. 解密（依信封的 a 欄位選擇演算法，未標示時為 X25519）
  * 2. TOTP 驗證
  * 3. HMAC 驗證
  * 4. 資料完整性檢查
+ * 5. 重複使用檢查（同一個 QR Code 在 TOTP 碼失效前只能驗證通過一次）
+ *
+ * 除了驗證前端解碼後的 QR Code 內容，也可上傳照片由伺服器端解碼後驗證；
+ * QR Code 內容自動辨識 v1（JSON {t, d, h, k}）與 v2（"RQ2:" 開頭的 Base45 精簡格式）
+ *
+ * 請求未帶金鑰時，依 QR Code 內容中的金鑰代碼（k）由伺服器端金鑰環取得金鑰
  */
 @RestController
 @RequestMapping("/api")
@@ -51,6 +72,22 @@ public class VerifyQRCodeController {
     @Autowired
     private ECCService eccService;
 
+    // 注入加密演算法選擇服務
+    @Autowired
+    private PayloadCipherRegistry payloadCiphers;
+
+    // 注入 QR Code 圖片解碼服務
+    @Autowired
+    private QRCodeDecodeService decodeService;
+
+    // 注入伺服器端金鑰環服務
+    @Autowired
+    private KeyringService keyringService;
+
+    // 注入重複使用檢查服務
+    @Autowired
+    private ReplayGuard replayGuard;
+
     // 建立 JSON 處理器
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -76,47 +113,181 @@ public class VerifyQRCodeController {
                 ));
             }
 
-            // 檢查是否為 JSON 格式或直接是加密字符串
-            String encryptedData;
+            return ResponseEntity.ok(verifyPayload(
+                request.getEncryptedData(),
+                requestKeys(request.getPrivateKey(), request.getTotpKey(), request.getHmacKey())
+            ));
+
+        } catch (Exception e) {
+            // 處理驗證過程中的錯誤
+            logger.error("驗證過程發生錯誤", e);
+            return ResponseEntity.ok(new VerifyQRCodeResponse(
+                "驗證過程發生錯誤：" + e.getMessage(),
+                false,
+                null
+            ));
+        }
+    }
+
+    /**
+     * 上傳 QR Code 照片，由伺服器端解碼後驗證
+     * 圖片中的每個 QR Code 分別驗證，回應包含各 QR Code 的驗證結果與各階段耗時（毫秒）
+     *
+     * @param file QR Code 照片（JPEG 或 PNG）
+     * @param privateKey 解密用私鑰（未提供任何金鑰時使用伺服器端金鑰環）
+     * @param totpKey TOTP 金鑰
+     * @param hmacKey HMAC 金鑰
+     * @return 驗證結果
+     */
+    @PostMapping(value = "/verify-qrcode/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> verifyQRCodeImage(@RequestParam("file") MultipartFile file,
+                                                                 @RequestParam(value = "privateKey", required = false) String privateKey,
+                                                                 @RequestParam(value = "totpKey", required = false) String totpKey,
+                                                                 @RequestParam(value = "hmacKey", required = false) String hmacKey) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (!hasKeys(privateKey, totpKey, hmacKey)) {
+            result.put("error", "請求參數驗證失敗：請確保所有必要參數都已提供且不為空");
+            return ResponseEntity.badRequest().body(result);
+        }
+
+        try {
+            KeyringEntry keys = requestKeys(privateKey, totpKey, hmacKey);
+
+            // 1. 伺服器端解碼圖片中的 QR Code
+            QRCodeDecodeService.QRCodeDecodeResult decoded = decodeService.decode(file.getBytes());
+            Map<String, Double> timings = decoded.getTimings();
+            logger.info("圖片解碼完成：{}x{}（取樣 {}），找到 {} 個 QR Code",
+                decoded.getSourceWidth(), decoded.getSourceHeight(), decoded.getSubsampling(), decoded.getTexts().size());
+
+            // 2. 逐一驗證解碼出的內容
+            long start = System.nanoTime();
+            List<VerifyQRCodeResponse> codes = new ArrayList<>();
+            for (String payload : decoded.getTexts()) {
+                codes.add(verifyPayload(payload, keys));
+            }
+            timings.put("verify", Math.round((System.nanoTime() - start) / 10_000.0) / 100.0);
+
+            result.put("message", codes.isEmpty() ? "圖片中找不到 QR Code" : "已解碼 " + codes.size() + " 個 QR Code");
+            result.put("codes", codes);
+            result.put("imageWidth", decoded.getSourceWidth());
+            result.put("imageHeight", decoded.getSourceHeight());
+            result.put("subsampling", decoded.getSubsampling());
+            result.put("timings", timings);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            result.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        } catch (Exception e) {
+            logger.error("圖片解碼過程發生錯誤", e);
+            result.put("error", "圖片解碼失敗：" + e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+
+    /**
+     * 驗證單一 QR Code 內容：解密、TOTP 驗證與 HMAC 驗證
+     * 供文字內容驗證與圖片解碼驗證共用
+     *
+     * @param payload QR Code 內容（v2 精簡格式、{t, d, h, k} JSON 或直接的加密字串）
+     * @param requestKeys 請求提供的金鑰；為 null 時依內容中的金鑰代碼由伺服器端金鑰環取得
+     * @return 驗證結果
+     */
+    private VerifyQRCodeResponse verifyPayload(String payload, KeyringEntry requestKeys) {
+        try {
+            // 檢查是否為 v2 精簡格式、JSON 格式或直接是加密字符串
+            String encryptedData = null;
             String expectedHmac = null;
+            String keyCode = null;
+            String algorithm = null;
+            EnvelopeCodec.Envelope compactEnvelope = null;
             
-            try {
-                // 嘗試解析為 JSON 格式
-                logger.info("嘗試解析 encryptedData 為 JSON...");
-                JsonNode encryptedDataNode = objectMapper.readTree(request.getEncryptedData());
-                logger.info("JSON 解析成功，檢查是否包含 d 和 h 欄位");
-                logger.info("JSON 欄位：{}", encryptedDataNode.fieldNames());
+            if (EnvelopeCodec.isCompact(payload)) {
+                // v2 / v3 格式：Base45 編碼的二進位結構
+                compactEnvelope = EnvelopeCodec.decode(payload);
+                keyCode = compactEnvelope.getKeyCode();
+                logger.info("檢測到 {} 精簡格式，資料類型：{}，金鑰代碼：{}",
+                    compactEnvelope.isSession() ? "v3 工作階段" : "v2", compactEnvelope.getDataType(), keyCode);
+            } else {
+                try {
+                    // 嘗試解析為 JSON 格式
+                    logger.info("嘗試解析 encryptedData 為 JSON...");
+                    JsonNode encryptedDataNode = objectMapper.readTree(payload);
+                    logger.info("JSON 解析成功，檢查是否包含 d 和 h 欄位");
+                    logger.info("JSON 欄位：{}", encryptedDataNode.fieldNames());
                 
-                if (encryptedDataNode.has("d") && encryptedDataNode.has("h")) {
-                    // 新格式：從 JSON 中提取 d 和 h
-                    encryptedData = encryptedDataNode.get("d").asText();
-                    expectedHmac = encryptedDataNode.get("h").asText();
-                    logger.info("檢測到新格式資料，包含 d 和 h 欄位");
+                    if (encryptedDataNode.has("d") && encryptedDataNode.has("h")) {
+                        // 新格式：從 JSON 中提取 d 和 h
+                        encryptedData = encryptedDataNode.get("d").asText();
+                        expectedHmac = encryptedDataNode.get("h").asText();
+                        logger.info("檢測到新格式資料，包含 d 和 h 欄位");
                     
-                    // 檢查是否有金鑰代碼欄位
-                    if (encryptedDataNode.has("k")) {
-                        String keyCode = encryptedDataNode.get("k").asText();
-                        logger.info("檢測到金鑰代碼：{}", keyCode);
+                        // 檢查是否有金鑰代碼欄位
+                        if (encryptedDataNode.has("k")) {
+                            keyCode = encryptedDataNode.get("k").asText();
+                            logger.info("檢測到金鑰代碼：{}", keyCode);
+                        }
+
+                        // 檢查是否標示加密演算法（未標示時為 X25519）
+                        if (encryptedDataNode.has("a")) {
+                            algorithm = encryptedDataNode.get("a").asText();
+                            logger.info("檢測到加密演算法：{}", algorithm);
+                        }
+                    } else {
+                        return new VerifyQRCodeResponse(
+                            "加密資料格式錯誤：缺少 d 或 h 欄位",
+                            false,
+                            null
+                        );
                     }
-                } else {
-                    return ResponseEntity.ok(new VerifyQRCodeResponse(
-                        "加密資料格式錯誤：缺少 d 或 h 欄位",
-                        false,
-                        null
-                    ));
+                } catch (Exception e) {
+                    // 如果不是 JSON 格式，假設是直接的加密字符串
+                    logger.info("不是 JSON 格式，假設為直接的加密字符串");
+                    encryptedData = payload;
+                    // 注意：這種情況下沒有 HMAC，需要從外部提供
+                    logger.warn("直接加密字符串格式，無法進行 HMAC 驗證");
                 }
-            } catch (Exception e) {
-                // 如果不是 JSON 格式，假設是直接的加密字符串
-                logger.info("不是 JSON 格式，假設為直接的加密字符串");
-                encryptedData = request.getEncryptedData();
-                // 注意：這種情況下沒有 HMAC，需要從外部提供
-                logger.warn("直接加密字符串格式，無法進行 HMAC 驗證");
+            }
+            
+            // 取得驗證用金鑰：請求未提供時依金鑰代碼由伺服器端金鑰環查詢
+            KeyringEntry keys = requestKeys != null ? requestKeys : keyringService.find(keyCode);
+            if (keys == null) {
+                logger.error("找不到金鑰代碼對應的伺服器端金鑰：{}", keyCode);
+                return new VerifyQRCodeResponse(
+                    keyCode == null
+                        ? "無法取得金鑰：QR Code 內容沒有金鑰代碼，請提供驗證金鑰"
+                        : "無法取得金鑰：找不到金鑰代碼「" + keyCode + "」",
+                    false,
+                    null
+                );
             }
             
             // 1. 解密 D 欄位內容
             logger.info("開始解密 D 欄位內容");
-            String decryptedData = eccService.decrypt(encryptedData, request.getPrivateKey());
-            logger.info("解密完成，解密後的資料：{}", decryptedData);
+            String decryptedData;
+            ByteBuffer authenticatedPart;
+            if (compactEnvelope == null) {
+                // 直接的加密字串（沒有 h 欄位）也沒有演算法標示，依私鑰類型選擇
+                PayloadCipher cipher = expectedHmac == null
+                    ? payloadCiphers.forKey(keys.getPrivateKey())
+                    : payloadCiphers.get(algorithm);
+                if (!cipher.supports(keys.getPrivateKey())) {
+                    logger.error("私鑰類型與加密演算法 {} 不符", cipher.getAlgorithm());
+                    return new VerifyQRCodeResponse(
+                        "解密失敗：私鑰與加密演算法 " + cipher.getAlgorithm() + " 不符",
+                        false,
+                        null
+                    );
+                }
+                decryptedData = cipher.decrypt(encryptedData, keys.getPrivateKey());
+                authenticatedPart = cipher.authenticatedPart(encryptedData, keys.getPrivateKey());
+            } else if (compactEnvelope.isSession()) {
+                decryptedData = eccService.decryptSession(compactEnvelope.getSealed(), keys.getPrivateKey());
+                authenticatedPart = compactEnvelope.getAuthenticatedPart();
+            } else {
+                decryptedData = eccService.decryptCompact(compactEnvelope.getSealed(), keys.getPrivateKey());
+                authenticatedPart = compactEnvelope.getAuthenticatedPart();
+            }
+            logger.info("解密完成");
             
             // 使用 ObjectMapper 來處理 JSON 字符串的 unescape
             String unescapedData;
@@ -124,82 +295,103 @@ public class VerifyQRCodeController {
                 // 先嘗試直接解析為 JSON 對象，然後轉回字符串來處理 unescape
                 JsonNode jsonNode = objectMapper.readTree(decryptedData);
                 unescapedData = objectMapper.writeValueAsString(jsonNode);
-                logger.info("使用 ObjectMapper 處理 unescape 後的資料：{}", unescapedData);
             } catch (Exception e) {
                 // 如果解析失敗，使用原始數據
-                logger.warn("JSON 解析失敗，使用原始解密數據：{}", e.getMessage());
+                // 例外訊息可能包含部分明文，只記錄例外類型
+                logger.warn("JSON 解析失敗，使用原始解密數據：{}", e.getClass().getSimpleName());
                 unescapedData = decryptedData;
             }
             
-            // 輸出解密後的明文到日誌
-            logger.info("==========================================");
-            logger.info("解密後的明文：");
-            logger.info(unescapedData);
-            logger.info("==========================================");
-            
             // 解析 JSON 資料
             JsonNode dataNode = objectMapper.readTree(unescapedData);
             logger.info("JSON 解析完成");
 
             // 取得各欄位值
             String totp = dataNode.get("totp").asText();
-            logger.info("TOTP金鑰：{}", request.getTotpKey());
 
             // 3. 驗證 TOTP 碼
             logger.info("開始驗證 TOTP");
-            if (!totpService.verifyTOTP(totp, request.getTotpKey())) {
+            if (!totpService.verifyTOTP(totp, keys.getTotpSecretKey())) {
                 logger.error("TOTP 驗證失敗");
-                return ResponseEntity.ok(new VerifyQRCodeResponse(
+                return new VerifyQRCodeResponse(
                     "TOTP 驗證失敗：TOTP 碼無效或已過期",
                     false,
                     null
-                ));
+                );
             }
             logger.info("TOTP 驗證通過");
 
             // 4. 驗證 HMAC 值（如果有提供）
-            if (expectedHmac != null) {
+            if (compactEnvelope != null) {
+                logger.info("開始驗證 HMAC（v2）");
+                if (!keys.verifyHmac(decryptedData, compactEnvelope.getHmac())) {
+                    logger.error("HMAC 驗證失敗");
+                    return new VerifyQRCodeResponse(
+                        "HMAC 驗證失敗：資料完整性檢查失敗",
+                        false,
+                        null
+                    );
+                }
+                logger.info("HMAC 驗證通過");
+            } else if (expectedHmac != null) {
                 logger.info("開始驗證 HMAC");
-                // 直接使用解密後的明文進行 HMAC 驗證
-                String calculatedHmac = hmacService.calculateHMAC(decryptedData, request.getHmacKey());
-                logger.info("計算出的 HMAC：{}", calculatedHmac);
-                logger.info("原始 HMAC：{}", expectedHmac);
-                logger.info("用於計算 HMAC 的明文資料：{}", decryptedData);
+                // 將 h 欄位解碼為原始位元組，直接以解密後的明文固定時間比對（格式不正確時視為不符）
+                byte[] expectedTag;
+                try {
+                    expectedTag = Base64.getDecoder().decode(expectedHmac);
+                } catch (IllegalArgumentException e) {
+                    expectedTag = null;
+                }
                 
-                if (!calculatedHmac.equals(expectedHmac)) {
+                if (!keys.verifyHmac(decryptedData, expectedTag)) {
                     logger.error("HMAC 驗證失敗");
-                    return ResponseEntity.ok(new VerifyQRCodeResponse(
+                    return new VerifyQRCodeResponse(
                         "HMAC 驗證失敗：資料完整性檢查失敗",
                         false,
                         null
-                    ));
+                    );
                 }
                 logger.info("HMAC 驗證通過");
             } else {
                 logger.info("跳過 HMAC 驗證（未提供 HMAC 值）");
             }
 
-            // 5. 所有驗證都通過，回傳解密後的資料
+            // 5. 檢查是否重複使用（以解碼後經 AEAD 驗證的 nonce + 密文 + tag 計算指紋，只記錄驗證通過的 QR Code）
+            long fingerprint = ReplayGuard.fingerprint(authenticatedPart);
+            ReplayGuard.Result replay = replayGuard.check(fingerprint);
+            if (replay != ReplayGuard.Result.FIRST_SEEN) {
+                logger.warn("QR Code 重複使用檢查未通過：{}", replay);
+                return new VerifyQRCodeResponse(
+                    replay == ReplayGuard.Result.REPLAYED
+                        ? "重複使用：此 QR Code 已驗證過"
+                        : "驗證流量過高：無法記錄此 QR Code，請稍後再試",
+                    false,
+                    null
+                );
+            }
+
+            // 6. 所有驗證都通過，回傳解密後的資料
             logger.info("所有驗證都通過，準備回傳結果");
-            return ResponseEntity.ok(new VerifyQRCodeResponse(
+            return new VerifyQRCodeResponse(
                 "驗證成功",
                 true,
                 unescapedData
-            ));
+            );
 
         } catch (Exception e) {
             // 處理驗證過程中的錯誤
             logger.error("驗證過程發生錯誤", e);
-            return ResponseEntity.ok(new VerifyQRCodeResponse(
+            return new VerifyQRCodeResponse(
                 "驗證過程發生錯誤：" + e.getMessage(),
                 false,
                 null
-            ));
+            );
         }
     }
 
     /**
-     * 驗證請求參數是否完整（舊版本）
+     * 驗證請求參數是否完整
+     * 金鑰必須全部提供，或在已設定伺服器端金鑰環時全部省略
      * 
      * @param request 驗證請求物件
      * @return 如果所有必要參數都存在且不為空則回傳 true，否則回傳 false
@@ -207,9 +399,28 @@ public class VerifyQRCodeController {
     private boolean validateRequest(VerifyQRCodeRequest request) {
         return request != null &&
                StringUtils.hasText(request.getEncryptedData()) &&
-               StringUtils.hasText(request.getPrivateKey()) &&
-               StringUtils.hasText(request.getTotpKey()) &&
-               StringUtils.hasText(request.getHmacKey());
+               hasKeys(request.getPrivateKey(), request.getTotpKey(), request.getHmacKey());
+    }
+
+    /**
+     * 檢查請求的金鑰參數：三把金鑰都有提供，或都未提供且伺服器端金鑰環已啟用
+     */
+    private boolean hasKeys(String privateKey, String totpKey, String hmacKey) {
+        boolean all = StringUtils.hasText(privateKey) && StringUtils.hasText(totpKey) && StringUtils.hasText(hmacKey);
+        boolean none = !StringUtils.hasText(privateKey) && !StringUtils.hasText(totpKey) && !StringUtils.hasText(hmacKey);
+        return all || (none && keyringService.isEnabled());
+    }
+
+    /**
+     * 將請求提供的金鑰解析為一組金鑰；未提供金鑰時回傳 null（改由伺服器端金鑰環取得）
+     * 私鑰與 HmacEngine 都由快取取得，同一組金鑰不會每次請求都重新解析或初始化 Mac
+     */
+    private KeyringEntry requestKeys(String privateKey, String totpKey, String hmacKey) throws Exception {
+        if (!StringUtils.hasText(privateKey)) {
+            return null;
+        }
+        return new KeyringEntry(null, 0, payloadCiphers.parsePrivateKey(privateKey), null,
+            totpKey, hmacService.engine(hmacKey));
     }
 
     /**
@@ -234,7 +445,7 @@ public class VerifyQRCodeController {
      */
     public static class VerifyQRCodeRequest {
         private String encryptedData;  // 加密後的資料
-        private String privateKey;     // RSA 私鑰
+        private String privateKey;     // 解密用私鑰（與以下金鑰都省略時使用伺服器端金鑰環）
         private String totpKey;        // TOTP 金鑰
         private String hmacKey;        // HMAC 金鑰
 
@@ -0,0 +1,304 @@
+package com.example.demo.service;
+
+// 引入 ZXing 相關的類別
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+
+/**
+ * 以 32 位元字組儲存的二值點陣
+ * 每一列以 int 字組連續儲存，像素 x 位於字組 x / 32 的第 x % 32 個位元（低位元在左），與 ZXing BitMatrix 相同。
+ * 矩形區域的清除、複製與計數都以整個字組運算，只有區域左右兩端的字組需要遮罩，
+ * 所需時間與區域的列數乘上每列的字組數成正比，而不是逐一檢查每個像素
+ *
+ * 區域參數超出點陣範圍的部分會被忽略（與逐像素檢查矩形條件的結果相同）
+ */
+public final class BitGrid {
+
+    private final int width;
+    private final int height;
+    private final int rowSize;  // 每列的字組數
+    private final int[] bits;
+
+    public BitGrid(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("點陣寬度與高度必須大於 0");
+        }
+        this.width = width;
+        this.height = height;
+        this.rowSize = (width + 31) >>> 5;
+        this.bits = new int[rowSize * height];
+    }
+
+    /**
+     * 由 QR Code 模組矩陣建立點陣（1 為深色模組）
+     */
+    public static BitGrid fromModules(ByteMatrix modules) {
+        BitGrid grid = new BitGrid(modules.getWidth(), modules.getHeight());
+        byte[][] array = modules.getArray();
+        for (int y = 0; y < grid.height; y++) {
+            byte[] row = array[y];
+            int base = y * grid.rowSize;
+            for (int x = 0; x < grid.width; x++) {
+                if (row[x] == 1) {
+                    grid.bits[base + (x >>> 5)] |= 1 << (x & 31);
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * 由 ZXing BitMatrix 建立點陣（逐列以字組複製）
+     */
+    public static BitGrid fromBitMatrix(BitMatrix matrix) {
+        BitGrid grid = new BitGrid(matrix.getWidth(), matrix.getHeight());
+        BitArray row = new BitArray(grid.width);
+        for (int y = 0; y < grid.height; y++) {
+            row = matrix.getRow(y, row);
+            System.arraycopy(row.getBitArray(), 0, grid.bits, y * grid.rowSize, grid.rowSize);
+        }
+        return grid;
+    }
+
+    /**
+     * 轉換為 ZXing BitMatrix（逐列以字組複製）
+     */
+    public BitMatrix toBitMatrix() {
+        BitMatrix matrix = new BitMatrix(width, height);
+        BitArray row = new BitArray(width);
+        int[] rowBits = row.getBitArray();
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(bits, y * rowSize, rowBits, 0, rowSize);
+            matrix.setRow(y, row);
+        }
+        return matrix;
+    }
+
+    /**
+     * 直接在 ZXing BitMatrix 上清除矩形區域（設為白色），只處理區域涵蓋的列
+     *
+     * @param matrix 要修改的 BitMatrix
+     * @param left 區域左側 X 座標
+     * @param top 區域上方 Y 座標
+     * @param regionWidth 區域寬度
+     * @param regionHeight 區域高度
+     */
+    public static void clearRegion(BitMatrix matrix, int left, int top, int regionWidth, int regionHeight) {
+        int from = Math.max(0, left);
+        int to = Math.min(matrix.getWidth(), left + regionWidth);
+        int bottom = Math.min(matrix.getHeight(), top + regionHeight);
+        if (from >= to) {
+            return;
+        }
+        BitArray row = new BitArray(matrix.getWidth());
+        for (int y = Math.max(0, top); y < bottom; y++) {
+            row = matrix.getRow(y, row);
+            clearBits(row.getBitArray(), 0, from, to);
+            matrix.setRow(y, row);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean get(int x, int y) {
+        return ((bits[y * rowSize + (x >>> 5)] >>> (x & 31)) & 1) != 0;
+    }
+
+    public void set(int x, int y) {
+        bits[y * rowSize + (x >>> 5)] |= 1 << (x & 31);
+    }
+
+    /**
+     * 尋找列 y 中從 x 開始的第一個深色點，以字組為單位跳過整段白色
+     *
+     * @return 深色點的 X 座標，找不到時回傳點陣寬度
+     */
+    public int nextSet(int x, int y) {
+        if (x >= width) {
+            return width;
+        }
+        int base = y * rowSize;
+        int index = x >>> 5;
+        int word = bits[base + index] & (-1 << (x & 31));
+        while (word == 0) {
+            if (++index == rowSize) {
+                return width;
+            }
+            word = bits[base + index];
+        }
+        return Math.min(width, (index << 5) + Integer.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * 尋找列 y 中從 x 開始的第一個白色點，以字組為單位跳過整段深色
+     *
+     * @return 白色點的 X 座標，找不到時回傳點陣寬度
+     */
+    public int nextUnset(int x, int y) {
+        if (x >= width) {
+            return width;
+        }
+        int base = y * rowSize;
+        int index = x >>> 5;
+        int word = ~bits[base + index] & (-1 << (x & 31));
+        while (word == 0) {
+            if (++index == rowSize) {
+                return width;
+            }
+            word = ~bits[base + index];
+        }
+        return Math.min(width, (index << 5) + Integer.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * 將矩形區域設為深色
+     */
+    public void setRegion(int left, int top, int regionWidth, int regionHeight) {
+        int from = Math.max(0, left);
+        int to = Math.min(width, left + regionWidth);
+        int bottom = Math.min(height, top + regionHeight);
+        for (int y = Math.max(0, top); y < bottom && from < to; y++) {
+            setBits(bits, y * rowSize, from, to);
+        }
+    }
+
+    /**
+     * 將矩形區域清為白色
+     */
+    public void clearRegion(int left, int top, int regionWidth, int regionHeight) {
+        int from = Math.max(0, left);
+        int to = Math.min(width, left + regionWidth);
+        int bottom = Math.min(height, top + regionHeight);
+        for (int y = Math.max(0, top); y < bottom && from < to; y++) {
+            clearBits(bits, y * rowSize, from, to);
+        }
+    }
+
+    /**
+     * 計算矩形區域內的深色點數
+     */
+    public int countRegion(int left, int top, int regionWidth, int regionHeight) {
+        int from = Math.max(0, left);
+        int to = Math.min(width, left + regionWidth);
+        int bottom = Math.min(height, top + regionHeight);
+        int count = 0;
+        for (int y = Math.max(0, top); y < bottom && from < to; y++) {
+            int base = y * rowSize;
+            int first = from >>> 5;
+            int last = (to - 1) >>> 5;
+            if (first == last) {
+                count += Integer.bitCount(bits[base + first] & rangeMask(from & 31, ((to - 1) & 31) + 1));
+                continue;
+            }
+            count += Integer.bitCount(bits[base + first] & (-1 << (from & 31)));
+            for (int i = first + 1; i < last; i++) {
+                count += Integer.bitCount(bits[base + i]);
+            }
+            count += Integer.bitCount(bits[base + last] & (-1 >>> (31 - ((to - 1) & 31))));
+        }
+        return count;
+    }
+
+    /**
+     * 將來源點陣的矩形區域複製到此點陣（來源與目的可為同一點陣，但區域不可重疊）
+     *
+     * @param source 來源點陣
+     * @param sourceX 來源區域左側 X 座標
+     * @param sourceY 來源區域上方 Y 座標
+     * @param regionWidth 區域寬度
+     * @param regionHeight 區域高度
+     * @param targetX 目的區域左側 X 座標
+     * @param targetY 目的區域上方 Y 座標
+     * @throws IllegalArgumentException 當來源或目的區域超出點陣範圍時拋出
+     */
+    public void copyRegion(BitGrid source, int sourceX, int sourceY, int regionWidth, int regionHeight,
+                           int targetX, int targetY) {
+        if (regionWidth < 0 || regionHeight < 0
+                || sourceX < 0 || sourceY < 0 || sourceX + regionWidth > source.width || sourceY + regionHeight > source.height
+                || targetX < 0 || targetY < 0 || targetX + regionWidth > width || targetY + regionHeight > height) {
+            throw new IllegalArgumentException("複製區域超出點陣範圍");
+        }
+        for (int row = 0; row < regionHeight; row++) {
+            int sourceBase = (sourceY + row) * source.rowSize;
+            int targetBase = (targetY + row) * rowSize;
+            // 每次處理目的端一個字組內的連續位元，來源位元以兩個字組拼接後位移取得
+            int x = 0;
+            while (x < regionWidth) {
+                int targetBit = targetX + x;
+                int count = Math.min(32 - (targetBit & 31), regionWidth - x);
+                int value = readBits(source.bits, sourceBase, sourceX + x, count);
+                int mask = rangeMask(targetBit & 31, (targetBit & 31) + count);
+                int index = targetBase + (targetBit >>> 5);
+                bits[index] = (bits[index] & ~mask) | ((value << (targetBit & 31)) & mask);
+                x += count;
+            }
+        }
+    }
+
+    /**
+     * 讀取列中從 start 開始的 count 個位元（count 不超過 32），結果置於低位元
+     */
+    private static int readBits(int[] words, int base, int start, int count) {
+        int index = base + (start >>> 5);
+        int shift = start & 31;
+        long value = (words[index] & 0xFFFFFFFFL) >>> shift;
+        if (shift + count > 32) {
+            value |= (words[index + 1] & 0xFFFFFFFFL) << (32 - shift);
+        }
+        return (int) value;
+    }
+
+    /**
+     * 將一列中 [from, to) 的位元設為 1
+     *
+     * @param words 點陣字組
+     * @param base 此列第一個字組的索引
+     */
+    static void setBits(int[] words, int base, int from, int to) {
+        int first = from >>> 5;
+        int last = (to - 1) >>> 5;
+        if (first == last) {
+            words[base + first] |= rangeMask(from & 31, ((to - 1) & 31) + 1);
+            return;
+        }
+        words[base + first] |= -1 << (from & 31);
+        for (int i = first + 1; i < last; i++) {
+            words[base + i] = -1;
+        }
+        words[base + last] |= -1 >>> (31 - ((to - 1) & 31));
+    }
+
+    /**
+     * 將一列中 [from, to) 的位元清為 0
+     *
+     * @param words 點陣字組
+     * @param base 此列第一個字組的索引
+     */
+    static void clearBits(int[] words, int base, int from, int to) {
+        int first = from >>> 5;
+        int last = (to - 1) >>> 5;
+        if (first == last) {
+            words[base + first] &= ~rangeMask(from & 31, ((to - 1) & 31) + 1);
+            return;
+        }
+        words[base + first] &= ~(-1 << (from & 31));
+        for (int i = first + 1; i < last; i++) {
+            words[base + i] = 0;
+        }
+        words[base + last] &= ~(-1 >>> (31 - ((to - 1) & 31)));
+    }
+
+    /**
+     * 字組內 [from, to) 位元的遮罩（0 <= from < to <= 32）
+     */
+    private static int rangeMask(int from, int to) {
+        return (-1 >>> (32 - (to - from))) << from;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.service;
+
+// 引入 Java 加密相關類別
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.NamedParameterSpec;
+
+// 引入 Java 標準庫相關類別
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ECC、RSA、HMAC 與 TOTP 共用的加密元件物件池
+ * 避免每次加解密都透過 getInstance 查詢加密提供者並建立新物件
+ *
+ * 各元件在取出後由呼叫端重新 init（Mac、Cipher、KeyAgreement 會因此重設狀態）；
+ * MessageDigest 在歸還時 reset，不會殘留未完成的計算
+ *
+ * Mac 的 reset 與 KeyAgreement 的計算完成後都會保留上一次 init 的金鑰，Cipher 也一樣，
+ * 因此有金鑰的元件在歸還時都以程序內的重設金鑰重新 init，池中閒置的元件不保留任何呼叫端的金鑰。
+ * ChaCha20-Poly1305 的 Cipher 另外會拒絕以「與上一次相同的金鑰與 nonce」重新 init（不分加解密模式），
+ * 同一份密文解密兩次或加密後立即解密都會觸發，重設時的 nonce 因此使用不重複的計數器
+ */
+public final class CryptoPools {
+
+    // 每種元件保留的閒置數量上限
+    private static final int CAPACITY = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    // 已初始化為 X25519 曲線的金鑰對產生器
+    static final CryptoPrimitivePool<KeyPairGenerator> X25519_KEY_PAIR_GENERATOR = new CryptoPrimitivePool<>(
+        "x25519KeyPairGenerator", CAPACITY, () -> {
+            KeyPairGenerator kpg = KeyPairGenerator.getInstance("X25519");
+            kpg.initialize(NamedParameterSpec.X25519, RandomSource.system().secureRandom());
+            return kpg;
+        }, null);
+
+    // 歸還 KeyAgreement 時使用的重設私鑰（程序啟動時產生，只用於清除上一次使用的私鑰）
+    private static final PrivateKey KEY_AGREEMENT_RESET_KEY = newX25519ResetKey();
+
+    static final CryptoPrimitivePool<KeyAgreement> X25519_KEY_AGREEMENT = new CryptoPrimitivePool<>(
+        "x25519KeyAgreement", CAPACITY, () -> KeyAgreement.getInstance("X25519"), CryptoPools::resetKeyAgreement);
+
+    static final CryptoPrimitivePool<KeyFactory> X25519_KEY_FACTORY = new CryptoPrimitivePool<>(
+        "x25519KeyFactory", CAPACITY, () -> KeyFactory.getInstance("X25519"), null);
+
+    // 歸還 Cipher 時使用的重設金鑰（程序啟動時隨機產生）與 nonce 計數器
+    private static final SecretKey CIPHER_RESET_KEY = new SecretKeySpec(RandomSource.system().nonce(32), "ChaCha20");
+    private static final AtomicLong CIPHER_RESET_COUNTER = new AtomicLong();
+
+    static final CryptoPrimitivePool<Cipher> CHACHA20_POLY1305 = new CryptoPrimitivePool<>(
+        "chacha20Poly1305", CAPACITY, () -> Cipher.getInstance("ChaCha20-Poly1305"), CryptoPools::resetCipher);
+
+    // RSA-OAEP 的 Cipher 每次使用都以完整的 OAEP 參數重新 init；歸還時改以重設公鑰 init，不保留呼叫端的私鑰
+    static final CryptoPrimitivePool<Cipher> RSA_OAEP = new CryptoPrimitivePool<>(
+        "rsaOaep", CAPACITY, () -> Cipher.getInstance("RSA/ECB/OAEPPadding"), CryptoPools::resetRsaCipher);
+
+    static final CryptoPrimitivePool<KeyFactory> RSA_KEY_FACTORY = new CryptoPrimitivePool<>(
+        "rsaKeyFactory", CAPACITY, () -> KeyFactory.getInstance("RSA"), null);
+
+    // 歸還 Mac 時使用的重設金鑰（程序啟動時隨機產生）
+    private static final SecretKey MAC_RESET_KEY = new SecretKeySpec(RandomSource.system().nonce(32), "HmacSHA256");
+
+    static final CryptoPrimitivePool<Mac> HMAC_SHA256 = new CryptoPrimitivePool<>(
+        "hmacSha256", CAPACITY, () -> Mac.getInstance("HmacSHA256"), CryptoPools::resetMac);
+
+    static final CryptoPrimitivePool<MessageDigest> SHA256 = new CryptoPrimitivePool<>(
+        "sha256", CAPACITY, () -> MessageDigest.getInstance("SHA-256"), MessageDigest::reset);
+
+    private CryptoPools() {
+    }
+
+    /**
+     * 以重設金鑰與不重複的 nonce 重新 init Cipher，讓下一次使用不會與上一次的金鑰、nonce 相同
+     */
+    private static void resetCipher(Cipher cipher) {
+        byte[] nonce = new byte[12];
+        long counter = CIPHER_RESET_COUNTER.incrementAndGet();
+        for (int i = 0; i < 8; i++) {
+            nonce[i] = (byte) (counter >>> (56 - 8 * i));
+        }
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, CIPHER_RESET_KEY, new IvParameterSpec(nonce));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher 重設失敗", e);
+        }
+    }
+
+    /**
+     * 以重設金鑰重新 init Mac，清除上一次使用的金鑰與未完成的計算
+     */
+    static void resetMac(Mac mac) {
+        try {
+            mac.init(MAC_RESET_KEY);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Mac 重設失敗", e);
+        }
+    }
+
+    /**
+     * 以重設私鑰重新 init KeyAgreement，清除上一次使用的私鑰
+     */
+    static void resetKeyAgreement(KeyAgreement keyAgreement) {
+        try {
+            keyAgreement.init(KEY_AGREEMENT_RESET_KEY);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("KeyAgreement 重設失敗", e);
+        }
+    }
+
+    /**
+     * 以重設公鑰重新 init RSA Cipher（加密模式），清除上一次使用的私鑰
+     */
+    static void resetRsaCipher(Cipher cipher) {
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, RsaResetKey.PUBLIC_KEY);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher 重設失敗", e);
+        }
+    }
+
+    private static PrivateKey newX25519ResetKey() {
+        try {
+            return KeyPairGenerator.getInstance("X25519").generateKeyPair().getPrivate();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("不支援 X25519", e);
+        }
+    }
+
+    /**
+     * RSA Cipher 的重設公鑰，第一次歸還 RSA Cipher 時才產生（只用於清除狀態，長度取 OAEP-SHA256 可用的最小值以上）
+     */
+    private static final class RsaResetKey {
+        private static final PublicKey PUBLIC_KEY;
+
+        static {
+            try {
+                KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+                kpg.initialize(1024, RandomSource.system().secureRandom());
+                PUBLIC_KEY = kpg.generateKeyPair().getPublic();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("不支援 RSA", e);
+            }
+        }
+    }
+
+    /**
+     * 取得所有物件池的統計資料
+     * contended 為取用時槽位被其他執行緒搶先取走的次數，created 扣除暖機後即為池中元件不足的次數
+     *
+     * @return 以物件池名稱分組的統計資料
+     */
+    public static Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        for (CryptoPrimitivePool<?> pool : new CryptoPrimitivePool<?>[] {
+            X25519_KEY_PAIR_GENERATOR, X25519_KEY_AGREEMENT, X25519_KEY_FACTORY, CHACHA20_POLY1305,
+            RSA_OAEP, RSA_KEY_FACTORY, HMAC_SHA256, SHA256
+        }) {
+            stats.put(pool.getName(), pool.getStats());
+        }
+        return stats;
+    }
+}
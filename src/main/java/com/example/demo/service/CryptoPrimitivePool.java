@@ -0,0 +1,168 @@
+package com.example.demo.service;
+
+// 引入 Java 標準庫相關類別
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 加密元件（Mac、Cipher、KeyAgreement 等）的無鎖物件池
+ * 以固定數量的槽位保存閒置的元件，取用與歸還都只做 compareAndSet，不使用鎖，也不依賴 ThreadLocal，
+ * 在虛擬執行緒下同樣適用（不會為每個虛擬執行緒各保留一份）
+ *
+ * 池中沒有閒置元件時直接建立新的元件；歸還時槽位已滿則捨棄。
+ * 取出的元件由呼叫端在使用前以自己的金鑰與參數重新 init，因此元件內殘留的狀態不會影響下一次使用
+ *
+ * @param <T> 元件型別
+ */
+final class CryptoPrimitivePool<T> {
+
+    /**
+     * 建立新的元件（包含 getInstance 的提供者查詢）
+     */
+    @FunctionalInterface
+    interface Factory<T> {
+        T create() throws GeneralSecurityException;
+    }
+
+    /**
+     * 歸還前重設元件狀態；無法重設時拋出 RuntimeException，元件會被捨棄
+     */
+    @FunctionalInterface
+    interface Reset<T> {
+        void reset(T value);
+    }
+
+    /**
+     * 使用取出的元件執行的動作
+     */
+    @FunctionalInterface
+    interface Action<T, R> {
+        R apply(T value) throws GeneralSecurityException;
+    }
+
+    private final String name;
+    private final Factory<T> factory;
+    private final Reset<T> reset;
+    private final AtomicReferenceArray<T> slots;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    CryptoPrimitivePool(String name, int capacity, Factory<T> factory, Reset<T> reset) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("物件池容量必須大於 0");
+        }
+        this.name = name;
+        this.factory = factory;
+        this.reset = reset;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * 取出一個元件，池中沒有閒置元件時建立新的元件
+     *
+     * @return 元件（使用完畢後以 {@link #release(Object)} 歸還）
+     * @throws GeneralSecurityException 當建立元件失敗時拋出
+     */
+    T acquire() throws GeneralSecurityException {
+        acquired.increment();
+        int length = slots.length();
+        int start = startIndex(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            T value = slots.get(index);
+            if (value != null) {
+                if (slots.compareAndSet(index, value, null)) {
+                    reused.increment();
+                    return value;
+                }
+                // 其他執行緒同時取走了這個槽位的元件
+                contended.increment();
+            }
+        }
+        created.increment();
+        return factory.create();
+    }
+
+    /**
+     * 歸還元件；無法重設或槽位已滿時捨棄
+     *
+     * @param value 由 {@link #acquire()} 取得的元件
+     */
+    void release(T value) {
+        if (value == null) {
+            return;
+        }
+        if (reset != null) {
+            try {
+                reset.reset(value);
+            } catch (RuntimeException e) {
+                discarded.increment();
+                return;
+            }
+        }
+        int length = slots.length();
+        int start = startIndex(length);
+        for (int i = 0; i < length; i++) {
+            int index = (start + i) % length;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, value)) {
+                return;
+            }
+        }
+        discarded.increment();
+    }
+
+    /**
+     * 取出元件執行動作後歸還（動作失敗時同樣歸還，下一次使用前會重新 init）
+     *
+     * @param action 使用元件的動作
+     * @return 動作的結果
+     * @throws GeneralSecurityException 當建立元件或動作失敗時拋出
+     */
+    <R> R with(Action<T, R> action) throws GeneralSecurityException {
+        T value = acquire();
+        try {
+            return action.apply(value);
+        } finally {
+            release(value);
+        }
+    }
+
+    /**
+     * 依執行緒決定起始槽位，讓同一個執行緒傾向使用同一個槽位，並分散不同執行緒的競爭
+     */
+    private static int startIndex(int length) {
+        return (int) (Thread.currentThread().getId() % length);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * 物件池統計：容量、閒置數、取用、重複使用、新建、競爭與捨棄次數
+     */
+    Map<String, Long> getStats() {
+        long idle = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                idle++;
+            }
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("capacity", (long) slots.length());
+        stats.put("idle", idle);
+        stats.put("acquired", acquired.sum());
+        stats.put("reused", reused.sum());
+        stats.put("created", created.sum());
+        stats.put("contended", contended.sum());
+        stats.put("discarded", discarded.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+// 引入 Java 標準庫相關類別
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV 串流讀取器（RFC 4180）
+ * 逐筆讀取 CSV 記錄，不會將整個檔案載入記憶體，支援：
+ * 1. 以雙引號包住的欄位（可包含逗號與換行）
+ * 2. 以兩個雙引號表示的引號字元
+ * 3. CRLF 或 LF 換行，並忽略空白行
+ * 4. 檔案開頭的 UTF-8 BOM（Excel 匯出的 CSV 常見）
+ *
+ * 單筆記錄的長度有上限，避免格式錯誤（例如引號未結束）時讀入整個檔案
+ */
+public final class CsvRecordReader implements Closeable {
+
+    /** 單筆記錄的最大字元數 */
+    public static final int MAX_RECORD_CHARS = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int BOM = '\uFEFF';
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder();
+    private int position;
+    private int limit;
+    private int pushedBack = -2;
+    private boolean started;
+    private long lineNumber = 1;
+
+    public CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 讀取下一筆記錄
+     *
+     * @return 記錄中的各欄位，已到檔案結尾時回傳 null
+     * @throws IllegalArgumentException 當 CSV 格式錯誤時拋出
+     * @throws IOException 當讀取失敗時拋出
+     */
+    public List<String> readRecord() throws IOException {
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == BOM) {
+                c = read();
+            }
+        }
+
+        // 略過空白行
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        long startLine = lineNumber;
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        int recordChars = 0;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("CSV 第 " + startLine + " 行的引號未結束");
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        // 引號結束，下一個字元以一般欄位規則處理
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+
+            if (++recordChars > MAX_RECORD_CHARS) {
+                throw new IllegalArgumentException("CSV 第 " + startLine + " 行的資料過長（最多 " + MAX_RECORD_CHARS + " 字元）");
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * 取得目前讀取到的行號（從 1 開始）
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        if (position == limit) {
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            lineNumber++;
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -1,19 +1,33 @@
 package com.example.demo.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
-import javax.crypto.KeyAgreement;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
+import java.security.interfaces.XECKey;
 import java.security.spec.NamedParameterSpec;
+import java.time.Clock;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * ECC 加密服務
@@ -36,16 +50,151 @@ import java.util.Map;
  * 2. 使用 ECDH 重建共享金鑰
  * 3. 使用 SHA-256 作為 KDF 衍生對稱金鑰
  * 4. 使用 ChaCha20-Poly1305 解密資料
+ * 
+ * 接收方公鑰與解密用私鑰解析後會依金鑰指紋快取（數量有上限），同一把金鑰不需要每次重新解析
+ * 金鑰產生器、KeyAgreement、Cipher 與 MessageDigest 由 {@link CryptoPools} 取用，不在每次加解密時重新建立
+ * 加密用的臨時金鑰對由背景執行緒預先產生（{@link EphemeralKeyPool}），池中沒有時才即時產生
+ * 臨時私鑰與 nonce 的隨機數取自共用的 {@link RandomSource}（測試可改用固定種子）
+ * 
+ * 工作階段模式（{@link #encryptSession}）：同一個發送端對同一把接收方公鑰，在每個期間只做一次臨時金鑰產生與 ECDH，
+ * 期間內的每筆訊息只以衍生的工作階段金鑰與不重複的 nonce 進行 ChaCha20-Poly1305 加密；
+ * 格式與精簡格式相同，臨時公鑰欄位放的是工作階段公鑰（同時作為工作階段識別碼），接收方依此快取工作階段金鑰。
+ * nonce 的前 4 bytes 為工作階段開始時間（epoch 秒），與密文一起受 Poly1305 驗證；
+ * 接收方依此時間判斷工作階段是否過期（開始後一個期間加上寬限時間），不依賴快取中是否仍保留此工作階段。
+ * 前向安全性的範圍由每筆訊息放寬為每個期間
+ * 
+ * 加解密的核心實作以 ByteBuffer 進行（直接在緩衝區上解析格式、寫入呼叫端提供的輸出緩衝區），
+ * String 與 byte[] 版本的方法只負責 Base64、UTF-8 轉換與配置輸出陣列
  */
 @Service
-public class ECCService {
+public class ECCService implements PayloadCipher {
 
-    // 金鑰演算法與對稱加密演算法名稱
-    private static final String KEY_AGREEMENT_ALGO = "X25519";
-    private static final String SYMMETRIC_ALGO = "ChaCha20-Poly1305";
+    // 對稱加密參數（X25519、ChaCha20-Poly1305 與 SHA-256 的實作由 CryptoPools 提供）
     private static final int NONCE_LENGTH = 12;
-    private static final String KDF_ALGO = "SHA-256";
     private static final int SYMMETRIC_KEY_SIZE = 32; // 256 bits
+    private static final int RAW_KEY_LENGTH = 32;     // X25519 原始公鑰長度
+    private static final int TAG_LENGTH = 16;         // Poly1305 tag 長度
+
+    // X25519 公鑰的 X.509 標頭（SubjectPublicKeyInfo，後接 32 bytes 原始公鑰）
+    private static final byte[] X25519_X509_PREFIX = {
+        0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x6e, 0x03, 0x21, 0x00
+    };
+
+    // 已解析金鑰快取的預設上限（公鑰與私鑰各自計算）
+    private static final int DEFAULT_KEY_CACHE_SIZE = 256;
+
+    // 預先產生的臨時金鑰對數量下限（目標數量依取用速率在下限與上限之間調整）
+    private static final int EPHEMERAL_POOL_MIN_SIZE = 8;
+
+    // 工作階段金鑰的預設期間（秒）與 KDF 標籤（與單筆訊息的金鑰衍生區隔）
+    private static final long DEFAULT_SESSION_PERIOD_SECONDS = 3600;
+    private static final byte[] SESSION_KDF_LABEL = "reverseqr-session-v1".getBytes(StandardCharsets.US_ASCII);
+
+    // 接收方在工作階段期間之外額外接受的時間（涵蓋 QR Code 產生後到掃描驗證的時間差）
+    private static final long SESSION_GRACE_MILLIS = 120_000;
+
+    // X25519 基點（u = 9）的 X.509 公鑰，用於由私鑰推導公鑰
+    private static final byte[] X25519_BASE_POINT = x25519BasePoint();
+
+    // 單一工作階段金鑰最多加密的訊息數，達到後提前輪替
+    private static final long MAX_SESSION_MESSAGES = 1L << 32;
+
+    // 發送端同時保留的工作階段上限（每把接收方公鑰一個）
+    private static final int MAX_ISSUER_SESSIONS = 64;
+
+    private final ParsedKeyCache<PublicKey> publicKeyCache;
+    private final ParsedKeyCache<PrivateKey> privateKeyCache;
+
+    // 預先產生的臨時金鑰對池（上限設為 0 時停用，每次加密即時產生）
+    private final EphemeralKeyPool ephemeralKeyPool;
+
+    // 臨時私鑰與 nonce 的隨機數來源
+    private final RandomSource randomSource;
+
+    // 工作階段模式：發送端依接收方公鑰保存目前的工作階段，接收方快取已衍生的工作階段金鑰
+    private final long sessionPeriodMillis;
+    private final ConcurrentHashMap<PublicKey, IssuerSession> issuerSessions = new ConcurrentHashMap<>();
+    private final ParsedKeyCache<SecretKey> sessionKeyCache;
+    private final LongAdder sessionRotations = new LongAdder();
+
+    // 接收方私鑰的識別碼（對應公鑰的 SHA-256），以私鑰編碼的指紋快取，作為工作階段金鑰快取鍵的一部分
+    private final ParsedKeyCache<String> privateKeyIds;
+
+    // 工作階段到期判斷使用的時間來源
+    private final Clock clock;
+
+    public ECCService() {
+        this(DEFAULT_KEY_CACHE_SIZE);
+    }
+
+    public ECCService(int keyCacheSize) {
+        this(keyCacheSize, 0);
+    }
+
+    public ECCService(int keyCacheSize, int ephemeralPoolSize) {
+        this(keyCacheSize, ephemeralPoolSize, DEFAULT_SESSION_PERIOD_SECONDS, RandomSource.system());
+    }
+
+    @Autowired
+    public ECCService(@Value("${ecc.key-cache.max-size:256}") int keyCacheSize,
+                      @Value("${ecc.ephemeral-pool.max-size:256}") int ephemeralPoolSize,
+                      @Value("${ecc.session.period-seconds:3600}") long sessionPeriodSeconds) {
+        this(keyCacheSize, ephemeralPoolSize, sessionPeriodSeconds, RandomSource.system());
+    }
+
+    public ECCService(int keyCacheSize, int ephemeralPoolSize, RandomSource randomSource) {
+        this(keyCacheSize, ephemeralPoolSize, DEFAULT_SESSION_PERIOD_SECONDS, randomSource);
+    }
+
+    /**
+     * @param keyCacheSize 已解析金鑰快取上限（工作階段金鑰快取使用相同上限）
+     * @param ephemeralPoolSize 預先產生臨時金鑰對的數量上限（0 為停用）
+     * @param sessionPeriodSeconds 工作階段模式下每把工作階段金鑰的使用期間（秒）
+     * @param randomSource 隨機數來源（測試可使用 {@link RandomSource#deterministic(long)}）
+     */
+    public ECCService(int keyCacheSize, int ephemeralPoolSize, long sessionPeriodSeconds, RandomSource randomSource) {
+        this(keyCacheSize, ephemeralPoolSize, sessionPeriodSeconds, randomSource, Clock.systemUTC());
+    }
+
+    /**
+     * 指定時間來源（測試用）
+     */
+    ECCService(int keyCacheSize, int ephemeralPoolSize, long sessionPeriodSeconds, RandomSource randomSource, Clock clock) {
+        if (sessionPeriodSeconds < 1) {
+            throw new IllegalArgumentException("工作階段期間必須大於 0 秒");
+        }
+        this.randomSource = randomSource;
+        this.clock = clock;
+        this.privateKeyIds = new ParsedKeyCache<>(keyCacheSize, null);
+        this.sessionPeriodMillis = sessionPeriodSeconds * 1000;
+        this.sessionKeyCache = new ParsedKeyCache<>(keyCacheSize, null);
+        this.publicKeyCache = new ParsedKeyCache<>(keyCacheSize, ECCService::decodePublicKey);
+        this.privateKeyCache = new ParsedKeyCache<>(keyCacheSize, ECCService::decodePrivateKey);
+        this.ephemeralKeyPool = ephemeralPoolSize > 0
+            ? new EphemeralKeyPool(this::generateX25519KeyPair,
+                Math.min(EPHEMERAL_POOL_MIN_SIZE, ephemeralPoolSize), ephemeralPoolSize)
+            : null;
+    }
+
+    /**
+     * 啟動臨時金鑰對的背景產生執行緒
+     */
+    @PostConstruct
+    public void start() {
+        if (ephemeralKeyPool != null) {
+            ephemeralKeyPool.start();
+        }
+    }
+
+    /**
+     * 停止背景產生執行緒並丟棄尚未使用的臨時金鑰對
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (ephemeralKeyPool != null) {
+            ephemeralKeyPool.shutdown();
+        }
+    }
 
     /**
      * 產生 ECC 金鑰對
@@ -56,12 +205,8 @@ public class ECCService {
      * @throws InvalidAlgorithmParameterException 當指定的演算法參數不合法時拋出
      */
     public String[] generateKeyPair() throws NoSuchAlgorithmException, NoSuchProviderException, InvalidAlgorithmParameterException {
-        // 建立 X25519 金鑰產生器
-        KeyPairGenerator kpg = KeyPairGenerator.getInstance(KEY_AGREEMENT_ALGO);
-        // 初始化金鑰產生器，使用 X25519 曲線與安全隨機數
-        kpg.initialize(new NamedParameterSpec("X25519"), new SecureRandom());
-        // 產生金鑰對
-        KeyPair kp = kpg.generateKeyPair();
+        // 由物件池取得已初始化為 X25519 曲線的金鑰產生器並產生金鑰對
+        KeyPair kp = generateX25519KeyPair();
 
         // 將公鑰與私鑰進行 Base64 編碼
         String publicKeyBase64 = Base64.getEncoder().encodeToString(kp.getPublic().getEncoded());
@@ -78,12 +223,46 @@ public class ECCService {
      * @return 衍生的對稱金鑰
      * @throws NoSuchAlgorithmException 當指定的演算法不存在時拋出
      */
-    private SecretKey deriveKey(byte[] sharedSecret) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance(KDF_ALGO);
-        byte[] derivedKey = digest.digest(sharedSecret);
+    private SecretKey deriveKey(byte[] sharedSecret) throws GeneralSecurityException {
+        byte[] derivedKey = CryptoPools.SHA256.with(digest -> digest.digest(sharedSecret));
         return new SecretKeySpec(derivedKey, 0, SYMMETRIC_KEY_SIZE, "ChaCha20");
     }
 
+    /**
+     * 以物件池中的金鑰產生器產生 X25519 金鑰對
+     */
+    private KeyPair generateX25519KeyPair() throws NoSuchAlgorithmException, InvalidAlgorithmParameterException {
+        try {
+            // 每次以此服務的隨機數來源重新設定（XDH 的 initialize 只保存參數，成本很低）
+            return CryptoPools.X25519_KEY_PAIR_GENERATOR.with(kpg -> {
+                kpg.initialize(NamedParameterSpec.X25519, randomSource.secureRandom());
+                return kpg.generateKeyPair();
+            });
+        } catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("X25519 金鑰產生器初始化失敗", e);
+        }
+    }
+
+    /**
+     * 以物件池中的 KeyAgreement 執行 ECDH 金鑰交換
+     */
+    private static byte[] agree(PrivateKey privateKey, PublicKey publicKey) throws GeneralSecurityException {
+        return CryptoPools.X25519_KEY_AGREEMENT.with(ka -> {
+            ka.init(privateKey);
+            ka.doPhase(publicKey, true);
+            return ka.generateSecret();
+        });
+    }
+
+    /**
+     * 以物件池中的 KeyFactory 還原 X.509 格式的 X25519 公鑰
+     */
+    private static PublicKey toPublicKey(byte[] encoded) throws GeneralSecurityException {
+        return CryptoPools.X25519_KEY_FACTORY.with(kf -> kf.generatePublic(new java.security.spec.X509EncodedKeySpec(encoded)));
+    }
+
     /**
      * 使用對方公鑰加密明文
      * 
@@ -94,72 +273,367 @@ public class ECCService {
      */
     public String encrypt(String plaintext, String receiverPublicKeyBase64) throws Exception {
         // 1. 載入對方公鑰（Base64 解碼 → X509EncodedKeySpec → PublicKey）
-        KeyFactory kf = KeyFactory.getInstance(KEY_AGREEMENT_ALGO);
-        PublicKey receiverPublicKey = kf.generatePublic(
-                new java.security.spec.X509EncodedKeySpec(Base64.getDecoder().decode(receiverPublicKeyBase64)));
+        return encrypt(plaintext, parsePublicKey(receiverPublicKeyBase64));
+    }
+
+    /**
+     * 使用已載入的對方公鑰加密明文
+     * 適用於同一把公鑰重複加密多筆資料的情境（例如批次產生），避免每次重新解析公鑰
+     * 
+     * @param plaintext 要加密的文字
+     * @param receiverPublicKey 對方公鑰
+     * @return Base64 編碼的加密結果，格式同 {@link #encrypt(String, String)}
+     * @throws Exception 當加密過程發生錯誤時拋出
+     */
+    public String encrypt(String plaintext, PublicKey receiverPublicKey) throws Exception {
+        byte[] input = plaintext.getBytes(StandardCharsets.UTF_8);
+        byte[] output = new byte[sealedLength(input.length)];
+        encrypt(ByteBuffer.wrap(input), receiverPublicKey, ByteBuffer.wrap(output));
+
+        // 回傳 Base64 編碼的最終加密資料
+        return Base64.getEncoder().encodeToString(output);
+    }
+
+    /**
+     * 以位元組緩衝區加密，格式同 {@link #encrypt(String, String)}（不含 Base64）
+     * 讀取 plaintext 的 position 到 limit，由 output 的 position 開始依序寫入，不產生中間陣列
+     * 
+     * @param plaintext 要加密的資料
+     * @param receiverPublicKey 對方公鑰
+     * @param output 輸出緩衝區，剩餘空間至少 {@link #sealedLength(int)}
+     * @return 寫入 output 的位元組數
+     * @throws GeneralSecurityException 當加密過程發生錯誤或輸出空間不足（ShortBufferException）時拋出
+     */
+    public int encrypt(ByteBuffer plaintext, PublicKey receiverPublicKey, ByteBuffer output) throws GeneralSecurityException {
+        return seal(plaintext, receiverPublicKey, output, false);
+    }
+
+    /**
+     * 使用對方公鑰加密明文，輸出精簡的二進位格式（供 v2 QR Code 內容使用）
+     * 與 {@link #encrypt(String, PublicKey)} 相同的加密流程，但不含長度前綴，臨時公鑰只保留 32 bytes 原始值
+     * 
+     * @param plaintext 要加密的資料
+     * @param receiverPublicKey 對方公鑰
+     * @return 加密結果，格式為：[ephemeral 公鑰(32 bytes) + nonce(12 bytes) + 加密資料]
+     * @throws GeneralSecurityException 當加密過程發生錯誤時拋出
+     */
+    public byte[] encryptCompact(byte[] plaintext, PublicKey receiverPublicKey) throws GeneralSecurityException {
+        byte[] output = new byte[compactSealedLength(plaintext.length)];
+        encryptCompact(ByteBuffer.wrap(plaintext), receiverPublicKey, ByteBuffer.wrap(output));
+        return output;
+    }
+
+    /**
+     * 以位元組緩衝區加密為精簡格式，格式同 {@link #encryptCompact(byte[], PublicKey)}
+     * 
+     * @param plaintext 要加密的資料（position 到 limit）
+     * @param receiverPublicKey 對方公鑰
+     * @param output 輸出緩衝區，剩餘空間至少 {@link #compactSealedLength(int)}
+     * @return 寫入 output 的位元組數
+     * @throws GeneralSecurityException 當加密過程發生錯誤或輸出空間不足（ShortBufferException）時拋出
+     */
+    public int encryptCompact(ByteBuffer plaintext, PublicKey receiverPublicKey, ByteBuffer output) throws GeneralSecurityException {
+        return seal(plaintext, receiverPublicKey, output, true);
+    }
+
+    /**
+     * 計算 {@link #encrypt(ByteBuffer, PublicKey, ByteBuffer)} 輸出的長度
+     * 
+     * @param plaintextLength 明文長度
+     * @return 加密結果長度：4 + 44（X.509 臨時公鑰）+ 12（nonce）+ 明文長度 + 16（Poly1305 tag）
+     */
+    public static int sealedLength(int plaintextLength) {
+        return Integer.BYTES + X25519_X509_PREFIX.length + RAW_KEY_LENGTH + NONCE_LENGTH + plaintextLength + TAG_LENGTH;
+    }
+
+    /**
+     * 計算 {@link #encryptCompact(ByteBuffer, PublicKey, ByteBuffer)} 輸出的長度
+     * 
+     * @param plaintextLength 明文長度
+     * @return 加密結果長度：32（臨時公鑰）+ 12（nonce）+ 明文長度 + 16（Poly1305 tag）
+     */
+    public static int compactSealedLength(int plaintextLength) {
+        return RAW_KEY_LENGTH + NONCE_LENGTH + plaintextLength + TAG_LENGTH;
+    }
+
+    /**
+     * 產生臨時金鑰對並以 ECDH + ChaCha20-Poly1305 加密，依格式直接寫入輸出緩衝區
+     */
+    private int seal(ByteBuffer plaintext, PublicKey receiverPublicKey, ByteBuffer output, boolean compact)
+            throws GeneralSecurityException {
+        int required = compact ? compactSealedLength(plaintext.remaining()) : sealedLength(plaintext.remaining());
+        if (output.remaining() < required) {
+            throw new ShortBufferException("輸出緩衝區空間不足，需要 " + required + " bytes");
+        }
 
-        // 2. 產生臨時發送端金鑰對（每次加密都不同，確保前向安全性）
-        KeyPairGenerator kpg = KeyPairGenerator.getInstance(KEY_AGREEMENT_ALGO);
-        kpg.initialize(new NamedParameterSpec("X25519"), new SecureRandom());
-        KeyPair ephemeralKeyPair = kpg.generateKeyPair();
+        // 2. 取得臨時發送端金鑰對（每次加密都不同，確保前向安全性）：優先使用預先產生的，池中沒有時即時產生
+        KeyPair ephemeralKeyPair = ephemeralKeyPool != null ? ephemeralKeyPool.take() : null;
+        if (ephemeralKeyPair == null) {
+            ephemeralKeyPair = generateX25519KeyPair();
+        }
 
-        // 3. ECDH 金鑰交換，產生共享金鑰
-        KeyAgreement ka = KeyAgreement.getInstance(KEY_AGREEMENT_ALGO);
-        ka.init(ephemeralKeyPair.getPrivate()); // 使用臨時私鑰
-        ka.doPhase(receiverPublicKey, true);    // 對方公鑰
-        byte[] sharedSecret = ka.generateSecret(); // 取得共享金鑰
+        // 3. ECDH 金鑰交換（臨時私鑰 + 對方公鑰），產生共享金鑰；臨時私鑰只使用這一次
+        byte[] sharedSecret;
+        try {
+            sharedSecret = agree(ephemeralKeyPair.getPrivate(), receiverPublicKey);
+        } finally {
+            EphemeralKeyPool.destroy(ephemeralKeyPair);
+        }
 
         // 4. 使用 KDF 衍生對稱金鑰
         SecretKey sharedKey = deriveKey(sharedSecret);
 
-        // 5. 產生 12 bytes 隨機 nonce，並建立 IvParameterSpec
+        // 5. 產生 12 bytes 隨機 nonce
         byte[] nonce = new byte[NONCE_LENGTH];
-        new SecureRandom().nextBytes(nonce);
-        IvParameterSpec ivSpec = new IvParameterSpec(nonce);
-
-        // 6. 使用 ChaCha20-Poly1305 進行加密
-        Cipher cipher = Cipher.getInstance(SYMMETRIC_ALGO);
-        cipher.init(Cipher.ENCRYPT_MODE, sharedKey, ivSpec);
-        byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
-
-        // 7. 組合輸出：ephemeral 公鑰長度(4 bytes) + ephemeral 公鑰 + nonce + ciphertext
-        byte[] ephemeralPubKey = ephemeralKeyPair.getPublic().getEncoded(); // 臨時公鑰
-        byte[] keyLength = intToBytes(ephemeralPubKey.length); // 公鑰長度（4 bytes）
-        byte[] output = new byte[keyLength.length + ephemeralPubKey.length + nonce.length + ciphertext.length];
-        
-        int offset = 0;
-        System.arraycopy(keyLength, 0, output, offset, keyLength.length); // 前 4 bytes 放公鑰長度
-        offset += keyLength.length;
-        System.arraycopy(ephemeralPubKey, 0, output, offset, ephemeralPubKey.length); // 接著放公鑰
-        offset += ephemeralPubKey.length;
-        System.arraycopy(nonce, 0, output, offset, nonce.length); // 接著放 nonce
-        offset += nonce.length;
-        System.arraycopy(ciphertext, 0, output, offset, ciphertext.length); // 最後放密文
+        randomSource.nextBytes(nonce);
 
-        // 回傳 Base64 編碼的最終加密資料
-        return Base64.getEncoder().encodeToString(output);
+        // 6. 寫入臨時公鑰：完整格式為長度(4 bytes) + X.509 公鑰，精簡格式只保留 32 bytes 原始值
+        byte[] ephemeralPubKey = ephemeralKeyPair.getPublic().getEncoded();
+        if (ephemeralPubKey.length != X25519_X509_PREFIX.length + RAW_KEY_LENGTH) {
+            throw new GeneralSecurityException("無法取得 X25519 原始公鑰");
+        }
+        int start = output.position();
+        if (compact) {
+            output.put(ephemeralPubKey, X25519_X509_PREFIX.length, RAW_KEY_LENGTH);
+        } else {
+            putInt(output, ephemeralPubKey.length);
+            output.put(ephemeralPubKey);
+        }
+
+        // 7. 寫入 nonce，再以 ChaCha20-Poly1305 將密文直接加密到輸出緩衝區（每次以新的金鑰與 nonce 重新 init）
+        output.put(nonce);
+        CryptoPools.CHACHA20_POLY1305.with(cipher -> {
+            cipher.init(Cipher.ENCRYPT_MODE, sharedKey, new IvParameterSpec(nonce));
+            return cipher.doFinal(plaintext, output);
+        });
+        return output.position() - start;
     }
 
     /**
-     * 將整數轉換為 4 bytes 的位元組陣列
+     * 以工作階段模式加密，輸出格式同 {@link #encryptCompact(byte[], PublicKey)}
+     * 臨時公鑰欄位為目前期間的工作階段公鑰，nonce 為工作階段內遞增的計數器，
+     * 需由 {@link #decryptSession(byte[], PrivateKey)} 解密
+     * 
+     * @param plaintext 要加密的資料
+     * @param receiverPublicKey 對方公鑰
+     * @return 加密結果，格式為：[工作階段公鑰(32 bytes) + nonce(12 bytes) + 加密資料]
+     * @throws GeneralSecurityException 當加密過程發生錯誤時拋出
+     */
+    public byte[] encryptSession(byte[] plaintext, PublicKey receiverPublicKey) throws GeneralSecurityException {
+        byte[] output = new byte[compactSealedLength(plaintext.length)];
+        encryptSession(ByteBuffer.wrap(plaintext), receiverPublicKey, ByteBuffer.wrap(output));
+        return output;
+    }
+
+    /**
+     * 以位元組緩衝區進行工作階段模式加密，格式同 {@link #encryptSession(byte[], PublicKey)}
+     * 
+     * @param plaintext 要加密的資料（position 到 limit）
+     * @param receiverPublicKey 對方公鑰
+     * @param output 輸出緩衝區，剩餘空間至少 {@link #compactSealedLength(int)}
+     * @return 寫入 output 的位元組數
+     * @throws GeneralSecurityException 當加密過程發生錯誤或輸出空間不足（ShortBufferException）時拋出
+     */
+    public int encryptSession(ByteBuffer plaintext, PublicKey receiverPublicKey, ByteBuffer output) throws GeneralSecurityException {
+        int required = compactSealedLength(plaintext.remaining());
+        if (output.remaining() < required) {
+            throw new ShortBufferException("輸出緩衝區空間不足，需要 " + required + " bytes");
+        }
+        IssuerSession session = currentSession(receiverPublicKey);
+
+        // nonce = 工作階段開始時間(4 bytes) + 訊息序號(8 bytes)，同一把工作階段金鑰下不會重複
+        byte[] nonce = new byte[NONCE_LENGTH];
+        System.arraycopy(session.noncePrefix, 0, nonce, 0, session.noncePrefix.length);
+        long sequence = session.counter.getAndIncrement();
+        for (int i = 0; i < Long.BYTES; i++) {
+            nonce[NONCE_LENGTH - 1 - i] = (byte) (sequence >>> (8 * i));
+        }
+
+        int start = output.position();
+        output.put(session.publicKey);
+        output.put(nonce);
+        CryptoPools.CHACHA20_POLY1305.with(cipher -> {
+            cipher.init(Cipher.ENCRYPT_MODE, session.key, new IvParameterSpec(nonce));
+            return cipher.doFinal(plaintext, output);
+        });
+        return output.position() - start;
+    }
+
+    /**
+     * 取得對此接收方公鑰目前可用的工作階段，過期或訊息數達上限時建立新的工作階段
+     */
+    private IssuerSession currentSession(PublicKey receiverPublicKey) throws GeneralSecurityException {
+        long now = clock.millis();
+        IssuerSession session = issuerSessions.get(receiverPublicKey);
+        if (session != null && session.isUsable(now)) {
+            return session;
+        }
+        // 建立工作階段需要一次金鑰產生與 ECDH，每個期間只發生一次，以同一個鎖避免同時重複建立
+        synchronized (issuerSessions) {
+            session = issuerSessions.get(receiverPublicKey);
+            if (session != null && session.isUsable(now)) {
+                return session;
+            }
+            session = openIssuerSession(receiverPublicKey, now);
+            issuerSessions.put(receiverPublicKey, session);
+            sessionRotations.increment();
+            if (issuerSessions.size() > MAX_ISSUER_SESSIONS) {
+                issuerSessions.values().removeIf(candidate -> !candidate.isUsable(now));
+            }
+            while (issuerSessions.size() > MAX_ISSUER_SESSIONS) {
+                issuerSessions.entrySet().stream()
+                    .min((a, b) -> Long.compare(a.getValue().expiresAt, b.getValue().expiresAt))
+                    .ifPresent(eldest -> issuerSessions.remove(eldest.getKey(), eldest.getValue()));
+            }
+            return session;
+        }
+    }
+
+    /**
+     * 產生工作階段金鑰對並與接收方公鑰進行 ECDH，衍生工作階段金鑰
+     */
+    private IssuerSession openIssuerSession(PublicKey receiverPublicKey, long now) throws GeneralSecurityException {
+        KeyPair sessionKeyPair = generateX25519KeyPair();
+        byte[] sharedSecret;
+        try {
+            sharedSecret = agree(sessionKeyPair.getPrivate(), receiverPublicKey);
+        } finally {
+            EphemeralKeyPool.destroy(sessionKeyPair);
+        }
+        byte[] encoded = sessionKeyPair.getPublic().getEncoded();
+        if (encoded.length != X25519_X509_PREFIX.length + RAW_KEY_LENGTH) {
+            throw new GeneralSecurityException("無法取得 X25519 原始公鑰");
+        }
+        return new IssuerSession(
+            Arrays.copyOfRange(encoded, X25519_X509_PREFIX.length, encoded.length),
+            deriveSessionKey(sharedSecret),
+            sessionNoncePrefix(now),
+            now + sessionPeriodMillis);
+    }
+
+    /**
+     * 工作階段 nonce 的前綴：工作階段開始時間（epoch 秒，4 bytes 無號 big-endian）
+     * 每個工作階段的金鑰都不同，前綴不需要隨機；接收方以此判斷工作階段是否過期
      */
-    private byte[] intToBytes(int value) {
+    private static byte[] sessionNoncePrefix(long nowMillis) {
+        long startSeconds = nowMillis / 1000;
         return new byte[] {
-            (byte) (value >> 24),
-            (byte) (value >> 16),
-            (byte) (value >> 8),
-            (byte) value
+            (byte) (startSeconds >>> 24), (byte) (startSeconds >>> 16), (byte) (startSeconds >>> 8), (byte) startSeconds
         };
     }
 
     /**
-     * 將 4 bytes 的位元組陣列轉換為整數
+     * 工作階段金鑰的 KDF：SHA-256(標籤 + 共享金鑰)
+     */
+    private SecretKey deriveSessionKey(byte[] sharedSecret) throws GeneralSecurityException {
+        byte[] derivedKey = CryptoPools.SHA256.with(digest -> {
+            digest.update(SESSION_KDF_LABEL);
+            return digest.digest(sharedSecret);
+        });
+        return new SecretKeySpec(derivedKey, 0, SYMMETRIC_KEY_SIZE, "ChaCha20");
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return X25519;
+    }
+
+    @Override
+    public KeyPair newKeyPair() throws GeneralSecurityException {
+        return generateX25519KeyPair();
+    }
+
+    /**
+     * X25519 金鑰（提供者回報的演算法為 XDH 或 X25519）
+     */
+    @Override
+    public boolean supports(Key key) {
+        return key instanceof XECKey;
+    }
+
+    /**
+     * 載入 Base64 編碼的 X25519 公鑰（優先使用已解析的快取）
+     * 
+     * @param publicKeyBase64 Base64 編碼的公鑰（X.509 格式）
+     * @return 公鑰物件
+     * @throws GeneralSecurityException 當公鑰格式不正確時拋出
+     */
+    public PublicKey parsePublicKey(String publicKeyBase64) throws GeneralSecurityException {
+        return publicKeyCache.get(publicKeyBase64);
+    }
+
+    /**
+     * 載入 Base64 編碼的 X25519 私鑰（優先使用已解析的快取）
+     * 
+     * @param privateKeyBase64 Base64 編碼的私鑰（PKCS#8 格式）
+     * @return 私鑰物件
+     * @throws GeneralSecurityException 當私鑰格式不正確時拋出
+     */
+    public PrivateKey parsePrivateKey(String privateKeyBase64) throws GeneralSecurityException {
+        return privateKeyCache.get(privateKeyBase64);
+    }
+
+    /**
+     * 取得已解析金鑰快取的統計資料（大小、命中與未命中次數等）
+     * 
+     * @return 以 publicKeys、privateKeys、sessionKeys（接收方的工作階段金鑰）與 issuerSessions（發送端的工作階段）分組的統計資料
+     */
+    public Map<String, Map<String, Long>> getKeyCacheStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        stats.put("publicKeys", publicKeyCache.getStats());
+        stats.put("privateKeys", privateKeyCache.getStats());
+        stats.put("sessionKeys", sessionKeyCache.getStats());
+        stats.put("privateKeyIds", privateKeyIds.getStats());
+
+        Map<String, Long> sessions = new LinkedHashMap<>();
+        sessions.put("size", (long) issuerSessions.size());
+        sessions.put("rotations", sessionRotations.sum());
+        stats.put("issuerSessions", sessions);
+        return stats;
+    }
+
+    /**
+     * 取得預先產生臨時金鑰對池的統計資料（目前數量、目標數量、取用與即時產生次數等）
+     * 
+     * @return 統計資料；停用時回傳空的 Map
+     */
+    public Map<String, Long> getEphemeralKeyPoolStats() {
+        return ephemeralKeyPool != null ? ephemeralKeyPool.getStats() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Base64 解碼並以 KeyFactory 解析 X.509 格式公鑰
+     */
+    private static PublicKey decodePublicKey(String publicKeyBase64) throws GeneralSecurityException {
+        return toPublicKey(Base64.getDecoder().decode(publicKeyBase64));
+    }
+
+    /**
+     * Base64 解碼並以 KeyFactory 解析 PKCS#8 格式私鑰
+     */
+    private static PrivateKey decodePrivateKey(String privateKeyBase64) throws GeneralSecurityException {
+        byte[] encoded = Base64.getDecoder().decode(privateKeyBase64);
+        return CryptoPools.X25519_KEY_FACTORY.with(kf -> kf.generatePrivate(new java.security.spec.PKCS8EncodedKeySpec(encoded)));
+    }
+
+    /**
+     * 以 big-endian 寫入 4 bytes 整數（不受緩衝區 order 設定影響）
+     */
+    private static void putInt(ByteBuffer buffer, int value) {
+        buffer.put((byte) (value >> 24));
+        buffer.put((byte) (value >> 16));
+        buffer.put((byte) (value >> 8));
+        buffer.put((byte) value);
+    }
+
+    /**
+     * 以 big-endian 讀取 4 bytes 整數（不受緩衝區 order 設定影響）
      */
-    private int bytesToInt(byte[] bytes) {
-        return ((bytes[0] & 0xFF) << 24) |
-               ((bytes[1] & 0xFF) << 16) |
-               ((bytes[2] & 0xFF) << 8) |
-               (bytes[3] & 0xFF);
+    private static int getInt(ByteBuffer buffer) {
+        return ((buffer.get() & 0xFF) << 24) |
+               ((buffer.get() & 0xFF) << 16) |
+               ((buffer.get() & 0xFF) << 8) |
+               (buffer.get() & 0xFF);
     }
 
     /**
@@ -171,52 +645,277 @@ public class ECCService {
      * @throws Exception 當解密過程發生錯誤時拋出
      */
     public String decrypt(String encryptedBase64, String privateKeyBase64) throws Exception {
+        // 載入私鑰（Base64 解碼 → PKCS8EncodedKeySpec → PrivateKey，已解析過的金鑰直接由快取取得）
+        return decrypt(encryptedBase64, parsePrivateKey(privateKeyBase64));
+    }
+
+    /**
+     * 使用已載入的私鑰解密密文（例如由伺服器端金鑰環取得的私鑰）
+     * 
+     * @param encryptedBase64 Base64 編碼的加密資料，格式同 {@link #decrypt(String, String)}
+     * @param privateKey 私鑰
+     * @return 解密後的明文
+     * @throws Exception 當解密過程發生錯誤時拋出
+     */
+    public String decrypt(String encryptedBase64, PrivateKey privateKey) throws Exception {
+        byte[] input = Base64.getDecoder().decode(encryptedBase64);
+        return new String(decrypt(input, 0, input.length, privateKey), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 取得 {@link #decrypt(String, String)} 格式中經 AEAD 驗證的部分（略過長度與臨時公鑰欄位）
+     * X25519 會忽略公鑰最後一個位元組的最高位元，臨時公鑰不能作為密文識別的一部分
+     * 
+     * @param encryptedBase64 Base64 編碼的加密資料
+     * @param privateKey 私鑰（此格式不需要）
+     * @return 指向 nonce + 密文 + tag 的緩衝區
+     * @throws IllegalArgumentException 當加密資料格式不正確時拋出
+     */
+    @Override
+    public ByteBuffer authenticatedPart(String encryptedBase64, PrivateKey privateKey) {
+        ByteBuffer sealed = ByteBuffer.wrap(Base64.getDecoder().decode(encryptedBase64));
+        if (sealed.remaining() < Integer.BYTES) {
+            throw new IllegalArgumentException("加密資料長度不足");
+        }
+        int ephemeralPubKeyLength = getInt(sealed);
+        if (ephemeralPubKeyLength <= 0 || ephemeralPubKeyLength > sealed.remaining() - NONCE_LENGTH - TAG_LENGTH) {
+            throw new IllegalArgumentException("加密資料長度不足");
+        }
+        sealed.position(sealed.position() + ephemeralPubKeyLength);
+        return sealed.slice();
+    }
+
+    /**
+     * 解密位元組陣列中的密文，格式同 {@link #decrypt(String, String)}（不含 Base64）
+     * 
+     * @param sealed 加密資料所在的陣列
+     * @param offset 加密資料起始位置
+     * @param length 加密資料長度
+     * @param privateKey 私鑰
+     * @return 解密後的明文
+     * @throws GeneralSecurityException 當解密過程發生錯誤時拋出
+     */
+    public byte[] decrypt(byte[] sealed, int offset, int length, PrivateKey privateKey) throws GeneralSecurityException {
+        ByteBuffer output = ByteBuffer.allocate(Math.max(0, length - sealedLength(0)));
+        int written = decrypt(ByteBuffer.wrap(sealed, offset, length), privateKey, output);
+        return written == output.capacity() ? output.array() : Arrays.copyOf(output.array(), written);
+    }
+
+    /**
+     * 以位元組緩衝區解密，在 sealed 上直接解析格式，明文寫入呼叫端提供的緩衝區
+     * 
+     * @param sealed 加密資料（position 到 limit），格式同 {@link #decrypt(String, String)}（不含 Base64）
+     * @param privateKey 私鑰
+     * @param plaintext 明文輸出緩衝區，剩餘空間至少為密文長度減去 16 bytes tag
+     * @return 寫入 plaintext 的位元組數
+     * @throws GeneralSecurityException 當解密過程發生錯誤或輸出空間不足（ShortBufferException）時拋出
+     * @throws SecurityException 當 MAC 驗證失敗（資料可能被竄改）時拋出
+     * @throws IllegalArgumentException 當加密資料長度不足時拋出
+     */
+    public int decrypt(ByteBuffer sealed, PrivateKey privateKey, ByteBuffer plaintext) throws GeneralSecurityException {
+        // 1. 讀取 ephemeral 公鑰長度並確認資料長度足夠
+        if (sealed.remaining() < Integer.BYTES) {
+            throw new IllegalArgumentException("加密資料長度不足");
+        }
+        int ephemeralPubKeyLength = getInt(sealed);
+        if (ephemeralPubKeyLength <= 0 || ephemeralPubKeyLength > sealed.remaining() - NONCE_LENGTH) {
+            throw new IllegalArgumentException("加密資料長度不足");
+        }
+
+        // 2. 還原臨時公鑰（每次加密都不同，不使用快取）
+        byte[] ephemeralPubKeyBytes = new byte[ephemeralPubKeyLength];
+        sealed.get(ephemeralPubKeyBytes);
+        PublicKey ephemeralPublicKey = toPublicKey(ephemeralPubKeyBytes);
+
+        // 3-5. 讀取 nonce，ECDH 重建共享金鑰並以 ChaCha20-Poly1305 解密
+        return open(privateKey, ephemeralPublicKey, sealed, plaintext);
+    }
+
+    /**
+     * 使用私鑰解密 {@link #encryptCompact} 產生的精簡格式密文
+     * 
+     * @param sealed 加密資料，格式為：[ephemeral 公鑰(32 bytes) + nonce(12 bytes) + 加密資料]
+     * @param privateKeyBase64 Base64 編碼的私鑰
+     * @return 解密後的明文
+     * @throws Exception 當解密過程發生錯誤時拋出
+     */
+    public String decryptCompact(byte[] sealed, String privateKeyBase64) throws Exception {
+        return decryptCompact(sealed, parsePrivateKey(privateKeyBase64));
+    }
+
+    /**
+     * 使用已載入的私鑰解密精簡格式密文
+     * 
+     * @param sealed 加密資料，格式同 {@link #decryptCompact(byte[], String)}
+     * @param privateKey 私鑰
+     * @return 解密後的明文
+     * @throws Exception 當解密過程發生錯誤時拋出
+     */
+    public String decryptCompact(byte[] sealed, PrivateKey privateKey) throws Exception {
+        return new String(decryptCompact(sealed, 0, sealed.length, privateKey), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解密位元組陣列中的精簡格式密文
+     * 
+     * @param sealed 加密資料所在的陣列
+     * @param offset 加密資料起始位置
+     * @param length 加密資料長度
+     * @param privateKey 私鑰
+     * @return 解密後的明文
+     * @throws GeneralSecurityException 當解密過程發生錯誤時拋出
+     */
+    public byte[] decryptCompact(byte[] sealed, int offset, int length, PrivateKey privateKey) throws GeneralSecurityException {
+        ByteBuffer output = ByteBuffer.allocate(Math.max(0, length - compactSealedLength(0)));
+        int written = decryptCompact(ByteBuffer.wrap(sealed, offset, length), privateKey, output);
+        return written == output.capacity() ? output.array() : Arrays.copyOf(output.array(), written);
+    }
+
+    /**
+     * 以位元組緩衝區解密精簡格式密文，明文寫入呼叫端提供的緩衝區
+     * 
+     * @param sealed 加密資料（position 到 limit），格式同 {@link #decryptCompact(byte[], String)}
+     * @param privateKey 私鑰
+     * @param plaintext 明文輸出緩衝區，剩餘空間至少為密文長度減去 16 bytes tag
+     * @return 寫入 plaintext 的位元組數
+     * @throws GeneralSecurityException 當解密過程發生錯誤或輸出空間不足（ShortBufferException）時拋出
+     * @throws SecurityException 當 MAC 驗證失敗（資料可能被竄改）時拋出
+     * @throws IllegalArgumentException 當加密資料長度不足時拋出
+     */
+    public int decryptCompact(ByteBuffer sealed, PrivateKey privateKey, ByteBuffer plaintext) throws GeneralSecurityException {
+        if (sealed.remaining() < RAW_KEY_LENGTH + NONCE_LENGTH) {
+            throw new IllegalArgumentException("加密資料長度不足");
+        }
+        // 將 32 bytes 原始臨時公鑰補回 X.509 標頭後還原
+        byte[] ephemeralPubKeyBytes = Arrays.copyOf(X25519_X509_PREFIX, X25519_X509_PREFIX.length + RAW_KEY_LENGTH);
+        sealed.get(ephemeralPubKeyBytes, X25519_X509_PREFIX.length, RAW_KEY_LENGTH);
+        PublicKey ephemeralPublicKey = toPublicKey(ephemeralPubKeyBytes);
+
+        return open(privateKey, ephemeralPublicKey, sealed, plaintext);
+    }
+
+    /**
+     * 使用私鑰解密 {@link #encryptSession} 產生的工作階段模式密文
+     * 
+     * @param sealed 加密資料，格式為：[工作階段公鑰(32 bytes) + nonce(12 bytes) + 加密資料]
+     * @param privateKey 私鑰
+     * @return 解密後的明文
+     * @throws Exception 當解密過程發生錯誤時拋出
+     */
+    public String decryptSession(byte[] sealed, PrivateKey privateKey) throws Exception {
+        return new String(decryptSession(sealed, 0, sealed.length, privateKey), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解密位元組陣列中的工作階段模式密文
+     * 
+     * @param sealed 加密資料所在的陣列
+     * @param offset 加密資料起始位置
+     * @param length 加密資料長度
+     * @param privateKey 私鑰
+     * @return 解密後的明文
+     * @throws GeneralSecurityException 當解密過程發生錯誤時拋出
+     */
+    public byte[] decryptSession(byte[] sealed, int offset, int length, PrivateKey privateKey) throws GeneralSecurityException {
+        ByteBuffer output = ByteBuffer.allocate(Math.max(0, length - compactSealedLength(0)));
+        int written = decryptSession(ByteBuffer.wrap(sealed, offset, length), privateKey, output);
+        return written == output.capacity() ? output.array() : Arrays.copyOf(output.array(), written);
+    }
+
+    /**
+     * 以位元組緩衝區解密工作階段模式密文
+     * 同一個工作階段公鑰與私鑰的組合只在第一次做 ECDH，之後由快取取得工作階段金鑰；
+     * 依 nonce 中的工作階段開始時間，超過工作階段期間（加上寬限時間）後不再接受此工作階段的密文
+     * 
+     * @param sealed 加密資料（position 到 limit），格式同 {@link #decryptSession(byte[], PrivateKey)}
+     * @param privateKey 私鑰
+     * @param plaintext 明文輸出緩衝區，剩餘空間至少為密文長度減去 16 bytes tag
+     * @return 寫入 plaintext 的位元組數
+     * @throws GeneralSecurityException 當解密過程發生錯誤或輸出空間不足（ShortBufferException）時拋出
+     * @throws SecurityException 當 MAC 驗證失敗（資料可能被竄改）或工作階段已過期時拋出
+     * @throws IllegalArgumentException 當加密資料長度不足時拋出
+     */
+    public int decryptSession(ByteBuffer sealed, PrivateKey privateKey, ByteBuffer plaintext) throws GeneralSecurityException {
+        if (sealed.remaining() < RAW_KEY_LENGTH + NONCE_LENGTH) {
+            throw new IllegalArgumentException("加密資料長度不足");
+        }
+        byte[] sessionPubKeyBytes = Arrays.copyOf(X25519_X509_PREFIX, X25519_X509_PREFIX.length + RAW_KEY_LENGTH);
+        sealed.get(sessionPubKeyBytes, X25519_X509_PREFIX.length, RAW_KEY_LENGTH);
+
+        // 工作階段開始時間取自 nonce（竄改時 Poly1305 驗證失敗），與快取內容無關
+        long startMillis = Integer.toUnsignedLong(getInt(sealed.duplicate())) * 1000;
+        long now = clock.millis();
+        if (now >= startMillis + sessionPeriodMillis + SESSION_GRACE_MILLIS) {
+            throw new SecurityException("工作階段已過期");
+        }
+        if (startMillis > now + SESSION_GRACE_MILLIS) {
+            throw new SecurityException("工作階段開始時間不正確");
+        }
+
+        // X25519 忽略公鑰最後一個位元組的最高位元，識別碼以清除該位元後的值計算，同一個工作階段只對應一個快取項目
+        HexFormat hex = HexFormat.of();
+        String sessionId = hex.formatHex(sessionPubKeyBytes, X25519_X509_PREFIX.length, sessionPubKeyBytes.length - 1)
+            + hex.toHexDigits((byte) (sessionPubKeyBytes[sessionPubKeyBytes.length - 1] & 0x7f))
+            + ":" + privateKeyId(privateKey);
+        SecretKey sessionKey = sessionKeyCache.get(sessionId,
+            ignored -> deriveSessionKey(agree(privateKey, toPublicKey(sessionPubKeyBytes))));
+        return decryptWith(sessionKey, sealed, plaintext);
+    }
+
+    /**
+     * 取得私鑰的識別碼：以私鑰與 X25519 基點做金鑰協商得到對應的公鑰，再取 SHA-256
+     * 依私鑰編碼的指紋快取（數量有上限），每把私鑰只計算一次；識別碼只由公鑰推導，不含私鑰內容
+     */
+    private String privateKeyId(PrivateKey privateKey) throws GeneralSecurityException {
+        byte[] encoded = privateKey.getEncoded();
+        if (encoded == null) {
+            throw new InvalidKeyException("無法取得私鑰編碼");
+        }
+        try {
+            return privateKeyIds.get(encoded, () -> {
+                byte[] publicKey = agree(privateKey, toPublicKey(X25519_BASE_POINT));
+                return HexFormat.of().formatHex(CryptoPools.SHA256.with(digest -> digest.digest(publicKey)));
+            });
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+
+    private static byte[] x25519BasePoint() {
+        byte[] encoded = Arrays.copyOf(X25519_X509_PREFIX, X25519_X509_PREFIX.length + RAW_KEY_LENGTH);
+        encoded[X25519_X509_PREFIX.length] = 9;
+        return encoded;
+    }
+
+    /**
+     * 以 ECDH 重建共享金鑰，再解密 sealed 剩餘的 nonce 與密文
+     */
+    private int open(PrivateKey privateKey, PublicKey ephemeralPublicKey, ByteBuffer sealed, ByteBuffer plaintext)
+            throws GeneralSecurityException {
+        // ECDH 金鑰交換（本地私鑰 + 臨時公鑰），重建共享金鑰
+        byte[] sharedSecret = agree(privateKey, ephemeralPublicKey);
+
+        // 使用 KDF 衍生對稱金鑰
+        return decryptWith(deriveKey(sharedSecret), sealed, plaintext);
+    }
+
+    /**
+     * 讀取 nonce，以 ChaCha20-Poly1305 將 sealed 剩餘的密文解密到 plaintext
+     */
+    private int decryptWith(SecretKey sharedKey, ByteBuffer sealed, ByteBuffer plaintext) throws GeneralSecurityException {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        sealed.get(nonce);
+        if (plaintext.remaining() < sealed.remaining() - TAG_LENGTH) {
+            throw new ShortBufferException("明文緩衝區空間不足，需要 " + (sealed.remaining() - TAG_LENGTH) + " bytes");
+        }
+
+        // 使用 ChaCha20-Poly1305 解密
         try {
-            // 1. Base64 解碼取得原始加密資料
-            byte[] input = Base64.getDecoder().decode(encryptedBase64);
-
-            // 2. 載入私鑰（Base64 解碼 → PKCS8EncodedKeySpec → PrivateKey）
-            KeyFactory kf = KeyFactory.getInstance(KEY_AGREEMENT_ALGO);
-            PrivateKey privateKey = kf.generatePrivate(
-                    new java.security.spec.PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKeyBase64)));
-
-            // 3. 分離 ephemeral 公鑰長度、公鑰、nonce、密文
-            byte[] keyLengthBytes = new byte[4];
-            System.arraycopy(input, 0, keyLengthBytes, 0, 4);
-            int ephemeralPubKeyLength = bytesToInt(keyLengthBytes);
-
-            byte[] ephemeralPubKeyBytes = new byte[ephemeralPubKeyLength];
-            byte[] nonce = new byte[NONCE_LENGTH];
-            byte[] ciphertext = new byte[input.length - 4 - ephemeralPubKeyLength - NONCE_LENGTH];
-
-            int offset = 4;
-            System.arraycopy(input, offset, ephemeralPubKeyBytes, 0, ephemeralPubKeyLength);
-            offset += ephemeralPubKeyLength;
-            System.arraycopy(input, offset, nonce, 0, NONCE_LENGTH);
-            offset += NONCE_LENGTH;
-            System.arraycopy(input, offset, ciphertext, 0, ciphertext.length);
-
-            // 4. 還原臨時公鑰
-            PublicKey ephemeralPublicKey = kf.generatePublic(
-                    new java.security.spec.X509EncodedKeySpec(ephemeralPubKeyBytes));
-
-            // 5. ECDH 金鑰交換，重建共享金鑰
-            KeyAgreement ka = KeyAgreement.getInstance(KEY_AGREEMENT_ALGO);
-            ka.init(privateKey); // 使用本地私鑰
-            ka.doPhase(ephemeralPublicKey, true); // 臨時公鑰
-            byte[] sharedSecret = ka.generateSecret(); // 取得共享金鑰
-
-            // 6. 使用 KDF 衍生對稱金鑰
-            SecretKey sharedKey = deriveKey(sharedSecret);
-
-            // 7. 使用 ChaCha20-Poly1305 解密
-            Cipher cipher = Cipher.getInstance(SYMMETRIC_ALGO);
-            cipher.init(Cipher.DECRYPT_MODE, sharedKey, new IvParameterSpec(nonce));
-            byte[] decrypted = cipher.doFinal(ciphertext);
-
-            // 回傳明文
-            return new String(decrypted, StandardCharsets.UTF_8);
-        } catch (javax.crypto.AEADBadTagException e) {
+            return CryptoPools.CHACHA20_POLY1305.with(cipher -> {
+                cipher.init(Cipher.DECRYPT_MODE, sharedKey, new IvParameterSpec(nonce));
+                return cipher.doFinal(sealed, plaintext);
+            });
+        } catch (AEADBadTagException e) {
             throw new SecurityException("MAC 驗證失敗：資料可能被竄改", e);
         }
     }
@@ -241,4 +940,26 @@ public class ECCService {
         // 回傳 Map
         return result;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 發送端的工作階段：工作階段公鑰、衍生的工作階段金鑰與 nonce 計數器
+     */
+    private static final class IssuerSession {
+        private final byte[] publicKey;      // 32 bytes 原始工作階段公鑰（同時作為工作階段識別碼）
+        private final SecretKey key;         // 工作階段金鑰
+        private final byte[] noncePrefix;    // 4 bytes nonce 前綴（工作階段開始時間）
+        private final AtomicLong counter = new AtomicLong();
+        private final long expiresAt;        // 到期時間（epoch 毫秒）
+
+        private IssuerSession(byte[] publicKey, SecretKey key, byte[] noncePrefix, long expiresAt) {
+            this.publicKey = publicKey;
+            this.key = key;
+            this.noncePrefix = noncePrefix;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isUsable(long now) {
+            return now < expiresAt && counter.get() < MAX_SESSION_MESSAGES;
+        }
+    }
+}
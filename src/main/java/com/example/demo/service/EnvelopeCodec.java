@@ -0,0 +1,286 @@
+package com.example.demo.service;
+
+// 引入 Java 標準庫相關類別
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * QR Code 精簡內容格式（v2）編碼器
+ * v1 格式為 JSON {t, d, h, k}，其中 d 與 h 都是 Base64 字串，d 內又包含長度前綴與 X.509 包裝的臨時公鑰，
+ * 使 QR Code 版本偏高。v2 改為二進位結構並以 Base45（RFC 9285）編碼，整段內容都落在 QR Code 英數字模式：
+ *
+ * <pre>
+ * "RQ2:" + Base45( t 長度(1) + t + k 長度(1) + k + HMAC(32) + 臨時公鑰(32) + nonce(12) + 密文 )
+ * </pre>
+ *
+ * 臨時公鑰、nonce 與密文（以下稱 sealed）由 {@link ECCService#encryptCompact} 產生，
+ * 可直接交給 {@link ECCService#decryptCompact} 解密
+ *
+ * v3 為工作階段模式，結構與 v2 相同，前綴改為 "RQ3:"；sealed 由 {@link ECCService#encryptSession} 產生，
+ * 臨時公鑰欄位為工作階段公鑰，需交給 {@link ECCService#decryptSession} 解密
+ */
+public final class EnvelopeCodec {
+
+    /** v2 格式的前綴（同時作為版本標記，屬於 QR Code 英數字字元） */
+    public static final String PREFIX = "RQ2:";
+
+    /** v3（工作階段模式）格式的前綴 */
+    public static final String SESSION_PREFIX = "RQ3:";
+
+    /** 資料類型 (t) 與金鑰代碼 (k) 的最大位元組數 */
+    public static final int MAX_LABEL_BYTES = 32;
+
+    /** HMAC-SHA256 長度 */
+    public static final int HMAC_LENGTH = 32;
+
+    // 臨時公鑰(32) + nonce(12) + Poly1305 tag(16)
+    private static final int MIN_SEALED_LENGTH = 32 + 12 + 16;
+
+    private static final char[] BASE45_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:".toCharArray();
+    private static final byte[] BASE45_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE45_VALUES, (byte) -1);
+        for (int i = 0; i < BASE45_ALPHABET.length; i++) {
+            BASE45_VALUES[BASE45_ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private EnvelopeCodec() {
+    }
+
+    /**
+     * 判斷 QR Code 內容是否為精簡格式（v2 或 v3）
+     */
+    public static boolean isCompact(String payload) {
+        return payload != null && (payload.startsWith(PREFIX) || payload.startsWith(SESSION_PREFIX));
+    }
+
+    /**
+     * 編碼 v2 內容
+     *
+     * @param dataType 資料類型 (t)
+     * @param keyCode 金鑰代碼 (k)
+     * @param hmac HMAC-SHA256 原始位元組
+     * @param sealed {@link ECCService#encryptCompact} 的輸出
+     * @return QR Code 內容
+     * @throws IllegalArgumentException 當欄位長度不符合格式限制時拋出
+     */
+    public static String encode(String dataType, String keyCode, byte[] hmac, byte[] sealed) {
+        return encode(PREFIX, dataType, keyCode, hmac, sealed);
+    }
+
+    /**
+     * 編碼 v3（工作階段模式）內容
+     *
+     * @param dataType 資料類型 (t)
+     * @param keyCode 金鑰代碼 (k)
+     * @param hmac HMAC-SHA256 原始位元組
+     * @param sealed {@link ECCService#encryptSession} 的輸出
+     * @return QR Code 內容
+     * @throws IllegalArgumentException 當欄位長度不符合格式限制時拋出
+     */
+    public static String encodeSession(String dataType, String keyCode, byte[] hmac, byte[] sealed) {
+        return encode(SESSION_PREFIX, dataType, keyCode, hmac, sealed);
+    }
+
+    private static String encode(String prefix, String dataType, String keyCode, byte[] hmac, byte[] sealed) {
+        byte[] type = label(dataType, "資料類型 (t)");
+        byte[] key = label(keyCode, "金鑰代碼 (k)");
+        if (hmac.length != HMAC_LENGTH) {
+            throw new IllegalArgumentException("HMAC 長度必須為 " + HMAC_LENGTH + " 位元組");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + type.length + key.length + HMAC_LENGTH + sealed.length);
+        out.write(type.length);
+        out.writeBytes(type);
+        out.write(key.length);
+        out.writeBytes(key);
+        out.writeBytes(hmac);
+        out.writeBytes(sealed);
+        return prefix + encodeBase45(out.toByteArray());
+    }
+
+    /**
+     * 解碼 v2 或 v3 內容
+     *
+     * @param payload QR Code 內容
+     * @return 解碼後的欄位
+     * @throws IllegalArgumentException 當內容不是合法的 v2 格式時拋出
+     */
+    public static Envelope decode(String payload) {
+        if (!isCompact(payload)) {
+            throw new IllegalArgumentException("不是 v2 格式的 QR Code 內容");
+        }
+        boolean session = payload.startsWith(SESSION_PREFIX);
+        byte[] data = decodeBase45(payload, (session ? SESSION_PREFIX : PREFIX).length());
+
+        int offset = 0;
+        int typeLength = readLength(data, offset);
+        String dataType = new String(data, offset + 1, typeLength, StandardCharsets.UTF_8);
+        offset += 1 + typeLength;
+
+        int keyLength = readLength(data, offset);
+        String keyCode = new String(data, offset + 1, keyLength, StandardCharsets.UTF_8);
+        offset += 1 + keyLength;
+
+        if (data.length - offset < HMAC_LENGTH + MIN_SEALED_LENGTH) {
+            throw new IllegalArgumentException("v2 內容長度不足");
+        }
+        byte[] hmac = Arrays.copyOfRange(data, offset, offset + HMAC_LENGTH);
+        byte[] sealed = Arrays.copyOfRange(data, offset + HMAC_LENGTH, data.length);
+        return new Envelope(dataType, keyCode, hmac, sealed, session);
+    }
+
+    /**
+     * Base45 編碼（RFC 9285）：每 2 位元組轉為 3 個字元，最後剩 1 位元組時轉為 2 個字元
+     */
+    static String encodeBase45(byte[] data) {
+        StringBuilder out = new StringBuilder((data.length / 2) * 3 + 2);
+        int i = 0;
+        for (; i + 1 < data.length; i += 2) {
+            int n = ((data[i] & 0xFF) << 8) | (data[i + 1] & 0xFF);
+            out.append(BASE45_ALPHABET[n % 45]);
+            out.append(BASE45_ALPHABET[(n / 45) % 45]);
+            out.append(BASE45_ALPHABET[n / 2025]);
+        }
+        if (i < data.length) {
+            int n = data[i] & 0xFF;
+            out.append(BASE45_ALPHABET[n % 45]);
+            out.append(BASE45_ALPHABET[n / 45]);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Base45 解碼（RFC 9285）
+     *
+     * @param text 編碼字串
+     * @param start 開始解碼的位置
+     * @throws IllegalArgumentException 當字元或長度不合法時拋出
+     */
+    static byte[] decodeBase45(String text, int start) {
+        int length = text.length() - start;
+        if (length % 3 == 1) {
+            throw new IllegalArgumentException("Base45 長度不正確");
+        }
+        byte[] out = new byte[(length / 3) * 2 + (length % 3 == 2 ? 1 : 0)];
+        int o = 0;
+        int i = start;
+        for (; i + 2 < text.length(); i += 3) {
+            int n = base45Value(text, i) + base45Value(text, i + 1) * 45 + base45Value(text, i + 2) * 2025;
+            if (n > 0xFFFF) {
+                throw new IllegalArgumentException("Base45 內容不正確");
+            }
+            out[o++] = (byte) (n >> 8);
+            out[o++] = (byte) n;
+        }
+        if (i < text.length()) {
+            int n = base45Value(text, i) + base45Value(text, i + 1) * 45;
+            if (n > 0xFF) {
+                throw new IllegalArgumentException("Base45 內容不正確");
+            }
+            out[o] = (byte) n;
+        }
+        return out;
+    }
+
+    private static int base45Value(String text, int index) {
+        char c = text.charAt(index);
+        int value = c < 128 ? BASE45_VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Base45 內容包含無效字元：" + c);
+        }
+        return value;
+    }
+
+    /**
+     * 判斷標籤（資料類型或金鑰代碼）是否只含安全字元：英數字、底線、連字號，長度 1-{@link #MAX_LABEL_BYTES}
+     * 符合時可直接放入 HTTP 標頭或檔名
+     *
+     * @param value 標籤
+     * @return 符合時回傳 true
+     */
+    public static boolean isSafeLabel(String value) {
+        if (value == null || value.isEmpty() || value.length() > MAX_LABEL_BYTES) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean safe = (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '-';
+            if (!safe) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] label(String value, String name) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_LABEL_BYTES) {
+            throw new IllegalArgumentException("v2 格式的" + name + "長度必須為 1-" + MAX_LABEL_BYTES + " 位元組");
+        }
+        return bytes;
+    }
+
+    private static int readLength(byte[] data, int offset) {
+        if (offset >= data.length) {
+            throw new IllegalArgumentException("v2 內容長度不足");
+        }
+        int length = data[offset] & 0xFF;
+        if (length == 0 || length > MAX_LABEL_BYTES || offset + 1 + length > data.length) {
+            throw new IllegalArgumentException("v2 內容格式錯誤");
+        }
+        return length;
+    }
+
+    /**
+     * v2 內容解碼後的欄位
+     */
+    public static final class Envelope {
+        private final String dataType;  // 資料類型 (t)
+        private final String keyCode;   // 金鑰代碼 (k)
+        private final byte[] hmac;      // HMAC-SHA256 原始位元組
+        private final byte[] sealed;    // 臨時公鑰（v3 為工作階段公鑰）+ nonce + 密文
+        private final boolean session;  // 是否為 v3 工作階段模式
+
+        private Envelope(String dataType, String keyCode, byte[] hmac, byte[] sealed, boolean session) {
+            this.dataType = dataType;
+            this.keyCode = keyCode;
+            this.hmac = hmac;
+            this.sealed = sealed;
+            this.session = session;
+        }
+
+        public boolean isSession() {
+            return session;
+        }
+
+        public String getDataType() {
+            return dataType;
+        }
+
+        public String getKeyCode() {
+            return keyCode;
+        }
+
+        public byte[] getHmac() {
+            return hmac.clone();
+        }
+
+        public byte[] getSealed() {
+            return sealed.clone();
+        }
+
+        /**
+         * 取得經 AEAD 驗證的部分（略過 32 bytes 的臨時公鑰或工作階段公鑰），供重複使用檢查計算指紋
+         *
+         * @return 指向 nonce + 密文 + tag 的唯讀緩衝區
+         */
+        public ByteBuffer getAuthenticatedPart() {
+            return ByteBuffer.wrap(sealed, 32, sealed.length - 32).slice().asReadOnlyBuffer();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.demo.service;
+
+// 引入日誌相關類別
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// 引入 Java 加密相關類別
+import javax.security.auth.DestroyFailedException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+
+// 引入 Java 標準庫相關類別
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 預先產生的金鑰對池
+ * 由背景執行緒預先產生金鑰對，使用時直接取用，將金鑰產生移出請求的關鍵路徑；
+ * 用於加密時的臨時（ephemeral）X25519 金鑰對（{@link ECCService}），以及批次配發的金鑰對（{@link KeyProvisioningService}）
+ *
+ * 1. 每組金鑰對只會被取出一次（取出即自佇列移除），臨時金鑰對用完後由呼叫端以 {@link #destroy(KeyPair)} 丟棄
+ * 2. 目標數量依近期的取用速率調整（約可支應 {@link #REFILL_HORIZON_SECONDS} 秒的需求），上限為 maxSize
+ * 3. 池中沒有金鑰對時回傳 null，由呼叫端改為即時產生
+ */
+final class EphemeralKeyPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(EphemeralKeyPool.class);
+
+    // 背景補充的檢查間隔
+    private static final long REFILL_INTERVAL_MILLIS = 100;
+
+    // 目標數量可支應的需求時間（秒）
+    private static final double REFILL_HORIZON_SECONDS = 1.0;
+
+    // 取用速率的指數移動平均權重
+    private static final double RATE_SMOOTHING = 0.3;
+
+    /**
+     * 產生一組新的金鑰對
+     */
+    @FunctionalInterface
+    interface KeyPairSource {
+        KeyPair generate() throws GeneralSecurityException;
+    }
+
+    private final String name;
+    private final KeyPairSource source;
+    private final int minSize;
+    private final int maxSize;
+    private final BlockingQueue<KeyPair> queue;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder produced = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    // 上次計算取用速率後的取用次數
+    private final LongAdder takenSinceUpdate = new LongAdder();
+    private long lastUpdateNanos = System.nanoTime();
+    private volatile double ratePerSecond;
+    private volatile int targetSize;
+
+    private volatile ScheduledExecutorService producer;
+
+    EphemeralKeyPool(KeyPairSource source, int minSize, int maxSize) {
+        this("ephemeral-key", source, minSize, maxSize);
+    }
+
+    /**
+     * @param name 名稱（背景執行緒名稱與日誌使用）
+     * @param source 金鑰對產生方式
+     * @param minSize 目標數量下限
+     * @param maxSize 目標數量上限（也是池的容量）
+     */
+    EphemeralKeyPool(String name, KeyPairSource source, int minSize, int maxSize) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("金鑰對池大小設定不正確");
+        }
+        this.name = name;
+        this.source = source;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.queue = new ArrayBlockingQueue<>(maxSize);
+        this.targetSize = minSize;
+    }
+
+    /**
+     * 啟動背景產生執行緒
+     */
+    synchronized void start() {
+        if (producer != null) {
+            return;
+        }
+        producer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-producer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        producer.scheduleWithFixedDelay(this::refill, 0, REFILL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止背景產生執行緒並丟棄池中所有金鑰對
+     */
+    synchronized void shutdown() {
+        if (producer != null) {
+            producer.shutdownNow();
+            producer = null;
+        }
+        KeyPair keyPair;
+        while ((keyPair = queue.poll()) != null) {
+            destroy(keyPair);
+            discarded.increment();
+        }
+    }
+
+    /**
+     * 取出一組預先產生的金鑰對
+     *
+     * @return 金鑰對；池中沒有金鑰對時回傳 null（呼叫端改為即時產生）
+     */
+    KeyPair take() {
+        takenSinceUpdate.increment();
+        KeyPair keyPair = queue.poll();
+        if (keyPair == null) {
+            fallbacks.increment();
+        } else {
+            taken.increment();
+        }
+        // 低於目標數量的一半時提前喚醒背景執行緒，不等下一次排程
+        ScheduledExecutorService current = producer;
+        if (current != null && queue.size() < targetSize / 2 && !refilling.get()) {
+            try {
+                current.execute(this::refill);
+            } catch (RuntimeException e) {
+                // 已停止時忽略
+            }
+        }
+        return keyPair;
+    }
+
+    /**
+     * 依近期取用速率調整目標數量，補充到目標數量，並丟棄超出目標的金鑰對
+     */
+    void refill() {
+        if (!refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            updateTarget();
+            int target = targetSize;
+            while (queue.size() > target) {
+                KeyPair excess = queue.poll();
+                if (excess == null) {
+                    break;
+                }
+                destroy(excess);
+                discarded.increment();
+            }
+            while (queue.size() < target && !Thread.currentThread().isInterrupted()) {
+                KeyPair keyPair = source.generate();
+                if (!queue.offer(keyPair)) {
+                    destroy(keyPair);
+                    break;
+                }
+                produced.increment();
+            }
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // 背景產生失敗時不影響加密（呼叫端會改為即時產生），下次排程再試
+            logger.warn("預先產生金鑰對失敗（{}）", name, e);
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    /**
+     * 以指數移動平均估算每秒取用次數，目標數量為可支應 REFILL_HORIZON_SECONDS 秒的數量
+     */
+    private void updateTarget() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastUpdateNanos) / 1_000_000_000.0;
+        if (elapsedSeconds < REFILL_INTERVAL_MILLIS / 2000.0) {
+            return;
+        }
+        lastUpdateNanos = now;
+        double instantRate = takenSinceUpdate.sumThenReset() / elapsedSeconds;
+        double rate = RATE_SMOOTHING * instantRate + (1 - RATE_SMOOTHING) * ratePerSecond;
+        ratePerSecond = rate;
+        long target = (long) Math.ceil(rate * REFILL_HORIZON_SECONDS);
+        targetSize = (int) Math.max(minSize, Math.min(maxSize, target));
+    }
+
+    /**
+     * 丟棄用過或多餘的金鑰對
+     * 提供者支援時銷毀私鑰內容；不支援時（例如 SunEC 的 X25519 私鑰）只能釋放參照，交由 GC 回收
+     */
+    static void destroy(KeyPair keyPair) {
+        PrivateKey privateKey = keyPair.getPrivate();
+        if (privateKey != null && !privateKey.isDestroyed()) {
+            try {
+                privateKey.destroy();
+            } catch (DestroyFailedException e) {
+                // 提供者不支援銷毀
+            }
+        }
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    int getTargetSize() {
+        return targetSize;
+    }
+
+    /**
+     * 金鑰對池統計：目前數量、目標數量、取用、即時產生、背景產生與丟棄次數、每秒取用速率
+     */
+    Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) queue.size());
+        stats.put("targetSize", (long) targetSize);
+        stats.put("maxSize", (long) maxSize);
+        stats.put("taken", taken.sum());
+        stats.put("fallbacks", fallbacks.sum());
+        stats.put("produced", produced.sum());
+        stats.put("discarded", discarded.sum());
+        stats.put("ratePerSecond", Math.round(ratePerSecond));
+        return stats;
+    }
+}
@@ -1,34 +1,50 @@
 package com.example.demo.service;
 
 // 引入 Spring 框架相關類別
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 // 引入 Java 加密相關類別
-import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
-import java.nio.charset.StandardCharsets;
-
-// 引入日誌相關類別
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * HMAC 服務
  * 此服務類別提供 HMAC-SHA256 訊息驗證碼的相關功能，包含：
  * 1. 產生 HMAC 金鑰
  * 2. 計算 HMAC 值
+ * 
+ * 同一把金鑰重複計算或驗證（例如驗證端的金鑰環）時使用 {@link HmacEngine}，
+ * 保留已初始化的 Mac 並以原始位元組做固定時間比對；
+ * 各金鑰的 HmacEngine 依金鑰指紋快取（數量有上限），計算 HMAC 時不需要每次重新 init Mac
  */
 @Service
 public class HMACService {
-    // 設定日誌記錄器
-    private static final Logger logger = LoggerFactory.getLogger(HMACService.class);
-    
+
+    private static final int DEFAULT_ENGINE_CACHE_SIZE = 256;
+
+    // 各金鑰已初始化的 HmacEngine（以金鑰指紋為鍵）
+    private final ParsedKeyCache<HmacEngine> engineCache;
+
+    public HMACService() {
+        this(DEFAULT_ENGINE_CACHE_SIZE);
+    }
+
+    /**
+     * @param engineCacheSize 快取的 HmacEngine 數量上限
+     */
+    @Autowired
+    public HMACService(@Value("${hmac.engine-cache.max-size:256}") int engineCacheSize) {
+        this.engineCache = new ParsedKeyCache<>(engineCacheSize, key -> new HmacEngine(parseKey(key)));
+    }
     /**
      * 產生 HMAC-SHA256 金鑰
      * 
@@ -39,7 +55,7 @@ public class HMACService {
         try {
             // 初始化 HMAC-SHA256 金鑰產生器
             KeyGenerator keyGenerator = KeyGenerator.getInstance("HmacSHA256");
-            keyGenerator.init(256); // 使用 256 位元（32 位元組）的金鑰長度
+            keyGenerator.init(256, RandomSource.system().secureRandom()); // 使用 256 位元（32 位元組）的金鑰長度
             
             // 產生金鑰
             SecretKey secretKey = keyGenerator.generateKey();
@@ -58,6 +74,50 @@ public class HMACService {
         }
     }
 
+    /**
+     * 將 Base64 格式的 HMAC 金鑰轉換為金鑰物件
+     * 
+     * @param key Base64 格式的 HMAC 金鑰
+     * @return HMAC-SHA256 金鑰
+     */
+    public SecretKey parseKey(String key) {
+        return new SecretKeySpec(Base64.getDecoder().decode(key), "HmacSHA256");
+    }
+
+    /**
+     * 取得 Base64 格式金鑰的 HmacEngine（依金鑰字串的指紋快取，命中時不需要解碼金鑰或 init Mac）
+     *
+     * @param key Base64 格式的 HMAC 金鑰
+     * @return 已以此金鑰初始化的 HmacEngine
+     * @throws GeneralSecurityException 當金鑰無法初始化 Mac 時拋出
+     */
+    public HmacEngine engine(String key) throws GeneralSecurityException {
+        return engineCache.get(key);
+    }
+
+    /**
+     * 取得已載入金鑰的 HmacEngine（依金鑰內容的指紋快取）
+     *
+     * @param secretKey HMAC-SHA256 金鑰
+     * @return 已以此金鑰初始化的 HmacEngine
+     * @throws GeneralSecurityException 當金鑰無法初始化 Mac 時拋出
+     */
+    public HmacEngine engine(SecretKey secretKey) throws GeneralSecurityException {
+        byte[] encoded = secretKey.getEncoded();
+        try {
+            return engineCache.get(encoded, () -> new HmacEngine(secretKey));
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+
+    /**
+     * 取得 HmacEngine 快取的統計資料（大小、命中與未命中次數等）
+     */
+    public Map<String, Long> getEngineCacheStats() {
+        return engineCache.getStats();
+    }
+
     /**
      * 使用 HMAC-SHA256 演算法計算訊息的驗證碼
      * 
@@ -67,21 +127,34 @@ public class HMACService {
      * @throws Exception 當計算過程發生錯誤時拋出
      */
     public String calculateHMAC(String data, String key) throws Exception {
-        // 記錄開始計算的日誌
-        logger.info("開始計算(calculateHMAC) HMAC:{},{}", data, key);
-        
-        // 將 Base64 格式的金鑰轉換為位元組陣列
-        byte[] keyBytes = Base64.getDecoder().decode(key);
-        
-        // 建立 HMAC-SHA256 金鑰規格
-        SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "HmacSHA256");
-        
-        // 初始化 MAC 物件
-        Mac mac = Mac.getInstance("HmacSHA256");
-        mac.init(secretKey);
-        
+        // 由快取取得此金鑰已初始化的 HmacEngine（不記錄資料與金鑰內容）
+        return Base64.getEncoder().encodeToString(engine(key).mac(data));
+    }
+
+    /**
+     * 使用已載入的 HMAC 金鑰計算訊息的驗證碼
+     * 適用於同一把金鑰重複計算多筆資料的情境（例如批次產生）
+     * 
+     * @param data 要計算 HMAC 的原始資料
+     * @param secretKey HMAC-SHA256 金鑰
+     * @return Base64 格式的 HMAC 值
+     * @throws Exception 當計算過程發生錯誤時拋出
+     */
+    public String calculateHMAC(String data, SecretKey secretKey) throws Exception {
         // 計算 HMAC 值並轉換為 Base64 字串
-        byte[] hmacBytes = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(hmacBytes);
+        return Base64.getEncoder().encodeToString(calculateRawHMAC(data, secretKey));
+    }
+
+    /**
+     * 使用已載入的 HMAC 金鑰計算訊息的驗證碼，回傳原始位元組（供 v2 二進位 QR Code 內容使用）
+     * 
+     * @param data 要計算 HMAC 的原始資料
+     * @param secretKey HMAC-SHA256 金鑰
+     * @return 32 位元組的 HMAC 值
+     * @throws Exception 當計算過程發生錯誤時拋出
+     */
+    public byte[] calculateRawHMAC(String data, SecretKey secretKey) throws Exception {
+        // 由快取取得此金鑰已初始化的 HmacEngine，不需要每次重新 init Mac
+        return engine(secretKey).mac(data);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.example.demo.service;
+
+// 引入 Java 加密相關類別
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+// 引入 Java 標準庫相關類別
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 單一 HMAC-SHA256 金鑰的計算與驗證
+ * 保存已以此金鑰 init 的 Mac，計算時不需要再解碼金鑰或重新 init
+ *
+ * 1. 已初始化的 Mac 放在此金鑰專用的物件池中，歸還時 reset（回到 init 後的狀態、保留金鑰），
+ *    池中沒有閒置的 Mac 時複製原型，不重新查詢加密提供者
+ * 2. {@link #verify(byte[], byte[])} 直接比對原始位元組：HMAC 寫入執行緒各自的緩衝區，
+ *    以 {@link MessageDigest#isEqual(byte[], byte[])} 做固定時間比對，不經過 Base64 與字串比較
+ *
+ * 物件建立後不再變動，可由多個執行緒共用
+ */
+public final class HmacEngine {
+
+    /** HMAC-SHA256 的長度（位元組） */
+    public static final int TAG_LENGTH = 32;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    // 每把金鑰保留的閒置 Mac 數量上限
+    private static final int POOL_CAPACITY = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    // 每個執行緒重複使用的 HMAC 輸出緩衝區（驗證時使用）
+    private static final ThreadLocal<byte[]> TAG_BUFFERS = ThreadLocal.withInitial(() -> new byte[TAG_LENGTH]);
+
+    private final SecretKey key;
+    private final Mac prototype;
+    private final CryptoPrimitivePool<Mac> macs;
+
+    /**
+     * @param key HMAC-SHA256 金鑰
+     * @throws GeneralSecurityException 當金鑰無法初始化 Mac 時拋出
+     */
+    public HmacEngine(SecretKey key) throws GeneralSecurityException {
+        this.key = key;
+        this.prototype = Mac.getInstance(HMAC_ALGORITHM);
+        this.prototype.init(key);
+        this.macs = new CryptoPrimitivePool<>("hmacKey", POOL_CAPACITY, this::newMac, Mac::reset);
+    }
+
+    public SecretKey getKey() {
+        return key;
+    }
+
+    /**
+     * 計算 HMAC
+     *
+     * @param data 要計算 HMAC 的原始資料
+     * @return 32 位元組的 HMAC 值
+     * @throws GeneralSecurityException 當計算過程發生錯誤時拋出
+     */
+    public byte[] mac(byte[] data) throws GeneralSecurityException {
+        Mac mac = macs.acquire();
+        try {
+            return mac.doFinal(data);
+        } finally {
+            macs.release(mac);
+        }
+    }
+
+    /**
+     * 計算字串（UTF-8）的 HMAC
+     *
+     * @param data 要計算 HMAC 的原始資料
+     * @return 32 位元組的 HMAC 值
+     * @throws GeneralSecurityException 當計算過程發生錯誤時拋出
+     */
+    public byte[] mac(String data) throws GeneralSecurityException {
+        return mac(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 以固定時間比對驗證 HMAC
+     *
+     * @param data 原始資料
+     * @param tag 要驗證的 HMAC 值（原始位元組）
+     * @return HMAC 相符時回傳 true；tag 為 null 或長度不正確時回傳 false
+     * @throws GeneralSecurityException 當計算過程發生錯誤時拋出
+     */
+    public boolean verify(byte[] data, byte[] tag) throws GeneralSecurityException {
+        if (tag == null || tag.length != TAG_LENGTH) {
+            return false;
+        }
+        byte[] expected = TAG_BUFFERS.get();
+        Mac mac = macs.acquire();
+        try {
+            mac.update(data);
+            mac.doFinal(expected, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException("Mac 輸出長度不是 32 位元組", e);
+        } finally {
+            macs.release(mac);
+        }
+        return MessageDigest.isEqual(expected, tag);
+    }
+
+    /**
+     * 複製已初始化的原型；加密提供者不支援複製時改為重新初始化
+     */
+    private Mac newMac() throws GeneralSecurityException {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        }
+    }
+}
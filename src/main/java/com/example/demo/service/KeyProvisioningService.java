@@ -0,0 +1,355 @@
+package com.example.demo.service;
+
+// 引入 Spring 框架相關類別
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// 引入 JSON 處理相關類別
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// 引入日誌相關類別
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// 引入 Java 加密相關類別
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+
+// 引入 Java 標準庫相關類別
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * 金鑰配發服務
+ * 新增取件地點時一次為大量發行端產生金鑰組（加密金鑰對、TOTP 金鑰與 HMAC 金鑰），包含：
+ * 1. 每種加密演算法各有一個背景預先產生的金鑰對池（RSA-2048 每組需數十到數百毫秒，X25519 也可省下請求中的純量乘法）
+ * 2. 批次配發時以所有 CPU 核心平行產生，池中的金鑰對不足時各執行緒即時產生
+ * 3. 依序以 NDJSON（每行一組金鑰）串流輸出，或輸出為 {@link KeyringService} 可直接載入的金鑰檔（可用密碼加密）
+ *
+ * 金鑰代碼為「前綴 + 補零的序號」，例如前綴 LOC- 與序號 1 為 LOC-00001
+ */
+@Service
+public class KeyProvisioningService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyProvisioningService.class);
+
+    /** 輸出格式：NDJSON（每行一組金鑰） */
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    /** 輸出格式：伺服器端金鑰環的金鑰檔 */
+    public static final String FORMAT_KEYRING = "keyring";
+
+    /** 單次配發的最大組數 */
+    public static final int MAX_COUNT = 10000;
+
+    // 預先產生池的目標數量下限
+    private static final int POOL_MIN_SIZE = 4;
+
+    // 序號最少補零到的位數
+    private static final int MIN_SERIAL_DIGITS = 5;
+
+    // 平行產生的執行緒數量與同時處理中的最大組數（限制處理中的組數，讓記憶體用量不隨組數增加）
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final int WINDOW = PARALLELISM * 4;
+
+    private final PayloadCipherRegistry payloadCiphers;
+    private final TOTPService totpService;
+    private final HMACService hmacService;
+
+    // 以演算法識別碼分組的預先產生池（上限為 0 時為空，全部即時產生）
+    private final Map<String, EphemeralKeyPool> pools = new LinkedHashMap<>();
+
+    // 批次配發專用的 fork-join 執行緒池
+    private final ForkJoinPool workers = new ForkJoinPool(PARALLELISM, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("key-provisioning-" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param payloadCiphers 可用的加密演算法
+     * @param totpService TOTP 金鑰產生
+     * @param hmacService HMAC 金鑰產生
+     * @param poolMaxSize 每種演算法預先產生的金鑰對數量上限（0 為停用）
+     */
+    @Autowired
+    public KeyProvisioningService(PayloadCipherRegistry payloadCiphers, TOTPService totpService, HMACService hmacService,
+                                  @Value("${provisioning.pool.max-size:64}") int poolMaxSize) {
+        this.payloadCiphers = payloadCiphers;
+        this.totpService = totpService;
+        this.hmacService = hmacService;
+        if (poolMaxSize > 0) {
+            for (String algorithm : payloadCiphers.getAlgorithms()) {
+                PayloadCipher cipher = payloadCiphers.get(algorithm);
+                pools.put(algorithm, new EphemeralKeyPool("provisioning-" + algorithm.toLowerCase(),
+                    cipher::newKeyPair, Math.min(POOL_MIN_SIZE, poolMaxSize), poolMaxSize));
+            }
+        }
+    }
+
+    /**
+     * 啟動各演算法的背景產生執行緒
+     */
+    @PostConstruct
+    public void start() {
+        pools.values().forEach(EphemeralKeyPool::start);
+    }
+
+    /**
+     * 停止背景產生與批次配發的執行緒
+     */
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(EphemeralKeyPool::shutdown);
+        workers.shutdownNow();
+    }
+
+    /**
+     * 驗證配發參數並建立配發計畫
+     *
+     * @param algorithm 加密演算法識別碼（null 時為 X25519）
+     * @param keyCodePrefix 金鑰代碼前綴（null 時為空字串）
+     * @param start 第一組的序號（null 時為 1）
+     * @param count 組數
+     * @param format 輸出格式（null 時為 NDJSON）
+     * @return 配發計畫
+     * @throws IllegalArgumentException 當參數驗證失敗時拋出，訊息可直接回傳給前端
+     */
+    public ProvisioningPlan plan(String algorithm, String keyCodePrefix, Integer start, Integer count, String format) {
+        PayloadCipher cipher = payloadCiphers.get(algorithm);
+        if (count == null || count < 1 || count > MAX_COUNT) {
+            throw new IllegalArgumentException("count 必須介於 1 到 " + MAX_COUNT + " 之間");
+        }
+        int first = start == null ? 1 : start;
+        if (first < 0 || (long) first + count - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("start 必須為非負整數");
+        }
+        String prefix = keyCodePrefix == null ? "" : keyCodePrefix.trim();
+        if (!prefix.matches("^[A-Za-z0-9_-]*$")) {
+            throw new IllegalArgumentException("金鑰代碼前綴只允許英數字、底線、連字號");
+        }
+        int digits = Math.max(MIN_SERIAL_DIGITS, String.valueOf(first + count - 1).length());
+        if (prefix.length() + digits > EnvelopeCodec.MAX_LABEL_BYTES) {
+            throw new IllegalArgumentException("金鑰代碼（前綴 + " + digits + " 位序號）最多 " + EnvelopeCodec.MAX_LABEL_BYTES + " 字元");
+        }
+        String outputFormat = format == null || format.isBlank() ? FORMAT_NDJSON : format.trim().toLowerCase();
+        if (!FORMAT_NDJSON.equals(outputFormat) && !FORMAT_KEYRING.equals(outputFormat)) {
+            throw new IllegalArgumentException("format 只支援 " + FORMAT_NDJSON + " 或 " + FORMAT_KEYRING);
+        }
+        // 伺服器端金鑰環只載入 X25519 金鑰
+        if (FORMAT_KEYRING.equals(outputFormat) && !PayloadCipher.X25519.equals(cipher.getAlgorithm())) {
+            throw new IllegalArgumentException("金鑰檔格式只支援 " + PayloadCipher.X25519);
+        }
+        return new ProvisioningPlan(cipher, prefix, first, count, digits, outputFormat);
+    }
+
+    /**
+     * 產生一組金鑰：加密金鑰對（優先取用預先產生的金鑰對）、TOTP 金鑰與 HMAC 金鑰
+     *
+     * @param cipher 加密演算法
+     * @param keyCode 金鑰代碼
+     * @return {keyCode, algorithm, publicKey, privateKey, totpKey, hmacKey}
+     * @throws GeneralSecurityException 當金鑰產生失敗時拋出
+     */
+    public Map<String, String> provision(PayloadCipher cipher, String keyCode) throws GeneralSecurityException {
+        EphemeralKeyPool pool = pools.get(cipher.getAlgorithm());
+        KeyPair keyPair = pool != null ? pool.take() : null;
+        if (keyPair == null) {
+            keyPair = cipher.newKeyPair();
+        }
+
+        Map<String, String> keySet = new LinkedHashMap<>();
+        keySet.put("keyCode", keyCode);
+        keySet.put("algorithm", cipher.getAlgorithm());
+        keySet.put("publicKey", Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        keySet.put("privateKey", Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        keySet.put("totpKey", totpService.generateTOTPKey().get("totpKey"));
+        keySet.put("hmacKey", hmacService.generateHMACKey().get("hmacKey"));
+        return keySet;
+    }
+
+    /**
+     * 平行產生金鑰組，依序號順序以 NDJSON 寫入輸出串流
+     * 成功：{"index", "keyCode", "algorithm", "publicKey", "privateKey", "totpKey", "hmacKey"}；失敗：{"index", "keyCode", "error"}
+     *
+     * @param plan 配發計畫
+     * @param out 輸出串流
+     * @throws IOException 當寫入失敗時拋出
+     */
+    public void writeNdjson(ProvisioningPlan plan, OutputStream out) throws IOException {
+        generate(plan, index -> {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("index", index);
+            String keyCode = plan.keyCode(index);
+            try {
+                line.putAll(provision(plan.cipher, keyCode));
+            } catch (GeneralSecurityException | RuntimeException e) {
+                logger.error("配發金鑰 {} 時發生錯誤", keyCode, e);
+                line.put("keyCode", keyCode);
+                line.put("error", "金鑰產生失敗：" + e.getMessage());
+            }
+            byte[] json = objectMapper.writeValueAsBytes(line);
+            byte[] result = new byte[json.length + 1];
+            System.arraycopy(json, 0, result, 0, json.length);
+            result[json.length] = '\n';
+            return result;
+        }, out::write, out);
+    }
+
+    /**
+     * 平行產生金鑰組，寫入伺服器端金鑰環可直接載入的金鑰檔
+     * 金鑰檔需整份加密，因此先在記憶體中組成完整內容再寫出；任一組產生失敗時整份失敗
+     *
+     * @param plan 配發計畫
+     * @param password 金鑰檔密碼（null 或空白時輸出明文金鑰檔）
+     * @param out 輸出串流
+     * @throws IOException 當金鑰產生或寫入失敗時拋出
+     */
+    public void writeKeyring(ProvisioningPlan plan, char[] password, OutputStream out) throws IOException {
+        ObjectNode keyring = objectMapper.createObjectNode();
+        ArrayNode keys = keyring.putArray("keys");
+        generate(plan, index -> {
+            try {
+                return provision(plan.cipher, plan.keyCode(index));
+            } catch (GeneralSecurityException e) {
+                throw new IOException("金鑰 " + plan.keyCode(index) + " 產生失敗：" + e.getMessage(), e);
+            }
+        }, keySet -> {
+            ObjectNode entry = keys.addObject();
+            entry.put("keyCode", keySet.get("keyCode"));
+            entry.put("generation", 1);
+            entry.put("privateKey", keySet.get("privateKey"));
+            entry.put("publicKey", keySet.get("publicKey"));
+            entry.put("totpKey", keySet.get("totpKey"));
+            entry.put("hmacKey", keySet.get("hmacKey"));
+        }, out);
+
+        String json = objectMapper.writeValueAsString(keyring);
+        if (password != null && password.length > 0 && !new String(password).isBlank()) {
+            try {
+                json = KeyringService.sealBundle(json, password);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("金鑰檔加密失敗：" + e.getMessage(), e);
+            }
+        }
+        out.write(json.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 取得各演算法預先產生池的統計資料
+     */
+    public Map<String, Map<String, Long>> getPoolStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        pools.forEach((algorithm, pool) -> stats.put(algorithm, pool.getStats()));
+        return stats;
+    }
+
+    /**
+     * 以 fork-join 執行緒池平行產生各組結果，並依序號順序交給 sink
+     * 同時處理中的組數不超過 WINDOW，最早送出的一組完成後立即交出
+     */
+    private <T> void generate(ProvisioningPlan plan, Task<T> task, Sink<T> sink, OutputStream out) throws IOException {
+        Deque<ForkJoinTask<T>> inFlight = new ArrayDeque<>(WINDOW);
+        try {
+            for (int i = 0; i < plan.count; i++) {
+                final int index = plan.start + i;
+                inFlight.addLast(workers.submit(() -> task.run(index)));
+                if (inFlight.size() >= WINDOW) {
+                    sink.accept(inFlight.pollFirst().join());
+                    out.flush();
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                sink.accept(inFlight.pollFirst().join());
+            }
+            out.flush();
+        } catch (RuntimeException e) {
+            // 工作中拋出的 IOException 會被 ForkJoinTask 包裝（跨執行緒時可能再包一層）
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        } finally {
+            // 用戶端中斷連線時取消尚未完成的工作
+            for (ForkJoinTask<T> pending : inFlight) {
+                pending.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 產生一組結果
+     */
+    @FunctionalInterface
+    private interface Task<T> {
+        T run(int index) throws IOException;
+    }
+
+    /**
+     * 依序接收產生的結果
+     */
+    @FunctionalInterface
+    private interface Sink<T> {
+        void accept(T result) throws IOException;
+    }
+
+    /**
+     * 已驗證的配發計畫：演算法、金鑰代碼規則、序號範圍與輸出格式
+     */
+    public static final class ProvisioningPlan {
+
+        private final PayloadCipher cipher;
+        private final String prefix;
+        private final int start;
+        private final int count;
+        private final int digits;
+        private final String format;
+
+        private ProvisioningPlan(PayloadCipher cipher, String prefix, int start, int count, int digits, String format) {
+            this.cipher = cipher;
+            this.prefix = prefix;
+            this.start = start;
+            this.count = count;
+            this.digits = digits;
+            this.format = format;
+        }
+
+        /**
+         * 指定序號的金鑰代碼
+         */
+        public String keyCode(int index) {
+            return prefix + String.format("%0" + digits + "d", index);
+        }
+
+        public String getAlgorithm() {
+            return cipher.getAlgorithm();
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+// 引入 Java 加密相關類別
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * 金鑰環中的一組金鑰
+ * 以 QR Code 信封的金鑰代碼（k）識別，保存已解析的 ECC 金鑰、已解碼的 TOTP 金鑰與已初始化的 HMAC 狀態，
+ * 驗證時不需要再解析任何金鑰
+ *
+ * 物件建立後不再變動，可由多個執行緒共用
+ */
+public final class KeyringEntry {
+
+    private final String keyCode;
+    private final int generation;
+    private final PrivateKey privateKey;
+    private final PublicKey publicKey;
+    private final String totpKey;
+    private final SecretKey hmacKey;
+
+    // 已解碼的 TOTP 金鑰（Base64 格式不正確時為 null，驗證一律失敗）
+    private final SecretKey totpSecretKey;
+
+    // 已以 HMAC 金鑰初始化的 Mac（計算與固定時間驗證）
+    private final HmacEngine hmacEngine;
+
+    /**
+     * @param keyCode 金鑰代碼（QR Code 信封中的 k）
+     * @param generation 金鑰世代（輪替時遞增）
+     * @param privateKey 解密用私鑰
+     * @param publicKey 加密用公鑰（只用於驗證時可為 null）
+     * @param totpKey Base64 格式的 TOTP 金鑰
+     * @param hmacKey HMAC-SHA256 金鑰
+     * @throws GeneralSecurityException 當 HMAC 金鑰無法初始化時拋出
+     */
+    public KeyringEntry(String keyCode, int generation, PrivateKey privateKey, PublicKey publicKey,
+                        String totpKey, SecretKey hmacKey) throws GeneralSecurityException {
+        this(keyCode, generation, privateKey, publicKey, totpKey, new HmacEngine(hmacKey));
+    }
+
+    /**
+     * 使用已建立的 HmacEngine（例如由 {@link HMACService#engine(String)} 快取取得），不另外初始化 Mac
+     *
+     * @param keyCode 金鑰代碼（QR Code 信封中的 k）
+     * @param generation 金鑰世代（輪替時遞增）
+     * @param privateKey 解密用私鑰
+     * @param publicKey 加密用公鑰（只用於驗證時可為 null）
+     * @param totpKey Base64 格式的 TOTP 金鑰
+     * @param hmacEngine 已以 HMAC 金鑰初始化的 HmacEngine
+     */
+    public KeyringEntry(String keyCode, int generation, PrivateKey privateKey, PublicKey publicKey,
+                        String totpKey, HmacEngine hmacEngine) {
+        this.keyCode = keyCode;
+        this.generation = generation;
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        this.totpKey = totpKey;
+        this.hmacKey = hmacEngine.getKey();
+        this.totpSecretKey = decodeTotpKey(totpKey);
+        this.hmacEngine = hmacEngine;
+    }
+
+    public String getKeyCode() {
+        return keyCode;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public String getTotpKey() {
+        return totpKey;
+    }
+
+    /**
+     * 取得已解碼的 TOTP 金鑰，驗證時不需要再解碼 Base64
+     *
+     * @return TOTP 金鑰；原始金鑰不是有效的 Base64 時回傳 null
+     */
+    public SecretKey getTotpSecretKey() {
+        return totpSecretKey;
+    }
+
+    public SecretKey getHmacKey() {
+        return hmacKey;
+    }
+
+    /**
+     * 以此組金鑰的 HMAC 金鑰計算訊息驗證碼
+     * 使用已初始化的 Mac，不需要每次重新取得演算法實作並設定金鑰
+     *
+     * @param data 要計算 HMAC 的原始資料
+     * @return 32 位元組的 HMAC 值
+     * @throws GeneralSecurityException 當計算過程發生錯誤時拋出
+     */
+    public byte[] hmac(String data) throws GeneralSecurityException {
+        return hmacEngine.mac(data);
+    }
+
+    /**
+     * 以此組金鑰的 HMAC 金鑰驗證訊息驗證碼（固定時間比對原始位元組）
+     *
+     * @param data 原始資料
+     * @param tag 要驗證的 HMAC 值
+     * @return HMAC 相符時回傳 true
+     * @throws GeneralSecurityException 當計算過程發生錯誤時拋出
+     */
+    public boolean verifyHmac(String data, byte[] tag) throws GeneralSecurityException {
+        return hmacEngine.verify(data.getBytes(StandardCharsets.UTF_8), tag);
+    }
+
+    /**
+     * 解碼 TOTP 金鑰；金鑰不是有效的 Base64 時回傳 null，而不是讓整組金鑰無法建立
+     */
+    private static SecretKey decodeTotpKey(String totpKey) {
+        if (totpKey == null || totpKey.isEmpty()) {
+            return null;
+        }
+        try {
+            return TotpEngine.decodeKey(totpKey);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
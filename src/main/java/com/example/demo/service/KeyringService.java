@@ -0,0 +1,429 @@
+package com.example.demo.service;
+
+// 引入 Spring 框架相關類別
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+// 引入 JSON 處理相關類別
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// 引入日誌相關類別
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// 引入 Java 標準庫相關類別
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 伺服器端金鑰環服務
+ * 啟動時由本機金鑰檔載入多組金鑰，依 QR Code 信封中的金鑰代碼（k）以 O(1) 查詢，
+ * 驗證請求只需要帶 QR Code 內容，不需要每次傳送並解析私鑰、TOTP 金鑰與 HMAC 金鑰
+ *
+ * 金鑰檔為 JSON：
+ * <pre>
+ * {
+ *   "current": "K2",
+ *   "keys": [
+ *     {"keyCode": "K1", "generation": 1, "privateKey": "...", "publicKey": "...", "totpKey": "...", "hmacKey": "..."},
+ *     {"keyCode": "K2", "generation": 2, ...}
+ *   ]
+ * }
+ * </pre>
+ * 金鑰輪替期間可同時保留多個世代，所有列出的金鑰都可用於驗證；current 為產生新 QR Code 時使用的金鑰
+ * （未指定時為世代最大者）。金鑰檔可用 {@link #sealBundle(String, char[])} 以密碼加密
+ * （PBKDF2 衍生金鑰 + ChaCha20-Poly1305），密碼由 keyring.password 設定
+ *
+ * 金鑰檔變更（修改時間或大小不同）時自動重新載入；新內容有誤時保留原本的金鑰並記錄錯誤
+ */
+@Service
+public class KeyringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyringService.class);
+
+    // 加密金鑰檔的格式識別與參數
+    static final String SEALED_FORMAT = "reverseqr-keyring-v1";
+    private static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int KDF_ITERATIONS = 210_000;
+    private static final int SALT_LENGTH = 16;
+    private static final int NONCE_LENGTH = 12;
+    private static final String CIPHER_ALGORITHM = "ChaCha20-Poly1305";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ECCService eccService;
+    private final HMACService hmacService;
+    private final Path path;
+    private final char[] password;
+    private final long reloadIntervalSeconds;
+
+    // 目前的金鑰（重新載入時整份替換，查詢不需要鎖定）
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // 最後一次讀取的金鑰檔狀態（不論載入成功與否），用於判斷檔案是否變更
+    private FileStamp loadedStamp;
+
+    private ScheduledExecutorService reloadExecutor;
+
+    @Autowired
+    public KeyringService(ECCService eccService, HMACService hmacService,
+                          @Value("${keyring.path:}") String path,
+                          @Value("${keyring.password:}") String password,
+                          @Value("${keyring.reload-interval-seconds:10}") long reloadIntervalSeconds) {
+        this.eccService = eccService;
+        this.hmacService = hmacService;
+        this.path = StringUtils.hasText(path) ? Paths.get(path) : null;
+        this.password = password.toCharArray();
+        this.reloadIntervalSeconds = reloadIntervalSeconds;
+    }
+
+    /**
+     * 啟動時載入金鑰檔，並定期檢查檔案是否變更
+     *
+     * @throws IllegalStateException 當已設定金鑰檔但無法載入時拋出（避免以錯誤的金鑰啟動）
+     */
+    @PostConstruct
+    public void start() {
+        if (path == null) {
+            logger.info("未設定 keyring.path，驗證時需由請求提供金鑰");
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            throw new IllegalStateException("無法載入金鑰檔：" + path, e);
+        }
+        if (reloadIntervalSeconds > 0) {
+            reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "keyring-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloadExecutor.scheduleWithFixedDelay(this::reloadIfChanged,
+                reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 停止金鑰檔檢查執行緒
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 是否已設定伺服器端金鑰檔
+     */
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /**
+     * 依金鑰代碼取得金鑰
+     *
+     * @param keyCode QR Code 信封中的金鑰代碼（k）
+     * @return 金鑰，找不到時回傳 null
+     */
+    public KeyringEntry find(String keyCode) {
+        return keyCode == null ? null : snapshot.entries.get(keyCode);
+    }
+
+    /**
+     * 取得產生新 QR Code 時使用的金鑰
+     *
+     * @return 目前的金鑰，金鑰環為空時回傳 null
+     */
+    public KeyringEntry getCurrent() {
+        return snapshot.current;
+    }
+
+    /**
+     * 取得所有金鑰代碼與世代（不含任何金鑰內容），依世代由新到舊排列
+     */
+    public List<Map<String, Object>> describe() {
+        Snapshot current = snapshot;
+        List<KeyringEntry> entries = new ArrayList<>(current.entries.values());
+        entries.sort((a, b) -> Integer.compare(b.getGeneration(), a.getGeneration()));
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (KeyringEntry entry : entries) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("keyCode", entry.getKeyCode());
+            item.put("generation", entry.getGeneration());
+            item.put("current", entry == current.current);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 金鑰檔變更時重新載入；載入失敗時保留原本的金鑰
+     *
+     * @return 是否已載入新的金鑰
+     */
+    public synchronized boolean reloadIfChanged() {
+        try {
+            FileStamp stamp = FileStamp.of(path);
+            if (stamp.equals(loadedStamp)) {
+                return false;
+            }
+            reload();
+            return true;
+        } catch (Exception e) {
+            logger.error("重新載入金鑰檔失敗，繼續使用原本的金鑰：{}", path, e);
+            return false;
+        }
+    }
+
+    /**
+     * 讀取並解析金鑰檔，成功後整份替換目前的金鑰
+     */
+    private synchronized void reload() throws IOException, GeneralSecurityException {
+        FileStamp stamp = FileStamp.of(path);
+        // 先記錄檔案狀態，內容有誤時不會每次檢查都重試同一份檔案
+        loadedStamp = stamp;
+        Snapshot loaded = parse(Files.readAllBytes(path));
+        snapshot = loaded;
+        logger.info("已載入金鑰檔：{} 組金鑰，目前金鑰代碼 {}", loaded.entries.size(),
+            loaded.current != null ? loaded.current.getKeyCode() : "無");
+    }
+
+    /**
+     * 解析金鑰檔內容（明文或加密格式）
+     */
+    Snapshot parse(byte[] content) throws IOException, GeneralSecurityException {
+        JsonNode root = objectMapper.readTree(content);
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("金鑰檔必須是 JSON 物件");
+        }
+        if (SEALED_FORMAT.equals(root.path("format").asText(null))) {
+            byte[] plain = openBundle(root, password);
+            try {
+                root = objectMapper.readTree(plain);
+            } finally {
+                Arrays.fill(plain, (byte) 0);
+            }
+        }
+
+        JsonNode keys = root.get("keys");
+        if (keys == null || !keys.isArray() || keys.isEmpty()) {
+            throw new IllegalArgumentException("金鑰檔缺少 keys");
+        }
+        Map<String, KeyringEntry> entries = new HashMap<>();
+        KeyringEntry newest = null;
+        for (JsonNode node : keys) {
+            KeyringEntry entry = parseEntry(node);
+            if (entries.putIfAbsent(entry.getKeyCode(), entry) != null) {
+                throw new IllegalArgumentException("金鑰代碼重複：" + entry.getKeyCode());
+            }
+            if (newest == null || entry.getGeneration() > newest.getGeneration()) {
+                newest = entry;
+            }
+        }
+
+        KeyringEntry current = newest;
+        String currentCode = root.path("current").asText(null);
+        if (currentCode != null) {
+            current = entries.get(currentCode);
+            if (current == null) {
+                throw new IllegalArgumentException("current 指定的金鑰代碼不存在：" + currentCode);
+            }
+        }
+        return new Snapshot(Collections.unmodifiableMap(entries), current);
+    }
+
+    /**
+     * 解析單組金鑰，並以公鑰加密、私鑰解密確認兩者相符
+     */
+    private KeyringEntry parseEntry(JsonNode node) throws GeneralSecurityException {
+        String keyCode = requiredText(node, "keyCode", null);
+        String privateKeyBase64 = requiredText(node, "privateKey", keyCode);
+        String totpKey = requiredText(node, "totpKey", keyCode);
+        String hmacKeyBase64 = requiredText(node, "hmacKey", keyCode);
+        String publicKeyBase64 = node.path("publicKey").asText(null);
+        int generation = node.path("generation").asInt(0);
+
+        try {
+            PrivateKey privateKey = eccService.parsePrivateKey(privateKeyBase64);
+            PublicKey publicKey = null;
+            if (StringUtils.hasText(publicKeyBase64)) {
+                publicKey = eccService.parsePublicKey(publicKeyBase64);
+                checkKeyPair(keyCode, publicKey, privateKey);
+            }
+            Base64.getDecoder().decode(totpKey);
+            // 重新載入時，未變更的 HMAC 金鑰沿用快取中已初始化的 HmacEngine
+            return new KeyringEntry(keyCode, generation, privateKey, publicKey, totpKey, hmacService.engine(hmacKeyBase64));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GeneralSecurityException("金鑰代碼 " + keyCode + " 的金鑰無法使用", e);
+        }
+    }
+
+    /**
+     * 以公鑰加密一段資料再以私鑰解密，確認公鑰與私鑰為同一組
+     */
+    private void checkKeyPair(String keyCode, PublicKey publicKey, PrivateKey privateKey) throws Exception {
+        byte[] probe = keyCode.getBytes(StandardCharsets.UTF_8);
+        boolean matched;
+        try {
+            matched = keyCode.equals(eccService.decryptCompact(eccService.encryptCompact(probe, publicKey), privateKey));
+        } catch (SecurityException e) {
+            matched = false;
+        }
+        if (!matched) {
+            throw new IllegalArgumentException("金鑰代碼 " + keyCode + " 的公鑰與私鑰不相符");
+        }
+    }
+
+    private static String requiredText(JsonNode node, String field, String keyCode) {
+        String value = node.path(field).asText(null);
+        if (!StringUtils.hasText(value)) {
+            throw new IllegalArgumentException(keyCode == null
+                ? "金鑰缺少 " + field
+                : "金鑰代碼 " + keyCode + " 缺少 " + field);
+        }
+        return value;
+    }
+
+    /**
+     * 以密碼加密金鑰檔內容，產生可放在伺服器上的加密金鑰檔
+     *
+     * @param json 明文金鑰檔 JSON
+     * @param password 金鑰檔密碼
+     * @return 加密後的金鑰檔 JSON
+     * @throws GeneralSecurityException 當加密過程發生錯誤時拋出
+     */
+    public static String sealBundle(String json, char[] password) throws GeneralSecurityException {
+        byte[] salt = RandomSource.system().nonce(SALT_LENGTH);
+        byte[] nonce = RandomSource.system().nonce(NONCE_LENGTH);
+
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, deriveKey(password, salt, KDF_ITERATIONS), new IvParameterSpec(nonce));
+        byte[] ciphertext = cipher.doFinal(json.getBytes(StandardCharsets.UTF_8));
+
+        ObjectNode sealed = objectMapper.createObjectNode();
+        sealed.put("format", SEALED_FORMAT);
+        sealed.put("kdf", KDF_ALGORITHM);
+        sealed.put("iterations", KDF_ITERATIONS);
+        sealed.put("salt", Base64.getEncoder().encodeToString(salt));
+        sealed.put("nonce", Base64.getEncoder().encodeToString(nonce));
+        sealed.put("ciphertext", Base64.getEncoder().encodeToString(ciphertext));
+        return sealed.toString();
+    }
+
+    /**
+     * 解密加密金鑰檔
+     */
+    private static byte[] openBundle(JsonNode sealed, char[] password) throws GeneralSecurityException {
+        if (password.length == 0) {
+            throw new IllegalArgumentException("金鑰檔已加密，請設定 keyring.password");
+        }
+        if (!KDF_ALGORITHM.equals(sealed.path("kdf").asText())) {
+            throw new IllegalArgumentException("不支援的金鑰衍生演算法：" + sealed.path("kdf").asText());
+        }
+        byte[] salt = Base64.getDecoder().decode(sealed.path("salt").asText());
+        byte[] nonce = Base64.getDecoder().decode(sealed.path("nonce").asText());
+        byte[] ciphertext = Base64.getDecoder().decode(sealed.path("ciphertext").asText());
+        int iterations = sealed.path("iterations").asInt(KDF_ITERATIONS);
+
+        Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, deriveKey(password, salt, iterations), new IvParameterSpec(nonce));
+        try {
+            return cipher.doFinal(ciphertext);
+        } catch (javax.crypto.AEADBadTagException e) {
+            throw new SecurityException("金鑰檔密碼錯誤或內容已被竄改", e);
+        }
+    }
+
+    private static SecretKey deriveKey(char[] password, byte[] salt, int iterations) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, 256);
+        try {
+            byte[] key = SecretKeyFactory.getInstance(KDF_ALGORITHM).generateSecret(spec).getEncoded();
+            return new SecretKeySpec(key, "ChaCha20");
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * 已載入的金鑰（不可變）
+     */
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), null);
+
+        private final Map<String, KeyringEntry> entries;
+        private final KeyringEntry current;
+
+        Snapshot(Map<String, KeyringEntry> entries, KeyringEntry current) {
+            this.entries = entries;
+            this.current = current;
+        }
+    }
+
+    /**
+     * 金鑰檔的修改時間與大小
+     */
+    private static final class FileStamp {
+        private final long modified;
+        private final long size;
+
+        private FileStamp(long modified, long size) {
+            this.modified = modified;
+            this.size = size;
+        }
+
+        static FileStamp of(Path path) throws IOException {
+            return new FileStamp(Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) o;
+            return modified == other.modified && size == other.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(modified, size);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+// 引入 Java 標準庫相關類別
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Logo 點陣資料
+ * 保存已縮放並與白色背景合成後的 logo 像素（RGB），供 QRCodePngEncoder 直接寫入 PNG 掃描線
+ *
+ * 若 logo 的顏色數量（含黑、白）不超過 256 色，會同時建立索引色調色盤，
+ * 讓 PNG 可以使用 8-bit 索引色輸出；否則只保留 RGB 像素
+ */
+public final class LogoRaster {
+
+    /** 調色盤中黑色的索引 */
+    static final int BLACK_INDEX = 0;
+
+    /** 調色盤中白色的索引 */
+    static final int WHITE_INDEX = 1;
+
+    private static final int MAX_PALETTE_SIZE = 256;
+    private static final int RGB_MASK = 0xFFFFFF;
+
+    private final int width;
+    private final int height;
+    private final int[] rgb;
+    private final int[] palette;
+    private final byte[] indices;
+
+    private LogoRaster(int width, int height, int[] rgb) {
+        this.width = width;
+        this.height = height;
+        this.rgb = rgb;
+
+        // 建立調色盤：索引 0 為黑色、索引 1 為白色，其餘依 logo 像素出現順序加入
+        Map<Integer, Integer> colorIndex = new HashMap<>();
+        colorIndex.put(0x000000, BLACK_INDEX);
+        colorIndex.put(RGB_MASK, WHITE_INDEX);
+        byte[] pixelIndices = new byte[rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            Integer index = colorIndex.get(rgb[i]);
+            if (index == null) {
+                if (colorIndex.size() == MAX_PALETTE_SIZE) {
+                    pixelIndices = null;
+                    break;
+                }
+                index = colorIndex.size();
+                colorIndex.put(rgb[i], index);
+            }
+            pixelIndices[i] = (byte) (int) index;
+        }
+
+        if (pixelIndices == null) {
+            this.palette = null;
+            this.indices = null;
+        } else {
+            this.palette = new int[colorIndex.size()];
+            for (Map.Entry<Integer, Integer> entry : colorIndex.entrySet()) {
+                this.palette[entry.getValue()] = entry.getKey();
+            }
+            this.indices = pixelIndices;
+        }
+    }
+
+    /**
+     * 將 logo 縮放為指定尺寸，並合成在白色背景上
+     * 合成方式與 Graphics2D 將 ARGB logo 繪製在白色 QR Code 區域上完全相同
+     *
+     * @param logoImage 原始 logo 圖片
+     * @param size logo 尺寸（寬高相同）
+     * @return logo 點陣資料
+     */
+    public static LogoRaster render(BufferedImage logoImage, int size) {
+        BufferedImage resizedLogo = resize(logoImage, size, size);
+
+        BufferedImage composed = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = composed.createGraphics();
+        applyQualityHints(g2d);
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, size, size);
+        g2d.drawImage(resizedLogo, 0, 0, null);
+        g2d.dispose();
+
+        int[] rgb = composed.getRGB(0, 0, size, size, null, 0, size);
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] &= RGB_MASK;
+        }
+        return new LogoRaster(size, size, rgb);
+    }
+
+    /**
+     * 以雙線性內插調整圖片尺寸（輸出為 ARGB）
+     */
+    static BufferedImage resize(BufferedImage originalImage, int targetWidth, int targetHeight) {
+        BufferedImage resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = resizedImage.createGraphics();
+        applyQualityHints(g2d);
+        g2d.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
+        g2d.dispose();
+        return resizedImage;
+    }
+
+    /**
+     * 設定高品質渲染
+     */
+    static void applyQualityHints(Graphics2D g2d) {
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 取得指定位置的 RGB 值（不含 alpha）
+     */
+    int rgbAt(int x, int y) {
+        return rgb[y * width + x];
+    }
+
+    /**
+     * 是否可以使用索引色輸出
+     */
+    boolean hasPalette() {
+        return palette != null;
+    }
+
+    /**
+     * 取得調色盤（索引 0 為黑色、索引 1 為白色）
+     */
+    int[] palette() {
+        return palette;
+    }
+
+    /**
+     * 取得指定位置的調色盤索引
+     */
+    byte indexAt(int x, int y) {
+        return indices[y * width + x];
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.demo.service;
+
+// 引入 Java 標準庫相關類別
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已解析金鑰的快取
+ * 以 Base64 金鑰字串（或已解碼金鑰的原始位元組）的 SHA-256 指紋為鍵，保存 KeyFactory 解析後的金鑰物件，
+ * 避免同一把金鑰每次都重新 Base64 解碼並經由 KeyFactory 解析；快取中不保存原始金鑰字串
+ *
+ * 同一把金鑰第一次被多個執行緒同時使用時只會解析一次，其餘執行緒等待同一個結果；
+ * 解析失敗的金鑰不會留在快取中。超過上限時移除最久未使用的金鑰
+ *
+ * @param <K> 金鑰型別（PublicKey、PrivateKey，或由金鑰建立的物件，例如工作階段金鑰、{@link HmacEngine}）
+ */
+final class ParsedKeyCache<K> {
+
+    /**
+     * 由 Base64 金鑰字串解析金鑰
+     */
+    @FunctionalInterface
+    interface KeyParser<K> {
+        K parse(String encodedKey) throws GeneralSecurityException;
+    }
+
+    /**
+     * 由已解碼的金鑰建立快取物件
+     */
+    @FunctionalInterface
+    interface KeyLoader<K> {
+        K load() throws GeneralSecurityException;
+    }
+
+    // 以原始位元組計算指紋時的前綴，與 Base64 字串的指紋區隔
+    private static final byte[] RAW_KEY_LABEL = "raw:".getBytes(StandardCharsets.US_ASCII);
+
+    private final int maxSize;
+    private final KeyParser<K> parser;
+    private final ConcurrentHashMap<String, Entry<K>> entries = new ConcurrentHashMap<>();
+
+    // 最近使用順序的計數器，命中時只更新項目的序號，不需要鎖定整個快取
+    private final AtomicLong clock = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    ParsedKeyCache(int maxSize, KeyParser<K> parser) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("金鑰快取上限必須大於 0");
+        }
+        this.maxSize = maxSize;
+        this.parser = parser;
+    }
+
+    /**
+     * 取得已解析的金鑰，快取中沒有時解析並保存
+     *
+     * @param encodedKey Base64 編碼的金鑰
+     * @return 金鑰物件
+     * @throws GeneralSecurityException 當金鑰格式不正確時拋出
+     */
+    K get(String encodedKey) throws GeneralSecurityException {
+        return get(encodedKey, parser);
+    }
+
+    /**
+     * 取得已解析的金鑰，快取中沒有時以指定的方式解析並保存
+     * 適用於解析時需要額外資料的金鑰（例如由 ECDH 衍生的工作階段金鑰）
+     *
+     * @param encodedKey 用於識別金鑰的字串（只保存其指紋）
+     * @param loader 快取中沒有時的解析方式
+     * @return 金鑰物件
+     * @throws GeneralSecurityException 當解析失敗時拋出
+     */
+    K get(String encodedKey, KeyParser<K> loader) throws GeneralSecurityException {
+        return get(fingerprint(null, encodedKey.getBytes(StandardCharsets.UTF_8)), () -> loader.parse(encodedKey));
+    }
+
+    /**
+     * 以已解碼金鑰的原始位元組取得快取的物件，快取中沒有時以指定的方式建立並保存
+     * 適用於呼叫端只有金鑰物件、沒有 Base64 字串的情形（例如已解析的 HMAC 金鑰）
+     *
+     * @param keyMaterial 金鑰的原始位元組（只保存其指紋，呼叫端可在取得後清除）
+     * @param loader 快取中沒有時的建立方式
+     * @return 快取的物件
+     * @throws GeneralSecurityException 當建立失敗時拋出
+     */
+    K get(byte[] keyMaterial, KeyLoader<K> loader) throws GeneralSecurityException {
+        return get(fingerprint(RAW_KEY_LABEL, keyMaterial), loader);
+    }
+
+    private K get(String fingerprint, KeyLoader<K> loader) throws GeneralSecurityException {
+        Entry<K> entry = entries.get(fingerprint);
+        if (entry == null) {
+            Entry<K> created = new Entry<>();
+            created.lastUsed = clock.incrementAndGet();
+            entry = entries.putIfAbsent(fingerprint, created);
+            if (entry == null) {
+                entry = created;
+                evictIfNeeded();
+            }
+        }
+        entry.lastUsed = clock.incrementAndGet();
+
+        K key = entry.key;
+        if (key != null) {
+            hits.increment();
+            return key;
+        }
+        return load(fingerprint, entry, loader);
+    }
+
+    /**
+     * 解析金鑰；同一個項目只由第一個取得鎖的執行緒解析
+     */
+    private K load(String fingerprint, Entry<K> entry, KeyLoader<K> loader) throws GeneralSecurityException {
+        synchronized (entry) {
+            if (entry.key != null) {
+                hits.increment();
+                return entry.key;
+            }
+            misses.increment();
+            try {
+                entry.key = loader.load();
+                return entry.key;
+            } catch (GeneralSecurityException | RuntimeException e) {
+                entries.remove(fingerprint, entry);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 超過上限時移除最久未使用的項目（只在新增項目時執行，快取上限通常很小）
+     */
+    private void evictIfNeeded() {
+        while (entries.size() > maxSize) {
+            Map.Entry<String, Entry<K>> eldest = null;
+            for (Map.Entry<String, Entry<K>> candidate : entries.entrySet()) {
+                if (eldest == null || candidate.getValue().lastUsed < eldest.getValue().lastUsed) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 快取統計：大小、上限、命中、未命中與移除次數
+     */
+    Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) entries.size());
+        stats.put("maxSize", (long) maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * 計算金鑰的 SHA-256 指紋
+     */
+    private static String fingerprint(byte[] label, byte[] input) {
+        try {
+            return HexFormat.of().formatHex(CryptoPools.SHA256.with(digest -> {
+                if (label != null) {
+                    digest.update(label);
+                }
+                return digest.digest(input);
+            }));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("不支援 SHA-256", e);
+        }
+    }
+
+    /**
+     * 快取項目：解析完成前 key 為 null
+     */
+    private static final class Entry<K> {
+        private volatile K key;
+        private volatile long lastUsed;
+    }
+}
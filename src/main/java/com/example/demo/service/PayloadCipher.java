@@ -0,0 +1,114 @@
+package com.example.demo.service;
+
+// 引入 Java 加密相關類別
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+// 引入 Java 標準庫相關類別
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * QR Code 信封中加密資料（d 欄位）的加解密方式
+ * 產生端與驗證端依演算法識別碼選擇實作，識別碼記錄在信封中，讓不同合作對象可使用不同的演算法
+ *
+ * 1. {@link #X25519}：X25519 金鑰協商 + ChaCha20-Poly1305（{@link ECCService}，預設）
+ * 2. {@link #RSA_OAEP_2048}：RSA-2048 OAEP 包裝 ChaCha20-Poly1305 金鑰（{@link RSA2048Service}，供只支援 RSA 的既有系統使用）
+ *
+ * 加密結果與金鑰都以 Base64 字串表示，實作需可由多個執行緒共用
+ */
+public interface PayloadCipher {
+
+    /** X25519 + ChaCha20-Poly1305 的演算法識別碼 */
+    String X25519 = "X25519";
+
+    /** RSA-2048 OAEP（SHA-256）包裝 ChaCha20-Poly1305 金鑰的演算法識別碼 */
+    String RSA_OAEP_2048 = "RSA-OAEP-2048";
+
+    /**
+     * 取得演算法識別碼（記錄於 QR Code 信封中）
+     */
+    String getAlgorithm();
+
+    /**
+     * 判斷金鑰是否可用於此演算法
+     *
+     * @param key 公鑰或私鑰
+     * @return 金鑰類型符合時回傳 true
+     */
+    boolean supports(Key key);
+
+    /**
+     * 產生金鑰對物件（供預先產生與批次配發使用）
+     *
+     * @throws GeneralSecurityException 當金鑰產生失敗時拋出
+     */
+    KeyPair newKeyPair() throws GeneralSecurityException;
+
+    /**
+     * 產生金鑰對
+     *
+     * @return 包含 publicKey 與 privateKey 的 Map，金鑰以 Base64 格式儲存
+     * @throws GeneralSecurityException 當金鑰產生失敗時拋出
+     */
+    Map<String, String> generateKeyPairMap() throws GeneralSecurityException;
+
+    /**
+     * 解析 Base64 格式（X.509）的公鑰
+     *
+     * @throws GeneralSecurityException 當金鑰格式不正確時拋出
+     */
+    PublicKey parsePublicKey(String publicKeyBase64) throws GeneralSecurityException;
+
+    /**
+     * 解析 Base64 格式（PKCS#8）的私鑰
+     *
+     * @throws GeneralSecurityException 當金鑰格式不正確時拋出
+     */
+    PrivateKey parsePrivateKey(String privateKeyBase64) throws GeneralSecurityException;
+
+    /**
+     * 以 Base64 格式的公鑰加密
+     *
+     * @param plaintext 明文
+     * @param publicKeyBase64 Base64 格式的公鑰
+     * @return Base64 格式的加密資料
+     * @throws Exception 當金鑰格式錯誤或加密失敗時拋出
+     */
+    String encrypt(String plaintext, String publicKeyBase64) throws Exception;
+
+    /**
+     * 以已解析的公鑰加密
+     *
+     * @param plaintext 明文
+     * @param publicKey 公鑰
+     * @return Base64 格式的加密資料
+     * @throws Exception 當加密失敗時拋出
+     */
+    String encrypt(String plaintext, PublicKey publicKey) throws Exception;
+
+    /**
+     * 以已解析的私鑰解密
+     *
+     * @param encryptedBase64 Base64 格式的加密資料
+     * @param privateKey 私鑰
+     * @return 明文
+     * @throws Exception 當資料格式錯誤、被竄改或解密失敗時拋出
+     */
+    String decrypt(String encryptedBase64, PrivateKey privateKey) throws Exception;
+
+    /**
+     * 取得加密資料中經 AEAD 驗證的部分（nonce + 密文 + tag），供重複使用檢查計算指紋
+     * 不含臨時公鑰或包裝金鑰等欄位，這些欄位可能有多種編碼都能解密出同一筆資料
+     *
+     * @param encryptedBase64 Base64 格式的加密資料
+     * @param privateKey 解密用的私鑰
+     * @return 指向 nonce + 密文 + tag 的緩衝區
+     * @throws GeneralSecurityException 當金鑰類型不符時拋出
+     * @throws IllegalArgumentException 當資料格式不正確時拋出
+     */
+    ByteBuffer authenticatedPart(String encryptedBase64, PrivateKey privateKey) throws GeneralSecurityException;
+}
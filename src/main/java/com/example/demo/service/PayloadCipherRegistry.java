@@ -0,0 +1,100 @@
+package com.example.demo.service;
+
+// 引入 Spring 框架相關類別
+import org.springframework.stereotype.Service;
+
+// 引入 Java 加密相關類別
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.spec.InvalidKeySpecException;
+
+// 引入 Java 標準庫相關類別
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 依演算法識別碼選擇 {@link PayloadCipher} 實作
+ * 所有實作 PayloadCipher 的 Spring bean 都會註冊；信封未標示演算法時使用 {@link PayloadCipher#X25519}
+ */
+@Service
+public class PayloadCipherRegistry {
+
+    private final Map<String, PayloadCipher> ciphers = new LinkedHashMap<>();
+
+    /**
+     * @param ciphers 可用的加解密實作（識別碼不可重複）
+     */
+    public PayloadCipherRegistry(List<PayloadCipher> ciphers) {
+        for (PayloadCipher cipher : ciphers) {
+            if (this.ciphers.putIfAbsent(cipher.getAlgorithm(), cipher) != null) {
+                throw new IllegalStateException("重複的加密演算法識別碼：" + cipher.getAlgorithm());
+            }
+        }
+        if (!this.ciphers.containsKey(PayloadCipher.X25519)) {
+            throw new IllegalStateException("缺少預設的加密演算法：" + PayloadCipher.X25519);
+        }
+    }
+
+    /**
+     * 取得演算法識別碼對應的實作
+     *
+     * @param algorithm 演算法識別碼；null 或空白時使用預設的 X25519
+     * @return 加解密實作
+     * @throws IllegalArgumentException 當演算法不支援時拋出
+     */
+    public PayloadCipher get(String algorithm) {
+        if (algorithm == null || algorithm.isBlank()) {
+            return ciphers.get(PayloadCipher.X25519);
+        }
+        PayloadCipher cipher = ciphers.get(algorithm.trim());
+        if (cipher == null) {
+            throw new IllegalArgumentException("不支援的加密演算法：" + algorithm + "（可用：" + String.join("、", ciphers.keySet()) + "）");
+        }
+        return cipher;
+    }
+
+    /**
+     * 取得可使用此金鑰的實作
+     *
+     * @throws IllegalArgumentException 當沒有實作支援此金鑰類型時拋出
+     */
+    public PayloadCipher forKey(Key key) {
+        for (PayloadCipher cipher : ciphers.values()) {
+            if (cipher.supports(key)) {
+                return cipher;
+            }
+        }
+        throw new IllegalArgumentException("不支援的金鑰類型：" + key.getAlgorithm());
+    }
+
+    /**
+     * 解析 Base64 格式的私鑰，依序嘗試各演算法（驗證請求只提供私鑰，不標示演算法）
+     *
+     * @throws GeneralSecurityException 當所有演算法都無法解析時拋出
+     */
+    public PrivateKey parsePrivateKey(String privateKeyBase64) throws GeneralSecurityException {
+        GeneralSecurityException failure = null;
+        for (PayloadCipher cipher : ciphers.values()) {
+            try {
+                return cipher.parsePrivateKey(privateKeyBase64);
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                if (failure == null) {
+                    failure = e instanceof GeneralSecurityException
+                        ? (GeneralSecurityException) e
+                        : new InvalidKeySpecException(e.getMessage(), e);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * 取得所有可用的演算法識別碼
+     */
+    public List<String> getAlgorithms() {
+        return new ArrayList<>(ciphers.keySet());
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.demo.service;
+
+// 引入 Spring 框架相關類別
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// 引入 ZXing 相關類別
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+
+// 引入日誌相關類別
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// 引入 Java 標準庫相關類別
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * QR Code 圖片解碼服務
+ * 此服務類別負責在伺服器端解碼上傳的 QR Code 照片（JPEG/PNG），包含：
+ * 1. 讀取圖片時直接以來源取樣（subsampling）縮小大尺寸照片，不需先解碼完整圖片
+ * 2. 同時以 Hybrid 與 GlobalHistogram 兩種二值化方式平行解碼
+ * 3. 使用多重條碼讀取器，一張圖片中可包含多個 QR Code
+ * 4. 記錄各階段的耗時
+ */
+@Service
+public class QRCodeDecodeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QRCodeDecodeService.class);
+
+    // 圖片像素數上限（避免惡意圖片標示極大尺寸）
+    private static final long MAX_SOURCE_PIXELS = 100_000_000L;
+
+    // 解碼提示：只解碼 QR Code，內容以 UTF-8 解讀
+    private static final Map<DecodeHintType, Object> DECODE_HINTS;
+
+    static {
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.QR_CODE));
+        hints.put(DecodeHintType.CHARACTER_SET, "UTF-8");
+        DECODE_HINTS = Collections.unmodifiableMap(hints);
+    }
+
+    // 解碼後圖片長邊的最大像素數，超過時讀取圖片時即縮小
+    private final int maxDimension;
+
+    // 平行執行兩種二值化解碼的執行緒池
+    private final ExecutorService decodeExecutor;
+
+    public QRCodeDecodeService(@Value("${qrcode.decode.max-dimension:1600}") int maxDimension) {
+        if (maxDimension < 200) {
+            throw new IllegalArgumentException("qrcode.decode.max-dimension 不可小於 200");
+        }
+        this.maxDimension = maxDimension;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.decodeExecutor = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "qrcode-decode-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * 解碼圖片中的所有 QR Code
+     *
+     * @param imageBytes 圖片內容（JPEG 或 PNG）
+     * @return 解碼結果，包含所有 QR Code 內容與各階段耗時
+     * @throws IllegalArgumentException 當圖片格式無法辨識或尺寸過大時拋出
+     * @throws IOException 當讀取圖片失敗時拋出
+     */
+    public QRCodeDecodeResult decode(byte[] imageBytes) throws IOException {
+        if (imageBytes == null || imageBytes.length == 0) {
+            throw new IllegalArgumentException("圖片不可為空");
+        }
+        QRCodeDecodeResult result = new QRCodeDecodeResult();
+        long totalStart = System.nanoTime();
+
+        // 1. 讀取圖片（大尺寸照片以來源取樣縮小）
+        long start = System.nanoTime();
+        BufferedImage image = readImage(imageBytes, result);
+        result.addTiming("read", System.nanoTime() - start);
+
+        // 2. 轉換為灰階亮度資料，兩種二值化方式共用
+        start = System.nanoTime();
+        LuminanceSource source = new BufferedImageLuminanceSource(image);
+        result.addTiming("luminance", System.nanoTime() - start);
+
+        // 3. 平行以兩種二值化方式解碼，合併結果（依內容去除重複）
+        Future<List<Result>> hybrid = decodeExecutor.submit(
+            () -> decodeWith(source, HybridBinarizer::new, "hybrid", result));
+        Future<List<Result>> globalHistogram = decodeExecutor.submit(
+            () -> decodeWith(source, GlobalHistogramBinarizer::new, "globalHistogram", result));
+
+        Set<String> texts = new LinkedHashSet<>();
+        collect(hybrid, texts);
+        collect(globalHistogram, texts);
+        result.setTexts(texts);
+
+        result.addTiming("total", System.nanoTime() - totalStart);
+        logger.debug("QR Code 圖片解碼完成：找到 {} 個，耗時 {}", texts.size(), result.getTimings());
+        return result;
+    }
+
+    /**
+     * 讀取圖片，長邊超過上限時以整數倍來源取樣讀取
+     */
+    private BufferedImage readImage(byte[] imageBytes, QRCodeDecodeResult result) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes))) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("無法辨識的圖片格式，請上傳 JPEG 或 PNG");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+
+                // 只讀取標頭取得尺寸，不解碼像素
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    throw new IllegalArgumentException("圖片尺寸過大（" + width + "x" + height + "）");
+                }
+
+                int subsampling = Math.max(1, (Math.max(width, height) + maxDimension - 1) / maxDimension);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+
+                result.setSourceSize(width, height);
+                result.setSubsampling(subsampling);
+                return image;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 以指定的二值化方式解碼所有 QR Code
+     */
+    private List<Result> decodeWith(LuminanceSource source, Function<LuminanceSource, Binarizer> binarizer,
+                                    String stage, QRCodeDecodeResult result) {
+        long start = System.nanoTime();
+        try {
+            Result[] results = new QRCodeMultiReader().decodeMultiple(
+                new BinaryBitmap(binarizer.apply(source)), DECODE_HINTS);
+            return List.of(results);
+        } catch (NotFoundException e) {
+            return Collections.emptyList();
+        } finally {
+            result.addTiming(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 收集解碼結果
+     */
+    private void collect(Future<List<Result>> future, Set<String> texts) throws IOException {
+        try {
+            for (Result decoded : future.get()) {
+                texts.add(decoded.getText());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("QR Code 解碼已中斷", e);
+        } catch (ExecutionException e) {
+            // 單一二值化方式失敗時仍使用另一種方式的結果
+            logger.warn("QR Code 解碼失敗", e.getCause());
+        }
+    }
+
+    /**
+     * 關閉解碼執行緒池
+     */
+    @PreDestroy
+    public void shutdown() {
+        decodeExecutor.shutdown();
+    }
+
+    /**
+     * QR Code 圖片解碼結果
+     */
+    public static class QRCodeDecodeResult {
+        private List<String> texts = Collections.emptyList();  // 解碼出的 QR Code 內容
+        private final Map<String, Double> timings = Collections.synchronizedMap(new LinkedHashMap<>());  // 各階段耗時（毫秒）
+        private int sourceWidth;    // 原始圖片寬度
+        private int sourceHeight;   // 原始圖片高度
+        private int subsampling;    // 讀取時的取樣倍數（1 表示未縮小）
+
+        private void addTiming(String stage, long nanos) {
+            timings.put(stage, Math.round(nanos / 10_000.0) / 100.0);
+        }
+
+        private void setTexts(Set<String> texts) {
+            this.texts = List.copyOf(texts);
+        }
+
+        private void setSourceSize(int width, int height) {
+            this.sourceWidth = width;
+            this.sourceHeight = height;
+        }
+
+        private void setSubsampling(int subsampling) {
+            this.subsampling = subsampling;
+        }
+
+        public List<String> getTexts() {
+            return texts;
+        }
+
+        public Map<String, Double> getTimings() {
+            synchronized (timings) {
+                return new LinkedHashMap<>(timings);
+            }
+        }
+
+        public int getSourceWidth() {
+            return sourceWidth;
+        }
+
+        public int getSourceHeight() {
+            return sourceHeight;
+        }
+
+        public int getSubsampling() {
+            return subsampling;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.demo.service;
+
+// 引入 Spring 框架相關類別
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+// 引入日誌相關類別
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// 引入 Java 標準庫相關類別
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * QR Code Logo 註冊服務
+ * 此服務類別負責管理 QR Code 使用的 logo，包含：
+ * 1. 啟動時載入並解碼內建 logo（只解碼一次）
+ * 2. 接受上傳的 logo，以內容雜湊值作為 logo 代碼
+ * 3. 以 (logo 代碼, 尺寸) 快取已縮放並合成的 logo 點陣資料
+ * 4. 快取嵌入 SVG 用的 logo PNG data URI
+ *
+ * 避免每次產生 QR Code 都重新讀取 PNG、解碼並縮放 logo
+ */
+@Service
+public class QRCodeLogoRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(QRCodeLogoRegistry.class);
+
+    /** 內建 TWDIW logo 的代碼 */
+    public static final String DEFAULT_LOGO_ID = "twdiw";
+
+    private static final String DEFAULT_LOGO_PATH = "static/images/twdiw.png";
+
+    // 預設 QR Code 使用的 logo 尺寸，啟動時預先縮放
+    private static final int DEFAULT_LOGO_SIZE = 60;
+
+    // 上傳 logo 的限制
+    private static final int MAX_UPLOAD_BYTES = 512 * 1024;
+    private static final int MAX_UPLOAD_DIMENSION = 1024;
+
+    // 上傳 logo 代碼的前綴與長度（SHA-256 前 16 bytes 的十六進位）
+    private static final String UPLOADED_LOGO_PREFIX = "sha256-";
+    private static final int LOGO_HASH_BYTES = 16;
+
+    // 嵌入 SVG 的 logo 最大邊長（向量輸出時由 SVG 縮放，不需要原始解析度）
+    private static final int MAX_EMBEDDED_DIMENSION = 512;
+
+    // 內建 logo（啟動後不再變動）
+    private final Map<String, BufferedImage> builtInLogos = new ConcurrentHashMap<>();
+
+    // 上傳的 logo，超過上限時移除最早上傳的 logo
+    private final Map<String, BufferedImage> uploadedLogos;
+
+    // logo 圖片 → logo 代碼（BufferedImage 未覆寫 equals，因此以物件身分比對）
+    private final Map<BufferedImage, String> logoIds = new ConcurrentHashMap<>();
+
+    // (logo 代碼, 尺寸) → 已縮放的 logo 點陣資料，以 LRU 方式限制數量
+    private final Map<RasterKey, LogoRaster> rasterCache;
+
+    // logo 代碼 → 嵌入 SVG 的 PNG data URI（第一次輸出 SVG 時產生）
+    private final Map<String, String> dataUris = new ConcurrentHashMap<>();
+
+    public QRCodeLogoRegistry(@Value("${qrcode.logo.max-uploaded:100}") int maxUploadedLogos,
+                              @Value("${qrcode.logo.raster-cache-size:64}") int rasterCacheSize) {
+        this.uploadedLogos = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                if (size() > maxUploadedLogos) {
+                    logoIds.remove(eldest.getValue());
+                    removeRasters(eldest.getKey());
+                    dataUris.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.rasterCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RasterKey, LogoRaster> eldest) {
+                return size() > rasterCacheSize;
+            }
+        };
+    }
+
+    /**
+     * 啟動時載入內建 logo，並預先縮放預設尺寸
+     */
+    @PostConstruct
+    public void loadBuiltInLogos() {
+        try (InputStream input = new ClassPathResource(DEFAULT_LOGO_PATH).getInputStream()) {
+            BufferedImage logo = ImageIO.read(input);
+            if (logo == null) {
+                logger.error("無法解碼內建 logo：{}", DEFAULT_LOGO_PATH);
+                return;
+            }
+            builtInLogos.put(DEFAULT_LOGO_ID, logo);
+            logoIds.put(logo, DEFAULT_LOGO_ID);
+            getRaster(DEFAULT_LOGO_ID, DEFAULT_LOGO_SIZE);
+            logger.info("已載入內建 logo：{}（{}x{}）", DEFAULT_LOGO_ID, logo.getWidth(), logo.getHeight());
+        } catch (IOException e) {
+            logger.error("讀取內建 logo 失敗：{}", DEFAULT_LOGO_PATH, e);
+        }
+    }
+
+    /**
+     * 取得 logo 圖片
+     *
+     * @param logoId logo 代碼
+     * @return logo 圖片，找不到時回傳 null
+     */
+    public BufferedImage getLogo(String logoId) {
+        BufferedImage logo = builtInLogos.get(logoId);
+        if (logo != null) {
+            return logo;
+        }
+        synchronized (uploadedLogos) {
+            return uploadedLogos.get(logoId);
+        }
+    }
+
+    /**
+     * 取得已縮放的 logo 點陣資料
+     *
+     * @param logoId logo 代碼
+     * @param size logo 尺寸
+     * @return logo 點陣資料
+     * @throws IllegalArgumentException 當 logo 代碼不存在時拋出
+     */
+    public LogoRaster getRaster(String logoId, int size) {
+        RasterKey key = new RasterKey(logoId, size);
+        synchronized (rasterCache) {
+            LogoRaster raster = rasterCache.get(key);
+            if (raster != null) {
+                return raster;
+            }
+        }
+
+        BufferedImage logo = getLogo(logoId);
+        if (logo == null) {
+            throw new IllegalArgumentException("找不到 logo：" + logoId);
+        }
+
+        // 縮放在鎖外進行，同時有多個請求時最多重複縮放一次
+        LogoRaster raster = LogoRaster.render(logo, size);
+        synchronized (rasterCache) {
+            LogoRaster existing = rasterCache.putIfAbsent(key, raster);
+            return existing != null ? existing : raster;
+        }
+    }
+
+    /**
+     * 取得 logo 圖片縮放後的點陣資料
+     * 已註冊的 logo 使用快取，未註冊的圖片直接縮放
+     *
+     * @param logoImage logo 圖片
+     * @param size logo 尺寸
+     * @return logo 點陣資料
+     */
+    public LogoRaster rasterFor(BufferedImage logoImage, int size) {
+        String logoId = logoIds.get(logoImage);
+        if (logoId == null) {
+            return LogoRaster.render(logoImage, size);
+        }
+        return getRaster(logoId, size);
+    }
+
+    /**
+     * 取得嵌入 SVG 用的 logo PNG data URI
+     * 已註冊的 logo 只編碼一次並快取，未註冊的圖片每次重新編碼；
+     * 邊長超過上限的 logo 會等比例縮小，保留透明度
+     *
+     * @param logoImage logo 圖片
+     * @return data:image/png;base64,... 格式的字串
+     */
+    public String dataUriFor(BufferedImage logoImage) {
+        String logoId = logoIds.get(logoImage);
+        if (logoId == null) {
+            return encodeDataUri(logoImage);
+        }
+        return dataUris.computeIfAbsent(logoId, id -> encodeDataUri(logoImage));
+    }
+
+    /**
+     * 將 logo 編碼為 PNG data URI
+     */
+    static String encodeDataUri(BufferedImage logoImage) {
+        BufferedImage image = logoImage;
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        if (longest > MAX_EMBEDDED_DIMENSION) {
+            image = LogoRaster.resize(image,
+                Math.max(1, image.getWidth() * MAX_EMBEDDED_DIMENSION / longest),
+                Math.max(1, image.getHeight() * MAX_EMBEDDED_DIMENSION / longest));
+        }
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "PNG", png);
+            return "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("logo 編碼失敗", e);
+        }
+    }
+
+    /**
+     * 註冊上傳的 logo
+     * 以圖片內容的 SHA-256 作為 logo 代碼，相同內容重複上傳會得到相同代碼
+     *
+     * @param imageBytes logo 圖片內容（PNG 或 JPEG）
+     * @return logo 代碼
+     * @throws IllegalArgumentException 當圖片過大或無法解碼時拋出
+     * @throws IOException 當讀取圖片失敗時拋出
+     */
+    public String registerLogo(byte[] imageBytes) throws IOException {
+        if (imageBytes == null || imageBytes.length == 0) {
+            throw new IllegalArgumentException("logo 圖片不可為空");
+        }
+        if (imageBytes.length > MAX_UPLOAD_BYTES) {
+            throw new IllegalArgumentException("logo 圖片過大（最多 " + MAX_UPLOAD_BYTES / 1024 + " KB）");
+        }
+
+        String logoId = UPLOADED_LOGO_PREFIX + contentHash(imageBytes);
+        synchronized (uploadedLogos) {
+            if (uploadedLogos.containsKey(logoId)) {
+                return logoId;
+            }
+        }
+
+        BufferedImage logo = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        if (logo == null) {
+            throw new IllegalArgumentException("無法解碼 logo 圖片，請上傳 PNG 或 JPEG");
+        }
+        if (logo.getWidth() > MAX_UPLOAD_DIMENSION || logo.getHeight() > MAX_UPLOAD_DIMENSION) {
+            throw new IllegalArgumentException("logo 圖片尺寸過大（最多 " + MAX_UPLOAD_DIMENSION + " 像素）");
+        }
+
+        synchronized (uploadedLogos) {
+            if (!uploadedLogos.containsKey(logoId)) {
+                uploadedLogos.put(logoId, logo);
+                logoIds.put(logo, logoId);
+                logger.info("已註冊上傳的 logo：{}（{}x{}）", logoId, logo.getWidth(), logo.getHeight());
+            }
+        }
+        return logoId;
+    }
+
+    /**
+     * 移除指定 logo 的所有快取點陣資料
+     */
+    private void removeRasters(String logoId) {
+        synchronized (rasterCache) {
+            rasterCache.keySet().removeIf(key -> key.logoId.equals(logoId));
+        }
+    }
+
+    /**
+     * 計算圖片內容的雜湊值（十六進位）
+     */
+    private static String contentHash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, LOGO_HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 點陣資料快取的鍵值
+     */
+    private static final class RasterKey {
+        private final String logoId;
+        private final int size;
+
+        RasterKey(String logoId, int size) {
+            this.logoId = logoId;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RasterKey)) {
+                return false;
+            }
+            RasterKey other = (RasterKey) o;
+            return size == other.size && logoId.equals(other.logoId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(logoId, size);
+        }
+    }
+}
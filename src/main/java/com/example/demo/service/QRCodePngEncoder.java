@@ -0,0 +1,490 @@
+package com.example.demo.service;
+
+// 引入 ZXing 相關的類別
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+
+// 引入 Java 標準庫相關類別
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * QR Code PNG 編碼器
+ * 直接將 QR Code 的模組矩陣串流寫成 PNG 掃描線，不經過 BitMatrix、BufferedImage 與 ImageIO
+ *
+ * 輸出格式：
+ * 1. 無 logo：1-bit 灰階 PNG
+ * 2. 有 logo 且 logo 顏色不超過 256 色：8-bit 索引色 PNG
+ * 3. 有 logo 且顏色過多：24-bit RGB PNG
+ *
+ * logo 只在其所在的矩形範圍內混合，其餘像素直接由模組矩陣產生，
+ * 解碼後的像素值與 BufferedImage + ImageIO 的流程完全相同
+ *
+ * 每個模組依整數倍放大，同一模組列只產生一次掃描線。
+ * 掃描線先以 32 位元字組產生像素列：連續的深色模組一次設定整段位元，預留區域一次清除，
+ * 1-bit 灰階輸出再以字組轉換為位元組，不逐像素判斷模組與預留區域。
+ * Deflater、掃描線、IDAT 與 CRC 緩衝區由每個執行緒重複使用，穩定狀態下編碼不需配置新的緩衝區
+ */
+public final class QRCodePngEncoder {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    // PNG chunk 類型
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] PHYS = {'p', 'H', 'Y', 's'};
+    private static final byte[] PLTE = {'P', 'L', 'T', 'E'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+
+    // PNG 色彩類型
+    private static final int COLOR_TYPE_GRAYSCALE = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_INDEXED = 3;
+
+    // 每個 IDAT chunk 的最大資料量
+    private static final int IDAT_CHUNK_SIZE = 8192;
+
+    // 每個執行緒保留的掃描線緩衝區上限（更長的掃描線每次另行配置，避免長期占用記憶體）
+    private static final int MAX_RETAINED_SCANLINE = 32 * 1024;
+
+    // 掃描線的濾波類型（不使用濾波）
+    private static final int FILTER_NONE = 0;
+
+    // 每個執行緒重複使用的編碼緩衝區
+    private static final ThreadLocal<EncoderBuffers> BUFFERS = ThreadLocal.withInitial(EncoderBuffers::new);
+
+    private QRCodePngEncoder() {
+    }
+
+    /**
+     * 將模組矩陣以整數倍放大並加上靜區寫成 PNG
+     * 預留區域以模組為單位，只在輸出掃描線時才展開成像素
+     *
+     * @param modules QR Code 模組矩陣（1 為深色模組，不含靜區）
+     * @param scale 每個模組的像素數
+     * @param quietZone 靜區寬度（模組數）
+     * @param clearArea 要清為白色的區域（模組座標，可為 null）
+     * @param logo logo 點陣資料（可為 null）
+     * @param logoX logo 左上角 X 座標（像素）
+     * @param logoY logo 左上角 Y 座標（像素）
+     * @param dpi 寫入 pHYs chunk 的解析度（0 表示不寫入）
+     * @param out 輸出串流
+     * @throws IOException 當寫入輸出串流失敗時拋出
+     */
+    public static void write(ByteMatrix modules, int scale, int quietZone, Rectangle clearArea, LogoRaster logo,
+                             int logoX, int logoY, int dpi, OutputStream out) throws IOException {
+        // 以不溢位的運算計算圖片尺寸，溢位時視為參數錯誤
+        int width;
+        int height;
+        int origin;
+        try {
+            width = Math.multiplyExact(Math.addExact(modules.getWidth(), Math.multiplyExact(2, quietZone)), scale);
+            height = Math.multiplyExact(Math.addExact(modules.getHeight(), Math.multiplyExact(2, quietZone)), scale);
+            origin = Math.multiplyExact(quietZone, scale);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("圖片尺寸超出範圍");
+        }
+
+        int clearLeft = 0;
+        int clearTop = 0;
+        int clearRight = 0;
+        int clearBottom = 0;
+        if (clearArea != null) {
+            clearLeft = origin + clearArea.x * scale;
+            clearTop = origin + clearArea.y * scale;
+            clearRight = clearLeft + clearArea.width * scale;
+            clearBottom = clearTop + clearArea.height * scale;
+        }
+        encode(modules, scale, origin, origin, width, height,
+               clearLeft, clearTop, clearRight, clearBottom, logo, logoX, logoY, dpi, out);
+    }
+
+    /**
+     * 將模組矩陣依指定的圖片尺寸置中寫成 PNG
+     * 版面配置與 ZXing QRCodeWriter 相同：4 個模組的靜區、整數倍放大、剩餘空間平均分配在兩側，
+     * 輸出像素與 MultiFormatWriter 產生的 BitMatrix 完全一致
+     *
+     * @param modules QR Code 模組矩陣（1 為深色模組，不含靜區）
+     * @param requestedWidth 要求的圖片寬度
+     * @param requestedHeight 要求的圖片高度
+     * @param clearArea 要清為白色的區域（像素座標，可為 null）
+     * @param logo logo 點陣資料（可為 null）
+     * @param logoX logo 左上角 X 座標（像素）
+     * @param logoY logo 左上角 Y 座標（像素）
+     * @param out 輸出串流
+     * @throws IOException 當寫入輸出串流失敗時拋出
+     */
+    public static void writeCentered(ByteMatrix modules, int requestedWidth, int requestedHeight, Rectangle clearArea,
+                                     LogoRaster logo, int logoX, int logoY, OutputStream out) throws IOException {
+        int width = centeredSize(modules.getWidth(), requestedWidth);
+        int height = centeredSize(modules.getHeight(), requestedHeight);
+        int scale = Math.min(width / (modules.getWidth() + 2 * QRCodeRenderOptions.DEFAULT_QUIET_ZONE),
+                             height / (modules.getHeight() + 2 * QRCodeRenderOptions.DEFAULT_QUIET_ZONE));
+        int originX = (width - modules.getWidth() * scale) / 2;
+        int originY = (height - modules.getHeight() * scale) / 2;
+
+        if (clearArea == null) {
+            encode(modules, scale, originX, originY, width, height, 0, 0, 0, 0, logo, logoX, logoY, 0, out);
+        } else {
+            encode(modules, scale, originX, originY, width, height,
+                   clearArea.x, clearArea.y, clearArea.x + clearArea.width, clearArea.y + clearArea.height,
+                   logo, logoX, logoY, 0, out);
+        }
+    }
+
+    /**
+     * 計算置中版面的圖片邊長（不小於 QR Code 加上靜區的模組數）
+     *
+     * @param dimension QR Code 模組數
+     * @param requested 要求的圖片邊長
+     * @return 實際輸出的圖片邊長
+     */
+    static int centeredSize(int dimension, int requested) {
+        return Math.max(requested, dimension + 2 * QRCodeRenderOptions.DEFAULT_QUIET_ZONE);
+    }
+
+    /**
+     * 依版面配置寫出 PNG
+     */
+    private static void encode(ByteMatrix modules, int scale, int originX, int originY, int width, int height,
+                               int clearLeft, int clearTop, int clearRight, int clearBottom,
+                               LogoRaster logo, int logoX, int logoY, int dpi, OutputStream out) throws IOException {
+        EncoderBuffers buffers = BUFFERS.get();
+
+        int colorType;
+        int bitDepth;
+        if (logo == null) {
+            colorType = COLOR_TYPE_GRAYSCALE;
+            bitDepth = 1;
+        } else if (logo.hasPalette()) {
+            colorType = COLOR_TYPE_INDEXED;
+            bitDepth = 8;
+        } else {
+            colorType = COLOR_TYPE_RGB;
+            bitDepth = 8;
+        }
+
+        out.write(PNG_SIGNATURE);
+        writeHeader(out, buffers, width, height, bitDepth, colorType);
+        if (dpi > 0) {
+            writePhysicalDimensions(out, buffers, dpi);
+        }
+        if (colorType == COLOR_TYPE_INDEXED) {
+            writePalette(out, buffers, logo.palette());
+        }
+
+        // 掃描線長度：1 byte 濾波類型 + 像素資料
+        int rowBytes;
+        if (colorType == COLOR_TYPE_GRAYSCALE) {
+            rowBytes = (width + 7) / 8;
+        } else if (colorType == COLOR_TYPE_INDEXED) {
+            rowBytes = width;
+        } else {
+            rowBytes = width * 3;
+        }
+        int scanlineLength = rowBytes + 1;
+        byte[] scanline = buffers.scanline(scanlineLength);
+        RowGeometry geometry = buffers.geometry;
+        geometry.reset(modules.getArray(), modules.getWidth(), modules.getHeight(), scale, originX, width,
+                       clearLeft, clearRight);
+
+        Deflater deflater = buffers.deflater;
+        deflater.reset();
+        buffers.idatCount = 0;
+        try {
+            int previousRowKey = Integer.MIN_VALUE;
+            int expandedKey = Integer.MIN_VALUE;
+            for (int y = 0; y < height; y++) {
+                int moduleRow = Math.floorDiv(y - originY, scale);
+                boolean rowInClear = y >= clearTop && y < clearBottom;
+                boolean rowInLogo = logo != null && y >= logoY && y < logoY + logo.getHeight();
+
+                // 同一模組列（且預留區域狀態相同）的像素列完全相同，直接重複使用上一條掃描線；
+                // 經過 logo 的列每次重新產生掃描線，但像素列字組仍可重複使用
+                int geometryKey = (moduleRow << 1) | (rowInClear ? 1 : 0);
+                int rowKey = rowInLogo ? Integer.MIN_VALUE : geometryKey;
+                if (rowInLogo || rowKey != previousRowKey) {
+                    if (geometryKey != expandedKey) {
+                        geometry.expand(moduleRow, rowInClear);
+                        expandedKey = geometryKey;
+                    }
+                    scanline[0] = FILTER_NONE;
+                    if (colorType == COLOR_TYPE_GRAYSCALE) {
+                        fillBilevelRow(geometry, rowBytes, scanline);
+                    } else {
+                        fillLogoRow(geometry, width, logo, logoX, rowInLogo ? y - logoY : -1, colorType, scanline);
+                    }
+                    previousRowKey = rowKey;
+                }
+                deflate(out, buffers, scanline, scanlineLength);
+            }
+            finishDeflate(out, buffers);
+        } finally {
+            geometry.release();
+        }
+
+        writeChunk(out, buffers, IEND, buffers.chunk, 0);
+        out.flush();
+    }
+
+    /**
+     * 將一條掃描線送入 Deflater，壓縮後的資料填滿一個 IDAT chunk 時即寫出
+     */
+    private static void deflate(OutputStream out, EncoderBuffers buffers, byte[] scanline, int length)
+            throws IOException {
+        Deflater deflater = buffers.deflater;
+        deflater.setInput(scanline, 0, length);
+        while (!deflater.needsInput()) {
+            drainDeflater(out, buffers);
+        }
+    }
+
+    /**
+     * 完成壓縮並寫出剩餘的 IDAT 資料
+     */
+    private static void finishDeflate(OutputStream out, EncoderBuffers buffers) throws IOException {
+        Deflater deflater = buffers.deflater;
+        deflater.finish();
+        while (!deflater.finished()) {
+            drainDeflater(out, buffers);
+        }
+        if (buffers.idatCount > 0) {
+            writeChunk(out, buffers, IDAT, buffers.chunk, buffers.idatCount);
+            buffers.idatCount = 0;
+        }
+    }
+
+    private static void drainDeflater(OutputStream out, EncoderBuffers buffers) throws IOException {
+        byte[] chunk = buffers.chunk;
+        buffers.idatCount += buffers.deflater.deflate(chunk, buffers.idatCount, chunk.length - buffers.idatCount);
+        if (buffers.idatCount == chunk.length) {
+            writeChunk(out, buffers, IDAT, chunk, chunk.length);
+            buffers.idatCount = 0;
+        }
+    }
+
+    /**
+     * 產生 1-bit 灰階掃描線（0 為黑色、1 為白色，高位元在前）
+     * 像素列字組的低位元在左，反轉位元順序後每 8 個位元即為一個 byte；
+     * 超出圖片寬度的位元為 0，反相後即以白色補齊最後一個 byte
+     */
+    private static void fillBilevelRow(RowGeometry geometry, int rowBytes, byte[] scanline) {
+        int[] words = geometry.words;
+        int offset = 1;
+        for (int i = 0; i < rowBytes; i += 4) {
+            int reversed = ~Integer.reverse(words[i >>> 2]);
+            int count = Math.min(4, rowBytes - i);
+            for (int j = 0; j < count; j++) {
+                scanline[offset++] = (byte) (reversed >>> (24 - (j << 3)));
+            }
+        }
+    }
+
+    /**
+     * 產生含 logo 的掃描線（8-bit 索引色或 24-bit RGB）
+     *
+     * @param logoRow 此掃描線對應的 logo 列（-1 表示不經過 logo）
+     */
+    private static void fillLogoRow(RowGeometry geometry, int width, LogoRaster logo, int logoX, int logoRow,
+                                    int colorType, byte[] scanline) {
+        boolean indexed = colorType == COLOR_TYPE_INDEXED;
+        int offset = 1;
+        for (int x = 0; x < width; x++) {
+            if (logoRow >= 0 && x >= logoX && x < logoX + logo.getWidth()) {
+                // logo 範圍內使用 logo 像素
+                if (indexed) {
+                    scanline[offset++] = logo.indexAt(x - logoX, logoRow);
+                } else {
+                    int rgb = logo.rgbAt(x - logoX, logoRow);
+                    scanline[offset++] = (byte) (rgb >> 16);
+                    scanline[offset++] = (byte) (rgb >> 8);
+                    scanline[offset++] = (byte) rgb;
+                }
+                continue;
+            }
+            boolean dark = geometry.isDark(x);
+            if (indexed) {
+                scanline[offset++] = (byte) (dark ? LogoRaster.BLACK_INDEX : LogoRaster.WHITE_INDEX);
+            } else {
+                byte value = (byte) (dark ? 0x00 : 0xFF);
+                scanline[offset++] = value;
+                scanline[offset++] = value;
+                scanline[offset++] = value;
+            }
+        }
+    }
+
+    /**
+     * 寫入 IHDR chunk
+     */
+    private static void writeHeader(OutputStream out, EncoderBuffers buffers, int width, int height,
+                                    int bitDepth, int colorType) throws IOException {
+        byte[] header = buffers.chunk;
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = (byte) bitDepth;
+        header[9] = (byte) colorType;
+        header[10] = 0; // 壓縮方式：deflate
+        header[11] = 0; // 濾波方式：標準
+        header[12] = 0; // 不交錯
+        writeChunk(out, buffers, IHDR, header, 13);
+    }
+
+    /**
+     * 寫入 pHYs chunk（以每公尺像素數記錄 DPI）
+     */
+    private static void writePhysicalDimensions(OutputStream out, EncoderBuffers buffers, int dpi)
+            throws IOException {
+        int pixelsPerMeter = (int) Math.round(dpi / 0.0254);
+        byte[] data = buffers.chunk;
+        putInt(data, 0, pixelsPerMeter);
+        putInt(data, 4, pixelsPerMeter);
+        data[8] = 1; // 單位：公尺
+        writeChunk(out, buffers, PHYS, data, 9);
+    }
+
+    /**
+     * 寫入 PLTE chunk
+     */
+    private static void writePalette(OutputStream out, EncoderBuffers buffers, int[] palette) throws IOException {
+        byte[] data = buffers.chunk;
+        for (int i = 0; i < palette.length; i++) {
+            data[i * 3] = (byte) (palette[i] >> 16);
+            data[i * 3 + 1] = (byte) (palette[i] >> 8);
+            data[i * 3 + 2] = (byte) palette[i];
+        }
+        writeChunk(out, buffers, PLTE, data, palette.length * 3);
+    }
+
+    /**
+     * 寫入一個 PNG chunk：長度(4 bytes) + 類型(4 bytes) + 資料 + CRC(4 bytes)
+     */
+    private static void writeChunk(OutputStream out, EncoderBuffers buffers, byte[] type, byte[] data, int length)
+            throws IOException {
+        byte[] intBytes = buffers.intBytes;
+
+        putInt(intBytes, 0, length);
+        out.write(intBytes);
+        out.write(type);
+        out.write(data, 0, length);
+
+        CRC32 crc = buffers.crc;
+        crc.reset();
+        crc.update(type);
+        crc.update(data, 0, length);
+        putInt(intBytes, 0, (int) crc.getValue());
+        out.write(intBytes);
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    /**
+     * 像素座標與模組座標的對應關係，並以 32 位元字組保存目前的像素列（1 為深色，低位元在左）
+     */
+    private static final class RowGeometry {
+        private byte[][] modules;
+        private int columns;
+        private int rows;
+        private int scale;
+        private int originX;
+        private int width;
+        private int clearLeft;
+        private int clearRight;
+        private int[] words = new int[0];
+        private int wordCount;
+
+        void reset(byte[][] modules, int columns, int rows, int scale, int originX, int width,
+                   int clearLeft, int clearRight) {
+            this.modules = modules;
+            this.columns = columns;
+            this.rows = rows;
+            this.scale = scale;
+            this.originX = originX;
+            this.width = width;
+            this.clearLeft = Math.max(0, clearLeft);
+            this.clearRight = Math.min(width, clearRight);
+            this.wordCount = (width + 31) >>> 5;
+            if (words.length < wordCount) {
+                words = new int[wordCount];
+            }
+        }
+
+        /**
+         * 釋放模組矩陣的參照，避免執行緒長期持有；過大的像素列緩衝區不保留
+         */
+        void release() {
+            this.modules = null;
+            if (words.length * 4 > MAX_RETAINED_SCANLINE) {
+                words = new int[0];
+            }
+        }
+
+        /**
+         * 產生指定模組列的像素列：連續的深色模組一次設定整段位元，再清除預留區域
+         */
+        void expand(int moduleRow, boolean rowInClear) {
+            Arrays.fill(words, 0, wordCount, 0);
+            if (moduleRow < 0 || moduleRow >= rows) {
+                return;
+            }
+            byte[] row = modules[moduleRow];
+            int column = 0;
+            while (column < columns) {
+                if (row[column] != 1) {
+                    column++;
+                    continue;
+                }
+                int start = column;
+                while (column < columns && row[column] == 1) {
+                    column++;
+                }
+                int from = originX + start * scale;
+                int to = Math.min(width, originX + column * scale);
+                if (from < to) {
+                    BitGrid.setBits(words, 0, from, to);
+                }
+            }
+            if (rowInClear && clearLeft < clearRight) {
+                BitGrid.clearBits(words, 0, clearLeft, clearRight);
+            }
+        }
+
+        /**
+         * 判斷目前像素列的像素欄 x 是否為深色
+         */
+        boolean isDark(int x) {
+            return ((words[x >>> 5] >>> (x & 31)) & 1) != 0;
+        }
+    }
+
+    /**
+     * 每個執行緒重複使用的編碼緩衝區
+     */
+    private static final class EncoderBuffers {
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final byte[] chunk = new byte[IDAT_CHUNK_SIZE];  // IDAT 資料（寫出 IDAT 前也用於其他 chunk）
+        private final byte[] intBytes = new byte[4];
+        private final CRC32 crc = new CRC32();
+        private final RowGeometry geometry = new RowGeometry();
+        private byte[] scanline = new byte[0];
+        private int idatCount;
+
+        byte[] scanline(int length) {
+            if (length > MAX_RETAINED_SCANLINE) {
+                return new byte[length];
+            }
+            if (scanline.length < length) {
+                scanline = new byte[length];
+            }
+            return scanline;
+        }
+    }
+}
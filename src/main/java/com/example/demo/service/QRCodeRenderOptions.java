@@ -0,0 +1,206 @@
+package com.example.demo.service;
+
+/**
+ * QR Code 模組解析度渲染設定
+ * 以「每個模組幾個像素」或「列印尺寸 + DPI」決定輸出大小，取代固定的像素尺寸
+ *
+ * 模組大小一律為整數像素，避免非整數縮放造成的模組邊緣模糊
+ * 參數來自未驗證身分的請求，模組大小、DPI、列印尺寸與輸出邊長都有上限，避免產生過大的圖片
+ */
+public final class QRCodeRenderOptions {
+
+    /** QR Code 規格建議的靜區寬度（模組數） */
+    public static final int DEFAULT_QUIET_ZONE = 4;
+
+    /** 每個模組的最大像素數 */
+    public static final int MAX_MODULE_SIZE = 64;
+
+    /** 最大輸出解析度 */
+    public static final int MAX_DPI = 2400;
+
+    /** 點陣輸出的最大邊長（像素，含靜區） */
+    public static final int MAX_EDGE_PIXELS = 4096;
+
+    /** 向量輸出的最大列印邊長（公釐） */
+    public static final double MAX_PRINT_SIZE_MILLIMETERS = 1000;
+
+    private static final double MILLIMETERS_PER_INCH = 25.4;
+
+    private final int moduleSize;
+    private final double printSizeMillimeters;
+    private final int dpi;
+    private final int quietZone;
+
+    private QRCodeRenderOptions(int moduleSize, double printSizeMillimeters, int dpi, int quietZone) {
+        this.moduleSize = moduleSize;
+        this.printSizeMillimeters = printSizeMillimeters;
+        this.dpi = dpi;
+        this.quietZone = quietZone;
+    }
+
+    /**
+     * 以固定模組大小渲染
+     *
+     * @param moduleSize 每個模組的像素數
+     * @return 渲染設定
+     * @throws IllegalArgumentException 當模組大小不在 1 到 {@link #MAX_MODULE_SIZE} 之間時拋出
+     */
+    public static QRCodeRenderOptions ofModuleSize(int moduleSize) {
+        return ofModuleSize(moduleSize, 0);
+    }
+
+    /**
+     * 以固定模組大小渲染，並在 PNG 中記錄 DPI
+     *
+     * @param moduleSize 每個模組的像素數
+     * @param dpi 輸出解析度（0 表示不記錄）
+     * @return 渲染設定
+     * @throws IllegalArgumentException 當參數不合法或超過上限時拋出
+     */
+    public static QRCodeRenderOptions ofModuleSize(int moduleSize, int dpi) {
+        if (moduleSize < 1) {
+            throw new IllegalArgumentException("模組大小必須大於 0");
+        }
+        if (moduleSize > MAX_MODULE_SIZE) {
+            throw new IllegalArgumentException("模組大小最多 " + MAX_MODULE_SIZE + " 像素");
+        }
+        if (dpi < 0) {
+            throw new IllegalArgumentException("DPI 不可為負數");
+        }
+        requireDpiLimit(dpi);
+        return new QRCodeRenderOptions(moduleSize, 0, dpi, DEFAULT_QUIET_ZONE);
+    }
+
+    /**
+     * 以列印尺寸與 DPI 渲染，模組大小取不超過列印尺寸的最大整數像素
+     *
+     * @param printSizeMillimeters 列印邊長（公釐，含靜區）
+     * @param dpi 列印解析度
+     * @return 渲染設定
+     * @throws IllegalArgumentException 當參數不合法，或換算後的邊長超過 {@link #MAX_EDGE_PIXELS} 時拋出
+     */
+    public static QRCodeRenderOptions ofPrintSize(double printSizeMillimeters, int dpi) {
+        requirePrintSize(printSizeMillimeters);
+        if (dpi < 1) {
+            throw new IllegalArgumentException("DPI 必須大於 0");
+        }
+        requireDpiLimit(dpi);
+        if (printSizeMillimeters / MILLIMETERS_PER_INCH * dpi > MAX_EDGE_PIXELS) {
+            throw new IllegalArgumentException("列印尺寸與 DPI 換算後的邊長最多 " + MAX_EDGE_PIXELS + " 像素");
+        }
+        return new QRCodeRenderOptions(0, printSizeMillimeters, dpi, DEFAULT_QUIET_ZONE);
+    }
+
+    /**
+     * 以列印尺寸渲染向量圖（SVG），寬高直接以公釐表示，不需要 DPI
+     * 只適用於向量輸出；點陣輸出（PNG）需以 {@link #ofPrintSize(double, int)} 指定 DPI
+     *
+     * @param printSizeMillimeters 列印邊長（公釐，含靜區）
+     * @return 渲染設定
+     * @throws IllegalArgumentException 當列印尺寸不在 0 到 {@link #MAX_PRINT_SIZE_MILLIMETERS} 之間時拋出
+     */
+    public static QRCodeRenderOptions ofVectorPrintSize(double printSizeMillimeters) {
+        requirePrintSize(printSizeMillimeters);
+        return new QRCodeRenderOptions(0, printSizeMillimeters, 0, DEFAULT_QUIET_ZONE);
+    }
+
+    /**
+     * 回傳使用指定靜區寬度的新設定
+     *
+     * @param quietZone 靜區寬度（模組數）
+     * @return 渲染設定
+     * @throws IllegalArgumentException 當靜區寬度為負數時拋出
+     */
+    public QRCodeRenderOptions withQuietZone(int quietZone) {
+        if (quietZone < 0) {
+            throw new IllegalArgumentException("靜區寬度不可為負數");
+        }
+        return new QRCodeRenderOptions(moduleSize, printSizeMillimeters, dpi, quietZone);
+    }
+
+    /**
+     * 依 QR Code 的模組數決定每個模組的像素數
+     *
+     * @param symbolModules QR Code 每邊的模組數（不含靜區）
+     * @return 每個模組的像素數（至少為 1）
+     * @throws IllegalArgumentException 當輸出邊長超過 {@link #MAX_EDGE_PIXELS} 時拋出
+     */
+    public int resolveModuleSize(int symbolModules) {
+        int totalModules = totalModules(symbolModules);
+        int size = moduleSize;
+        if (size == 0) {
+            double printPixels = printSizeMillimeters / MILLIMETERS_PER_INCH * dpi;
+            size = Math.max(1, (int) (printPixels / totalModules));
+        }
+        edgePixels(totalModules, size);
+        return size;
+    }
+
+    /**
+     * 依 QR Code 的模組數計算點陣輸出的邊長
+     *
+     * @param symbolModules QR Code 每邊的模組數（不含靜區）
+     * @return 含靜區的邊長（像素）
+     * @throws IllegalArgumentException 當輸出邊長超過 {@link #MAX_EDGE_PIXELS} 時拋出
+     */
+    public int resolveEdgePixels(int symbolModules) {
+        return edgePixels(totalModules(symbolModules), resolveModuleSize(symbolModules));
+    }
+
+    /**
+     * 含靜區的每邊模組數
+     */
+    private int totalModules(int symbolModules) {
+        try {
+            return Math.addExact(symbolModules, Math.multiplyExact(2, quietZone));
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("靜區寬度超出範圍");
+        }
+    }
+
+    /**
+     * 以不溢位的乘法計算邊長，並檢查是否超過上限
+     */
+    private static int edgePixels(int totalModules, int size) {
+        int edge;
+        try {
+            edge = Math.multiplyExact(totalModules, size);
+        } catch (ArithmeticException e) {
+            edge = Integer.MAX_VALUE;
+        }
+        if (edge > MAX_EDGE_PIXELS) {
+            throw new IllegalArgumentException("QR Code 邊長最多 " + MAX_EDGE_PIXELS + " 像素，請降低模組大小");
+        }
+        return edge;
+    }
+
+    private static void requirePrintSize(double printSizeMillimeters) {
+        if (!Double.isFinite(printSizeMillimeters) || printSizeMillimeters <= 0) {
+            throw new IllegalArgumentException("列印尺寸必須為大於 0 的數字");
+        }
+        if (printSizeMillimeters > MAX_PRINT_SIZE_MILLIMETERS) {
+            throw new IllegalArgumentException("列印尺寸最多 " + (int) MAX_PRINT_SIZE_MILLIMETERS + " 公釐");
+        }
+    }
+
+    private static void requireDpiLimit(int dpi) {
+        if (dpi > MAX_DPI) {
+            throw new IllegalArgumentException("DPI 最多 " + MAX_DPI);
+        }
+    }
+
+    /**
+     * 取得列印邊長（公釐，以模組大小設定時為 0）
+     */
+    public double getPrintSizeMillimeters() {
+        return printSizeMillimeters;
+    }
+
+    public int getDpi() {
+        return dpi;
+    }
+
+    public int getQuietZone() {
+        return quietZone;
+    }
+}
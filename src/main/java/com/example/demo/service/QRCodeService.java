@@ -4,10 +4,14 @@ package com.example.demo.service;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.MultiFormatWriter;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 // 引入 Java 標準庫相關類別
@@ -17,8 +21,16 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,6 +38,10 @@ import java.util.Map;
  * QR Code 產生服務
  * 此服務類別負責將文字內容轉換為 QR Code 圖片，並以 Base64 格式回傳
  * 支援 non-destructive QR Code with logo space
+ * 
+ * PNG 輸出由 QRCodePngEncoder 直接從模組矩陣產生，不經過 BitMatrix、BufferedImage 與 ImageIO；
+ * SVG 向量輸出由 QRCodeSvgEncoder 以模組格線產生；
+ * 編碼提示為共用的不可變物件，PNG 與 Base64 緩衝區由每個執行緒重複使用
  */
 @Service
 public class QRCodeService {
@@ -38,6 +54,26 @@ public class QRCodeService {
     private static final int DEFAULT_LOGO_MARGIN = 5;
     private static final int DEFAULT_LOGO_CORNER_RADIUS = 6;
     
+    // 模組解析度渲染的 logo 設定：logo 佔 QR Code 邊長的比例與外圍留白（模組數）
+    private static final double MODULE_LOGO_RATIO = (double) DEFAULT_LOGO_SIZE / DEFAULT_SIZE;
+    private static final int MODULE_LOGO_MARGIN = 1;
+    
+    // QR Code 編碼提示（UTF-8 字元集），所有請求共用
+    private static final Map<EncodeHintType, Object> ENCODE_HINTS;
+    
+    static {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+        ENCODE_HINTS = Collections.unmodifiableMap(hints);
+    }
+    
+    // 每個執行緒重複使用的 PNG 與 Base64 輸出緩衝區
+    private static final ThreadLocal<RenderBuffer> RENDER_BUFFERS = ThreadLocal.withInitial(RenderBuffer::new);
+    
+    // 注入 logo 註冊服務（快取已縮放的 logo）
+    @Autowired
+    private QRCodeLogoRegistry logoRegistry;
+    
     /**
      * 將文字內容轉換為 QR Code 圖片，並回傳 Base64 編碼的字串
      * 
@@ -59,21 +95,13 @@ public class QRCodeService {
      * @throws Exception 當 QR Code 產生過程發生錯誤時拋出例外
      */
     public String generateQRCodeBase64(String text, int width, int height) throws Exception {
-        // 設定 QR Code 的編碼提示，使用 UTF-8 字元集
-        Map<EncodeHintType, Object> hints = new HashMap<>();
-        hints.put(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+        // 使用 ZXing 產生 QR Code 的模組矩陣（與 MultiFormatWriter 相同使用 L 級錯誤修正）
+        ByteMatrix modules = encodeModules(text, ErrorCorrectionLevel.L);
         
-        // 使用 ZXing 產生 QR Code 的點陣圖
-        BitMatrix bitMatrix = new MultiFormatWriter().encode(text, BarcodeFormat.QR_CODE, width, height, hints);
-        
-        // 建立位元組輸出串流，用於儲存 QR Code 圖片
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        // 將點陣圖轉換為 PNG 格式的圖片，並寫入輸出串流
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", baos);
-        
-        // 將圖片資料轉換為 Base64 字串並回傳
-        return Base64.getEncoder().encodeToString(baos.toByteArray());
+        // 將模組矩陣直接編碼為 1-bit PNG，並轉換為 Base64 字串回傳
+        RenderBuffer buffer = RENDER_BUFFERS.get().reset();
+        QRCodePngEncoder.writeCentered(modules, width, height, null, null, 0, 0, buffer);
+        return buffer.toBase64();
     }
     
     /**
@@ -101,6 +129,248 @@ public class QRCodeService {
      */
     public String generateQRCodeWithLogoSpace(String text, BufferedImage logoImage, 
                                             int qrWidth, int qrHeight, int logoSize) throws Exception {
+        return renderBase64WithLogoSpace(encodeModules(text, ErrorCorrectionLevel.L), logoImage,
+                                         qrWidth, qrHeight, logoSize);
+    }
+    
+    /**
+     * 將已編碼的模組矩陣產生為帶有 logo 空間的 QR Code（自訂尺寸），並回傳 Base64 字串
+     * 使用每個執行緒重複使用的輸出緩衝區，只配置回傳的字串
+     */
+    String renderBase64WithLogoSpace(ByteMatrix modules, BufferedImage logoImage,
+                                     int qrWidth, int qrHeight, int logoSize) throws Exception {
+        RenderBuffer buffer = RENDER_BUFFERS.get().reset();
+        writeWithLogoSpace(modules, logoImage, qrWidth, qrHeight, logoSize, buffer);
+        return buffer.toBase64();
+    }
+    
+    /**
+     * 產生帶有 logo 空間的 non-destructive QR Code（自訂尺寸），並將 PNG 直接寫入輸出串流
+     * 
+     * @param text 要轉換成 QR Code 的文字內容
+     * @param logoImage Logo 圖片（可為 null）
+     * @param qrWidth QR Code 寬度
+     * @param qrHeight QR Code 高度
+     * @param logoSize Logo 尺寸
+     * @param out 輸出串流
+     * @throws Exception 當 QR Code 產生過程發生錯誤時拋出例外
+     */
+    public void writeQRCodeWithLogoSpace(String text, BufferedImage logoImage, int qrWidth, int qrHeight,
+                                         int logoSize, OutputStream out) throws Exception {
+        // 使用 ZXing 產生 QR Code 的模組矩陣（與 MultiFormatWriter 相同使用 L 級錯誤修正）
+        writeWithLogoSpace(encodeModules(text, ErrorCorrectionLevel.L), logoImage, qrWidth, qrHeight, logoSize, out);
+    }
+    
+    /**
+     * 將模組矩陣依指定尺寸置中，預留 logo 空間並寫成 PNG
+     */
+    private void writeWithLogoSpace(ByteMatrix modules, BufferedImage logoImage, int qrWidth, int qrHeight,
+                                    int logoSize, OutputStream out) throws IOException {
+        // 輸出尺寸與 MultiFormatWriter 產生的 BitMatrix 相同
+        int width = QRCodePngEncoder.centeredSize(modules.getWidth(), qrWidth);
+        int height = QRCodePngEncoder.centeredSize(modules.getHeight(), qrHeight);
+        
+        // 如果有 logo，計算預留的 logo 空間並準備 logo 點陣資料
+        Rectangle logoArea = null;
+        LogoRaster logoRaster = null;
+        int logoX = (width - logoSize) / 2;
+        int logoY = (height - logoSize) / 2;
+        if (logoImage != null) {
+            logoArea = new Rectangle(logoX - DEFAULT_LOGO_MARGIN, logoY - DEFAULT_LOGO_MARGIN,
+                                     logoSize + 2 * DEFAULT_LOGO_MARGIN, logoSize + 2 * DEFAULT_LOGO_MARGIN);
+            logoRaster = logoRaster(logoImage, logoSize);
+        }
+        
+        // 直接將模組矩陣與 logo 編碼為 PNG
+        QRCodePngEncoder.writeCentered(modules, qrWidth, qrHeight, logoArea, logoRaster, logoX, logoY, out);
+    }
+    
+    /**
+     * 以模組解析度產生帶有 logo 空間的 non-destructive QR Code
+     * 
+     * @param text 要轉換成 QR Code 的文字內容
+     * @param logoImage Logo 圖片（可為 null）
+     * @param options 模組大小或列印尺寸與 DPI 設定
+     * @return 回傳 QR Code 圖片的 Base64 編碼字串（PNG 格式）
+     * @throws Exception 當 QR Code 產生過程發生錯誤時拋出例外
+     */
+    public String generateQRCodeWithLogoSpace(String text, BufferedImage logoImage,
+                                            QRCodeRenderOptions options) throws Exception {
+        RenderBuffer buffer = RENDER_BUFFERS.get().reset();
+        writeQRCodeWithLogoSpace(text, logoImage, options, buffer);
+        return buffer.toBase64();
+    }
+    
+    /**
+     * 以模組解析度產生帶有 logo 空間的 non-destructive QR Code，並將 PNG 寫入輸出串流
+     * 
+     * 直接在 QR Code 的模組格線上運算（約 21x21 至 177x177），logo 空間以模組為單位預留，
+     * 只在編碼 PNG 時才依整數倍放大並加上靜區。有 logo 時使用 M 級錯誤修正，
+     * 以補償被 logo 覆蓋的模組。
+     * 
+     * @param text 要轉換成 QR Code 的文字內容
+     * @param logoImage Logo 圖片（可為 null）
+     * @param options 模組大小或列印尺寸與 DPI 設定
+     * @param out 輸出串流
+     * @throws Exception 當 QR Code 產生過程發生錯誤時拋出例外
+     */
+    public void writeQRCodeWithLogoSpace(String text, BufferedImage logoImage,
+                                         QRCodeRenderOptions options, OutputStream out) throws Exception {
+        // 產生模組層級的 QR Code（一個元素對應一個模組，不含靜區）
+        ErrorCorrectionLevel ecLevel = logoImage != null ? ErrorCorrectionLevel.M : ErrorCorrectionLevel.L;
+        ByteMatrix modules = encodeModules(text, ecLevel);
+        
+        int dimension = modules.getWidth();
+        int moduleSize = options.resolveModuleSize(dimension);
+        int quietZone = options.getQuietZone();
+        
+        // 如果有 logo，以模組為單位預留 logo 空間
+        Rectangle logoModules = null;
+        LogoRaster logoRaster = null;
+        int logoPixel = 0;
+        if (logoImage != null) {
+            Rectangle logoArea = logoModuleArea(dimension);
+            logoModules = withLogoMargin(logoArea);
+            logoRaster = logoRaster(logoImage, logoArea.width * moduleSize);
+            logoPixel = (quietZone + logoArea.x) * moduleSize;
+            if (LOG.isDebugEnabled()) {
+                int covered = BitGrid.fromModules(modules).countRegion(
+                    logoModules.x, logoModules.y, logoModules.width, logoModules.height);
+                LOG.debug("logo 預留 {}x{} 個模組，其中 {} 個深色模組需由錯誤修正補回",
+                          logoModules.width, logoModules.height, covered);
+            }
+        }
+        
+        QRCodePngEncoder.write(modules, moduleSize, quietZone, logoModules, logoRaster,
+                               logoPixel, logoPixel, options.getDpi(), out);
+    }
+    
+    /**
+     * 產生帶有 logo 空間的 SVG 向量 QR Code
+     * 
+     * @param text 要轉換成 QR Code 的文字內容
+     * @param logoImage Logo 圖片（可為 null）
+     * @param options 模組大小或列印尺寸設定（可為 null，表示輸出寬高為 400）
+     * @return SVG 文件
+     * @throws Exception 當 QR Code 產生過程發生錯誤時拋出例外
+     */
+    public String generateQRCodeSvg(String text, BufferedImage logoImage, QRCodeRenderOptions options) throws Exception {
+        StringWriter out = new StringWriter(16 * 1024);
+        writeQRCodeSvg(text, logoImage, options, out);
+        return out.toString();
+    }
+    
+    /**
+     * 產生帶有 logo 空間的 SVG 向量 QR Code，並寫入輸出
+     * 
+     * 與模組解析度 PNG 使用相同的模組格線、logo 配置與錯誤修正等級；
+     * 有列印尺寸時 SVG 寬高以公釐表示，有模組大小時以像素表示
+     * 
+     * @param text 要轉換成 QR Code 的文字內容
+     * @param logoImage Logo 圖片（可為 null）
+     * @param options 模組大小或列印尺寸設定（可為 null，表示輸出寬高為 400）
+     * @param out 輸出
+     * @throws Exception 當 QR Code 產生過程發生錯誤時拋出例外
+     */
+    public void writeQRCodeSvg(String text, BufferedImage logoImage, QRCodeRenderOptions options,
+                               Writer out) throws Exception {
+        ErrorCorrectionLevel ecLevel = logoImage != null ? ErrorCorrectionLevel.M : ErrorCorrectionLevel.L;
+        ByteMatrix modules = encodeModules(text, ecLevel);
+        
+        int dimension = modules.getWidth();
+        int quietZone = options != null ? options.getQuietZone() : QRCodeRenderOptions.DEFAULT_QUIET_ZONE;
+        String size = svgSize(dimension, options);
+        
+        Rectangle logoArea = null;
+        Rectangle clearArea = null;
+        String logoHref = null;
+        if (logoImage != null) {
+            logoArea = logoModuleArea(dimension);
+            clearArea = withLogoMargin(logoArea);
+            logoHref = logoRegistry != null ? logoRegistry.dataUriFor(logoImage)
+                                            : QRCodeLogoRegistry.encodeDataUri(logoImage);
+        }
+        QRCodeSvgEncoder.write(modules, quietZone, clearArea, logoArea, logoHref, size, size, out);
+    }
+    
+    /**
+     * 計算 SVG 的寬高屬性
+     */
+    private String svgSize(int dimension, QRCodeRenderOptions options) {
+        if (options == null) {
+            return String.valueOf(DEFAULT_SIZE);
+        }
+        if (options.getPrintSizeMillimeters() > 0) {
+            return BigDecimal.valueOf(options.getPrintSizeMillimeters()).stripTrailingZeros().toPlainString() + "mm";
+        }
+        return String.valueOf(options.resolveEdgePixels(dimension));
+    }
+    
+    /**
+     * 依 logo 代碼取得已載入的 logo 圖片
+     * 
+     * @param logoId logo 代碼
+     * @return logo 圖片，找不到時回傳 null
+     */
+    public BufferedImage findLogo(String logoId) {
+        return logoRegistry.getLogo(logoId);
+    }
+    
+    /**
+     * 取得縮放後的 logo 點陣資料，已註冊的 logo 會使用快取
+     */
+    private LogoRaster logoRaster(BufferedImage logoImage, int size) {
+        // 未經 Spring 建立（例如單元測試直接 new）時沒有註冊服務，直接縮放
+        if (logoRegistry == null) {
+            return LogoRaster.render(logoImage, size);
+        }
+        return logoRegistry.rasterFor(logoImage, size);
+    }
+    
+    /**
+     * 計算 logo 在模組格線上的位置（置中，不含靜區與外圍留白）
+     */
+    private Rectangle logoModuleArea(int dimension) {
+        int logoSpan = logoModuleSpan(dimension);
+        int logoStart = (dimension - logoSpan) / 2;
+        return new Rectangle(logoStart, logoStart, logoSpan, logoSpan);
+    }
+    
+    /**
+     * 加上 logo 外圍留白後的預留區域
+     */
+    private Rectangle withLogoMargin(Rectangle logoArea) {
+        return new Rectangle(logoArea.x - MODULE_LOGO_MARGIN, logoArea.y - MODULE_LOGO_MARGIN,
+                             logoArea.width + 2 * MODULE_LOGO_MARGIN, logoArea.height + 2 * MODULE_LOGO_MARGIN);
+    }
+    
+    /**
+     * 計算 logo 覆蓋的模組數，並讓 logo 能在模組格線上置中
+     */
+    private int logoModuleSpan(int dimension) {
+        int span = Math.max(1, (int) Math.round(dimension * MODULE_LOGO_RATIO));
+        if ((dimension - span) % 2 != 0) {
+            span++;
+        }
+        return span;
+    }
+    
+    /**
+     * 使用 ZXing 將文字編碼為 QR Code 模組矩陣（1 為深色模組，不含靜區）
+     */
+    private ByteMatrix encodeModules(String text, ErrorCorrectionLevel ecLevel) throws WriterException {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("Found empty contents");
+        }
+        return Encoder.encode(text, ecLevel, ENCODE_HINTS).getMatrix();
+    }
+    
+    /**
+     * 產生帶有 logo 空間的 non-destructive QR Code（BufferedImage + ImageIO 流程）
+     * 保留原本的逐像素繪製流程，僅供比對輸出結果與效能量測使用
+     */
+    String generateQRCodeWithLogoSpaceImageIO(String text, BufferedImage logoImage,
+                                              int qrWidth, int qrHeight, int logoSize) throws Exception {
         
         // 設定 QR Code 的編碼提示，使用 UTF-8 字元集
         Map<EncodeHintType, Object> hints = new HashMap<>();
@@ -140,7 +410,7 @@ public class QRCodeService {
     /**
      * 將 BitMatrix 轉換為 BufferedImage
      */
-    private BufferedImage matrixToImage(BitMatrix bitMatrix) {
+    BufferedImage matrixToImage(BitMatrix bitMatrix) {
         int width = bitMatrix.getWidth();
         int height = bitMatrix.getHeight();
         BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
@@ -165,34 +435,21 @@ public class QRCodeService {
         int logoX = (qrWidth - logoSize) / 2;
         int logoY = (qrHeight - logoSize) / 2;
         
-        // 創建新的圖片，包含 logo
+        // 創建新的圖片，整塊複製 QR Code 的點陣資料
         BufferedImage combinedImage = new BufferedImage(qrWidth, qrHeight, BufferedImage.TYPE_INT_RGB);
+        combinedImage.setData(qrImage.getRaster());
         Graphics2D g2d = combinedImage.createGraphics();
         
+        // 在 logo 區域預留白色空間（整個矩形一次填色，不逐像素判斷）
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(logoX - DEFAULT_LOGO_MARGIN, logoY - DEFAULT_LOGO_MARGIN,
+                     logoSize + 2 * DEFAULT_LOGO_MARGIN, logoSize + 2 * DEFAULT_LOGO_MARGIN);
+        
         // 設定高品質渲染
         g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
         g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
-        // 繪製 QR Code，但在 logo 區域預留白色空間
-        for (int x = 0; x < qrWidth; x++) {
-            for (int y = 0; y < qrHeight; y++) {
-                // 檢查是否在 logo 區域內
-                boolean inLogoArea = (x >= logoX - DEFAULT_LOGO_MARGIN && 
-                                    x < logoX + logoSize + DEFAULT_LOGO_MARGIN &&
-                                    y >= logoY - DEFAULT_LOGO_MARGIN && 
-                                    y < logoY + logoSize + DEFAULT_LOGO_MARGIN);
-                
-                if (inLogoArea) {
-                    // 在 logo 區域內繪製白色
-                    combinedImage.setRGB(x, y, Color.WHITE.getRGB());
-                } else {
-                    // 在 logo 區域外繪製原始 QR Code 內容
-                    combinedImage.setRGB(x, y, qrImage.getRGB(x, y));
-                }
-            }
-        }
-        
         // 調整 logo 尺寸並繪製
         BufferedImage resizedLogo = resizeImage(logoImage, logoSize, logoSize);
         g2d.drawImage(resizedLogo, logoX, logoY, null);
@@ -245,24 +502,13 @@ public class QRCodeService {
      * 調整圖片尺寸
      */
     private BufferedImage resizeImage(BufferedImage originalImage, int targetWidth, int targetHeight) {
-        BufferedImage resizedImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = resizedImage.createGraphics();
-        
-        // 設定高品質渲染
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        g2d.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-        g2d.dispose();
-        
-        return resizedImage;
+        return LogoRaster.resize(originalImage, targetWidth, targetHeight);
     }
     
     /**
      * 將 BufferedImage 轉換為 Base64 字串
      */
-    private String imageToBase64(BufferedImage image, String format) throws IOException {
+    String imageToBase64(BufferedImage image, String format) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         ImageIO.write(image, format, baos);
         return Base64.getEncoder().encodeToString(baos.toByteArray());
@@ -280,40 +526,66 @@ public class QRCodeService {
     
     /**
      * 在 BitMatrix 中創建 logo 空間（真正的 non-destructive 方法）
-     * 將 QR Code 中央的資料點設為白色（false），預留 logo 空間
+     * 將 QR Code 中央的資料點設為白色（false），預留 logo 空間；
+     * 直接修改傳入的 BitMatrix，只處理 logo 涵蓋的列，每列以 32 位元字組清除
      */
-    private BitMatrix createLogoSpaceInBitMatrix(BitMatrix bitMatrix, int logoSize) {
-        int width = bitMatrix.getWidth();
-        int height = bitMatrix.getHeight();
-        
+    BitMatrix createLogoSpaceInBitMatrix(BitMatrix bitMatrix, int logoSize) {
         // 計算 logo 在 QR Code 中的位置（中央）
-        int logoX = (width - logoSize) / 2;
-        int logoY = (height - logoSize) / 2;
+        int logoX = (bitMatrix.getWidth() - logoSize) / 2;
+        int logoY = (bitMatrix.getHeight() - logoSize) / 2;
         
-        // 創建新的 BitMatrix
-        BitMatrix newBitMatrix = new BitMatrix(width, height);
+        BitGrid.clearRegion(bitMatrix, logoX - DEFAULT_LOGO_MARGIN, logoY - DEFAULT_LOGO_MARGIN,
+                            logoSize + 2 * DEFAULT_LOGO_MARGIN, logoSize + 2 * DEFAULT_LOGO_MARGIN);
+        return bitMatrix;
+    }
+    
+    /**
+     * 每個執行緒重複使用的 PNG 輸出緩衝區
+     * 不需同步（與 ByteArrayOutputStream 不同），並以 JDK 的 Base64 直接編碼緩衝區的有效範圍，
+     * 不另外複製 PNG 內容；超過保留上限的緩衝區在下次使用前釋放
+     */
+    private static final class RenderBuffer extends OutputStream {
+        private static final int INITIAL_CAPACITY = 32 * 1024;
+        private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
         
-        // 複製原始 BitMatrix，但在 logo 區域設為白色
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                // 檢查是否在 logo 區域內
-                boolean inLogoArea = (x >= logoX - DEFAULT_LOGO_MARGIN && 
-                                    x < logoX + logoSize + DEFAULT_LOGO_MARGIN &&
-                                    y >= logoY - DEFAULT_LOGO_MARGIN && 
-                                    y < logoY + logoSize + DEFAULT_LOGO_MARGIN);
-                
-                if (inLogoArea) {
-                    // 在 logo 區域內設為白色（false）- 不設置任何值，預設為 false
-                    // newBitMatrix 預設為 false，所以不需要額外設置
-                } else {
-                    // 在 logo 區域外保持原始值
-                    if (bitMatrix.get(x, y)) {
-                        newBitMatrix.set(x, y);
-                    }
-                }
+        private byte[] png = new byte[INITIAL_CAPACITY];
+        private int count;
+        
+        RenderBuffer reset() {
+            if (png.length > MAX_RETAINED_CAPACITY) {
+                png = new byte[INITIAL_CAPACITY];
             }
+            count = 0;
+            return this;
+        }
+        
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            png[count++] = (byte) b;
+        }
+        
+        @Override
+        public void write(byte[] data, int offset, int length) {
+            ensureCapacity(count + length);
+            System.arraycopy(data, offset, png, count, length);
+            count += length;
         }
         
-        return newBitMatrix;
+        private void ensureCapacity(int capacity) {
+            if (capacity > png.length) {
+                png = Arrays.copyOf(png, Math.max(capacity, png.length * 2));
+            }
+        }
+        
+        /**
+         * 將緩衝區內容編碼為 Base64 字串（標準字元表，含補位）
+         * 直接以緩衝區的有效範圍編碼，不先複製出 PNG 位元組陣列
+         */
+        String toBase64() {
+            ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(png, 0, count));
+            return new String(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining(),
+                              StandardCharsets.ISO_8859_1);
+        }
     }
-} 
\ No newline at end of file
+}
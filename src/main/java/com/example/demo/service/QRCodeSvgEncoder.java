@@ -0,0 +1,79 @@
+package com.example.demo.service;
+
+// 引入 ZXing 相關的類別
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+
+// 引入 Java 標準庫相關類別
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * QR Code SVG 編碼器
+ * 直接以模組格線輸出向量圖：座標單位為一個模組（viewBox 含靜區），
+ * 每一列連續的深色模組合併為一段矩形路徑，所有模組共用同一個 path 元素；
+ * 預留的 logo 區域不輸出模組，logo 以 data URI 嵌入一次
+ *
+ * 輸出大小與列印尺寸無關，不需要像 PNG 一樣先點陣化再壓縮
+ */
+public final class QRCodeSvgEncoder {
+
+    private QRCodeSvgEncoder() {
+    }
+
+    /**
+     * 將模組矩陣寫成 SVG
+     *
+     * @param modules QR Code 模組矩陣（1 為深色模組，不含靜區）
+     * @param quietZone 靜區寬度（模組數）
+     * @param clearArea 要清為白色的區域（模組座標，不含靜區，可為 null）
+     * @param logoArea logo 的位置與大小（模組座標，不含靜區，可為 null）
+     * @param logoHref logo 圖片的 data URI（可為 null）
+     * @param width SVG 的 width 屬性（例如 "400" 或 "30mm"）
+     * @param height SVG 的 height 屬性
+     * @param out 輸出
+     * @throws IOException 當寫入失敗時拋出
+     */
+    public static void write(ByteMatrix modules, int quietZone, Rectangle clearArea, Rectangle logoArea,
+                             String logoHref, String width, String height, Writer out) throws IOException {
+        BitGrid grid = BitGrid.fromModules(modules);
+        if (clearArea != null) {
+            grid.clearRegion(clearArea.x, clearArea.y, clearArea.width, clearArea.height);
+        }
+        int size = modules.getWidth() + 2 * quietZone;
+
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\"");
+        out.write(" width=\"" + width + "\" height=\"" + height + "\"");
+        out.write(" viewBox=\"0 0 " + size + " " + (modules.getHeight() + 2 * quietZone) + "\"");
+        out.write(" shape-rendering=\"crispEdges\">\n");
+        out.write("<rect width=\"100%\" height=\"100%\" fill=\"#FFFFFF\"/>\n");
+
+        // 每一列的連續深色模組輸出為一個矩形：M x y h 長度 v1 h -長度 z
+        out.write("<path fill=\"#000000\" d=\"");
+        StringBuilder path = new StringBuilder(64);
+        for (int y = 0; y < grid.getHeight(); y++) {
+            int x = grid.nextSet(0, y);
+            while (x < grid.getWidth()) {
+                int end = grid.nextUnset(x, y);
+                int length = end - x;
+                path.setLength(0);
+                path.append('M').append(x + quietZone).append(' ').append(y + quietZone)
+                    .append('h').append(length).append("v1h-").append(length).append('z');
+                out.append(path);
+                x = grid.nextSet(end, y);
+            }
+        }
+        out.write("\"/>\n");
+
+        if (logoArea != null && logoHref != null) {
+            out.write("<image x=\"" + (logoArea.x + quietZone) + "\" y=\"" + (logoArea.y + quietZone)
+                    + "\" width=\"" + logoArea.width + "\" height=\"" + logoArea.height
+                    + "\" preserveAspectRatio=\"none\" xlink:href=\"");
+            out.write(logoHref);
+            out.write("\"/>\n");
+        }
+        out.write("</svg>\n");
+        out.flush();
+    }
+}
@@ -1,19 +1,39 @@
 package com.example.demo.service;
 
 // 引入 Spring 框架相關類別
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 // 引入 Java 加密相關類別
+import javax.crypto.AEADBadTagException;
+import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import java.security.KeyFactory;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.interfaces.RSAKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+
+// 引入 Java 標準庫相關類別
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.security.PrivateKey;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.nio.charset.StandardCharsets;
 
 /**
  * RSA-2048 加密服務
@@ -21,68 +41,167 @@ import java.nio.charset.StandardCharsets;
  * 1. 產生金鑰對
  * 2. 使用公鑰加密
  * 3. 使用私鑰解密
+ *
+ * 供只支援 RSA 的合作對象使用（{@link PayloadCipher#RSA_OAEP_2048}）。RSA-OAEP 單次最多只能加密 190 位元組，
+ * 因此採混合加密：每筆資料產生隨機的 ChaCha20-Poly1305 金鑰加密明文，再以 RSA-OAEP（SHA-256，MGF1 亦為 SHA-256）包裝此金鑰，
+ * 明文長度不受 RSA 金鑰長度限制
+ *
+ * 加密結果格式：[RSA-OAEP 包裝的金鑰(256 bytes) + nonce(12 bytes) + 加密資料 + tag(16 bytes)]
+ *
+ * 解析後的金鑰與 Cipher 分別由快取與 {@link CryptoPools} 重複使用，
+ * 但私鑰解密本身仍比 X25519 慢一個數量級以上，大量驗證時應優先使用 X25519
  */
 @Service
-public class RSA2048Service {
-    
+public class RSA2048Service implements PayloadCipher {
+
+    // 金鑰長度（位元），低於此長度的金鑰不接受
+    private static final int KEY_SIZE = 2048;
+
+    // OAEP 參數：雜湊與 MGF1 都使用 SHA-256
+    private static final OAEPParameterSpec OAEP_SHA256 = new OAEPParameterSpec(
+        "SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+
+    // 內層對稱加密參數：ChaCha20-Poly1305 金鑰、nonce 與 tag 長度
+    private static final int SYMMETRIC_KEY_SIZE = 32;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+
+    private static final int DEFAULT_KEY_CACHE_SIZE = 256;
+
+    // 已解析的金鑰快取（以 Base64 金鑰字串的指紋為鍵）
+    private final ParsedKeyCache<PublicKey> publicKeyCache;
+    private final ParsedKeyCache<PrivateKey> privateKeyCache;
+
+    public RSA2048Service() {
+        this(DEFAULT_KEY_CACHE_SIZE);
+    }
+
+    /**
+     * @param keyCacheSize 已解析金鑰快取上限
+     */
+    @Autowired
+    public RSA2048Service(@Value("${rsa.key-cache.max-size:256}") int keyCacheSize) {
+        this.publicKeyCache = new ParsedKeyCache<>(keyCacheSize, RSA2048Service::decodePublicKey);
+        this.privateKeyCache = new ParsedKeyCache<>(keyCacheSize, RSA2048Service::decodePrivateKey);
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return RSA_OAEP_2048;
+    }
+
+    @Override
+    public boolean supports(Key key) {
+        return key instanceof RSAKey;
+    }
+
+    /**
+     * 產生 RSA-2048 金鑰對物件（每組約需數十到數百毫秒，大量配發時請使用 {@link KeyProvisioningService}）
+     *
+     * @throws GeneralSecurityException 當金鑰產生失敗時拋出
+     */
+    @Override
+    public KeyPair newKeyPair() throws GeneralSecurityException {
+        // 初始化 RSA 金鑰產生器，設定金鑰長度為 2048 位元
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(KEY_SIZE, RandomSource.system().secureRandom());
+        return keyPairGenerator.generateKeyPair();
+    }
+
     /**
      * 產生 RSA-2048 金鑰對
      * 
      * @return 包含公鑰和私鑰的 Map，金鑰以 Base64 格式儲存
-     * @throws RuntimeException 當金鑰產生失敗時拋出
+     * @throws GeneralSecurityException 當金鑰產生失敗時拋出
      */
-    public Map<String, String> generateKeyPair() {
-        try {
-            // 初始化 RSA 金鑰產生器，設定金鑰長度為 2048 位元
-            java.security.KeyPairGenerator keyPairGenerator = java.security.KeyPairGenerator.getInstance("RSA");
-            keyPairGenerator.initialize(2048);
-            
-            // 產生金鑰對
-            java.security.KeyPair keyPair = keyPairGenerator.generateKeyPair();
-            
-            // 將金鑰轉換為 Base64 字串格式
-            String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
-            String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
-            
-            // 建立回傳結果
-            Map<String, String> result = new HashMap<>();
-            result.put("privateKey", privateKey);
-            result.put("publicKey", publicKey);
-            
-            return result;
-            
-        } catch (Exception e) {
-            throw new RuntimeException("RSA 金鑰對產生失敗", e);
-        }
+    @Override
+    public Map<String, String> generateKeyPairMap() throws GeneralSecurityException {
+        // 產生金鑰對
+        KeyPair keyPair = newKeyPair();
+
+        // 將金鑰轉換為 Base64 字串格式
+        Map<String, String> result = new HashMap<>();
+        result.put("privateKey", Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        result.put("publicKey", Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        return result;
     }
-    
+
+    /**
+     * 載入 Base64 編碼的 RSA 公鑰（優先使用已解析的快取）
+     *
+     * @param publicKeyBase64 Base64 編碼的公鑰（X.509 格式）
+     * @return 公鑰物件
+     * @throws GeneralSecurityException 當公鑰格式不正確或長度不足 2048 位元時拋出
+     */
+    @Override
+    public PublicKey parsePublicKey(String publicKeyBase64) throws GeneralSecurityException {
+        return publicKeyCache.get(publicKeyBase64);
+    }
+
+    /**
+     * 載入 Base64 編碼的 RSA 私鑰（優先使用已解析的快取）
+     *
+     * @param privateKeyBase64 Base64 編碼的私鑰（PKCS#8 格式）
+     * @return 私鑰物件
+     * @throws GeneralSecurityException 當私鑰格式不正確或長度不足 2048 位元時拋出
+     */
+    @Override
+    public PrivateKey parsePrivateKey(String privateKeyBase64) throws GeneralSecurityException {
+        return privateKeyCache.get(privateKeyBase64);
+    }
+
     /**
      * 使用 RSA 公鑰加密資料
      * 
      * @param data 要加密的資料
      * @param publicKeyStr Base64 格式的公鑰字串
      * @return 加密後的 Base64 字串
-     * @throws RuntimeException 當加密過程發生錯誤時拋出
+     * @throws GeneralSecurityException 當金鑰格式錯誤或加密失敗時拋出
      */
-    public String encrypt(String data, String publicKeyStr) {
+    @Override
+    public String encrypt(String data, String publicKeyStr) throws GeneralSecurityException {
+        return encrypt(data, parsePublicKey(publicKeyStr));
+    }
+
+    /**
+     * 使用已解析的 RSA 公鑰加密資料
+     *
+     * @param data 要加密的資料
+     * @param publicKey RSA 公鑰
+     * @return 加密後的 Base64 字串，格式見類別說明
+     * @throws GeneralSecurityException 當加密失敗時拋出
+     */
+    @Override
+    public String encrypt(String data, PublicKey publicKey) throws GeneralSecurityException {
+        byte[] plaintext = data.getBytes(StandardCharsets.UTF_8);
+        int wrappedLength = modulusLength(publicKey);
+
+        // 1. 產生這筆資料專用的對稱金鑰，並以 RSA-OAEP 包裝
+        RandomSource random = RandomSource.system();
+        byte[] keyBytes = new byte[SYMMETRIC_KEY_SIZE];
+        random.nextBytes(keyBytes);
+        byte[] output;
         try {
-            // 將 Base64 格式的公鑰轉換為 PublicKey 物件
-            byte[] publicKeyBytes = Base64.getDecoder().decode(publicKeyStr);
-            X509EncodedKeySpec keySpec = new X509EncodedKeySpec(publicKeyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            PublicKey publicKey = keyFactory.generatePublic(keySpec);
-            
-            // 初始化加密器並執行加密
-            Cipher cipher = Cipher.getInstance("RSA");
-            cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-            byte[] encryptedBytes = cipher.doFinal(data.getBytes());
-            
-            // 將加密結果轉換為 Base64 字串
-            return Base64.getEncoder().encodeToString(encryptedBytes);
-            
-        } catch (Exception e) {
-            throw new RuntimeException("RSA 加密失敗", e);
+            SecretKey dataKey = new SecretKeySpec(keyBytes, "ChaCha20");
+            byte[] wrappedKey = CryptoPools.RSA_OAEP.with(cipher -> {
+                cipher.init(Cipher.ENCRYPT_MODE, publicKey, OAEP_SHA256, random.secureRandom());
+                return cipher.doFinal(keyBytes);
+            });
+
+            // 2. 以 ChaCha20-Poly1305 加密明文，直接寫在包裝金鑰與 nonce 之後
+            byte[] nonce = random.nonce(NONCE_LENGTH);
+            output = new byte[wrappedLength + NONCE_LENGTH + plaintext.length + TAG_LENGTH];
+            System.arraycopy(wrappedKey, 0, output, 0, wrappedLength);
+            System.arraycopy(nonce, 0, output, wrappedLength, NONCE_LENGTH);
+            int offset = wrappedLength + NONCE_LENGTH;
+            CryptoPools.CHACHA20_POLY1305.with(cipher -> {
+                cipher.init(Cipher.ENCRYPT_MODE, dataKey, new IvParameterSpec(nonce));
+                return cipher.doFinal(plaintext, 0, plaintext.length, output, offset);
+            });
+        } finally {
+            Arrays.fill(keyBytes, (byte) 0);
         }
+        return Base64.getEncoder().encodeToString(output);
     }
 
     /**
@@ -94,29 +213,129 @@ public class RSA2048Service {
      * @throws Exception 當解密過程發生錯誤時拋出
      */
     public String decrypt(String encryptedData, String privateKey) throws Exception {
+        // 驗證輸入參數
+        if (privateKey == null || privateKey.trim().isEmpty()) {
+            throw new IllegalArgumentException("私鑰不能為空");
+        }
+        return decrypt(encryptedData, parsePrivateKey(privateKey));
+    }
+
+    /**
+     * 使用已解析的 RSA 私鑰解密資料
+     *
+     * @param encryptedData Base64 格式的加密資料
+     * @param privateKey RSA 私鑰
+     * @return 解密後的原始資料
+     * @throws GeneralSecurityException 當解密過程發生錯誤時拋出
+     * @throws SecurityException 當資料被竄改或金鑰不符時拋出
+     */
+    @Override
+    public String decrypt(String encryptedData, PrivateKey privateKey) throws GeneralSecurityException {
         // 驗證輸入參數
         if (encryptedData == null || encryptedData.trim().isEmpty()) {
             throw new IllegalArgumentException("加密資料不能為空");
         }
-        if (privateKey == null || privateKey.trim().isEmpty()) {
-            throw new IllegalArgumentException("私鑰不能為空");
+        byte[] encryptedBytes = Base64.getDecoder().decode(encryptedData);
+        int wrappedLength = modulusLength(privateKey);
+        if (encryptedBytes.length < wrappedLength + NONCE_LENGTH + TAG_LENGTH) {
+            throw new IllegalArgumentException("加密資料長度不足");
         }
 
-        // 將 Base64 格式的加密資料和私鑰轉換為位元組陣列
+        // 1. 以 RSA-OAEP 解開對稱金鑰
+        byte[] keyBytes;
+        try {
+            keyBytes = CryptoPools.RSA_OAEP.with(cipher -> {
+                cipher.init(Cipher.DECRYPT_MODE, privateKey, OAEP_SHA256);
+                return cipher.doFinal(encryptedBytes, 0, wrappedLength);
+            });
+        } catch (BadPaddingException e) {
+            throw new SecurityException("OAEP 驗證失敗：資料可能被竄改或金鑰不符", e);
+        }
+
+        // 2. 以 ChaCha20-Poly1305 解密並驗證明文
+        try {
+            if (keyBytes.length != SYMMETRIC_KEY_SIZE) {
+                throw new SecurityException("包裝的金鑰長度不正確");
+            }
+            SecretKey dataKey = new SecretKeySpec(keyBytes, "ChaCha20");
+            IvParameterSpec nonce = new IvParameterSpec(encryptedBytes, wrappedLength, NONCE_LENGTH);
+            int offset = wrappedLength + NONCE_LENGTH;
+            byte[] decryptedBytes = CryptoPools.CHACHA20_POLY1305.with(cipher -> {
+                cipher.init(Cipher.DECRYPT_MODE, dataKey, nonce);
+                return cipher.doFinal(encryptedBytes, offset, encryptedBytes.length - offset);
+            });
+            return new String(decryptedBytes, StandardCharsets.UTF_8);
+        } catch (AEADBadTagException e) {
+            throw new SecurityException("MAC 驗證失敗：資料可能被竄改", e);
+        } finally {
+            Arrays.fill(keyBytes, (byte) 0);
+        }
+    }
+
+    /**
+     * 取得加密資料中經 AEAD 驗證的部分（略過 RSA-OAEP 包裝的金鑰）
+     *
+     * @param encryptedData Base64 格式的加密資料
+     * @param privateKey RSA 私鑰（依模數長度決定包裝金鑰的長度）
+     * @return 指向 nonce + 密文 + tag 的緩衝區
+     * @throws InvalidKeyException 當私鑰不是 RSA 金鑰時拋出
+     * @throws IllegalArgumentException 當加密資料長度不足時拋出
+     */
+    @Override
+    public ByteBuffer authenticatedPart(String encryptedData, PrivateKey privateKey) throws InvalidKeyException {
         byte[] encryptedBytes = Base64.getDecoder().decode(encryptedData);
-        byte[] privateKeyBytes = Base64.getDecoder().decode(privateKey);
-        
-        // 將私鑰位元組陣列轉換為 PrivateKey 物件
-        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(privateKeyBytes);
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        PrivateKey rsaPrivateKey = keyFactory.generatePrivate(keySpec);
-        
-        // 初始化解密器並執行解密
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.DECRYPT_MODE, rsaPrivateKey);
-        
-        // 解密資料並轉換為字串
-        byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
-        return new String(decryptedBytes, StandardCharsets.UTF_8);
-    }
-} 
\ No newline at end of file
+        int wrappedLength = modulusLength(privateKey);
+        if (encryptedBytes.length < wrappedLength + NONCE_LENGTH + TAG_LENGTH) {
+            throw new IllegalArgumentException("加密資料長度不足");
+        }
+        return ByteBuffer.wrap(encryptedBytes, wrappedLength, encryptedBytes.length - wrappedLength).slice();
+    }
+
+    /**
+     * 取得已解析金鑰快取的統計資料
+     *
+     * @return 以 publicKeys、privateKeys 分組的統計資料
+     */
+    public Map<String, Map<String, Long>> getKeyCacheStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        stats.put("publicKeys", publicKeyCache.getStats());
+        stats.put("privateKeys", privateKeyCache.getStats());
+        return stats;
+    }
+
+    /**
+     * RSA-OAEP 包裝金鑰的長度（即模數長度，2048 位元金鑰為 256 位元組）
+     */
+    private static int modulusLength(Key key) throws InvalidKeyException {
+        if (!(key instanceof RSAKey)) {
+            throw new InvalidKeyException("不是 RSA 金鑰");
+        }
+        return (((RSAKey) key).getModulus().bitLength() + 7) / 8;
+    }
+
+    /**
+     * Base64 解碼並以 KeyFactory 解析 X.509 格式公鑰
+     */
+    private static PublicKey decodePublicKey(String publicKeyBase64) throws GeneralSecurityException {
+        byte[] encoded = Base64.getDecoder().decode(publicKeyBase64);
+        return checkKeySize(CryptoPools.RSA_KEY_FACTORY.with(kf -> kf.generatePublic(new X509EncodedKeySpec(encoded))));
+    }
+
+    /**
+     * Base64 解碼並以 KeyFactory 解析 PKCS#8 格式私鑰
+     */
+    private static PrivateKey decodePrivateKey(String privateKeyBase64) throws GeneralSecurityException {
+        byte[] encoded = Base64.getDecoder().decode(privateKeyBase64);
+        return checkKeySize(CryptoPools.RSA_KEY_FACTORY.with(kf -> kf.generatePrivate(new PKCS8EncodedKeySpec(encoded))));
+    }
+
+    /**
+     * 拒絕長度不足 2048 位元的金鑰
+     */
+    private static <K extends Key> K checkKeySize(K key) throws InvalidKeyException {
+        if (((RSAKey) key).getModulus().bitLength() < KEY_SIZE) {
+            throw new InvalidKeyException("RSA 金鑰長度不足 " + KEY_SIZE + " 位元");
+        }
+        return key;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.demo.service;
+
+// 引入 Java 加密相關類別
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.SecureRandomParameters;
+import java.security.SecureRandomSpi;
+
+// 引入 Java 標準庫相關類別
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 各服務共用的隨機數來源（nonce、臨時金鑰與 TOTP/HMAC 金鑰）
+ *
+ * 1. 一般模式：依執行緒分散到多個 DRBG（Hash_DRBG，256 位元強度），各自由作業系統熵源播種，
+ *    多核心同時加密時不會集中在同一個 SecureRandom 的鎖或 /dev/urandom 讀取上
+ * 2. 固定種子模式：只供測試使用，同一個種子在單一執行緒下產生相同的序列
+ *
+ * DRBG 數量與 CPU 核心數相當，以執行緒 ID 選擇，而不是每個執行緒各建立一個：
+ * 虛擬執行緒數量可能很多，每個都向作業系統取種子反而更慢
+ *
+ * {@link #secureRandom()} 提供同一個來源的 SecureRandom 介面，可直接交給 KeyPairGenerator、KeyGenerator 等 JCA 元件
+ */
+public final class RandomSource {
+
+    // 系統共用的隨機數來源
+    private static final RandomSource SYSTEM = new RandomSource(createSystemStripes(systemStripeCount()));
+
+    private final SecureRandom[] stripes;
+    private final int mask;
+    private final SecureRandom secureRandom;
+
+    private RandomSource(SecureRandom[] stripes) {
+        this.stripes = stripes;
+        this.mask = stripes.length - 1;
+        this.secureRandom = new StripedSecureRandom(this);
+    }
+
+    /**
+     * 取得系統共用的隨機數來源（由作業系統熵源播種）
+     */
+    public static RandomSource system() {
+        return SYSTEM;
+    }
+
+    /**
+     * 建立指定 DRBG 數量的隨機數來源（供測試驗證執行緒分散使用）
+     *
+     * @param count DRBG 數量（2 的次方）
+     */
+    static RandomSource striped(int count) {
+        if (count < 1 || Integer.bitCount(count) != 1) {
+            throw new IllegalArgumentException("DRBG 數量必須為 2 的次方");
+        }
+        return new RandomSource(createSystemStripes(count));
+    }
+
+    /**
+     * 建立固定種子的隨機數來源（僅供測試使用，不可用於正式環境的金鑰或 nonce）
+     *
+     * @param seed 種子
+     * @return 同一個種子在單一執行緒下產生相同序列的隨機數來源
+     */
+    public static RandomSource deterministic(long seed) {
+        try {
+            // SHA1PRNG 在第一次取值前設定種子時，輸出完全由種子決定
+            SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+            random.setSeed(ByteBuffer.allocate(Long.BYTES).putLong(seed).array());
+            return new RandomSource(new SecureRandom[] {random});
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("不支援 SHA1PRNG", e);
+        }
+    }
+
+    /**
+     * 以隨機位元組填滿陣列
+     */
+    public void nextBytes(byte[] bytes) {
+        stripe().nextBytes(bytes);
+    }
+
+    /**
+     * 產生指定長度的隨機 nonce
+     *
+     * @param length nonce 長度（位元組）
+     * @return 隨機 nonce
+     */
+    public byte[] nonce(int length) {
+        byte[] nonce = new byte[length];
+        nextBytes(nonce);
+        return nonce;
+    }
+
+    /**
+     * 取得以此來源產生隨機數的 SecureRandom（可由多個執行緒共用）
+     */
+    public SecureRandom secureRandom() {
+        return secureRandom;
+    }
+
+    /**
+     * 依目前執行緒選擇 DRBG
+     */
+    SecureRandom stripe() {
+        return stripes[(int) Thread.currentThread().getId() & mask];
+    }
+
+    /**
+     * 與 CPU 核心數相當的 DRBG 數量（2 的次方）
+     */
+    private static int systemStripeCount() {
+        return Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+    }
+
+    /**
+     * 建立指定數量的 DRBG，各自以不同的個人化字串區分
+     */
+    private static SecureRandom[] createSystemStripes(int count) {
+        SecureRandom[] stripes = new SecureRandom[count];
+        for (int i = 0; i < count; i++) {
+            byte[] personalization = ("reverseqr-random-" + i).getBytes(StandardCharsets.UTF_8);
+            try {
+                stripes[i] = SecureRandom.getInstance("DRBG",
+                    DrbgParameters.instantiation(256, DrbgParameters.Capability.RESEED_ONLY, personalization));
+            } catch (NoSuchAlgorithmException e) {
+                // 加密提供者沒有 DRBG 時改用預設實作
+                stripes[i] = new SecureRandom();
+            }
+        }
+        return stripes;
+    }
+
+    /**
+     * 將 SecureRandom 的呼叫轉給目前執行緒對應的 DRBG
+     * 覆寫所有取值與重新播種的方法（含 SecureRandomParameters 版本），不經過 SecureRandom 本身的同步，
+     * 也不會落到不支援任何操作的 SPI
+     */
+    private static final class StripedSecureRandom extends SecureRandom {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient RandomSource source;
+
+        private StripedSecureRandom(RandomSource source) {
+            super(new UnsupportedSpi(), null);
+            this.source = source;
+        }
+
+        @Override
+        public void nextBytes(byte[] bytes) {
+            source.nextBytes(bytes);
+        }
+
+        @Override
+        public void nextBytes(byte[] bytes, SecureRandomParameters params) {
+            source.stripe().nextBytes(bytes, params);
+        }
+
+        @Override
+        public byte[] generateSeed(int numBytes) {
+            return source.stripe().generateSeed(numBytes);
+        }
+
+        @Override
+        public void reseed() {
+            source.stripe().reseed();
+        }
+
+        @Override
+        public void reseed(SecureRandomParameters params) {
+            source.stripe().reseed(params);
+        }
+
+        @Override
+        public SecureRandomParameters getParameters() {
+            return source.stripe().getParameters();
+        }
+
+        @Override
+        public void setSeed(byte[] seed) {
+            // 種子由各 DRBG 自行管理
+        }
+
+        @Override
+        public void setSeed(long seed) {
+            // Random 的建構子會呼叫此方法，種子由各 DRBG 自行管理
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return source.stripes[0].getAlgorithm();
+        }
+
+        @Override
+        public String toString() {
+            return "RandomSource[" + source.stripes.length + " x " + getAlgorithm() + "]";
+        }
+    }
+
+    /**
+     * StripedSecureRandom 已覆寫所有取值方法，不會呼叫到此 SPI
+     */
+    private static final class UnsupportedSpi extends SecureRandomSpi {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void engineSetSeed(byte[] seed) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void engineNextBytes(byte[] bytes) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected byte[] engineGenerateSeed(int numBytes) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.demo.service;
+
+// 引入 Spring 框架相關類別
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+// 引入 Java 加密相關類別
+import java.security.GeneralSecurityException;
+
+// 引入 Java 標準庫相關類別
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 已驗證 QR Code 的重複使用檢查
+ * 記錄驗證通過的 QR Code 密文指紋（SHA-256 的前 8 位元組），在 TOTP 碼失效前再次出現時拒絕
+ *
+ * 以時間輪（timing wheel）保存指紋，每個 TOTP 時間區間一個桶：
+ * 1. 驗證通過時寫入目前時間區間的桶，並檢查仍在保留期間內的其他桶
+ * 2. 指紋需保留的時間區間數與 TOTP 碼的有效區間數相同（{@link TOTPService#getValidSteps()}），
+ *    超過保留期間的桶在下一次輪到時整個清空，記憶體上限為「桶容量 × 桶數」
+ * 3. 每個桶是固定大小、以 CAS 寫入的開放定址雜湊表，不使用鎖；
+ *    同一個指紋同時寫入時只有一個執行緒成功，其餘視為重複使用
+ * 4. 桶中找不到空位時（超過容量或探測次數上限）視為已滿，呼叫端應拒絕驗證，而不是放行無法記錄的 QR Code
+ */
+@Service
+public class ReplayGuard {
+
+    /**
+     * 檢查結果
+     */
+    public enum Result {
+        /** 第一次出現，已記錄 */
+        FIRST_SEEN,
+        /** 保留期間內已出現過 */
+        REPLAYED,
+        /** 目前時間區間的桶已滿，無法記錄 */
+        FULL
+    }
+
+    // 預設每個桶的容量（指紋數）
+    private static final int DEFAULT_BUCKET_CAPACITY = 1 << 18;
+
+    // 開放定址的探測次數上限
+    private static final int MAX_PROBES = 32;
+
+    // 空位與清空中的標記
+    private static final long EMPTY = 0L;
+    private static final long CLEARING = Long.MIN_VALUE;
+
+    private final LongSupplier timeStep;
+    private final int retainedSteps;
+    private final int bucketCapacity;
+    private final Bucket[] wheel;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    @Autowired
+    public ReplayGuard(TOTPService totpService,
+                       @Value("${replay.bucket-capacity:262144}") int bucketCapacity) {
+        this(totpService::currentTimeStep, totpService.getValidSteps(), bucketCapacity);
+    }
+
+    public ReplayGuard(TOTPService totpService) {
+        this(totpService, DEFAULT_BUCKET_CAPACITY);
+    }
+
+    /**
+     * @param timeStep 目前的時間區間
+     * @param retainedSteps 指紋需保留的時間區間數
+     * @param bucketCapacity 每個桶的容量（進位為 2 的次方）
+     */
+    ReplayGuard(LongSupplier timeStep, int retainedSteps, int bucketCapacity) {
+        if (retainedSteps < 1 || bucketCapacity < 1 || bucketCapacity > 1 << 30) {
+            throw new IllegalArgumentException("重複使用檢查的設定不正確");
+        }
+        this.timeStep = timeStep;
+        this.retainedSteps = retainedSteps;
+        this.bucketCapacity = Math.max(MAX_PROBES, Integer.highestOneBit(bucketCapacity - 1) << 1);
+        // 多一個桶，供下一個時間區間事先清空
+        this.wheel = new Bucket[retainedSteps + 1];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket(this.bucketCapacity);
+        }
+    }
+
+    /**
+     * 計算 QR Code 密文的指紋
+     *
+     * @param data 密文
+     * @return 不為 0 的 64 位元指紋
+     */
+    public static long fingerprint(byte[] data) {
+        return fingerprint(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * 計算 QR Code 密文的指紋（不改變 data 的 position）
+     * 應傳入解碼後經 AEAD 驗證的部分（nonce + 密文 + tag，見 {@link PayloadCipher#authenticatedPart}），
+     * 不可使用 Base64 字串或臨時公鑰：同一筆密文有多種寫法都能解密（例如省略 Base64 補位、改變公鑰最高位元）
+     *
+     * @param data 密文（position 到 limit）
+     * @return 不為 0 的 64 位元指紋
+     */
+    public static long fingerprint(ByteBuffer data) {
+        byte[] hash;
+        try {
+            hash = CryptoPools.SHA256.with(digest -> {
+                digest.update(data.duplicate());
+                return digest.digest();
+            });
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("不支援 SHA-256", e);
+        }
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (hash[i] & 0xff);
+        }
+        return value == EMPTY ? 1 : value;
+    }
+
+    /**
+     * 記錄指紋並檢查是否在保留期間內出現過
+     *
+     * @param fingerprint {@link #fingerprint(byte[])} 計算的指紋
+     * @return 檢查結果
+     */
+    public Result check(long fingerprint) {
+        long step = timeStep.getAsLong();
+        Bucket current = prepare(step);
+        // 事先清空下一個時間區間的桶：清空仍由請求執行緒進行，但由此時間區間內第一個驗證的請求負責，
+        // 跨過邊界後的請求不需要等待清空
+        prepare(step + 1);
+
+        Result result = current.insert(fingerprint);
+        if (result == Result.FIRST_SEEN && seenInOtherBuckets(step, fingerprint)) {
+            result = Result.REPLAYED;
+        }
+        switch (result) {
+            case FIRST_SEEN -> accepted.increment();
+            case REPLAYED -> replays.increment();
+            default -> overflows.increment();
+        }
+        return result;
+    }
+
+    /**
+     * 檢查保留期間內較早的桶，以及下一個時間區間的桶
+     * 先寫入再檢查：跨過邊界時分別寫入相鄰兩個桶的執行緒，至少有一方會看到另一方的指紋
+     * （極少數情形下兩方都看到而都拒絕，寧可拒絕也不讓同一個 QR Code 通過兩次）
+     */
+    private boolean seenInOtherBuckets(long step, long fingerprint) {
+        for (long other = step - retainedSteps + 1; other <= step + 1; other++) {
+            if (other == step) {
+                continue;
+            }
+            Bucket bucket = bucket(other);
+            if (bucket.step.get() == other && bucket.contains(fingerprint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 取得指定時間區間的桶；桶仍屬於較早的時間區間時清空後改為此時間區間
+     */
+    private Bucket prepare(long step) {
+        Bucket bucket = bucket(step);
+        while (true) {
+            long owner = bucket.step.get();
+            if (owner >= step) {
+                return bucket;
+            }
+            if (owner == CLEARING) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (bucket.claim(owner)) {
+                bucket.clear(step);
+                rotations.increment();
+                return bucket;
+            }
+        }
+    }
+
+    private Bucket bucket(long step) {
+        return wheel[(int) Math.floorMod(step, (long) wheel.length)];
+    }
+
+    /**
+     * 重複使用檢查統計：保留中的指紋數、容量、通過、重複使用與已滿而拒絕的次數、清空桶的次數
+     */
+    public Map<String, Long> getStats() {
+        long step = timeStep.getAsLong();
+        long occupancy = 0;
+        for (int back = 0; back < retainedSteps; back++) {
+            Bucket bucket = bucket(step - back);
+            if (bucket.step.get() == step - back) {
+                occupancy += bucket.size.sum();
+            }
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("occupancy", occupancy);
+        stats.put("capacity", (long) bucketCapacity * retainedSteps);
+        stats.put("retainedSteps", (long) retainedSteps);
+        stats.put("accepted", accepted.sum());
+        stats.put("replaysRejected", replays.sum());
+        stats.put("overflows", overflows.sum());
+        stats.put("rotations", rotations.sum());
+        return stats;
+    }
+
+    /**
+     * 時間輪中的一個桶：固定大小的開放定址雜湊表（線性探測），以 CAS 寫入
+     */
+    private static final class Bucket {
+
+        private final AtomicLongArray slots;
+        private final int mask;
+        private final LongAdder size = new LongAdder();
+
+        // 目前所屬的時間區間；清空中為 CLEARING
+        private final AtomicLong step = new AtomicLong(Long.MIN_VALUE + 1);
+
+        private Bucket(int capacity) {
+            this.slots = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+        }
+
+        private Result insert(long fingerprint) {
+            int index = (int) fingerprint & mask;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int slot = (index + probe) & mask;
+                long value = slots.get(slot);
+                if (value == fingerprint) {
+                    return Result.REPLAYED;
+                }
+                if (value == EMPTY) {
+                    if (slots.compareAndSet(slot, EMPTY, fingerprint)) {
+                        size.increment();
+                        return Result.FIRST_SEEN;
+                    }
+                    // 其他執行緒搶先寫入此位置，可能是同一個指紋
+                    if (slots.get(slot) == fingerprint) {
+                        return Result.REPLAYED;
+                    }
+                }
+            }
+            return Result.FULL;
+        }
+
+        private boolean contains(long fingerprint) {
+            int index = (int) fingerprint & mask;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                long value = slots.get((index + probe) & mask);
+                if (value == fingerprint) {
+                    return true;
+                }
+                if (value == EMPTY) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        private boolean claim(long owner) {
+            return step.compareAndSet(owner, CLEARING);
+        }
+
+        /**
+         * 清空後改為新的時間區間；step 的寫入讓其他執行緒看到清空後的內容
+         */
+        private void clear(long newStep) {
+            for (int i = 0; i < slots.length(); i++) {
+                slots.setPlain(i, EMPTY);
+            }
+            size.reset();
+            step.set(newStep);
+        }
+    }
+}
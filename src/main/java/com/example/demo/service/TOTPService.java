@@ -1,17 +1,16 @@
 package com.example.demo.service;
 
 // 引入 Spring 框架相關類別
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 // 引入 Java 加密相關類別
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
-import java.nio.ByteBuffer;
-import java.security.InvalidKeyException;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
-import java.time.Instant;
+import java.time.Clock;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
@@ -31,6 +30,12 @@ import java.util.Map;
  * - 提供 6 位數的 TOTP 碼
  * - 預設 60 秒的有效時間
  * - 允許前後 30 秒的時間偏移
+ * 
+ * 計算與驗證由 {@link TotpEngine} 負責；呼叫端已有解碼後的金鑰時，
+ * 應使用 {@link #verifyTOTP(String, SecretKey)}，省去每次解碼 Base64
+ * 
+ * 同一把金鑰在同一個時間區間內的 TOTP 碼由 {@link TotpCodeCache} 快取，
+ * 產生與驗證在同一個時間區間內只需要查表
  */
 @Service
 public class TOTPService {
@@ -41,6 +46,40 @@ public class TOTPService {
     /** 時間偏移量為 30 秒，用於處理時間同步問題 */
     private static final int TIME_OFFSET = 30;
     
+    /** 驗證時前後允許的時間窗口數 */
+    private static final int TIME_WINDOW = 1;
+    
+    /** 預設快取 TOTP 碼的金鑰數量上限 */
+    private static final int DEFAULT_CODE_CACHE_SIZE = 4096;
+    
+    /** TOTP 計算核心 */
+    private final TotpEngine engine;
+    
+    /** 依金鑰與時間區間快取的 TOTP 碼 */
+    private final TotpCodeCache codeCache;
+    
+    public TOTPService() {
+        this(Clock.systemUTC());
+    }
+    
+    public TOTPService(Clock clock) {
+        this(clock, DEFAULT_CODE_CACHE_SIZE);
+    }
+    
+    @Autowired
+    public TOTPService(@Value("${totp.code-cache.max-size:4096}") int codeCacheSize) {
+        this(Clock.systemUTC(), codeCacheSize);
+    }
+    
+    /**
+     * @param clock 時間來源（測試時可傳入固定時間）
+     * @param codeCacheSize 快取 TOTP 碼的金鑰數量上限
+     */
+    public TOTPService(Clock clock, int codeCacheSize) {
+        this.engine = new TotpEngine(clock, TOTP_PERIOD, TIME_OFFSET, TIME_WINDOW);
+        this.codeCache = new TotpCodeCache(engine, codeCacheSize);
+    }
+    
     /**
      * 產生 TOTP 金鑰
      * 
@@ -51,7 +90,7 @@ public class TOTPService {
         try {
             // 初始化 HMAC-SHA256 金鑰產生器
             KeyGenerator keyGenerator = KeyGenerator.getInstance("HmacSHA256");
-            keyGenerator.init(256);
+            keyGenerator.init(256, RandomSource.system().secureRandom());
             
             // 產生金鑰
             SecretKey secretKey = keyGenerator.generateKey();
@@ -77,15 +116,25 @@ public class TOTPService {
      */
     public boolean verifyTOTP(String totpCode, String secretKey) {
         try {
-            // 驗證前一個時間窗口、當前時間窗口和後一個時間窗口的 TOTP
-            for (int i = -1; i <= 1; i++) {
-                String currentTOTP = generateTOTP(secretKey, i);
-                // 比對是否相同
-                if (totpCode.equals(currentTOTP)) {
-                    return true;
-                }
-            }
+            return verifyTOTP(totpCode, TotpEngine.decodeKey(secretKey));
+        } catch (Exception e) {
             return false;
+        }
+    }
+
+    /**
+     * 以已解碼的金鑰驗證 TOTP 碼（前一個、目前與後一個時間窗口皆視為有效）
+     * 
+     * @param totpCode 要驗證的 TOTP 碼
+     * @param secretKey 已解碼的 TOTP 金鑰（例如 {@link KeyringEntry#getTotpSecretKey()}）
+     * @return 如果 TOTP 碼有效則回傳 true，否則回傳 false
+     */
+    public boolean verifyTOTP(String totpCode, SecretKey secretKey) {
+        if (secretKey == null) {
+            return false;
+        }
+        try {
+            return codeCache.verify(secretKey, totpCode);
         } catch (Exception e) {
             return false;
         }
@@ -101,42 +150,13 @@ public class TOTPService {
      */
     public String generateTOTP(String secretKey, int timeOffset) {
         try {
-            // 取得當前時間戳記（秒）
-            long currentTime = Instant.now().getEpochSecond();
-            
-            // 計算 TOTP 時間區間，加入時間偏移量
-            long timeStep = (currentTime + TIME_OFFSET) / TOTP_PERIOD + timeOffset;
-            
-            // 將時間區間轉換為位元組陣列
-            byte[] timeBytes = ByteBuffer.allocate(8).putLong(timeStep).array();
-            
-            // 解碼 Base64 格式的金鑰
-            byte[] keyBytes = Base64.getDecoder().decode(secretKey);
-            
-            // 初始化 HMAC-SHA256 演算法
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "HmacSHA256");
-            mac.init(keySpec);
-            
-            // 計算 HMAC 值
-            byte[] hash = mac.doFinal(timeBytes);
-            
-            // 取得偏移量（使用最後一個位元組的低 4 位）
-            int offset = hash[hash.length - 1] & 0xf;
-            
-            // 計算 6 位數的 TOTP
-            int binary = ((hash[offset] & 0x7f) << 24) |
-                        ((hash[offset + 1] & 0xff) << 16) |
-                        ((hash[offset + 2] & 0xff) << 8) |
-                        (hash[offset + 3] & 0xff);
-            
-            // 取模得到 6 位數
-            int otp = binary % 1000000;
-            
-            // 轉換為 6 位數的字串，不足補 0
-            return String.format("%06d", otp);
-            
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            SecretKey key = TotpEngine.decodeKey(secretKey);
+            // 驗證窗口內的時間區間直接使用快取，與驗證端共用同一份計算結果
+            int code = Math.abs(timeOffset) <= TIME_WINDOW
+                ? codeCache.code(key, timeOffset)
+                : engine.generate(key, timeOffset);
+            return TotpEngine.format(code);
+        } catch (GeneralSecurityException e) {
             throw new RuntimeException("TOTP 產生失敗", e);
         }
     }
@@ -151,4 +171,31 @@ public class TOTPService {
     public String generateTOTP(String secretKey) {
         return generateTOTP(secretKey, 0);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 取得目前的 TOTP 時間區間
+     * 
+     * @return 時間區間序號
+     */
+    public long currentTimeStep() {
+        return engine.currentTimeStep();
+    }
+    
+    /**
+     * 取得一個 TOTP 碼從產生到失效所跨越的時間區間數（驗證時前後各允許一個時間窗口，共 3 個）
+     * 
+     * @return 時間區間數
+     */
+    public int getValidSteps() {
+        return 2 * TIME_WINDOW + 1;
+    }
+    
+    /**
+     * 取得 TOTP 碼快取統計
+     * 
+     * @return 金鑰數量、上限、命中、未命中、實際計算的 HMAC 次數與移除次數
+     */
+    public Map<String, Long> getCodeCacheStats() {
+        return codeCache.getStats();
+    }
+}
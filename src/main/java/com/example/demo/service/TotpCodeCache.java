@@ -0,0 +1,227 @@
+package com.example.demo.service;
+
+// 引入 Java 加密相關類別
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+
+// 引入 Java 標準庫相關類別
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 依金鑰與時間區間快取的 TOTP 碼
+ * 每把金鑰保存目前時間區間前後各 window 個窗口的 TOTP 碼，同一個時間區間內的產生與驗證都只是查表
+ *
+ * 1. 時間區間改變後第一次使用該金鑰時才更新（延遲更新）；與前一個窗口重疊的碼直接沿用，
+ *    一般情形下每把金鑰每個時間區間只需要計算一次 HMAC
+ * 2. 每把金鑰只保存一個時間區間的碼，舊的時間區間自動被取代；
+ *    跨過時間區間邊界後由第一個呼叫的執行緒移除上一個時間區間之後都沒有使用過的金鑰
+ * 3. 超過上限時移除最久未使用的金鑰
+ *
+ * 以 SecretKey 為鍵（SecretKeySpec 以金鑰內容比對），同一把金鑰由不同來源解碼也會命中同一個項目
+ */
+final class TotpCodeCache {
+
+    private final TotpEngine engine;
+    private final int window;
+    private final int maxSize;
+    private final ConcurrentHashMap<SecretKey, Entry> entries = new ConcurrentHashMap<>();
+
+    // 最近使用順序的計數器
+    private final AtomicLong clock = new AtomicLong();
+
+    // 上一次清除閒置金鑰時的時間區間
+    private final AtomicLong sweptStep = new AtomicLong(Long.MIN_VALUE);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param engine TOTP 計算核心（提供時間區間與窗口數）
+     * @param maxSize 快取的金鑰數量上限
+     */
+    TotpCodeCache(TotpEngine engine, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("TOTP 快取上限必須大於 0");
+        }
+        this.engine = engine;
+        this.window = engine.getWindow();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 取得目前時間區間（加上偏移）的 TOTP 碼
+     *
+     * @param key TOTP 金鑰
+     * @param stepOffset 時間區間偏移，必須在 -window 到 +window 之間
+     * @return 0 到 999999 之間的 TOTP 碼
+     * @throws GeneralSecurityException 當金鑰無法初始化 Mac 時拋出
+     */
+    int code(SecretKey key, int stepOffset) throws GeneralSecurityException {
+        if (stepOffset < -window || stepOffset > window) {
+            throw new IllegalArgumentException("時間區間偏移超出快取範圍");
+        }
+        return codes(key).codes[stepOffset + window];
+    }
+
+    /**
+     * 驗證 TOTP 碼，比對方式與 {@link TotpEngine#verify(SecretKey, CharSequence)} 相同（不分支比對所有窗口）
+     *
+     * @param key TOTP 金鑰
+     * @param code 要驗證的 TOTP 碼
+     * @return 有效時回傳 true
+     * @throws GeneralSecurityException 當金鑰無法初始化 Mac 時拋出
+     */
+    boolean verify(SecretKey key, CharSequence code) throws GeneralSecurityException {
+        int candidate = TotpEngine.parse(code);
+        if (candidate < 0) {
+            return false;
+        }
+        int[] expected = codes(key).codes;
+        int matched = 0;
+        for (int value : expected) {
+            matched |= TotpEngine.equal(value, candidate);
+        }
+        return matched != 0;
+    }
+
+    /**
+     * 取得目前時間區間的窗口，沒有或已過期時重新計算
+     */
+    private Window codes(SecretKey key) throws GeneralSecurityException {
+        long step = engine.currentTimeStep();
+        sweepIfNeeded(step);
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry created = new Entry();
+            created.lastUsed = clock.incrementAndGet();
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+                evictIfNeeded();
+            }
+        }
+        entry.lastUsed = clock.incrementAndGet();
+
+        Window current = entry.window;
+        if (current != null && current.step == step) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        Window refreshed = refresh(key, current, step);
+        // 多個執行緒同時更新時計算結果相同，保留時間區間較新的一份
+        Window latest = entry.window;
+        if (latest == null || latest.step < step) {
+            entry.window = refreshed;
+        }
+        return refreshed;
+    }
+
+    /**
+     * 計算新時間區間的窗口；與舊窗口重疊的時間區間直接沿用
+     */
+    private Window refresh(SecretKey key, Window previous, long step) throws GeneralSecurityException {
+        int[] codes = new int[2 * window + 1];
+        Mac mac = null;
+        try {
+            for (int i = 0; i < codes.length; i++) {
+                long target = step - window + i;
+                long reuseIndex = previous == null ? -1 : target - (previous.step - window);
+                if (reuseIndex >= 0 && reuseIndex < codes.length) {
+                    codes[i] = previous.codes[(int) reuseIndex];
+                    continue;
+                }
+                if (mac == null) {
+                    mac = CryptoPools.HMAC_SHA256.acquire();
+                    mac.init(key);
+                }
+                codes[i] = TotpEngine.generate(mac, target);
+                refreshes.increment();
+            }
+        } finally {
+            if (mac != null) {
+                CryptoPools.HMAC_SHA256.release(mac);
+            }
+        }
+        return new Window(step, codes);
+    }
+
+    /**
+     * 跨過時間區間邊界時，移除上一個時間區間之後都沒有使用過的金鑰（只由一個執行緒執行）
+     */
+    private void sweepIfNeeded(long step) {
+        long swept = sweptStep.get();
+        if (swept >= step || !sweptStep.compareAndSet(swept, step)) {
+            return;
+        }
+        entries.forEach((key, entry) -> {
+            Window current = entry.window;
+            if (current != null && current.step < step - 1 && entries.remove(key, entry)) {
+                evictions.increment();
+            }
+        });
+    }
+
+    /**
+     * 超過上限時移除最久未使用的金鑰（只在新增金鑰時執行）
+     */
+    private void evictIfNeeded() {
+        while (entries.size() > maxSize) {
+            Map.Entry<SecretKey, Entry> eldest = null;
+            for (Map.Entry<SecretKey, Entry> candidate : entries.entrySet()) {
+                if (eldest == null || candidate.getValue().lastUsed < eldest.getValue().lastUsed) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * 快取統計：金鑰數量、上限、命中、未命中、實際計算的 HMAC 次數與移除次數
+     */
+    Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) entries.size());
+        stats.put("maxSize", (long) maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("computed", refreshes.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * 一個時間區間的 TOTP 碼（索引 0 為 step - window），建立後不再變動
+     */
+    private static final class Window {
+        private final long step;
+        private final int[] codes;
+
+        private Window(long step, int[] codes) {
+            this.step = step;
+            this.codes = codes;
+        }
+    }
+
+    /**
+     * 快取項目：第一次計算完成前 window 為 null
+     */
+    private static final class Entry {
+        private volatile Window window;
+        private volatile long lastUsed;
+    }
+}
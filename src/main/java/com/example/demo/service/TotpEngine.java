@@ -0,0 +1,205 @@
+package com.example.demo.service;
+
+// 引入 Java 加密相關類別
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+
+// 引入 Java 標準庫相關類別
+import java.time.Clock;
+import java.util.Base64;
+
+/**
+ * TOTP 碼的計算與驗證核心（HMAC-SHA256，6 位數）
+ *
+ * 1. 金鑰在呼叫前就已解碼為 SecretKey（例如 {@link KeyringEntry} 建立時），計算時不再解碼 Base64
+ * 2. Mac 由 {@link CryptoPools#HMAC_SHA256} 取得；驗證時只 init 一次，三個時間窗口共用同一個 Mac
+ *    （doFinal 之後 Mac 會回到 init 後的狀態，可直接計算下一個窗口）
+ * 3. 時間區間以 update(byte) 逐一寫入、HMAC 值寫入執行緒各自的緩衝區，截斷結果為 int，
+ *    只有在需要字串時才補零轉換，不經過 String.format
+ * 4. 驗證時候選碼只解析一次為 int，三個窗口全部計算並以不分支的方式比對，
+ *    比對時間不會因為符合哪一個窗口（或都不符合）而不同
+ *
+ * 時間區間為 (目前秒數 + skewSeconds) / periodSeconds，時間來源可注入，測試時可固定時間
+ * 物件建立後不再變動，可由多個執行緒共用
+ */
+public final class TotpEngine {
+
+    /** TOTP 碼位數 */
+    public static final int DIGITS = 6;
+
+    private static final int MODULUS = 1_000_000;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    // 每個執行緒重複使用的 HMAC 輸出緩衝區
+    private static final ThreadLocal<byte[]> HASH_BUFFERS = ThreadLocal.withInitial(() -> new byte[32]);
+
+    private final Clock clock;
+    private final int periodSeconds;
+    private final int skewSeconds;
+    private final int window;
+
+    /**
+     * @param clock 時間來源
+     * @param periodSeconds 每個時間區間的秒數
+     * @param skewSeconds 計算時間區間前加上的秒數（讓區間邊界落在兩次整分之間）
+     * @param window 驗證時前後允許的時間區間數
+     */
+    public TotpEngine(Clock clock, int periodSeconds, int skewSeconds, int window) {
+        if (periodSeconds < 1 || window < 0) {
+            throw new IllegalArgumentException("TOTP 參數設定不正確");
+        }
+        this.clock = clock;
+        this.periodSeconds = periodSeconds;
+        this.skewSeconds = skewSeconds;
+        this.window = window;
+    }
+
+    /**
+     * 將 Base64 格式的 TOTP 金鑰解碼為 SecretKey
+     *
+     * @param base64Key Base64 格式的 TOTP 金鑰
+     * @return HMAC-SHA256 金鑰
+     * @throws IllegalArgumentException 當金鑰不是有效的 Base64 或為空時拋出
+     */
+    public static SecretKey decodeKey(String base64Key) {
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        return new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
+
+    /**
+     * 取得目前的時間區間
+     */
+    public long currentTimeStep() {
+        return Math.floorDiv(clock.instant().getEpochSecond() + skewSeconds, periodSeconds);
+    }
+
+    /**
+     * 取得驗證時前後允許的時間區間數
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * 計算目前時間區間（加上偏移）的 TOTP 碼
+     *
+     * @param key TOTP 金鑰
+     * @param stepOffset 時間區間偏移（-1 為前一個窗口，0 為目前窗口，+1 為後一個窗口）
+     * @return 0 到 999999 之間的 TOTP 碼
+     * @throws GeneralSecurityException 當金鑰無法初始化 Mac 時拋出
+     */
+    public int generate(SecretKey key, int stepOffset) throws GeneralSecurityException {
+        Mac mac = CryptoPools.HMAC_SHA256.acquire();
+        try {
+            mac.init(key);
+            return generate(mac, currentTimeStep() + stepOffset);
+        } finally {
+            CryptoPools.HMAC_SHA256.release(mac);
+        }
+    }
+
+    /**
+     * 以已用 TOTP 金鑰初始化的 Mac 計算指定時間區間的 TOTP 碼
+     * 計算後 Mac 會回到 init 後的狀態，可繼續計算其他時間區間
+     *
+     * @param mac 已初始化的 HMAC-SHA256
+     * @param timeStep 時間區間
+     * @return 0 到 999999 之間的 TOTP 碼
+     */
+    public static int generate(Mac mac, long timeStep) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            mac.update((byte) (timeStep >>> shift));
+        }
+        byte[] hash = HASH_BUFFERS.get();
+        try {
+            mac.doFinal(hash, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException("Mac 輸出長度不是 32 位元組", e);
+        }
+        return truncate(hash);
+    }
+
+    /**
+     * 驗證 TOTP 碼，前後 window 個時間區間內皆視為有效
+     *
+     * @param key TOTP 金鑰
+     * @param code 要驗證的 TOTP 碼（6 位數字）
+     * @return 有效時回傳 true；格式不正確或不符合任何時間區間時回傳 false
+     * @throws GeneralSecurityException 當金鑰無法初始化 Mac 時拋出
+     */
+    public boolean verify(SecretKey key, CharSequence code) throws GeneralSecurityException {
+        int candidate = parse(code);
+        if (candidate < 0) {
+            return false;
+        }
+        long center = currentTimeStep();
+        Mac mac = CryptoPools.HMAC_SHA256.acquire();
+        try {
+            mac.init(key);
+            int matched = 0;
+            for (long step = center - window; step <= center + window; step++) {
+                matched |= equal(generate(mac, step), candidate);
+            }
+            return matched != 0;
+        } finally {
+            CryptoPools.HMAC_SHA256.release(mac);
+        }
+    }
+
+    /**
+     * 將 TOTP 碼轉為 6 位數字串，不足補 0
+     */
+    public static String format(int code) {
+        char[] digits = new char[DIGITS];
+        for (int i = DIGITS - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + code % 10);
+            code /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * 將候選碼解析為 int
+     *
+     * @return 0 到 999999 之間的數值；不是剛好 6 位 ASCII 數字時回傳 -1
+     */
+    static int parse(CharSequence code) {
+        if (code == null || code.length() != DIGITS) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < DIGITS; i++) {
+            int digit = code.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * RFC 4226 的動態截斷：以最後一個位元組的低 4 位為位置取出 31 位元整數，再取 6 位數
+     */
+    private static int truncate(byte[] hash) {
+        int offset = hash[hash.length - 1] & 0xf;
+        int binary = ((hash[offset] & 0x7f) << 24)
+            | ((hash[offset + 1] & 0xff) << 16)
+            | ((hash[offset + 2] & 0xff) << 8)
+            | (hash[offset + 3] & 0xff);
+        return binary % MODULUS;
+    }
+
+    /**
+     * 不分支的相等比對，相等回傳 1，否則回傳 0
+     */
+    static int equal(int a, int b) {
+        int diff = a ^ b;
+        // diff 為 0 時 (diff | -diff) 的最高位元為 0，否則為 1
+        return ((diff | -diff) >>> 31) ^ 1;
+    }
+}
@@ -194,6 +194,7 @@ async function handlePickupPersonData() {
     const rsaPublicKeyInput = document.getElementById('rsa-public-key');
     const keyCodeInput = document.getElementById('key-code');
     const dataTypeInput = document.getElementById('data-type');
+    const envelopeVersionInput = document.getElementById('envelope-version');
 
     // 檢查所有必要的元素是否存在
     if (!button || !totpKeyInput || !hmacKeyInput || !rsaPublicKeyInput) {
@@ -249,7 +250,8 @@ async function handlePickupPersonData() {
             hmacKey: hmacKeyInput.value,
             rsaPublicKey: rsaPublicKeyInput.value,
             keyCode: keyCodeInput ? keyCodeInput.value : 'default',
-            dataType: dataType
+            dataType: dataType,
+            envelopeVersion: envelopeVersionInput ? parseInt(envelopeVersionInput.value, 10) : 1
         };
 
         // 發送請求到後端
@@ -70,25 +70,33 @@ document.addEventListener('DOMContentLoaded', function() {
 
         try {
             // 取得所有金鑰
+            // 三把金鑰都未填寫時由伺服器端金鑰環依金鑰代碼（k）取得金鑰
             const keys = getKeys();
-            if (!keys.privateKey || !keys.totpKey || !keys.hmacKey) {
+            const useServerKeyring = !keys.privateKey && !keys.totpKey && !keys.hmacKey;
+            if (!useServerKeyring && (!keys.privateKey || !keys.totpKey || !keys.hmacKey)) {
                 throw new Error('請先在管理者設定區產生所有必要的金鑰');
             }
 
             // 更新狀態為處理中
             updateValidationStatus('pending', '正在驗證...');
 
-            // 解析 QR Code 內容
-            let qrCodeData;
-            try {
-                qrCodeData = JSON.parse(qrCodeContent);
-            } catch (error) {
-                throw new Error('QR Code 內容格式無效');
-            }
+            // 解析 QR Code 內容（v2 / v3 精簡格式以 RQ2: / RQ3: 開頭，直接交給後端解碼）
+            let encryptedData;
+            if (qrCodeContent.startsWith('RQ2:') || qrCodeContent.startsWith('RQ3:')) {
+                encryptedData = qrCodeContent;
+            } else {
+                let qrCodeData;
+                try {
+                    qrCodeData = JSON.parse(qrCodeContent);
+                } catch (error) {
+                    throw new Error('QR Code 內容格式無效');
+                }
 
-            // 檢查必要欄位
-            if (!qrCodeData.d) {
-                throw new Error('QR Code 內容缺少 d 欄位');
+                // 檢查必要欄位
+                if (!qrCodeData.d) {
+                    throw new Error('QR Code 內容缺少 d 欄位');
+                }
+                encryptedData = JSON.stringify(qrCodeData); // 傳遞完整的 QR Code 數據
             }
 
             // 發送驗證請求到後端
@@ -97,8 +105,10 @@ document.addEventListener('DOMContentLoaded', function() {
                 headers: {
                     'Content-Type': 'application/json'
                 },
-                body: JSON.stringify({
-                    encryptedData: JSON.stringify(qrCodeData), // 傳遞完整的 QR Code 數據
+                body: JSON.stringify(useServerKeyring ? {
+                    encryptedData: encryptedData
+                } : {
+                    encryptedData: encryptedData,
                     privateKey: keys.privateKey,
                     totpKey: keys.totpKey,
                     hmacKey: keys.hmacKey
@@ -1,21 +1,50 @@
 package com.example.demo.controller;
 
 import com.example.demo.service.ECCService;
+import com.example.demo.service.EnvelopeCodec;
 import com.example.demo.service.HMACService;
+import com.example.demo.service.PayloadCipher;
+import com.example.demo.service.PayloadCipherRegistry;
+import com.example.demo.service.QRCodeRenderOptions;
 import com.example.demo.service.QRCodeService;
+import com.example.demo.service.RSA2048Service;
 import com.example.demo.service.TOTPService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +65,14 @@ class PickupPersonControllerTest {
     @InjectMocks
     private PickupPersonController controller;
 
+    @BeforeEach
+    void setUp() {
+        // 預設演算法使用 mock 的 ECCService，RSA 使用實際的實作
+        when(eccService.getAlgorithm()).thenReturn(PayloadCipher.X25519);
+        ReflectionTestUtils.setField(controller, "payloadCiphers",
+            new PayloadCipherRegistry(List.of(eccService, new RSA2048Service())));
+    }
+
     @Test
     void generatePickupPersonData_usesCustomDataType() throws Exception {
         when(totpService.generateTOTP("totpKey")).thenReturn("123456");
@@ -68,4 +105,389 @@ class PickupPersonControllerTest {
         assertThat(encrypted.get("h")).isEqualTo("hmacValue");
         assertThat(encrypted.get("k")).isEqualTo("customKey");
     }
+
+    @Test
+    void generatePickupPersonData_compactEnvelopeWhenVersion2() throws Exception {
+        byte[] hmac = new byte[32];
+        byte[] sealed = new byte[70];
+        Arrays.fill(hmac, (byte) 7);
+        Arrays.fill(sealed, (byte) 9);
+        PublicKey publicKey = mock(PublicKey.class);
+        when(totpService.generateTOTP("totpKey")).thenReturn("123456");
+        when(hmacService.parseKey("hmacKey")).thenReturn(new SecretKeySpec(new byte[32], "HmacSHA256"));
+        when(hmacService.calculateRawHMAC(anyString(), any())).thenReturn(hmac);
+        when(eccService.parsePublicKey("rsaPublicKey")).thenReturn(publicKey);
+        when(eccService.encryptCompact(any(), eq(publicKey))).thenReturn(sealed);
+        when(qrCodeService.generateQRCodeWithLogoSpace(startsWith(EnvelopeCodec.PREFIX), any(), anyInt(), anyInt(), anyInt()))
+            .thenReturn("qrImage");
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("dynamicFields", Map.of("name", "測試"));
+        request.put("totpKey", "totpKey");
+        request.put("hmacKey", "hmacKey");
+        request.put("rsaPublicKey", "rsaPublicKey");
+        request.put("keyCode", "K1");
+        request.put("dataType", "SS");
+        request.put("envelopeVersion", 2);
+
+        ResponseEntity<Map<String, Object>> response = controller.generatePickupPersonData(request);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        @SuppressWarnings("unchecked")
+        Map<String, String> encrypted = (Map<String, String>) response.getBody().get("encryptedData");
+        assertThat(encrypted.get("v")).isEqualTo("2");
+        EnvelopeCodec.Envelope envelope = EnvelopeCodec.decode(encrypted.get("qr"));
+        assertThat(envelope.getDataType()).isEqualTo("SS");
+        assertThat(envelope.getKeyCode()).isEqualTo("K1");
+        assertThat(envelope.getHmac()).isEqualTo(hmac);
+        assertThat(envelope.getSealed()).isEqualTo(sealed);
+        verify(eccService, never()).encrypt(anyString(), anyString());
+
+        // 不支援的格式版本
+        request.put("envelopeVersion", 4);
+        assertThat(controller.generatePickupPersonData(request).getStatusCode().value()).isEqualTo(400);
+    }
+
+    @Test
+    void generatePickupPersonData_rejectsUnsupportedAlgorithmCombinations() {
+        Map<String, Object> request = new HashMap<>();
+        request.put("dynamicFields", Map.of("name", "測試"));
+        request.put("totpKey", "totpKey");
+        request.put("hmacKey", "hmacKey");
+        request.put("rsaPublicKey", "rsaPublicKey");
+        request.put("algorithm", "DES");
+
+        ResponseEntity<Map<String, Object>> unknown = controller.generatePickupPersonData(request);
+        assertThat(unknown.getStatusCode().value()).isEqualTo(400);
+        assertThat(unknown.getBody().get("error").toString()).contains("DES");
+
+        // RSA 密文較長，只支援 v1 格式
+        request.put("algorithm", PayloadCipher.RSA_OAEP_2048);
+        request.put("envelopeVersion", 2);
+        ResponseEntity<Map<String, Object>> compact = controller.generatePickupPersonData(request);
+        assertThat(compact.getStatusCode().value()).isEqualTo(400);
+        assertThat(compact.getBody().get("error").toString()).contains("v1");
+    }
+
+    @Test
+    void generatePickupPersonData_encodesSessionEnvelopeWhenRequested() throws Exception {
+        byte[] hmac = new byte[32];
+        byte[] sealed = new byte[60];
+        Arrays.fill(sealed, (byte) 7);
+        PublicKey publicKey = mock(PublicKey.class);
+        when(totpService.generateTOTP("totpKey")).thenReturn("123456");
+        when(hmacService.parseKey("hmacKey")).thenReturn(new SecretKeySpec(new byte[32], "HmacSHA256"));
+        when(hmacService.calculateRawHMAC(anyString(), any())).thenReturn(hmac);
+        when(eccService.parsePublicKey("rsaPublicKey")).thenReturn(publicKey);
+        when(eccService.encryptSession(any(byte[].class), eq(publicKey))).thenReturn(sealed);
+        when(qrCodeService.generateQRCodeWithLogoSpace(startsWith(EnvelopeCodec.SESSION_PREFIX), any(), anyInt(), anyInt(), anyInt()))
+            .thenReturn("qrImage");
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("dynamicFields", Map.of("name", "測試"));
+        request.put("totpKey", "totpKey");
+        request.put("hmacKey", "hmacKey");
+        request.put("rsaPublicKey", "rsaPublicKey");
+        request.put("keyCode", "K1");
+        request.put("envelopeVersion", 3);
+
+        ResponseEntity<Map<String, Object>> response = controller.generatePickupPersonData(request);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        @SuppressWarnings("unchecked")
+        Map<String, String> encrypted = (Map<String, String>) response.getBody().get("encryptedData");
+        assertThat(encrypted.get("v")).isEqualTo("3");
+        EnvelopeCodec.Envelope envelope = EnvelopeCodec.decode(encrypted.get("qr"));
+        assertThat(envelope.isSession()).isTrue();
+        assertThat(envelope.getSealed()).isEqualTo(sealed);
+        verify(eccService, never()).encryptCompact(any(), any());
+    }
+
+    @Test
+    void generatePickupPersonQRCode_writesPngToResponse() throws Exception {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+        when(totpService.generateTOTP("totpKey")).thenReturn("123456");
+        when(hmacService.calculateHMAC(anyString(), eq("hmacKey"))).thenReturn("hmacValue");
+        when(eccService.encrypt(anyString(), eq("rsaPublicKey"))).thenReturn("encryptedPayload");
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(5).write(png);
+            return null;
+        }).when(qrCodeService).writeQRCodeWithLogoSpace(anyString(), any(), anyInt(), anyInt(), anyInt(), any());
+
+        Map<String, Object> request = new HashMap<>();
+        Map<String, String> fields = new HashMap<>();
+        fields.put("name", "測試");
+        request.put("dynamicFields", fields);
+        request.put("totpKey", "totpKey");
+        request.put("hmacKey", "hmacKey");
+        request.put("rsaPublicKey", "rsaPublicKey");
+        request.put("keyCode", "customKey");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.generatePickupPersonQRCode(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("image/png");
+        assertThat(response.getContentLength()).isEqualTo(png.length);
+        assertThat(response.getHeader("Cache-Control")).contains("no-store");
+        assertThat(response.getHeader("X-QR-Key-Code")).isEqualTo("customKey");
+        assertThat(response.getContentAsByteArray()).isEqualTo(png);
+    }
+
+    @Test
+    void generatePickupPersonSvg_writesSvgWithPrintSize() throws Exception {
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"/>";
+        when(totpService.generateTOTP("totpKey")).thenReturn("123456");
+        when(hmacService.calculateHMAC(anyString(), eq("hmacKey"))).thenReturn("hmacValue");
+        when(eccService.encrypt(anyString(), eq("rsaPublicKey"))).thenReturn("encryptedPayload");
+        List<QRCodeRenderOptions> options = new ArrayList<>();
+        doAnswer(invocation -> {
+            options.add(invocation.getArgument(2));
+            Writer writer = invocation.getArgument(3);
+            writer.write(svg);
+            writer.flush();
+            return null;
+        }).when(qrCodeService).writeQRCodeSvg(anyString(), any(), any(), any());
+
+        Map<String, Object> request = new HashMap<>();
+        Map<String, String> fields = new HashMap<>();
+        fields.put("name", "測試");
+        request.put("dynamicFields", fields);
+        request.put("totpKey", "totpKey");
+        request.put("hmacKey", "hmacKey");
+        request.put("rsaPublicKey", "rsaPublicKey");
+        // 只指定列印尺寸，向量輸出不需要 DPI
+        request.put("printSizeMm", 30);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.generatePickupPersonSvg(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("image/svg+xml");
+        assertThat(response.getHeader("Cache-Control")).contains("no-store");
+        assertThat(response.getContentAsString()).isEqualTo(svg);
+        assertThat(options).singleElement().satisfies(option -> {
+            assertThat(option.getPrintSizeMillimeters()).isEqualTo(30.0);
+            assertThat(option.getDpi()).isZero();
+        });
+        assertThat(request).doesNotContainKey("dpi");
+    }
+
+    @Test
+    void generatePickupPersonData_rejectsOutOfRangeRenderOptions() throws Exception {
+        List<Map<String, Object>> invalid = List.of(
+            Map.of("moduleSize", QRCodeRenderOptions.MAX_MODULE_SIZE + 1),
+            Map.of("moduleSize", 1e12),
+            Map.of("moduleSize", 2.5),
+            Map.of("moduleSize", 4, "dpi", QRCodeRenderOptions.MAX_DPI + 1),
+            Map.of("printSizeMm", "Infinity", "dpi", 300),
+            Map.of("printSizeMm", "NaN", "dpi", 300),
+            Map.of("printSizeMm", 1000, "dpi", 2400));
+
+        for (Map<String, Object> renderOptions : invalid) {
+            Map<String, Object> request = new HashMap<>(renderOptions);
+            request.put("dynamicFields", Map.of("name", "測試"));
+            request.put("totpKey", "totpKey");
+            request.put("hmacKey", "hmacKey");
+            request.put("rsaPublicKey", "rsaPublicKey");
+
+            ResponseEntity<Map<String, Object>> response = controller.generatePickupPersonData(request);
+
+            assertThat(response.getStatusCode().value()).as(renderOptions.toString()).isEqualTo(400);
+            assertThat((String) response.getBody().get("error")).startsWith("QR Code 渲染設定錯誤");
+        }
+        verify(totpService, never()).generateTOTP(anyString());
+    }
+
+    @Test
+    void generatePickupPersonQRCode_rejectsKeyCodeUnsafeForHeader() throws Exception {
+        Map<String, Object> request = new HashMap<>();
+        request.put("dynamicFields", Map.of("name", "測試"));
+        request.put("totpKey", "totpKey");
+        request.put("hmacKey", "hmacKey");
+        request.put("rsaPublicKey", "rsaPublicKey");
+        request.put("keyCode", "K1\r\nSet-Cookie: a=b");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.generatePickupPersonQRCode(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(response.getHeader("X-QR-Key-Code")).isNull();
+        assertThat(response.getContentAsString()).contains("金鑰代碼 (k)");
+        verify(totpService, never()).generateTOTP(anyString());
+    }
+
+    @Test
+    void generatePickupPersonQRCode_returnsJsonErrorWhenKeysMissing() throws Exception {
+        Map<String, Object> request = new HashMap<>();
+        Map<String, String> fields = new HashMap<>();
+        fields.put("name", "測試");
+        request.put("dynamicFields", fields);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.generatePickupPersonQRCode(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(response.getContentType()).startsWith("application/json");
+        assertThat(response.getContentAsString()).contains("缺少必要的金鑰參數");
+    }
+
+    @Test
+    void generatePickupPersonBatch_streamsNdjsonInOrder() throws Exception {
+        PublicKey publicKey = mock(PublicKey.class);
+        SecretKeySpec hmacSecretKey = new SecretKeySpec(new byte[32], "HmacSHA256");
+        when(eccService.parsePublicKey("rsaPublicKey")).thenReturn(publicKey);
+        when(hmacService.parseKey("hmacKey")).thenReturn(hmacSecretKey);
+        when(totpService.generateTOTP("totpKey")).thenReturn("123456");
+        when(hmacService.calculateHMAC(anyString(), eq(hmacSecretKey))).thenReturn("hmacValue");
+        when(eccService.encrypt(anyString(), eq(publicKey)))
+            .thenAnswer(invocation -> "enc:" + invocation.getArgument(0));
+        when(qrCodeService.generateQRCodeWithLogoSpace(anyString(), any(), anyInt(), anyInt(), anyInt()))
+            .thenReturn("qrImage");
+
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Map<String, String> fields = new HashMap<>();
+            fields.put("name", "user" + i);
+            items.add(fields);
+        }
+        Map<String, String> invalid = new HashMap<>();
+        invalid.put("bad key", "x");
+        items.set(7, invalid);
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("items", items);
+        request.put("totpKey", "totpKey");
+        request.put("hmacKey", "hmacKey");
+        request.put("rsaPublicKey", "rsaPublicKey");
+
+        ResponseEntity<StreamingResponseBody> response = controller.generatePickupPersonBatch(request);
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(response.getHeaders().getContentType().toString()).isEqualTo("application/x-ndjson");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+
+        // 每筆資料一行，且依 items 順序輸出
+        assertThat(lines).hasSize(50);
+        for (int i = 0; i < 50; i++) {
+            assertThat(lines[i]).startsWith("{\"index\":" + i + ",");
+            if (i == 7) {
+                assertThat(lines[i]).contains("\"error\"").contains("bad key");
+            } else {
+                assertThat(lines[i]).contains("user" + i + "\"").contains("\"qrCode\":\"qrImage\"");
+            }
+        }
+
+        // 金鑰只解析一次
+        verify(eccService, times(1)).parsePublicKey("rsaPublicKey");
+        verify(hmacService, times(1)).parseKey("hmacKey");
+    }
+
+    @Test
+    void generatePickupPersonData_rejectsNonStringFieldValues() {
+        for (Object value : new Object[] {123456, true, Map.of("nested", "x"), List.of("a")}) {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("name", "測試");
+            fields.put("phone", value);
+            Map<String, Object> request = new HashMap<>();
+            request.put("dynamicFields", fields);
+            request.put("totpKey", "totpKey");
+            request.put("hmacKey", "hmacKey");
+            request.put("rsaPublicKey", "rsaPublicKey");
+
+            ResponseEntity<Map<String, Object>> response = controller.generatePickupPersonData(request);
+
+            assertThat(response.getStatusCode().value()).isEqualTo(400);
+            assertThat(response.getBody().get("error")).isEqualTo("欄位「phone」的值必須為字串");
+        }
+        verify(totpService, never()).generateTOTP(anyString());
+    }
+
+    @Test
+    void generatePickupPersonBatch_rejectsMissingItems() throws Exception {
+        Map<String, Object> request = new HashMap<>();
+        request.put("totpKey", "totpKey");
+        request.put("hmacKey", "hmacKey");
+        request.put("rsaPublicKey", "rsaPublicKey");
+
+        ResponseEntity<StreamingResponseBody> response = controller.generatePickupPersonBatch(request);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(400);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("請至少提供一筆資料");
+    }
+
+    @Test
+    void importPickupPersonCsv_streamsZipWithManifestLast() throws Exception {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', 4, 5, 6};
+        PublicKey publicKey = mock(PublicKey.class);
+        SecretKeySpec hmacSecretKey = new SecretKeySpec(new byte[32], "HmacSHA256");
+        when(eccService.parsePublicKey("rsaPublicKey")).thenReturn(publicKey);
+        when(hmacService.parseKey("hmacKey")).thenReturn(hmacSecretKey);
+        when(totpService.generateTOTP("totpKey")).thenReturn("123456");
+        when(hmacService.calculateHMAC(anyString(), eq(hmacSecretKey))).thenReturn("hmacValue");
+        when(eccService.encrypt(anyString(), eq(publicKey))).thenReturn("encryptedPayload");
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(5).write(png);
+            return null;
+        }).when(qrCodeService).writeQRCodeWithLogoSpace(anyString(), any(), anyInt(), anyInt(), anyInt(), any());
+
+        String csv = "name,phone\n王小明,0912345678\n李小華,\n\"陳,大文\",0911222333\n";
+        MockMultipartFile file = new MockMultipartFile("file", "pickup.csv", "text/csv",
+            csv.getBytes(StandardCharsets.UTF_8));
+        Map<String, String> params = new HashMap<>();
+        params.put("totpKey", "totpKey");
+        params.put("hmacKey", "hmacKey");
+        params.put("rsaPublicKey", "rsaPublicKey");
+
+        ResponseEntity<StreamingResponseBody> response = controller.importPickupPersonCsv(file, params);
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        List<String> entries = new ArrayList<>();
+        String manifest = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.add(entry.getName());
+                byte[] content = zip.readAllBytes();
+                if (entry.getName().equals("manifest.csv")) {
+                    manifest = new String(content, StandardCharsets.UTF_8);
+                } else {
+                    assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+                    assertThat(content).isEqualTo(png);
+                }
+            }
+        }
+
+        // 第 2 列的 phone 為空，只產生 2 個 PNG，manifest 為最後一個項目
+        assertThat(entries).containsExactlyInAnyOrder("qrcode-000001.png", "qrcode-000003.png", "manifest.csv");
+        assertThat(entries.get(entries.size() - 1)).isEqualTo("manifest.csv");
+        assertThat(manifest).startsWith("row,file,status,message");
+        assertThat(manifest).contains("1,qrcode-000001.png,OK,");
+        assertThat(manifest).contains("2,,ERROR,欄位「phone」的值不可為空");
+        assertThat(manifest).contains("3,qrcode-000003.png,OK,");
+    }
+
+    @Test
+    void importPickupPersonCsv_rejectsInvalidHeader() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "pickup.csv", "text/csv",
+            "name,bad-key\nA,B\n".getBytes(StandardCharsets.UTF_8));
+        Map<String, String> params = new HashMap<>();
+        params.put("totpKey", "totpKey");
+        params.put("hmacKey", "hmacKey");
+        params.put("rsaPublicKey", "rsaPublicKey");
+
+        ResponseEntity<StreamingResponseBody> response = controller.importPickupPersonCsv(file, params);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(400);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("bad-key");
+    }
 }
@@ -0,0 +1,279 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ECCService;
+import com.example.demo.service.EnvelopeCodec;
+import com.example.demo.service.HMACService;
+import com.example.demo.service.KeyringEntry;
+import com.example.demo.service.KeyringService;
+import com.example.demo.service.PayloadCipher;
+import com.example.demo.service.PayloadCipherRegistry;
+import com.example.demo.service.QRCodeDecodeService;
+import com.example.demo.service.RSA2048Service;
+import com.example.demo.service.ReplayGuard;
+import com.example.demo.service.TOTPService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class VerifyQRCodeControllerTest {
+
+    @Spy
+    private TOTPService totpService = new TOTPService();
+
+    @Spy
+    private HMACService hmacService = new HMACService();
+
+    @Spy
+    private ECCService eccService = new ECCService();
+
+    @Mock
+    private QRCodeDecodeService decodeService;
+
+    @Mock
+    private KeyringService keyringService;
+
+    @InjectMocks
+    private VerifyQRCodeController controller;
+
+    private final RSA2048Service rsaService = new RSA2048Service();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String publicKey;
+    private String privateKey;
+    private String totpKey;
+    private String hmacKey;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        String[] keyPair = eccService.generateKeyPair();
+        publicKey = keyPair[0];
+        privateKey = keyPair[1];
+        totpKey = totpService.generateTOTPKey().get("totpKey");
+        hmacKey = hmacService.generateHMACKey().get("hmacKey");
+        ReflectionTestUtils.setField(controller, "payloadCiphers", new PayloadCipherRegistry(List.of(eccService, rsaService)));
+        ReflectionTestUtils.setField(controller, "replayGuard", new ReplayGuard(totpService, 1024));
+    }
+
+    @Test
+    public void testVerifyQRCodeResolvesKeysFromKeyringByKeyCode() throws Exception {
+        KeyringEntry entry = keyringEntry("K1");
+        when(keyringService.isEnabled()).thenReturn(true);
+        when(keyringService.find("K1")).thenReturn(entry);
+        String plain = plainData();
+
+        // v1：JSON {t, d, h, k}
+        Map<String, String> envelope = new LinkedHashMap<>();
+        envelope.put("t", "SS");
+        envelope.put("d", eccService.encrypt(plain, publicKey));
+        envelope.put("h", hmacService.calculateHMAC(plain, hmacService.parseKey(hmacKey)));
+        envelope.put("k", "K1");
+        VerifyQRCodeController.VerifyQRCodeResponse v1 = verify(objectMapper.writeValueAsString(envelope));
+        assertTrue(v1.isValid());
+        assertTrue(v1.getDecryptedPlaintext().contains("測試"));
+
+        // v2：Base45 精簡格式
+        String compact = EnvelopeCodec.encode("SS", "K1",
+            hmacService.calculateRawHMAC(plain, hmacService.parseKey(hmacKey)),
+            eccService.encryptCompact(plain.getBytes(StandardCharsets.UTF_8), eccService.parsePublicKey(publicKey)));
+        assertTrue(verify(compact).isValid());
+    }
+
+    @Test
+    public void testVerifyQRCodeReportsUnknownKeyCode() throws Exception {
+        when(keyringService.isEnabled()).thenReturn(true);
+        String plain = plainData();
+        String compact = EnvelopeCodec.encode("SS", "K9",
+            hmacService.calculateRawHMAC(plain, hmacService.parseKey(hmacKey)),
+            eccService.encryptCompact(plain.getBytes(StandardCharsets.UTF_8), eccService.parsePublicKey(publicKey)));
+
+        VerifyQRCodeController.VerifyQRCodeResponse response = verify(compact);
+
+        assertFalse(response.isValid());
+        assertTrue(response.getMessage().contains("K9"));
+    }
+
+    @Test
+    public void testVerifyQRCodeRejectsMissingKeysWhenKeyringDisabled() {
+        when(keyringService.isEnabled()).thenReturn(false);
+        VerifyQRCodeController.VerifyQRCodeRequest request = new VerifyQRCodeController.VerifyQRCodeRequest();
+        request.setEncryptedData("RQ2:ABC");
+
+        ResponseEntity<?> response = controller.verifyQRCode(request);
+
+        assertEquals(400, response.getStatusCode().value());
+    }
+
+    @Test
+    public void testVerifyQRCodeStillAcceptsKeysInRequest() throws Exception {
+        String plain = plainData();
+        Map<String, String> envelope = new LinkedHashMap<>();
+        envelope.put("d", eccService.encrypt(plain, publicKey));
+        envelope.put("h", hmacService.calculateHMAC(plain, hmacService.parseKey(hmacKey)));
+        envelope.put("k", "unknown");
+
+        VerifyQRCodeController.VerifyQRCodeRequest request = new VerifyQRCodeController.VerifyQRCodeRequest();
+        request.setEncryptedData(objectMapper.writeValueAsString(envelope));
+        request.setPrivateKey(privateKey);
+        request.setTotpKey(totpKey);
+        request.setHmacKey(hmacKey);
+
+        ResponseEntity<?> response = controller.verifyQRCode(request);
+
+        assertTrue(((VerifyQRCodeController.VerifyQRCodeResponse) response.getBody()).isValid());
+    }
+
+    @Test
+    public void testVerifyQRCodeSelectsCipherByAlgorithmTag() throws Exception {
+        Map<String, String> rsaKeys = rsaService.generateKeyPairMap();
+        String plain = plainData();
+        Map<String, String> envelope = new LinkedHashMap<>();
+        envelope.put("t", "SS");
+        envelope.put("d", rsaService.encrypt(plain, rsaKeys.get("publicKey")));
+        envelope.put("h", hmacService.calculateHMAC(plain, hmacService.parseKey(hmacKey)));
+        envelope.put("k", "partner");
+        envelope.put("a", PayloadCipher.RSA_OAEP_2048);
+
+        VerifyQRCodeController.VerifyQRCodeRequest request = new VerifyQRCodeController.VerifyQRCodeRequest();
+        request.setEncryptedData(objectMapper.writeValueAsString(envelope));
+        request.setPrivateKey(rsaKeys.get("privateKey"));
+        request.setTotpKey(totpKey);
+        request.setHmacKey(hmacKey);
+
+        VerifyQRCodeController.VerifyQRCodeResponse response =
+            (VerifyQRCodeController.VerifyQRCodeResponse) controller.verifyQRCode(request).getBody();
+        assertTrue(response.isValid());
+        assertTrue(response.getDecryptedPlaintext().contains("測試"));
+
+        // 私鑰類型與標示的演算法不符
+        request.setPrivateKey(privateKey);
+        response = (VerifyQRCodeController.VerifyQRCodeResponse) controller.verifyQRCode(request).getBody();
+        assertFalse(response.isValid());
+        assertTrue(response.getMessage().contains(PayloadCipher.RSA_OAEP_2048));
+    }
+
+    @Test
+    public void testVerifyQRCodeRejectsTamperedOrMalformedHmac() throws Exception {
+        String plain = plainData();
+        byte[] tag = hmacService.calculateRawHMAC(plain, hmacService.parseKey(hmacKey));
+        tag[0] ^= 1;
+
+        for (String h : new String[] {Base64.getEncoder().encodeToString(tag), "不是 Base64"}) {
+            Map<String, String> envelope = new LinkedHashMap<>();
+            envelope.put("d", eccService.encrypt(plain, publicKey));
+            envelope.put("h", h);
+            VerifyQRCodeController.VerifyQRCodeRequest request = new VerifyQRCodeController.VerifyQRCodeRequest();
+            request.setEncryptedData(objectMapper.writeValueAsString(envelope));
+            request.setPrivateKey(privateKey);
+            request.setTotpKey(totpKey);
+            request.setHmacKey(hmacKey);
+
+            VerifyQRCodeController.VerifyQRCodeResponse response =
+                (VerifyQRCodeController.VerifyQRCodeResponse) controller.verifyQRCode(request).getBody();
+            assertFalse(response.isValid());
+            assertTrue(response.getMessage().contains("HMAC 驗證失敗"));
+        }
+    }
+
+    @Test
+    public void testVerifyQRCodeRejectsReplayedQRCode() throws Exception {
+        KeyringEntry entry = keyringEntry("K1");
+        when(keyringService.isEnabled()).thenReturn(true);
+        when(keyringService.find("K1")).thenReturn(entry);
+        String plain = plainData();
+        String compact = EnvelopeCodec.encode("SS", "K1",
+            hmacService.calculateRawHMAC(plain, hmacService.parseKey(hmacKey)),
+            eccService.encryptCompact(plain.getBytes(StandardCharsets.UTF_8), eccService.parsePublicKey(publicKey)));
+
+        assertTrue(verify(compact).isValid());
+        VerifyQRCodeController.VerifyQRCodeResponse replayed = verify(compact);
+        assertFalse(replayed.isValid());
+        assertTrue(replayed.getMessage().contains("重複使用"));
+
+        // 同樣的明文重新加密後是不同的 QR Code
+        String reissued = EnvelopeCodec.encode("SS", "K1",
+            hmacService.calculateRawHMAC(plain, hmacService.parseKey(hmacKey)),
+            eccService.encryptCompact(plain.getBytes(StandardCharsets.UTF_8), eccService.parsePublicKey(publicKey)));
+        assertTrue(verify(reissued).isValid());
+    }
+
+    @Test
+    public void testVerifyQRCodeRejectsReplayWithoutBase64Padding() throws Exception {
+        KeyringEntry entry = keyringEntry("K1");
+        when(keyringService.isEnabled()).thenReturn(true);
+        when(keyringService.find("K1")).thenReturn(entry);
+        String plain = plainData();
+
+        // 取得有補位的密文，再去掉補位重送（Base64 解碼後是同一筆密文）
+        String d;
+        do {
+            d = eccService.encrypt(plain, publicKey);
+        } while (!d.endsWith("="));
+        Map<String, String> envelope = new LinkedHashMap<>();
+        envelope.put("t", "SS");
+        envelope.put("d", d);
+        envelope.put("h", hmacService.calculateHMAC(plain, hmacService.parseKey(hmacKey)));
+        envelope.put("k", "K1");
+        assertTrue(verify(objectMapper.writeValueAsString(envelope)).isValid());
+
+        envelope.put("d", d.replace("=", ""));
+        VerifyQRCodeController.VerifyQRCodeResponse replayed = verify(objectMapper.writeValueAsString(envelope));
+        assertFalse(replayed.isValid());
+        assertTrue(replayed.getMessage().contains("重複使用"));
+    }
+
+    @Test
+    public void testVerifyQRCodeRejectsReplayWithFlippedPublicKeyBit() throws Exception {
+        KeyringEntry entry = keyringEntry("K1");
+        when(keyringService.isEnabled()).thenReturn(true);
+        when(keyringService.find("K1")).thenReturn(entry);
+        String plain = plainData();
+        byte[] hmac = hmacService.calculateRawHMAC(plain, hmacService.parseKey(hmacKey));
+        byte[] sealed = eccService.encryptCompact(plain.getBytes(StandardCharsets.UTF_8), eccService.parsePublicKey(publicKey));
+        assertTrue(verify(EnvelopeCodec.encode("SS", "K1", hmac, sealed)).isValid());
+
+        // X25519 忽略臨時公鑰最後一個位元組的最高位元，改變後仍可解密，但仍是同一個 QR Code
+        byte[] flipped = sealed.clone();
+        flipped[31] ^= (byte) 0x80;
+        VerifyQRCodeController.VerifyQRCodeResponse replayed = verify(EnvelopeCodec.encode("SS", "K1", hmac, flipped));
+        assertFalse(replayed.isValid());
+        assertTrue(replayed.getMessage().contains("重複使用"));
+    }
+
+    private VerifyQRCodeController.VerifyQRCodeResponse verify(String payload) {
+        VerifyQRCodeController.VerifyQRCodeRequest request = new VerifyQRCodeController.VerifyQRCodeRequest();
+        request.setEncryptedData(payload);
+        ResponseEntity<?> response = controller.verifyQRCode(request);
+        assertTrue(response.getStatusCode().is2xxSuccessful());
+        return (VerifyQRCodeController.VerifyQRCodeResponse) response.getBody();
+    }
+
+    private String plainData() throws Exception {
+        Map<String, String> plain = new LinkedHashMap<>();
+        plain.put("name", "測試");
+        plain.put("totp", totpService.generateTOTP(totpKey));
+        return objectMapper.writeValueAsString(plain);
+    }
+
+    private KeyringEntry keyringEntry(String keyCode) throws Exception {
+        return new KeyringEntry(keyCode, 1, eccService.parsePrivateKey(privateKey), eccService.parsePublicKey(publicKey),
+            totpKey, hmacService.parseKey(hmacKey));
+    }
+}
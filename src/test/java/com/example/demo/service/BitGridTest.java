@@ -0,0 +1,234 @@
+package com.example.demo.service;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BitGrid 的單元測試，並與原本逐像素檢查矩形條件的迴圈比較效能
+ */
+public class BitGridTest {
+
+    private static final String PAYLOAD = "{\"t\":\"SS\",\"d\":\"BitGrid benchmark payload\",\"h\":\"hmac\",\"k\":\"default\"}";
+    private static final int LOGO_MARGIN = 5;
+
+    @Test
+    public void testRegionOperationsMatchPixelLoops() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int width = 1 + random.nextInt(130);
+            int height = 1 + random.nextInt(20);
+            BitGrid grid = randomGrid(random, width, height);
+            boolean[][] expected = toArray(grid);
+
+            int left = random.nextInt(width + 10) - 5;
+            int top = random.nextInt(height + 4) - 2;
+            int regionWidth = random.nextInt(width + 5);
+            int regionHeight = random.nextInt(height + 2);
+
+            // 計數與逐像素計數相同
+            int count = 0;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (inRegion(x, y, left, top, regionWidth, regionHeight) && expected[y][x]) {
+                        count++;
+                    }
+                }
+            }
+            assertEquals(count, grid.countRegion(left, top, regionWidth, regionHeight));
+
+            // 清除後只有區域內的點變為白色
+            grid.clearRegion(left, top, regionWidth, regionHeight);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    boolean dark = expected[y][x] && !inRegion(x, y, left, top, regionWidth, regionHeight);
+                    assertEquals(dark, grid.get(x, y), "清除結果不一致：(" + x + ", " + y + ")");
+                }
+            }
+
+            // 設定後區域內全為深色
+            grid.setRegion(left, top, regionWidth, regionHeight);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    boolean dark = expected[y][x] || inRegion(x, y, left, top, regionWidth, regionHeight);
+                    assertEquals(dark, grid.get(x, y), "設定結果不一致：(" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCopyRegionWithUnalignedOffsets() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            BitGrid source = randomGrid(random, 1 + random.nextInt(150), 1 + random.nextInt(10));
+            BitGrid target = randomGrid(random, 1 + random.nextInt(150), 1 + random.nextInt(10));
+            boolean[][] before = toArray(target);
+
+            int regionWidth = random.nextInt(Math.min(source.getWidth(), target.getWidth()) + 1);
+            int regionHeight = random.nextInt(Math.min(source.getHeight(), target.getHeight()) + 1);
+            int sourceX = random.nextInt(source.getWidth() - regionWidth + 1);
+            int sourceY = random.nextInt(source.getHeight() - regionHeight + 1);
+            int targetX = random.nextInt(target.getWidth() - regionWidth + 1);
+            int targetY = random.nextInt(target.getHeight() - regionHeight + 1);
+
+            target.copyRegion(source, sourceX, sourceY, regionWidth, regionHeight, targetX, targetY);
+            for (int y = 0; y < target.getHeight(); y++) {
+                for (int x = 0; x < target.getWidth(); x++) {
+                    boolean expected = inRegion(x, y, targetX, targetY, regionWidth, regionHeight)
+                        ? source.get(x - targetX + sourceX, y - targetY + sourceY)
+                        : before[y][x];
+                    assertEquals(expected, target.get(x, y), "複製結果不一致：(" + x + ", " + y + ")");
+                }
+            }
+        }
+
+        BitGrid grid = new BitGrid(10, 10);
+        assertThrows(IllegalArgumentException.class, () -> grid.copyRegion(grid, 5, 0, 6, 1, 0, 0));
+    }
+
+    @Test
+    public void testNextSetAndNextUnsetMatchPixelScan() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int width = 1 + random.nextInt(130);
+            BitGrid grid = new BitGrid(width, 1);
+            // 以較長的連續區段填色，讓掃描跨越字組邊界
+            int x = 0;
+            while (x < width) {
+                int length = 1 + random.nextInt(70);
+                if (random.nextBoolean()) {
+                    grid.setRegion(x, 0, length, 1);
+                }
+                x += length;
+            }
+            for (int start = 0; start <= width; start++) {
+                int expectedSet = start;
+                while (expectedSet < width && !grid.get(expectedSet, 0)) {
+                    expectedSet++;
+                }
+                int expectedUnset = start;
+                while (expectedUnset < width && grid.get(expectedUnset, 0)) {
+                    expectedUnset++;
+                }
+                assertEquals(expectedSet, grid.nextSet(start, 0), "nextSet 不一致：" + start);
+                assertEquals(expectedUnset, grid.nextUnset(start, 0), "nextUnset 不一致：" + start);
+            }
+        }
+    }
+
+    @Test
+    public void testBitMatrixConversionAndInPlaceClear() throws Exception {
+        BitMatrix matrix = encode(400);
+        BitGrid grid = BitGrid.fromBitMatrix(matrix);
+        assertEquals(matrix, grid.toBitMatrix());
+
+        BitMatrix expected = clearWithPixelLoop(matrix, 60);
+        int logoX = (matrix.getWidth() - 60) / 2;
+        int logoY = (matrix.getHeight() - 60) / 2;
+        BitGrid.clearRegion(matrix, logoX - LOGO_MARGIN, logoY - LOGO_MARGIN, 60 + 2 * LOGO_MARGIN, 60 + 2 * LOGO_MARGIN);
+        assertEquals(expected, matrix);
+    }
+
+    @Test
+    public void testBenchmarkLogoClearingAgainstPixelLoop() throws Exception {
+        // 列印尺寸 400px、1000px、2000px，logo 佔邊長的比例與預設（60 / 400）相同
+        for (int size : new int[] {400, 1000, 2000}) {
+            int logoSize = size * 60 / 400;
+            BitMatrix source = encode(size);
+            int iterations = Math.max(5, 4_000_000 / (size * size));
+
+            // 預熱
+            for (int i = 0; i < iterations; i++) {
+                clearWithPixelLoop(source, logoSize);
+                clearWithWords(source.clone(), logoSize);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                clearWithPixelLoop(source, logoSize);
+            }
+            long pixelLoopNanos = (System.nanoTime() - start) / iterations;
+
+            // 字組版本就地修改，計時包含複製一份 BitMatrix 的成本，與原本建立新矩陣的行為相當
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                clearWithWords(source.clone(), logoSize);
+            }
+            long wordNanos = (System.nanoTime() - start) / iterations;
+
+            System.out.printf("%dpx logo 預留：逐像素 %d µs，字組 %d µs（%.1f 倍）%n",
+                size, pixelLoopNanos / 1000, wordNanos / 1000, (double) pixelLoopNanos / Math.max(1, wordNanos));
+            assertTrue(wordNanos < pixelLoopNanos, size + "px 字組版本應快於逐像素迴圈");
+        }
+    }
+
+    /**
+     * 原本的作法：建立新 BitMatrix，逐像素檢查是否位於 logo 區域並複製
+     */
+    private static BitMatrix clearWithPixelLoop(BitMatrix bitMatrix, int logoSize) {
+        int width = bitMatrix.getWidth();
+        int height = bitMatrix.getHeight();
+        int logoX = (width - logoSize) / 2;
+        int logoY = (height - logoSize) / 2;
+        BitMatrix newBitMatrix = new BitMatrix(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                boolean inLogoArea = (x >= logoX - LOGO_MARGIN && x < logoX + logoSize + LOGO_MARGIN
+                    && y >= logoY - LOGO_MARGIN && y < logoY + logoSize + LOGO_MARGIN);
+                if (!inLogoArea && bitMatrix.get(x, y)) {
+                    newBitMatrix.set(x, y);
+                }
+            }
+        }
+        return newBitMatrix;
+    }
+
+    private static BitMatrix clearWithWords(BitMatrix bitMatrix, int logoSize) {
+        int logoX = (bitMatrix.getWidth() - logoSize) / 2;
+        int logoY = (bitMatrix.getHeight() - logoSize) / 2;
+        BitGrid.clearRegion(bitMatrix, logoX - LOGO_MARGIN, logoY - LOGO_MARGIN,
+                            logoSize + 2 * LOGO_MARGIN, logoSize + 2 * LOGO_MARGIN);
+        return bitMatrix;
+    }
+
+    private static BitMatrix encode(int size) throws Exception {
+        return new QRCodeWriter().encode(PAYLOAD, BarcodeFormat.QR_CODE, size, size,
+            Map.of(EncodeHintType.CHARACTER_SET, "UTF-8"));
+    }
+
+    private static BitGrid randomGrid(Random random, int width, int height) {
+        BitGrid grid = new BitGrid(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextBoolean()) {
+                    grid.set(x, y);
+                }
+            }
+        }
+        return grid;
+    }
+
+    private static boolean[][] toArray(BitGrid grid) {
+        boolean[][] array = new boolean[grid.getHeight()][grid.getWidth()];
+        for (int y = 0; y < grid.getHeight(); y++) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                array[y][x] = grid.get(x, y);
+            }
+        }
+        return array;
+    }
+
+    private static boolean inRegion(int x, int y, int left, int top, int width, int height) {
+        return x >= left && x < left + width && y >= top && y < top + height;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CryptoPrimitivePool 的單元測試
+ */
+public class CryptoPrimitivePoolTest {
+
+    @Test
+    public void testAcquireReusesReleasedInstanceAndDiscardsWhenFull() throws Exception {
+        AtomicInteger resets = new AtomicInteger();
+        CryptoPrimitivePool<Object> pool = new CryptoPrimitivePool<>("test", 1, Object::new, value -> resets.incrementAndGet());
+
+        Object first = pool.acquire();
+        Object second = pool.acquire();
+        assertNotSame(first, second);
+
+        pool.release(first);
+        pool.release(second); // 容量只有 1，第二個被捨棄
+        assertSame(first, pool.acquire());
+
+        Map<String, Long> stats = pool.getStats();
+        assertEquals(3, stats.get("acquired"));
+        assertEquals(2, stats.get("created"));
+        assertEquals(1, stats.get("reused"));
+        assertEquals(1, stats.get("discarded"));
+        assertEquals(0, stats.get("idle"));
+        assertEquals(2, resets.get());
+    }
+
+    @Test
+    public void testWithResetsPooledMacBetweenKeys() throws Exception {
+        CryptoPrimitivePool<Mac> pool = new CryptoPrimitivePool<>("mac", 1, () -> Mac.getInstance("HmacSHA256"), Mac::reset);
+        byte[] data = "payload".getBytes(StandardCharsets.UTF_8);
+        SecretKeySpec keyA = new SecretKeySpec("key-a".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        SecretKeySpec keyB = new SecretKeySpec("key-b".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+
+        // 中途失敗留下未完成的計算，歸還時應被重設
+        try {
+            pool.with(mac -> {
+                mac.init(keyA);
+                mac.update(data);
+                throw new java.security.GeneralSecurityException("中斷");
+            });
+        } catch (java.security.GeneralSecurityException expected) {
+            // 預期的失敗
+        }
+
+        byte[] pooled = pool.with(mac -> {
+            mac.init(keyB);
+            return mac.doFinal(data);
+        });
+        Mac fresh = Mac.getInstance("HmacSHA256");
+        fresh.init(keyB);
+
+        assertArrayEquals(fresh.doFinal(data), pooled);
+        assertEquals(1, pool.getStats().get("reused"));
+    }
+
+    @Test
+    public void testCryptoPoolsDoNotKeepCallerKeysAfterRelease() throws Exception {
+        byte[] data = "payload".getBytes(StandardCharsets.UTF_8);
+        SecretKeySpec key = new SecretKeySpec("caller-key".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        Mac mac = CryptoPools.HMAC_SHA256.acquire();
+        mac.init(key);
+        byte[] callerTag = mac.doFinal(data);
+        CryptoPools.HMAC_SHA256.release(mac);
+        // 歸還後未重新 init 直接計算，結果不會是呼叫端金鑰的 HMAC
+        assertFalse(Arrays.equals(callerTag, mac.doFinal(data)));
+
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("X25519");
+        KeyPair caller = kpg.generateKeyPair();
+        PublicKey peer = kpg.generateKeyPair().getPublic();
+        KeyAgreement keyAgreement = CryptoPools.X25519_KEY_AGREEMENT.acquire();
+        keyAgreement.init(caller.getPrivate());
+        keyAgreement.doPhase(peer, true);
+        byte[] callerSecret = keyAgreement.generateSecret();
+        CryptoPools.X25519_KEY_AGREEMENT.release(keyAgreement);
+        keyAgreement.doPhase(peer, true);
+        assertFalse(Arrays.equals(callerSecret, keyAgreement.generateSecret()));
+    }
+
+    @Test
+    public void testAcquireNeverHandsSameInstanceToTwoThreads() throws Exception {
+        CryptoPrimitivePool<MessageDigest> pool = new CryptoPrimitivePool<>("sha256", 2,
+            () -> MessageDigest.getInstance("SHA-256"), MessageDigest::reset);
+        Set<MessageDigest> inUse = ConcurrentHashMap.newKeySet();
+        AtomicInteger overlaps = new AtomicInteger();
+        int threads = 8;
+        int iterations = 2000;
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest("data".getBytes(StandardCharsets.UTF_8));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    boolean correct = true;
+                    for (int i = 0; i < iterations; i++) {
+                        MessageDigest digest = pool.acquire();
+                        if (!inUse.add(digest)) {
+                            overlaps.incrementAndGet();
+                        }
+                        digest.update("da".getBytes(StandardCharsets.UTF_8));
+                        digest.update("ta".getBytes(StandardCharsets.UTF_8));
+                        correct &= MessageDigest.isEqual(expected, digest.digest());
+                        inUse.remove(digest);
+                        pool.release(digest);
+                    }
+                    return correct;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Long> stats = pool.getStats();
+        assertEquals(0, overlaps.get());
+        assertEquals((long) threads * iterations, stats.get("acquired"));
+        assertEquals(stats.get("acquired"), stats.get("reused") + stats.get("created"));
+        assertTrue(stats.get("idle") <= 2);
+    }
+}
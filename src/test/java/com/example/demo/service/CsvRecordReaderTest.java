@@ -0,0 +1,53 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CsvRecordReader 的單元測試
+ */
+public class CsvRecordReaderTest {
+
+    @Test
+    public void testReadSimpleRecords() throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("\uFEFFname,phone\r\n王小明,0912345678\r\n\r\n李小華,0987654321"));
+
+        assertEquals(Arrays.asList("name", "phone"), reader.readRecord(), "應略過 UTF-8 BOM");
+        assertEquals(Arrays.asList("王小明", "0912345678"), reader.readRecord());
+        assertEquals(Arrays.asList("李小華", "0987654321"), reader.readRecord(), "應略過空白行，最後一行可沒有換行");
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    public void testReadQuotedFields() throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("\"a,b\",\"say \"\"hi\"\"\",\"line1\nline2\",\n,x\n"));
+
+        List<String> record = reader.readRecord();
+        assertEquals(Arrays.asList("a,b", "say \"hi\"", "line1\nline2", ""), record);
+        assertEquals(Arrays.asList("", "x"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    public void testUnterminatedQuote() throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("name\n\"abc,def\n"));
+
+        assertEquals(List.of("name"), reader.readRecord());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, reader::readRecord);
+        assertTrue(e.getMessage().contains("第 2 行"));
+    }
+
+    @Test
+    public void testRecordTooLong() {
+        StringBuilder csv = new StringBuilder("\"");
+        csv.append("x".repeat(CsvRecordReader.MAX_RECORD_CHARS + 1));
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(csv.toString()));
+
+        assertThrows(IllegalArgumentException.class, reader::readRecord);
+    }
+}
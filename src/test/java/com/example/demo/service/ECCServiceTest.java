@@ -2,6 +2,12 @@ package com.example.demo.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -131,4 +137,253 @@ class ECCServiceTest {
         // 驗證
         assertEquals(originalText, decrypted, "解密後的文字應該與原始文字相同");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testEncryptCompactAndDecryptCompact() throws Exception {
+        String[] keyPair = eccService.generateKeyPair();
+        String originalText = "{\"totp\":\"145351\",\"name\":\"李長恩\"}";
+
+        // 精簡格式：32 bytes 臨時公鑰 + 12 bytes nonce + 密文（含 16 bytes tag），不含長度前綴
+        byte[] plaintext = originalText.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        byte[] sealed = eccService.encryptCompact(plaintext, eccService.parsePublicKey(keyPair[0]));
+        assertEquals(32 + 12 + plaintext.length + 16, sealed.length);
+        assertEquals(originalText, eccService.decryptCompact(sealed, keyPair[1]));
+
+        // 竄改密文應驗證失敗
+        sealed[sealed.length - 1] ^= 1;
+        assertThrows(SecurityException.class, () -> eccService.decryptCompact(sealed, keyPair[1]));
+    }
+
+    @Test
+    void testParsedKeysAreCached() throws Exception {
+        String[] keyPair = eccService.generateKeyPair();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("資料" + i, eccService.decrypt(eccService.encrypt("資料" + i, keyPair[0]), keyPair[1]));
+        }
+        assertSame(eccService.parsePublicKey(keyPair[0]), eccService.parsePublicKey(keyPair[0]));
+
+        // 同一把公鑰與私鑰只解析一次，其餘皆由快取取得
+        java.util.Map<String, java.util.Map<String, Long>> stats = eccService.getKeyCacheStats();
+        assertEquals(1L, stats.get("publicKeys").get("misses"));
+        assertEquals(4L, stats.get("publicKeys").get("hits"));
+        assertEquals(1L, stats.get("privateKeys").get("misses"));
+        assertEquals(2L, stats.get("privateKeys").get("hits"));
+
+        // 不合法的金鑰仍拋出例外，且不留在快取中
+        assertThrows(java.security.GeneralSecurityException.class, () -> eccService.parsePublicKey("AAAA"));
+        assertEquals(1L, eccService.getKeyCacheStats().get("publicKeys").get("size"));
+    }
+
+    @Test
+    void testPooledCipherDecryptsSameCiphertextRepeatedly() throws Exception {
+        String[] keyPair = eccService.generateKeyPair();
+        String encrypted = eccService.encrypt("重複驗證", keyPair[0]);
+        byte[] compact = eccService.encryptCompact("重複驗證".getBytes(java.nio.charset.StandardCharsets.UTF_8),
+            eccService.parsePublicKey(keyPair[0]));
+
+        // 同一份密文重複解密（例如同一張 QR Code 掃描兩次），物件池中的 Cipher 不可因金鑰與 nonce 相同而拒絕
+        for (int i = 0; i < 3; i++) {
+            assertEquals("重複驗證", eccService.decrypt(encrypted, keyPair[1]));
+            assertEquals("重複驗證", eccService.decryptCompact(compact, keyPair[1]));
+        }
+        assertTrue(CryptoPools.getStats().get("chacha20Poly1305").get("reused") > 0);
+    }
+
+    @Test
+    void testByteBufferApiMatchesStringFormat() throws Exception {
+        String[] keyPair = eccService.generateKeyPair();
+        java.security.PublicKey publicKey = eccService.parsePublicKey(keyPair[0]);
+        java.security.PrivateKey privateKey = eccService.parsePrivateKey(keyPair[1]);
+        byte[] plain = "緩衝區加解密".getBytes(java.nio.charset.StandardCharsets.UTF_8);
+
+        // 以 direct buffer 加密（輸出前後各留空間），再由 String 版本解密：格式相同
+        java.nio.ByteBuffer sealed = java.nio.ByteBuffer.allocateDirect(ECCService.sealedLength(plain.length) + 8);
+        sealed.position(3);
+        int written = eccService.encrypt(java.nio.ByteBuffer.wrap(plain), publicKey, sealed);
+        assertEquals(ECCService.sealedLength(plain.length), written);
+        byte[] sealedBytes = new byte[written];
+        sealed.flip().position(3);
+        sealed.get(sealedBytes);
+        assertEquals("緩衝區加解密", eccService.decrypt(java.util.Base64.getEncoder().encodeToString(sealedBytes), privateKey));
+
+        // String 版本加密，以陣列位移與呼叫端提供的緩衝區解密
+        byte[] fromString = java.util.Base64.getDecoder().decode(eccService.encrypt("緩衝區加解密", publicKey));
+        byte[] padded = new byte[fromString.length + 5];
+        System.arraycopy(fromString, 0, padded, 5, fromString.length);
+        assertArrayEquals(plain, eccService.decrypt(padded, 5, fromString.length, privateKey));
+        java.nio.ByteBuffer output = java.nio.ByteBuffer.allocate(plain.length);
+        assertEquals(plain.length, eccService.decrypt(java.nio.ByteBuffer.wrap(fromString), privateKey, output));
+        assertArrayEquals(plain, output.array());
+
+        // 精簡格式
+        byte[] compact = eccService.encryptCompact(plain, publicKey);
+        assertEquals(ECCService.compactSealedLength(plain.length), compact.length);
+        java.nio.ByteBuffer compactOutput = java.nio.ByteBuffer.allocateDirect(plain.length);
+        assertEquals(plain.length, eccService.decryptCompact(java.nio.ByteBuffer.wrap(compact), privateKey, compactOutput));
+
+        // 輸出空間不足與資料被竄改
+        assertThrows(javax.crypto.ShortBufferException.class,
+            () -> eccService.decrypt(java.nio.ByteBuffer.wrap(fromString), privateKey, java.nio.ByteBuffer.allocate(plain.length - 1)));
+        assertThrows(javax.crypto.ShortBufferException.class,
+            () -> eccService.encryptCompact(java.nio.ByteBuffer.wrap(plain), publicKey, java.nio.ByteBuffer.allocate(10)));
+        compact[compact.length - 1] ^= 1;
+        assertThrows(SecurityException.class, () -> eccService.decryptCompact(compact, privateKey));
+        assertThrows(IllegalArgumentException.class, () -> eccService.decrypt(new byte[] {0, 0, 0, 99, 1}, 0, 5, privateKey));
+    }
+
+    @Test
+    void testSessionModeReusesKeyAgreementAndRotates() throws Exception {
+        ECCService issuer = new ECCService(16, 0, 1, RandomSource.system());
+        String[] keyPair = eccService.generateKeyPair();
+        java.security.PublicKey publicKey = eccService.parsePublicKey(keyPair[0]);
+        java.security.PrivateKey privateKey = eccService.parsePrivateKey(keyPair[1]);
+
+        // 同一期間內共用工作階段公鑰，nonce 不重複
+        java.util.Set<String> nonces = new java.util.HashSet<>();
+        byte[] first = null;
+        for (int i = 0; i < 5; i++) {
+            byte[] sealed = issuer.encryptSession(("工作階段" + i).getBytes(java.nio.charset.StandardCharsets.UTF_8), publicKey);
+            if (first == null) {
+                first = sealed;
+            }
+            assertArrayEquals(java.util.Arrays.copyOf(first, 32), java.util.Arrays.copyOf(sealed, 32));
+            assertTrue(nonces.add(java.util.Base64.getEncoder().encodeToString(java.util.Arrays.copyOfRange(sealed, 32, 44))));
+            assertEquals("工作階段" + i, eccService.decryptSession(sealed, privateKey));
+        }
+        assertEquals(1L, issuer.getKeyCacheStats().get("issuerSessions").get("rotations"));
+
+        // 驗證端只對同一個工作階段做一次金鑰協商
+        assertEquals(1L, eccService.getKeyCacheStats().get("sessionKeys").get("misses"));
+        assertEquals(4L, eccService.getKeyCacheStats().get("sessionKeys").get("hits"));
+
+        // 期間結束後更換工作階段金鑰，舊密文仍可解密
+        Thread.sleep(1100);
+        byte[] rotated = issuer.encryptSession("新期間".getBytes(java.nio.charset.StandardCharsets.UTF_8), publicKey);
+        assertFalse(java.util.Arrays.equals(java.util.Arrays.copyOf(first, 32), java.util.Arrays.copyOf(rotated, 32)));
+        assertEquals(2L, issuer.getKeyCacheStats().get("issuerSessions").get("rotations"));
+        assertEquals("新期間", eccService.decryptSession(rotated, privateKey));
+        assertEquals("工作階段0", eccService.decryptSession(first, privateKey));
+
+        // 資料被竄改，或以單次 ECDH 的方式解密時失敗
+        byte[] tampered = rotated.clone();
+        tampered[tampered.length - 1] ^= 1;
+        assertThrows(SecurityException.class, () -> eccService.decryptSession(tampered, privateKey));
+        assertThrows(SecurityException.class, () -> eccService.decryptCompact(rotated, privateKey));
+    }
+
+    @Test
+    void testSessionModeRejectsExpiredSession() throws Exception {
+        MutableClock clock = new MutableClock(1_700_000_000L);
+        ECCService issuer = new ECCService(16, 0, 60, RandomSource.system(), clock);
+        ECCService receiver = new ECCService(16, 0, 60, RandomSource.system(), clock);
+        String[] keyPair = eccService.generateKeyPair();
+        java.security.PublicKey publicKey = eccService.parsePublicKey(keyPair[0]);
+        java.security.PrivateKey privateKey = eccService.parsePrivateKey(keyPair[1]);
+
+        byte[] sealed = issuer.encryptSession("工作階段".getBytes(java.nio.charset.StandardCharsets.UTF_8), publicKey);
+        assertEquals("工作階段", receiver.decryptSession(sealed, privateKey));
+
+        // 工作階段公鑰最高位元不同時仍視為同一個工作階段，不另外建立快取項目
+        byte[] flipped = sealed.clone();
+        flipped[31] ^= (byte) 0x80;
+        assertEquals("工作階段", receiver.decryptSession(flipped, privateKey));
+        assertEquals(1L, receiver.getKeyCacheStats().get("sessionKeys").get("misses"));
+
+        // 寬限時間內仍可解密，超過後拒絕（包含改變最高位元的版本）
+        clock.advance(60 + 119);
+        assertEquals("工作階段", receiver.decryptSession(sealed, privateKey));
+        clock.advance(1);
+        assertThrows(SecurityException.class, () -> receiver.decryptSession(sealed, privateKey));
+        assertThrows(SecurityException.class, () -> receiver.decryptSession(flipped, privateKey));
+
+        // 竄改 nonce 中的開始時間會使 Poly1305 驗證失敗
+        byte[] restarted = sealed.clone();
+        long now = 1_700_000_000L + 180;
+        for (int i = 0; i < 4; i++) {
+            restarted[32 + i] = (byte) (now >>> (24 - 8 * i));
+        }
+        assertThrows(SecurityException.class, () -> receiver.decryptSession(restarted, privateKey));
+
+        // 另一把接收方私鑰有自己的工作階段
+        String[] otherPair = eccService.generateKeyPair();
+        java.security.PublicKey otherPublic = eccService.parsePublicKey(otherPair[0]);
+        java.security.PrivateKey otherPrivate = eccService.parsePrivateKey(otherPair[1]);
+        byte[] other = issuer.encryptSession("另一個".getBytes(java.nio.charset.StandardCharsets.UTF_8), otherPublic);
+        assertEquals("另一個", receiver.decryptSession(other, otherPrivate));
+        assertThrows(SecurityException.class, () -> receiver.decryptSession(other, privateKey));
+    }
+
+    @Test
+    void testSessionModeRejectsExpiredSessionAfterCacheEviction() throws Exception {
+        MutableClock clock = new MutableClock(1_700_000_000L);
+        ECCService issuer = new ECCService(16, 0, 60, RandomSource.system(), clock);
+        // 快取只保留一個工作階段，第二個工作階段會移除第一個
+        ECCService receiver = new ECCService(1, 0, 60, RandomSource.system(), clock);
+        String[] keyPair = eccService.generateKeyPair();
+        java.security.PublicKey publicKey = eccService.parsePublicKey(keyPair[0]);
+        java.security.PrivateKey privateKey = eccService.parsePrivateKey(keyPair[1]);
+
+        byte[] expired = issuer.encryptSession("舊期間".getBytes(java.nio.charset.StandardCharsets.UTF_8), publicKey);
+        assertEquals("舊期間", receiver.decryptSession(expired, privateKey));
+
+        clock.advance(60 + 120);
+        byte[] current = issuer.encryptSession("新期間".getBytes(java.nio.charset.StandardCharsets.UTF_8), publicKey);
+        assertEquals("新期間", receiver.decryptSession(current, privateKey));
+        assertEquals(1L, receiver.getKeyCacheStats().get("sessionKeys").get("evictions"));
+
+        // 舊工作階段已不在快取中，仍依 nonce 中的開始時間拒絕
+        assertThrows(SecurityException.class, () -> receiver.decryptSession(expired, privateKey));
+        assertEquals(1L, receiver.getKeyCacheStats().get("sessionKeys").get("size"));
+    }
+
+    @Test
+    void testSessionModeBoundsPrivateKeyIds() throws Exception {
+        // 私鑰識別碼快取只保留兩把私鑰，超過時依 LRU 移除而不是整批清空
+        ECCService receiver = new ECCService(2, 0, 60, RandomSource.system(), Clock.systemUTC());
+        for (int i = 0; i < 5; i++) {
+            String[] keyPair = eccService.generateKeyPair();
+            java.security.PublicKey publicKey = eccService.parsePublicKey(keyPair[0]);
+            java.security.PrivateKey privateKey = eccService.parsePrivateKey(keyPair[1]);
+            byte[] sealed = eccService.encryptSession("內容".getBytes(java.nio.charset.StandardCharsets.UTF_8), publicKey);
+            assertEquals("內容", receiver.decryptSession(sealed, privateKey));
+            // 以相同編碼重新解析出的私鑰物件共用同一個識別碼
+            assertEquals("內容", receiver.decryptSession(sealed, eccService.parsePrivateKey(keyPair[1])));
+        }
+
+        java.util.Map<String, Long> ids = receiver.getKeyCacheStats().get("privateKeyIds");
+        assertEquals(2L, ids.get("size"));
+        assertEquals(3L, ids.get("evictions"));
+        assertEquals(5L, ids.get("hits"));
+    }
+
+    /**
+     * 可手動推進的時間來源
+     */
+    private static final class MutableClock extends Clock {
+        private volatile long epochSecond;
+
+        private MutableClock(long epochSecond) {
+            this.epochSecond = epochSecond;
+        }
+
+        private void advance(long seconds) {
+            epochSecond += seconds;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochSecond(epochSecond);
+        }
+    }
+}
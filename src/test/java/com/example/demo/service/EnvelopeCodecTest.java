@@ -0,0 +1,139 @@
+package com.example.demo.service;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.decoder.Mode;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.google.zxing.qrcode.encoder.QRCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EnvelopeCodec 的單元測試
+ */
+public class EnvelopeCodecTest {
+
+    private final ECCService eccService = new ECCService();
+    private final HMACService hmacService = new HMACService();
+
+    @Test
+    public void testBase45MatchesRfc9285Examples() {
+        assertEquals("BB8", EnvelopeCodec.encodeBase45("AB".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("%69 VD92EX0", EnvelopeCodec.encodeBase45("Hello!!".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("UJCLQE7W581", EnvelopeCodec.encodeBase45("base-45".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("ietf!", new String(EnvelopeCodec.decodeBase45("QED8WEX0", 0), StandardCharsets.US_ASCII));
+
+        // 不合法的字元、長度與數值
+        assertThrows(IllegalArgumentException.class, () -> EnvelopeCodec.decodeBase45("abc", 0));
+        assertThrows(IllegalArgumentException.class, () -> EnvelopeCodec.decodeBase45("BB8B", 0));
+        assertThrows(IllegalArgumentException.class, () -> EnvelopeCodec.decodeBase45("GGW", 0));
+    }
+
+    @Test
+    public void testIsSafeLabelAcceptsOnlyShortAlphanumericLabels() {
+        assertTrue(EnvelopeCodec.isSafeLabel("K1"));
+        assertTrue(EnvelopeCodec.isSafeLabel("partner_A-01"));
+        assertTrue(EnvelopeCodec.isSafeLabel("x".repeat(EnvelopeCodec.MAX_LABEL_BYTES)));
+
+        assertFalse(EnvelopeCodec.isSafeLabel(null));
+        assertFalse(EnvelopeCodec.isSafeLabel(""));
+        assertFalse(EnvelopeCodec.isSafeLabel("x".repeat(EnvelopeCodec.MAX_LABEL_BYTES + 1)));
+        assertFalse(EnvelopeCodec.isSafeLabel("K1\r\nX-Other: 1"));
+        assertFalse(EnvelopeCodec.isSafeLabel("金鑰"));
+    }
+
+    @Test
+    public void testEncodeAndDecodeRoundTripsWithRealKeys() throws Exception {
+        String[] keyPair = eccService.generateKeyPair();
+        SecretKey hmacKey = hmacService.parseKey(hmacService.generateHMACKey().get("hmacKey"));
+        String plain = "{\"name\":\"王小明\",\"phone\":\"0912345678\",\"totp\":\"123456\"}";
+
+        byte[] hmac = hmacService.calculateRawHMAC(plain, hmacKey);
+        byte[] sealed = eccService.encryptCompact(plain.getBytes(StandardCharsets.UTF_8), eccService.parsePublicKey(keyPair[0]));
+        String payload = EnvelopeCodec.encode("SS", "default", hmac, sealed);
+
+        assertTrue(payload.startsWith(EnvelopeCodec.PREFIX));
+        assertTrue(payload.matches("[0-9A-Z $%*+\\-./:]+"));
+
+        EnvelopeCodec.Envelope envelope = EnvelopeCodec.decode(payload);
+        assertEquals("SS", envelope.getDataType());
+        assertEquals("default", envelope.getKeyCode());
+        assertArrayEquals(hmac, envelope.getHmac());
+        assertEquals(plain, eccService.decryptCompact(envelope.getSealed(), keyPair[1]));
+    }
+
+    @Test
+    public void testEncodeSessionUsesV3PrefixAndDecodesAsSession() throws Exception {
+        String[] keyPair = eccService.generateKeyPair();
+        String plain = "{\"name\":\"王小明\"}";
+        byte[] sealed = eccService.encryptSession(plain.getBytes(StandardCharsets.UTF_8), eccService.parsePublicKey(keyPair[0]));
+        String payload = EnvelopeCodec.encodeSession("SS", "default", new byte[32], sealed);
+
+        assertTrue(payload.startsWith(EnvelopeCodec.SESSION_PREFIX));
+        assertTrue(EnvelopeCodec.isCompact(payload));
+
+        EnvelopeCodec.Envelope envelope = EnvelopeCodec.decode(payload);
+        assertTrue(envelope.isSession());
+        assertFalse(EnvelopeCodec.decode(EnvelopeCodec.encode("SS", "default", new byte[32], sealed)).isSession());
+        assertEquals(plain, eccService.decryptSession(envelope.getSealed(), eccService.parsePrivateKey(keyPair[1])));
+    }
+
+    @Test
+    public void testCompactPayloadUsesAlphanumericModeAndLowerVersion() throws Exception {
+        String[] keyPair = eccService.generateKeyPair();
+        String hmacKeyBase64 = hmacService.generateHMACKey().get("hmacKey");
+        PublicKey publicKey = eccService.parsePublicKey(keyPair[0]);
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", "王小明");
+        fields.put("phone", "0912345678");
+        fields.put("totp", "123456");
+        String plain = new ObjectMapper().writeValueAsString(fields);
+
+        // v1：JSON {t, d, h, k}，d 與 h 為 Base64
+        Map<String, String> v1 = new HashMap<>();
+        v1.put("t", "SS");
+        v1.put("d", eccService.encrypt(plain, publicKey));
+        v1.put("h", hmacService.calculateHMAC(plain, hmacService.parseKey(hmacKeyBase64)));
+        v1.put("k", "default");
+        String v1Payload = new ObjectMapper().writeValueAsString(v1);
+
+        // v2：Base45 精簡格式
+        String v2Payload = EnvelopeCodec.encode("SS", "default",
+            hmacService.calculateRawHMAC(plain, hmacService.parseKey(hmacKeyBase64)),
+            eccService.encryptCompact(plain.getBytes(StandardCharsets.UTF_8), publicKey));
+
+        Map<EncodeHintType, Object> hints = Map.of(EncodeHintType.CHARACTER_SET, "UTF-8");
+        QRCode v1Code = Encoder.encode(v1Payload, ErrorCorrectionLevel.H, hints);
+        QRCode v2Code = Encoder.encode(v2Payload, ErrorCorrectionLevel.H, hints);
+        System.out.println("v1 內容長度 " + v1Payload.length() + "，版本 " + v1Code.getVersion().getVersionNumber()
+            + "；v2 內容長度 " + v2Payload.length() + "，版本 " + v2Code.getVersion().getVersionNumber());
+
+        assertEquals(Mode.ALPHANUMERIC, v2Code.getMode());
+        assertTrue(v2Code.getVersion().getVersionNumber() < v1Code.getVersion().getVersionNumber());
+    }
+
+    @Test
+    public void testDecodeRejectsMalformedPayloads() {
+        byte[] hmac = new byte[EnvelopeCodec.HMAC_LENGTH];
+        byte[] sealed = new byte[60];
+        String payload = EnvelopeCodec.encode("SS", "default", hmac, sealed);
+
+        assertThrows(IllegalArgumentException.class, () -> EnvelopeCodec.decode("{\"d\":\"x\"}"));
+        assertThrows(IllegalArgumentException.class,
+            () -> EnvelopeCodec.decode(payload.substring(0, payload.length() - 30)));
+        assertThrows(IllegalArgumentException.class, () -> EnvelopeCodec.decode(EnvelopeCodec.PREFIX + "abc"));
+        assertThrows(IllegalArgumentException.class, () -> EnvelopeCodec.encode("SS", "k".repeat(33), hmac, sealed));
+        assertThrows(IllegalArgumentException.class,
+            () -> EnvelopeCodec.encode("SS", "default", Arrays.copyOf(hmac, 16), sealed));
+    }
+}
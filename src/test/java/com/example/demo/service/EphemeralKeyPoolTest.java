@@ -0,0 +1,89 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EphemeralKeyPool 的單元測試
+ */
+public class EphemeralKeyPoolTest {
+
+    @Test
+    public void testTakeHandsOutEachKeyPairOnceAndFallsBackWhenEmpty() {
+        EphemeralKeyPool pool = new EphemeralKeyPool(() -> new KeyPair(null, null), 4, 16);
+
+        pool.refill();
+        assertEquals(4, pool.size());
+
+        Set<KeyPair> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 4; i++) {
+            KeyPair keyPair = pool.take();
+            assertNotNull(keyPair);
+            assertTrue(seen.add(keyPair));
+        }
+        assertNull(pool.take());
+
+        Map<String, Long> stats = pool.getStats();
+        assertEquals(4, stats.get("produced"));
+        assertEquals(4, stats.get("taken"));
+        assertEquals(1, stats.get("fallbacks"));
+    }
+
+    @Test
+    public void testRefillAdaptsTargetToIssuanceRate() throws Exception {
+        EphemeralKeyPool pool = new EphemeralKeyPool(() -> new KeyPair(null, null), 2, 64);
+        pool.refill();
+        assertEquals(2, pool.getTargetSize());
+
+        // 短時間內大量取用：目標數量提高
+        Thread.sleep(60);
+        for (int i = 0; i < 200; i++) {
+            pool.take();
+        }
+        pool.refill();
+        int burstTarget = pool.getTargetSize();
+        assertTrue(burstTarget > 2);
+        assertEquals(burstTarget, pool.size());
+
+        // 不再取用：目標數量逐步回落，多出的金鑰對被丟棄
+        for (int i = 0; i < 30 && pool.getTargetSize() > 2; i++) {
+            Thread.sleep(60);
+            pool.refill();
+        }
+        assertEquals(2, pool.getTargetSize());
+        assertEquals(2, pool.size());
+        assertEquals(burstTarget - 2L, pool.getStats().get("discarded"));
+    }
+
+    @Test
+    public void testEccServiceEncryptsWithPregeneratedKeyPairs() throws Exception {
+        ECCService eccService = new ECCService(16, 16);
+        eccService.start();
+        try {
+            String[] keyPair = eccService.generateKeyPair();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (eccService.getEphemeralKeyPoolStats().get("size") < 8 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            String first = eccService.encrypt("預先產生", keyPair[0]);
+            String second = eccService.encrypt("預先產生", keyPair[0]);
+
+            // 每次加密使用不同的臨時金鑰對
+            assertNotEquals(second.substring(0, 60), first.substring(0, 60));
+            assertEquals("預先產生", eccService.decrypt(first, keyPair[1]));
+            assertEquals("預先產生", eccService.decrypt(second, keyPair[1]));
+            assertEquals(2, eccService.getEphemeralKeyPoolStats().get("taken"));
+        } finally {
+            eccService.shutdown();
+        }
+        assertEquals(0, eccService.getEphemeralKeyPoolStats().get("size"));
+    }
+}
@@ -115,4 +115,25 @@ public class HMACServiceTest {
         assertNotNull(hmac, "長資料的 HMAC 不應為空");
         assertTrue(hmac.matches("^[A-Za-z0-9+/=]+$"), "長資料的 HMAC 應為 Base64 格式");
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testEngineIsCachedByKeyFingerprint() throws Exception {
+        HMACService service = new HMACService(4);
+        String key = service.generateHMACKey().get("hmacKey");
+        String data = "testData";
+
+        // 同一把金鑰（字串或已解析的金鑰物件）沿用已初始化的 HmacEngine
+        HmacEngine engine = service.engine(key);
+        assertSame(engine, service.engine(key));
+        HmacEngine parsedEngine = service.engine(service.parseKey(key));
+        assertSame(parsedEngine, service.engine(service.parseKey(key)));
+        assertArrayEquals(engine.mac(data), parsedEngine.mac(data));
+
+        // calculateRawHMAC 不再重新初始化 Mac，而是使用快取中的 HmacEngine
+        long misses = service.getEngineCacheStats().get("misses");
+        assertArrayEquals(engine.mac(data), service.calculateRawHMAC(data, service.parseKey(key)));
+        assertEquals(service.calculateHMAC(data, key), service.calculateHMAC(data, service.parseKey(key)));
+        assertEquals(misses, service.getEngineCacheStats().get("misses"));
+        assertNotSame(engine, service.engine(service.generateHMACKey().get("hmacKey")));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HmacEngine 的單元測試
+ */
+public class HmacEngineTest {
+
+    private final HMACService hmacService = new HMACService();
+
+    @Test
+    public void testMacMatchesHmacServiceAndVerifiesRawBytes() throws Exception {
+        SecretKey key = hmacService.parseKey(hmacService.generateHMACKey().get("hmacKey"));
+        HmacEngine engine = new HmacEngine(key);
+        String data = "{\"name\":\"測試\",\"totp\":\"123456\"}";
+        byte[] expected = hmacService.calculateRawHMAC(data, key);
+
+        assertArrayEquals(expected, engine.mac(data));
+        assertArrayEquals(expected, engine.mac(data));
+        assertEquals(hmacService.calculateHMAC(data, key), Base64.getEncoder().encodeToString(engine.mac(data)));
+
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        assertTrue(engine.verify(bytes, expected));
+        byte[] tampered = expected.clone();
+        tampered[HmacEngine.TAG_LENGTH - 1] ^= 1;
+        assertFalse(engine.verify(bytes, tampered));
+        assertFalse(engine.verify(bytes, Arrays.copyOf(expected, 16)));
+        assertFalse(engine.verify(bytes, null));
+        assertFalse(engine.verify("other".getBytes(StandardCharsets.UTF_8), expected));
+        // 驗證失敗後 Mac 已重設，不影響下一次計算
+        assertTrue(engine.verify(bytes, expected));
+    }
+
+    @Test
+    public void testEngineIsSafeToShareAcrossThreads() throws Exception {
+        SecretKey key = hmacService.parseKey(hmacService.generateHMACKey().get("hmacKey"));
+        HmacEngine engine = new HmacEngine(key);
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        byte[] data = ("資料-" + thread + "-" + i).getBytes(StandardCharsets.UTF_8);
+                        byte[] tag = hmacService.calculateRawHMAC(new String(data, StandardCharsets.UTF_8), key);
+                        if (!engine.verify(data, tag) || !Arrays.equals(engine.mac(data), tag)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
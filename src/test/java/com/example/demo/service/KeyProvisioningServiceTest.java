@@ -0,0 +1,132 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KeyProvisioningService 的單元測試
+ */
+public class KeyProvisioningServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ECCService eccService = new ECCService();
+    private final RSA2048Service rsaService = new RSA2048Service();
+    private final HMACService hmacService = new HMACService();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private KeyProvisioningService provisioningService;
+
+    @AfterEach
+    public void tearDown() {
+        if (provisioningService != null) {
+            provisioningService.shutdown();
+        }
+    }
+
+    @Test
+    public void testPlanValidatesParametersAndFormatsKeyCodes() {
+        provisioningService = create(0);
+
+        KeyProvisioningService.ProvisioningPlan plan = provisioningService.plan(null, "LOC-", null, 3, null);
+        assertEquals(PayloadCipher.X25519, plan.getAlgorithm());
+        assertEquals(KeyProvisioningService.FORMAT_NDJSON, plan.getFormat());
+        assertEquals("LOC-00001", plan.keyCode(1));
+        assertEquals("100000", provisioningService.plan(null, "", 99999, 2, null).keyCode(100000));
+
+        assertThrows(IllegalArgumentException.class, () -> provisioningService.plan(null, "LOC-", 1, 0, null));
+        assertThrows(IllegalArgumentException.class,
+            () -> provisioningService.plan(null, "LOC-", 1, KeyProvisioningService.MAX_COUNT + 1, null));
+        assertThrows(IllegalArgumentException.class, () -> provisioningService.plan(null, "取件點", 1, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> provisioningService.plan(null, "X".repeat(30), 1, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> provisioningService.plan(null, "LOC-", 1, 1, "pem"));
+        assertThrows(IllegalArgumentException.class,
+            () -> provisioningService.plan(PayloadCipher.RSA_OAEP_2048, "LOC-", 1, 1, "keyring"));
+    }
+
+    @Test
+    public void testWriteNdjsonStreamsOrderedUniqueKeySetsUsingPregeneratedPairs() throws Exception {
+        provisioningService = create(8);
+        provisioningService.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (provisioningService.getPoolStats().get(PayloadCipher.X25519).get("size") < 4
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        provisioningService.writeNdjson(provisioningService.plan(null, "LOC-", 5, 40, null), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(40, lines.length);
+        Set<String> privateKeys = new HashSet<>();
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode line = objectMapper.readTree(lines[i]);
+            assertEquals(5 + i, line.get("index").asInt());
+            assertEquals(String.format("LOC-%05d", 5 + i), line.get("keyCode").asText());
+            assertFalse(line.has("error"));
+            assertTrue(privateKeys.add(line.get("privateKey").asText()));
+        }
+
+        // 配發的金鑰可直接用於加解密與 HMAC
+        JsonNode first = objectMapper.readTree(lines[0]);
+        String encrypted = eccService.encrypt("配發", first.get("publicKey").asText());
+        assertEquals("配發", eccService.decrypt(encrypted, first.get("privateKey").asText()));
+        assertEquals(32, hmacService.parseKey(first.get("hmacKey").asText()).getEncoded().length);
+        assertTrue(provisioningService.getPoolStats().get(PayloadCipher.X25519).get("taken") > 0);
+    }
+
+    @Test
+    public void testWriteKeyringProducesSealedBundleLoadableByKeyringService() throws Exception {
+        provisioningService = create(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        provisioningService.writeKeyring(provisioningService.plan(null, "LOC-", 1, 12, "keyring"), "s3cret".toCharArray(), out);
+        String bundle = out.toString(StandardCharsets.UTF_8);
+        assertTrue(bundle.contains(KeyringService.SEALED_FORMAT));
+        assertFalse(bundle.contains("LOC-00001"));
+
+        Path file = tempDir.resolve("keyring.json");
+        Files.write(file, out.toByteArray());
+        KeyringService keyringService = new KeyringService(eccService, hmacService, file.toString(), "s3cret", 0);
+        keyringService.start();
+        try {
+            assertNotNull(keyringService.find("LOC-00001"));
+            assertNotNull(keyringService.find("LOC-00012"));
+            assertEquals(12, keyringService.describe().size());
+        } finally {
+            keyringService.shutdown();
+        }
+    }
+
+    @Test
+    public void testWriteNdjsonGeneratesRsaKeySetsInline() throws Exception {
+        provisioningService = create(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        provisioningService.writeNdjson(provisioningService.plan(PayloadCipher.RSA_OAEP_2048, "P-", 1, 2, null), out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode line = objectMapper.readTree(lines[1]);
+        assertEquals(PayloadCipher.RSA_OAEP_2048, line.get("algorithm").asText());
+        String encrypted = rsaService.encrypt("配發", line.get("publicKey").asText());
+        assertEquals("配發", rsaService.decrypt(encrypted, line.get("privateKey").asText()));
+    }
+
+    private KeyProvisioningService create(int poolMaxSize) {
+        PayloadCipherRegistry registry = new PayloadCipherRegistry(List.of(eccService, rsaService));
+        return new KeyProvisioningService(registry, new TOTPService(), hmacService, poolMaxSize);
+    }
+}
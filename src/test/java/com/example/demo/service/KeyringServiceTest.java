@@ -0,0 +1,182 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KeyringService 的單元測試
+ */
+public class KeyringServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ECCService eccService = new ECCService();
+    private final HMACService hmacService = new HMACService();
+    private final TOTPService totpService = new TOTPService();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private KeyringService keyringService;
+
+    @AfterEach
+    public void tearDown() {
+        if (keyringService != null) {
+            keyringService.shutdown();
+        }
+    }
+
+    @Test
+    public void testStartLoadsKeysAndResolvesByKeyCode() throws Exception {
+        Map<String, String> k1 = keySet("K1", 1, true);
+        Map<String, String> k2 = keySet("K2", 2, true);
+        Path file = write("keyring.json", bundle(null, k1, k2));
+
+        keyringService = start(file, "");
+
+        assertTrue(keyringService.isEnabled());
+        assertEquals("K2", keyringService.getCurrent().getKeyCode());
+        assertNull(keyringService.find("missing"));
+        assertEquals(List.of("K2", "K1"), keyringService.describe().stream().map(item -> item.get("keyCode")).toList());
+
+        // 金鑰已解析完成，可直接解密並計算 HMAC
+        KeyringEntry entry = keyringService.find("K1");
+        String plain = "{\"totp\":\"123456\"}";
+        String encrypted = eccService.encrypt(plain, k1.get("publicKey"));
+        assertEquals(plain, eccService.decrypt(encrypted, entry.getPrivateKey()));
+        assertArrayEquals(hmacService.calculateRawHMAC(plain, hmacService.parseKey(k1.get("hmacKey"))),
+                                  entry.hmac(plain));
+        assertEquals(k1.get("totpKey"), entry.getTotpKey());
+    }
+
+    @Test
+    public void testStartOpensSealedBundleWithPassword() throws Exception {
+        Map<String, String> k1 = keySet("K1", 1, false);
+        String sealed = KeyringService.sealBundle(bundle("K1", k1), "s3cret".toCharArray());
+        assertFalse(sealed.contains(k1.get("privateKey")));
+        Path file = write("keyring.sealed.json", sealed);
+
+        keyringService = start(file, "s3cret");
+        assertNotNull(keyringService.find("K1"));
+
+        KeyringService wrongPassword = new KeyringService(eccService, hmacService, file.toString(), "wrong", 0);
+        assertThrows(IllegalStateException.class, wrongPassword::start);
+        KeyringService noPassword = new KeyringService(eccService, hmacService, file.toString(), "", 0);
+        assertThrows(IllegalStateException.class, noPassword::start);
+    }
+
+    @Test
+    public void testReloadIfChangedSwapsKeysAndKeepsOldKeysOnInvalidFile() throws Exception {
+        Map<String, String> k1 = keySet("K1", 1, true);
+        Map<String, String> k2 = keySet("K2", 2, true);
+        Path file = write("keyring.json", bundle(null, k1));
+        keyringService = start(file, "");
+
+        assertFalse(keyringService.reloadIfChanged());
+
+        // 金鑰輪替：新增第二代金鑰，舊金鑰仍可驗證
+        Files.writeString(file, bundle(null, k1, k2));
+        assertTrue(keyringService.reloadIfChanged());
+        assertEquals("K2", keyringService.getCurrent().getKeyCode());
+        assertNotNull(keyringService.find("K1"));
+
+        // 內容有誤時保留原本的金鑰
+        Files.writeString(file, "{\"keys\":[]}");
+        assertFalse(keyringService.reloadIfChanged());
+        assertNotNull(keyringService.find("K2"));
+    }
+
+    @Test
+    public void testStartRejectsInvalidBundles() throws Exception {
+        Map<String, String> k1 = keySet("K1", 1, true);
+        Map<String, String> other = keySet("K2", 2, true);
+
+        // 金鑰代碼重複
+        assertStartFails(bundle(null, k1, k1), "重複");
+
+        // 公鑰與私鑰不是同一組
+        Map<String, String> mismatched = new LinkedHashMap<>(k1);
+        mismatched.put("publicKey", other.get("publicKey"));
+        assertStartFails(bundle(null, mismatched), "不相符");
+
+        // current 指向不存在的金鑰代碼
+        assertStartFails(bundle("K9", k1), "K9");
+
+        // 缺少必要欄位
+        Map<String, String> missing = new LinkedHashMap<>(k1);
+        missing.remove("hmacKey");
+        assertStartFails(bundle(null, missing), "hmacKey");
+    }
+
+    @Test
+    public void testStartWithoutPathIsDisabled() {
+        keyringService = new KeyringService(eccService, hmacService, "", "", 10);
+        keyringService.start();
+
+        assertFalse(keyringService.isEnabled());
+        assertNull(keyringService.find("K1"));
+        assertNull(keyringService.getCurrent());
+    }
+
+    private void assertStartFails(String content, String message) throws Exception {
+        Path file = write("invalid-" + System.nanoTime() + ".json", content);
+        KeyringService service = new KeyringService(eccService, hmacService, file.toString(), "", 0);
+        Throwable cause = assertThrows(IllegalStateException.class, service::start);
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        assertTrue(cause.getMessage().contains(message), cause.getMessage());
+    }
+
+    private KeyringService start(Path file, String password) {
+        KeyringService service = new KeyringService(eccService, hmacService, file.toString(), password, 0);
+        service.start();
+        return service;
+    }
+
+    private Map<String, String> keySet(String keyCode, int generation, boolean withPublicKey) throws Exception {
+        String[] keyPair = eccService.generateKeyPair();
+        Map<String, String> keys = new LinkedHashMap<>();
+        keys.put("keyCode", keyCode);
+        keys.put("generation", String.valueOf(generation));
+        keys.put("privateKey", keyPair[1]);
+        if (withPublicKey) {
+            keys.put("publicKey", keyPair[0]);
+        }
+        keys.put("totpKey", totpService.generateTOTPKey().get("totpKey"));
+        keys.put("hmacKey", hmacService.generateHMACKey().get("hmacKey"));
+        return keys;
+    }
+
+    @SafeVarargs
+    private String bundle(String current, Map<String, String>... keySets) throws Exception {
+        Map<String, Object> root = new LinkedHashMap<>();
+        if (current != null) {
+            root.put("current", current);
+        }
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (Map<String, String> keySet : keySets) {
+            Map<String, Object> entry = new LinkedHashMap<>(keySet);
+            entry.put("generation", Integer.parseInt(keySet.get("generation")));
+            keys.add(entry);
+        }
+        root.put("keys", keys);
+        return objectMapper.writeValueAsString(root);
+    }
+
+    private Path write(String name, String content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ParsedKeyCache 的單元測試
+ */
+public class ParsedKeyCacheTest {
+
+    @Test
+    public void testGetCountsHitsAndMissesAndReturnsSameInstance() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        ParsedKeyCache<Key> cache = new ParsedKeyCache<>(4, encoded -> {
+            parses.incrementAndGet();
+            return key(encoded);
+        });
+
+        Key first = cache.get("a2V5LWE=");
+        Key second = cache.get("a2V5LWE=");
+        cache.get("a2V5LWI=");
+
+        assertSame(first, second);
+        assertEquals(2, parses.get());
+        Map<String, Long> stats = cache.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(2L, stats.get("size"));
+    }
+
+    @Test
+    public void testGetEvictsLeastRecentlyUsedKey() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        ParsedKeyCache<Key> cache = new ParsedKeyCache<>(2, encoded -> {
+            parses.incrementAndGet();
+            return key(encoded);
+        });
+
+        cache.get("A");
+        cache.get("B");
+        cache.get("A");   // A 成為最近使用
+        cache.get("C");   // 移除 B
+
+        assertEquals(2L, cache.getStats().get("size"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+        cache.get("A");
+        assertEquals(3, parses.get());
+        cache.get("B");
+        assertEquals(4, parses.get());
+    }
+
+    @Test
+    public void testGetDoesNotCacheInvalidKeys() {
+        AtomicInteger parses = new AtomicInteger();
+        ParsedKeyCache<Key> cache = new ParsedKeyCache<>(4, encoded -> {
+            parses.incrementAndGet();
+            throw new InvalidKeyException("金鑰格式錯誤");
+        });
+
+        assertThrows(InvalidKeyException.class, () -> cache.get("bad"));
+        assertThrows(InvalidKeyException.class, () -> cache.get("bad"));
+        assertEquals(2, parses.get());
+        assertEquals(0, cache.getStats().get("size"));
+    }
+
+    @Test
+    public void testGetCoalescesConcurrentFirstUse() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        CountDownLatch parsing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ParsedKeyCache<Key> cache = new ParsedKeyCache<>(4, encoded -> {
+            parses.incrementAndGet();
+            parsing.countDown();
+            awaitQuietly(release);
+            return key(encoded);
+        });
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Key>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("shared")));
+            assertTrue(parsing.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                results.add(executor.submit(() -> cache.get("shared")));
+            }
+            // 讓其他執行緒有時間進入等待後再完成解析
+            Thread.sleep(100);
+            release.countDown();
+
+            Key expected = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Key> result : results) {
+                assertSame(expected, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, parses.get());
+        assertEquals(1L, cache.getStats().get("misses"));
+        assertEquals(7L, cache.getStats().get("hits"));
+    }
+
+    private static Key key(String encoded) {
+        return new SecretKeySpec(encoded.getBytes(StandardCharsets.UTF_8), "RAW");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) throws GeneralSecurityException {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeneralSecurityException("中斷", e);
+        }
+    }
+}
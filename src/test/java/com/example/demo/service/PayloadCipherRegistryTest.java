@@ -0,0 +1,40 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PayloadCipherRegistry 的單元測試
+ */
+public class PayloadCipherRegistryTest {
+
+    private final ECCService eccService = new ECCService();
+    private final RSA2048Service rsaService = new RSA2048Service();
+    private final PayloadCipherRegistry registry = new PayloadCipherRegistry(List.of(eccService, rsaService));
+
+    @Test
+    public void testGetDefaultsToX25519AndRejectsUnknownAlgorithms() {
+        assertSame(eccService, registry.get(null));
+        assertSame(eccService, registry.get(" "));
+        assertSame(rsaService, registry.get(PayloadCipher.RSA_OAEP_2048));
+        assertEquals(List.of(PayloadCipher.X25519, PayloadCipher.RSA_OAEP_2048), registry.getAlgorithms());
+        assertThrows(IllegalArgumentException.class, () -> registry.get("DES"));
+
+        assertThrows(IllegalStateException.class, () -> new PayloadCipherRegistry(List.of(rsaService)));
+        assertThrows(IllegalStateException.class, () -> new PayloadCipherRegistry(List.of(eccService, eccService)));
+    }
+
+    @Test
+    public void testParsePrivateKeyDetectsAlgorithmFromKey() throws Exception {
+        String x25519Key = eccService.generateKeyPair()[1];
+        String rsaKey = rsaService.generateKeyPairMap().get("privateKey");
+
+        assertSame(eccService, registry.forKey(registry.parsePrivateKey(x25519Key)));
+        assertSame(rsaService, registry.forKey(registry.parsePrivateKey(rsaKey)));
+        assertThrows(java.security.GeneralSecurityException.class, () -> registry.parsePrivateKey("AAAA"));
+        assertThrows(java.security.GeneralSecurityException.class, () -> registry.parsePrivateKey("不是金鑰"));
+    }
+}
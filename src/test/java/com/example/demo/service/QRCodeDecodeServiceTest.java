@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QRCodeDecodeService 的單元測試
+ */
+public class QRCodeDecodeServiceTest {
+
+    private QRCodeDecodeService decodeService;
+    private QRCodeService qrCodeService;
+
+    @BeforeEach
+    public void setUp() {
+        decodeService = new QRCodeDecodeService(1600);
+        qrCodeService = new QRCodeService();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        decodeService.shutdown();
+    }
+
+    @Test
+    public void testDecodeMultipleCodesFromLargePhoto() throws Exception {
+        String first = "{\"t\":\"SS\",\"d\":\"" + "A".repeat(120) + "\",\"h\":\"first\",\"k\":\"default\"}";
+        String second = "{\"t\":\"SS\",\"d\":\"" + "B".repeat(120) + "\",\"h\":\"second\",\"k\":\"default\"}";
+
+        // 模擬 12MP 手機照片：4000x3000 的 JPEG 中放置兩個 QR Code
+        BufferedImage photo = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = photo.createGraphics();
+        g.setColor(new Color(200, 200, 190));
+        g.fillRect(0, 0, 4000, 3000);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(renderQRCode(first), 300, 600, 1000, 1000, null);
+        g.drawImage(renderQRCode(second), 2500, 1200, 1000, 1000, null);
+        g.dispose();
+        byte[] jpeg = toJpeg(photo);
+
+        QRCodeDecodeService.QRCodeDecodeResult result = decodeService.decode(jpeg);
+
+        assertEquals(2, result.getTexts().size());
+        assertTrue(result.getTexts().contains(first));
+        assertTrue(result.getTexts().contains(second));
+        assertEquals(4000, result.getSourceWidth());
+        assertEquals(3000, result.getSourceHeight());
+        assertEquals(3, result.getSubsampling(), "長邊超過上限時應以來源取樣縮小");
+        assertTrue(result.getTimings().keySet().containsAll(
+            java.util.List.of("read", "luminance", "hybrid", "globalHistogram", "total")));
+        System.out.println("12MP JPEG 解碼耗時（毫秒）：" + result.getTimings());
+    }
+
+    @Test
+    public void testDecodeImageWithoutQRCode() throws Exception {
+        BufferedImage blank = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+
+        QRCodeDecodeService.QRCodeDecodeResult result = decodeService.decode(toJpeg(blank));
+
+        assertTrue(result.getTexts().isEmpty());
+        assertEquals(1, result.getSubsampling());
+    }
+
+    @Test
+    public void testDecodeInvalidImage() {
+        assertThrows(IllegalArgumentException.class, () -> decodeService.decode(new byte[]{1, 2, 3, 4}));
+        assertThrows(IllegalArgumentException.class, () -> decodeService.decode(new byte[0]));
+    }
+
+    private BufferedImage renderQRCode(String text) throws Exception {
+        String base64 = qrCodeService.generateQRCodeWithLogoSpace(text, null, 400, 400, 60);
+        return ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(base64)));
+    }
+
+    private static byte[] toJpeg(BufferedImage image) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "JPEG", baos);
+        return baos.toByteArray();
+    }
+}
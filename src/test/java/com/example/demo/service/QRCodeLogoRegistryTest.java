@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QRCodeLogoRegistry 的單元測試
+ */
+public class QRCodeLogoRegistryTest {
+
+    private QRCodeLogoRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new QRCodeLogoRegistry(2, 4);
+        registry.loadBuiltInLogos();
+    }
+
+    @Test
+    public void testBuiltInLogoIsLoadedOnce() {
+        BufferedImage logo = registry.getLogo(QRCodeLogoRegistry.DEFAULT_LOGO_ID);
+
+        assertNotNull(logo, "內建 logo 應在啟動時載入");
+        assertSame(logo, registry.getLogo(QRCodeLogoRegistry.DEFAULT_LOGO_ID));
+    }
+
+    @Test
+    public void testRasterIsCachedPerSize() {
+        LogoRaster raster60 = registry.getRaster(QRCodeLogoRegistry.DEFAULT_LOGO_ID, 60);
+        LogoRaster raster100 = registry.getRaster(QRCodeLogoRegistry.DEFAULT_LOGO_ID, 100);
+
+        assertSame(raster60, registry.getRaster(QRCodeLogoRegistry.DEFAULT_LOGO_ID, 60));
+        assertEquals(60, raster60.getWidth());
+        assertEquals(100, raster100.getWidth());
+
+        // 以 logo 圖片查詢時也應使用相同的快取
+        BufferedImage logo = registry.getLogo(QRCodeLogoRegistry.DEFAULT_LOGO_ID);
+        assertSame(raster60, registry.rasterFor(logo, 60));
+    }
+
+    @Test
+    public void testRegisterLogoIsKeyedByContentHash() throws Exception {
+        byte[] png = createPng(0xFF336699);
+
+        String logoId = registry.registerLogo(png);
+
+        assertTrue(logoId.startsWith("sha256-"));
+        assertEquals(logoId, registry.registerLogo(png.clone()), "相同內容應得到相同的 logo 代碼");
+        assertNotNull(registry.getLogo(logoId));
+        assertNotEquals(logoId, registry.registerLogo(createPng(0xFF996633)));
+    }
+
+    @Test
+    public void testUploadedLogosAreBounded() throws Exception {
+        String first = registry.registerLogo(createPng(0xFF000001));
+        registry.getRaster(first, 40);
+        registry.registerLogo(createPng(0xFF000002));
+        registry.registerLogo(createPng(0xFF000003));
+
+        assertNull(registry.getLogo(first), "超過上限時應移除最早上傳的 logo");
+        assertThrows(IllegalArgumentException.class, () -> registry.getRaster(first, 40));
+        assertNotNull(registry.getLogo(QRCodeLogoRegistry.DEFAULT_LOGO_ID), "內建 logo 不應被移除");
+    }
+
+    @Test
+    public void testRegisterInvalidImage() {
+        assertThrows(IllegalArgumentException.class, () -> registry.registerLogo(new byte[]{1, 2, 3}));
+        assertThrows(IllegalArgumentException.class, () -> registry.registerLogo(new byte[0]));
+    }
+
+    private static byte[] createPng(int argb) throws Exception {
+        BufferedImage image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < 32; x++) {
+            for (int y = 0; y < 32; y++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "PNG", baos);
+        return baos.toByteArray();
+    }
+}
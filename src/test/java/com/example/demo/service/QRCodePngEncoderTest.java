@@ -0,0 +1,142 @@
+package com.example.demo.service;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QRCodePngEncoder 的單元測試
+ * 比對直接編碼 PNG 與 BufferedImage + ImageIO 流程的解碼結果
+ */
+public class QRCodePngEncoderTest {
+
+    private static final String PAYLOAD =
+            "{\"t\":\"SS\",\"d\":\"AAAALDAqMAUGAytlbgMhAOQf0n1cYvZ3m6rRkS0eJx7V5T3o5WQ9Y1Wc3kqv8oNT\","
+            + "\"h\":\"HFCk/6P3JpIM0yx4H4EspuNdfSH3HzFGr8/UUxllJvc=\",\"k\":\"default\"}";
+
+    private QRCodeService qrCodeService;
+
+    @BeforeEach
+    public void setUp() {
+        qrCodeService = new QRCodeService();
+    }
+
+    @Test
+    public void testWithoutLogoMatchesImageIO() throws Exception {
+        assertSamePixels(
+                qrCodeService.generateQRCodeWithLogoSpaceImageIO(PAYLOAD, null, 400, 400, 60),
+                qrCodeService.generateQRCodeWithLogoSpace(PAYLOAD, null, 400, 400, 60));
+        // 寬度不是 8 與 32 的倍數時，最後一個字組與 byte 的補齊
+        assertSamePixels(
+                qrCodeService.generateQRCodeWithLogoSpaceImageIO(PAYLOAD, null, 1003, 1003, 150),
+                qrCodeService.generateQRCodeWithLogoSpace(PAYLOAD, null, 1003, 1003, 150));
+    }
+
+    @Test
+    public void testWithTwdiwLogoMatchesImageIO() throws Exception {
+        BufferedImage logo = ImageIO.read(new ClassPathResource("static/images/twdiw.png").getInputStream());
+
+        assertSamePixels(
+                qrCodeService.generateQRCodeWithLogoSpaceImageIO(PAYLOAD, logo, 400, 400, 60),
+                qrCodeService.generateQRCodeWithLogoSpace(PAYLOAD, logo, 400, 400, 60));
+        assertSamePixels(
+                qrCodeService.generateQRCodeWithLogoSpaceImageIO(PAYLOAD, logo, 600, 600, 150),
+                qrCodeService.generateQRCodeWithLogoSpace(PAYLOAD, logo, 600, 600, 150));
+        assertSamePixels(
+                qrCodeService.generateQRCodeWithLogoSpaceImageIO(PAYLOAD, logo, 2000, 2000, 300),
+                qrCodeService.generateQRCodeWithLogoSpace(PAYLOAD, logo, 2000, 2000, 300));
+    }
+
+    @Test
+    public void testWithManyColorLogoMatchesImageIO() throws Exception {
+        // 建立超過 256 色的漸層 logo，使編碼器改用 RGB 輸出
+        BufferedImage logo = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < 64; x++) {
+            for (int y = 0; y < 64; y++) {
+                logo.setRGB(x, y, (0xC0 << 24) | (x * 4 << 16) | (y * 4 << 8) | 0x80);
+            }
+        }
+
+        assertSamePixels(
+                qrCodeService.generateQRCodeWithLogoSpaceImageIO(PAYLOAD, logo, 400, 400, 80),
+                qrCodeService.generateQRCodeWithLogoSpace(PAYLOAD, logo, 400, 400, 80));
+    }
+
+    @Test
+    public void testGeneratedQRCodeDecodesToOriginalText() throws Exception {
+        BufferedImage logo = ImageIO.read(new ClassPathResource("static/images/twdiw.png").getInputStream());
+        BufferedImage image = decodePng(qrCodeService.generateQRCodeWithLogoSpace(PAYLOAD, logo, 400, 400, 60));
+
+        String text = new MultiFormatReader().decode(
+                new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image))),
+                Map.of(DecodeHintType.TRY_HARDER, Boolean.TRUE)).getText();
+
+        assertEquals(PAYLOAD, text);
+    }
+
+    @Test
+    public void testCompareWithImageIOPath() throws Exception {
+        BufferedImage logo = ImageIO.read(new ClassPathResource("static/images/twdiw.png").getInputStream());
+        int iterations = 50;
+
+        // 預熱
+        for (int i = 0; i < iterations; i++) {
+            qrCodeService.generateQRCodeWithLogoSpaceImageIO(PAYLOAD, logo, 400, 400, 60);
+            qrCodeService.generateQRCodeWithLogoSpace(PAYLOAD, logo, 400, 400, 60);
+        }
+
+        long start = System.nanoTime();
+        String legacy = null;
+        for (int i = 0; i < iterations; i++) {
+            legacy = qrCodeService.generateQRCodeWithLogoSpaceImageIO(PAYLOAD, logo, 400, 400, 60);
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        String direct = null;
+        for (int i = 0; i < iterations; i++) {
+            direct = qrCodeService.generateQRCodeWithLogoSpace(PAYLOAD, logo, 400, 400, 60);
+        }
+        long directNanos = System.nanoTime() - start;
+
+        System.out.println("=== QR Code PNG 編碼比較（400x400，" + iterations + " 次）===");
+        System.out.println("BufferedImage + ImageIO 平均: " + legacyNanos / iterations / 1000 + " µs, PNG "
+                + Base64.getDecoder().decode(legacy).length + " bytes");
+        System.out.println("QRCodePngEncoder 平均: " + directNanos / iterations / 1000 + " µs, PNG "
+                + Base64.getDecoder().decode(direct).length + " bytes");
+
+        assertSamePixels(legacy, direct);
+    }
+
+    private static void assertSamePixels(String expectedBase64, String actualBase64) throws Exception {
+        BufferedImage expected = decodePng(expectedBase64);
+        BufferedImage actual = decodePng(actualBase64);
+
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "像素不一致：(" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    private static BufferedImage decodePng(String base64) throws Exception {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(base64)));
+        assertNotNull(image, "PNG 解碼失敗");
+        return image;
+    }
+}
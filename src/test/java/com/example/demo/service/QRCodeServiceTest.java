@@ -1,5 +1,14 @@
 package com.example.demo.service;
 
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -9,9 +18,12 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.Base64;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * QRCodeService 測試類
@@ -290,4 +302,133 @@ class QRCodeServiceTest {
             fail("讀取 twdiw.png 失敗: " + e.getMessage());
         }
     }
+
+    @Test
+    void testGenerateQRCodeWithModuleSize() throws Exception {
+        String text = "https://example.com/module";
+        String result = qrCodeService.generateQRCodeWithLogoSpace(text, null, QRCodeRenderOptions.ofModuleSize(6));
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(result)));
+        assertNotNull(image, "模組解析度 QR Code 圖片解碼失敗");
+
+        // 圖片邊長必須是（模組數 + 兩側靜區）的整數倍
+        assertEquals(0, image.getWidth() % 6);
+        int modules = image.getWidth() / 6 - 2 * QRCodeRenderOptions.DEFAULT_QUIET_ZONE;
+        assertEquals(0, (modules - 21) % 4, "模組數應符合 QR Code 版本規格（21 + 4n）");
+        assertEquals(text, decode(image));
+    }
+
+    @Test
+    void testGenerateQRCodeWithPrintSizeAndDpi() throws Exception {
+        String text = "https://example.com/print";
+        QRCodeRenderOptions options = QRCodeRenderOptions.ofPrintSize(30.0, 300);
+        String result = qrCodeService.generateQRCodeWithLogoSpace(text, null, options);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(result)));
+        assertNotNull(image);
+
+        // 30mm @ 300 DPI 約為 354 像素，輸出不可超過列印尺寸
+        assertTrue(image.getWidth() <= 354, "輸出尺寸超過列印尺寸：" + image.getWidth());
+        assertTrue(image.getWidth() > 354 / 2, "模組大小未充分利用列印尺寸：" + image.getWidth());
+        assertEquals(text, decode(image));
+    }
+
+    @Test
+    void testRenderOptionsRejectOutOfRangeValues() {
+        assertThrows(IllegalArgumentException.class,
+            () -> QRCodeRenderOptions.ofModuleSize(QRCodeRenderOptions.MAX_MODULE_SIZE + 1));
+        assertThrows(IllegalArgumentException.class,
+            () -> QRCodeRenderOptions.ofModuleSize(4, QRCodeRenderOptions.MAX_DPI + 1));
+        assertThrows(IllegalArgumentException.class, () -> QRCodeRenderOptions.ofPrintSize(Double.NaN, 300));
+        assertThrows(IllegalArgumentException.class,
+            () -> QRCodeRenderOptions.ofPrintSize(Double.POSITIVE_INFINITY, 300));
+        assertThrows(IllegalArgumentException.class,
+            () -> QRCodeRenderOptions.ofVectorPrintSize(Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class,
+            () -> QRCodeRenderOptions.ofVectorPrintSize(QRCodeRenderOptions.MAX_PRINT_SIZE_MILLIMETERS + 1));
+        // 1000 公釐 @ 2400 DPI 約 94488 像素，超過邊長上限
+        assertThrows(IllegalArgumentException.class, () -> QRCodeRenderOptions.ofPrintSize(1000, 2400));
+
+        // 上限內的列印尺寸仍可使用，且換算後的邊長不超過上限
+        QRCodeRenderOptions print = QRCodeRenderOptions.ofPrintSize(40, 2400);
+        assertTrue(print.resolveEdgePixels(177) <= QRCodeRenderOptions.MAX_EDGE_PIXELS);
+    }
+
+    @Test
+    void testModuleSizeEdgeIsBoundedForLargeSymbols() throws Exception {
+        QRCodeRenderOptions options = QRCodeRenderOptions.ofModuleSize(QRCodeRenderOptions.MAX_MODULE_SIZE);
+        // 21 + 2 * 4 = 29 個模組，29 * 64 = 1856 像素
+        assertEquals(1856, options.resolveEdgePixels(21));
+        // 177 + 2 * 4 = 185 個模組，185 * 64 = 11840 像素，超過邊長上限
+        assertThrows(IllegalArgumentException.class, () -> options.resolveModuleSize(177));
+        // 靜區寬度極大時不會溢位成負數
+        assertThrows(IllegalArgumentException.class,
+            () -> QRCodeRenderOptions.ofModuleSize(1).withQuietZone(Integer.MAX_VALUE).resolveModuleSize(21));
+
+        // 大版本的 QR Code 在渲染前即拒絕，不會產生過大的 PNG
+        String text = "X".repeat(1500);
+        assertThrows(IllegalArgumentException.class,
+            () -> qrCodeService.generateQRCodeWithLogoSpace(text, null, options));
+        assertThrows(IllegalArgumentException.class,
+            () -> qrCodeService.generateQRCodeSvg(text, null, options));
+    }
+
+    @Test
+    void testModuleResolutionWithTwdiwLogoIsDecodable() throws Exception {
+        BufferedImage twdiwLogo = ImageIO.read(new ClassPathResource("static/images/twdiw.png").getInputStream());
+
+        // 涵蓋實際 QR Payload 的長度範圍
+        for (int length : new int[]{200, 500, 900}) {
+            StringBuilder payload = new StringBuilder("{\"t\":\"SS\",\"d\":\"");
+            while (payload.length() < length - 2) {
+                payload.append("Ab3+/");
+            }
+            payload.setLength(length - 2);
+            payload.append("\"}");
+
+            String result = qrCodeService.generateQRCodeWithLogoSpace(
+                    payload.toString(), twdiwLogo, QRCodeRenderOptions.ofModuleSize(4));
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(result)));
+
+            assertEquals(payload.toString(), decode(image), "長度 " + length + " 的 QR Code 無法正確解碼");
+        }
+    }
+
+    @Test
+    void testSteadyStateRenderingAllocation() throws Exception {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported(), "JVM 不支援執行緒配置量統計");
+
+        BufferedImage logo = qrCodeService.findLogo(QRCodeLogoRegistry.DEFAULT_LOGO_ID);
+        String text = "{\"t\":\"SS\",\"d\":\"" + "A".repeat(300) + "\",\"h\":\"hmac\",\"k\":\"default\"}";
+        ByteMatrix modules = Encoder.encode(text, ErrorCorrectionLevel.L,
+                Map.of(EncodeHintType.CHARACTER_SET, "UTF-8")).getMatrix();
+
+        // 暖機：建立每個執行緒的緩衝區並讓 JIT 完成編譯
+        String result = null;
+        for (int i = 0; i < 300; i++) {
+            result = qrCodeService.renderBase64WithLogoSpace(modules, logo, 400, 400, 60);
+        }
+
+        int renders = 200;
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < renders; i++) {
+            result = qrCodeService.renderBase64WithLogoSpace(modules, logo, 400, 400, 60);
+        }
+        long perRender = (threadBean.getThreadAllocatedBytes(threadId) - before) / renders;
+        System.out.println("每次渲染配置量：" + perRender + " bytes（Base64 長度 " + result.length() + "）");
+
+        // 穩定狀態下只應配置 Base64 編碼結果與回傳的字串（Latin-1 字串每字元 1 byte），不應複製 PNG 內容
+        assertTrue(perRender < 2 * result.length() + 4 * 1024,
+                "每次渲染配置 " + perRender + " bytes，超過上限");
+        assertEquals(text, decode(ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(result)))));
+    }
+
+    private static String decode(BufferedImage image) throws Exception {
+        return new MultiFormatReader().decode(
+                new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image))),
+                Map.of(DecodeHintType.TRY_HARDER, Boolean.TRUE)).getText();
+    }
 } 
\ No newline at end of file
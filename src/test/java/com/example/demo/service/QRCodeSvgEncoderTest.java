@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QRCodeSvgEncoder 的單元測試
+ * 將 SVG 路徑還原為模組格線，與 ZXing 的模組矩陣比對，並確認點陣化後可正確解碼
+ */
+public class QRCodeSvgEncoderTest {
+
+    private static final String PAYLOAD =
+            "{\"t\":\"SS\",\"d\":\"AAAALDAqMAUGAytlbgMhAOQf0n1cYvZ3m6rRkS0eJx7V5T3o5WQ9Y1Wc3kqv8oNT\","
+            + "\"h\":\"HFCk/6P3JpIM0yx4H4EspuNdfSH3HzFGr8/UUxllJvc=\",\"k\":\"default\"}";
+
+    private static final Pattern RUN = Pattern.compile("M(\\d+) (\\d+)h(\\d+)v1h-(\\d+)z");
+    private static final Pattern VIEW_BOX = Pattern.compile("viewBox=\"0 0 (\\d+) (\\d+)\"");
+
+    private QRCodeService qrCodeService;
+
+    @BeforeEach
+    public void setUp() {
+        qrCodeService = new QRCodeService();
+    }
+
+    @Test
+    public void testRunsMatchModulesAndSkipClearArea() throws Exception {
+        ByteMatrix modules = Encoder.encode(PAYLOAD, ErrorCorrectionLevel.M,
+                Map.of(EncodeHintType.CHARACTER_SET, "UTF-8")).getMatrix();
+        Rectangle clearArea = new Rectangle(10, 10, 9, 9);
+
+        StringWriter out = new StringWriter();
+        QRCodeSvgEncoder.write(modules, 4, clearArea, null, null, "400", "400", out);
+        String svg = out.toString();
+
+        int size = modules.getWidth() + 8;
+        boolean[][] grid = toGrid(svg, size);
+        int runs = countRuns(svg);
+        int expectedRuns = 0;
+        for (int y = 0; y < modules.getHeight(); y++) {
+            boolean previous = false;
+            for (int x = 0; x < modules.getWidth(); x++) {
+                boolean dark = modules.get(x, y) == 1 && !clearArea.contains(x, y);
+                assertEquals(dark, grid[y + 4][x + 4], "模組不一致：(" + x + ", " + y + ")");
+                if (dark && !previous) {
+                    expectedRuns++;
+                }
+                previous = dark;
+            }
+        }
+        // 每段連續深色模組只輸出一個矩形
+        assertEquals(expectedRuns, runs);
+        assertFalse(svg.contains("<image"));
+    }
+
+    @Test
+    public void testSvgWithLogoIsDecodableAndEmbedsLogoOnce() throws Exception {
+        BufferedImage logo = ImageIO.read(new ClassPathResource("static/images/twdiw.png").getInputStream());
+
+        String svg = qrCodeService.generateQRCodeSvg(PAYLOAD, logo, QRCodeRenderOptions.ofPrintSize(30, 300));
+
+        assertTrue(svg.contains("width=\"30mm\" height=\"30mm\""));
+        assertEquals(1, svg.split("data:image/png;base64,", -1).length - 1, "logo 應只嵌入一次");
+
+        Matcher viewBox = VIEW_BOX.matcher(svg);
+        assertTrue(viewBox.find());
+        int size = Integer.parseInt(viewBox.group(1));
+        assertEquals(PAYLOAD, decode(rasterize(toGrid(svg, size), 6)));
+    }
+
+    @Test
+    public void testSvgSizeAttributes() throws Exception {
+        String svg = qrCodeService.generateQRCodeSvg(PAYLOAD, null, null);
+        assertTrue(svg.contains("width=\"400\" height=\"400\""));
+
+        Matcher viewBox = VIEW_BOX.matcher(svg);
+        assertTrue(viewBox.find());
+        int size = Integer.parseInt(viewBox.group(1));
+        String moduleSvg = qrCodeService.generateQRCodeSvg(PAYLOAD, null, QRCodeRenderOptions.ofModuleSize(5));
+        assertTrue(moduleSvg.contains("width=\"" + size * 5 + "\""));
+        assertEquals(PAYLOAD, decode(rasterize(toGrid(svg, size), 4)));
+
+        // 向量輸出只指定列印尺寸，不需要 DPI
+        String printSvg = qrCodeService.generateQRCodeSvg(PAYLOAD, null, QRCodeRenderOptions.ofVectorPrintSize(25.5));
+        assertTrue(printSvg.contains("width=\"25.5mm\" height=\"25.5mm\""));
+    }
+
+    /**
+     * 將 SVG 路徑中的矩形還原為模組格線
+     */
+    private static boolean[][] toGrid(String svg, int size) {
+        boolean[][] grid = new boolean[size][size];
+        Matcher matcher = RUN.matcher(svg);
+        while (matcher.find()) {
+            int x = Integer.parseInt(matcher.group(1));
+            int y = Integer.parseInt(matcher.group(2));
+            int length = Integer.parseInt(matcher.group(3));
+            assertEquals(length, Integer.parseInt(matcher.group(4)));
+            for (int i = 0; i < length; i++) {
+                assertFalse(grid[y][x + i], "矩形重疊：(" + (x + i) + ", " + y + ")");
+                grid[y][x + i] = true;
+            }
+        }
+        return grid;
+    }
+
+    private static int countRuns(String svg) {
+        Matcher matcher = RUN.matcher(svg);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static BufferedImage rasterize(boolean[][] grid, int scale) {
+        BufferedImage image = new BufferedImage(grid.length * scale, grid.length * scale, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, grid[y / scale][x / scale] ? 0x000000 : 0xFFFFFF);
+            }
+        }
+        return image;
+    }
+
+    private static String decode(BufferedImage image) throws Exception {
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        return new MultiFormatReader().decode(bitmap, Map.of(DecodeHintType.CHARACTER_SET, "UTF-8")).getText();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RSA2048Service 的單元測試
+ */
+public class RSA2048ServiceTest {
+
+    private static final RSA2048Service RSA_SERVICE = new RSA2048Service();
+    private static final Map<String, String> KEYS = generateKeys();
+
+    @Test
+    public void testEncryptAndDecryptRoundTripsWithOaepAndCachesKeys() throws Exception {
+        RSA2048Service service = new RSA2048Service();
+        String plain = "{\"name\":\"王小明\",\"totp\":\"123456\"}";
+
+        String first = service.encrypt(plain, KEYS.get("publicKey"));
+        String second = service.encrypt(plain, KEYS.get("publicKey"));
+
+        // OAEP 含隨機填充，同一份明文每次加密結果不同
+        assertNotEquals(second, first);
+        // 包裝金鑰(256) + nonce(12) + 密文 + tag(16)
+        assertEquals(256 + 12 + plain.getBytes(StandardCharsets.UTF_8).length + 16,
+                     Base64.getDecoder().decode(first).length);
+        assertEquals(plain, service.decrypt(first, KEYS.get("privateKey")));
+        assertEquals(plain, service.decrypt(second, KEYS.get("privateKey")));
+
+        // 同一把金鑰只解析一次
+        Map<String, Map<String, Long>> stats = service.getKeyCacheStats();
+        assertEquals(1, stats.get("publicKeys").get("misses"));
+        assertEquals(1, stats.get("publicKeys").get("hits"));
+        assertEquals(1, stats.get("privateKeys").get("misses"));
+        assertEquals(1, stats.get("privateKeys").get("hits"));
+    }
+
+    @Test
+    public void testEncryptHandlesPickupSizedPayloadAndDecryptDetectsTampering() throws Exception {
+        PrivateKey privateKey = RSA_SERVICE.parsePrivateKey(KEYS.get("privateKey"));
+
+        // 一般取件人資料（多個動態欄位、含中文）遠超過 RSA-OAEP 單次 190 位元組的上限
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", "王小明");
+        fields.put("totp", "123456");
+        for (int i = 0; i < 8; i++) {
+            fields.put("note" + i, "取件備註".repeat(40));
+        }
+        String plain = new ObjectMapper().writeValueAsString(fields);
+        assertTrue(plain.getBytes(StandardCharsets.UTF_8).length > 3000);
+        assertEquals(plain, RSA_SERVICE.decrypt(RSA_SERVICE.encrypt(plain, KEYS.get("publicKey")), privateKey));
+        assertTrue(RSA_SERVICE.decrypt(RSA_SERVICE.encrypt("", KEYS.get("publicKey")), privateKey).isEmpty());
+
+        // 竄改包裝的金鑰或密文都會被偵測
+        for (int position : new int[] {10, 256 + 12 + 3}) {
+            byte[] encrypted = Base64.getDecoder().decode(RSA_SERVICE.encrypt("竄改測試", KEYS.get("publicKey")));
+            encrypted[position] ^= 1;
+            assertThrows(SecurityException.class,
+                () -> RSA_SERVICE.decrypt(Base64.getEncoder().encodeToString(encrypted), privateKey));
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> RSA_SERVICE.decrypt(Base64.getEncoder().encodeToString(new byte[256]), privateKey));
+    }
+
+    @Test
+    public void testParseKeysRejectsWeakAndForeignKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        String weakKey = Base64.getEncoder().encodeToString(generator.generateKeyPair().getPublic().getEncoded());
+        String x25519Key = new ECCService().generateKeyPair()[0];
+
+        assertThrows(GeneralSecurityException.class, () -> RSA_SERVICE.parsePublicKey(weakKey));
+        assertThrows(GeneralSecurityException.class, () -> RSA_SERVICE.parsePublicKey(x25519Key));
+        assertTrue(RSA_SERVICE.supports(RSA_SERVICE.parsePublicKey(KEYS.get("publicKey"))));
+        assertFalse(RSA_SERVICE.supports(new ECCService().parsePublicKey(x25519Key)));
+    }
+
+    private static Map<String, String> generateKeys() {
+        try {
+            return RSA_SERVICE.generateKeyPairMap();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
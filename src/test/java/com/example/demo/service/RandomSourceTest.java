@@ -0,0 +1,116 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.KeyGenerator;
+import java.security.DrbgParameters;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RandomSource 的單元測試
+ */
+public class RandomSourceTest {
+
+    @Test
+    public void testDeterministicRepeatsSequenceAndMakesEncryptionReproducible() throws Exception {
+        assertArrayEquals(RandomSource.deterministic(42).nonce(32), RandomSource.deterministic(42).nonce(32));
+        assertFalse(java.util.Arrays.equals(RandomSource.deterministic(42).nonce(32),
+                                            RandomSource.deterministic(43).nonce(32)));
+
+        // 固定種子下，臨時金鑰對與 nonce 都相同，密文可重現
+        String[] keyPair = new ECCService().generateKeyPair();
+        ECCService first = new ECCService(16, 0, RandomSource.deterministic(7));
+        ECCService second = new ECCService(16, 0, RandomSource.deterministic(7));
+        String encrypted = first.encrypt("固定種子", keyPair[0]);
+
+        assertEquals(encrypted, second.encrypt("固定種子", keyPair[0]));
+        assertNotEquals(encrypted, first.encrypt("固定種子", keyPair[0]));
+        assertEquals("固定種子", new ECCService().decrypt(encrypted, keyPair[1]));
+    }
+
+    @Test
+    public void testSystemProducesUniqueNoncesAcrossThreadsAndWorksWithJca() throws Exception {
+        RandomSource source = RandomSource.system();
+        Set<String> nonces = ConcurrentHashMap.newKeySet();
+        int threads = 4;
+        int perThread = 2000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        nonces.add(HexFormat.of().formatHex(source.nonce(16)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, nonces.size());
+
+        // SecureRandom 介面可直接交給 JCA 元件與 Random 的衍生方法使用
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("HmacSHA256");
+        keyGenerator.init(256, source.secureRandom());
+        assertEquals(32, keyGenerator.generateKey().getEncoded().length);
+        int value = source.secureRandom().nextInt(10);
+        assertTrue(value >= 0 && value < 10);
+    }
+
+    @Test
+    public void testDifferentThreadsUseDifferentStripes() throws Exception {
+        RandomSource source = RandomSource.striped(4);
+
+        // 取兩個執行緒 ID 對應到不同 DRBG 的執行緒（ID 除以 4 的餘數不同）
+        SecureRandom[] selected = new SecureRandom[2];
+        Thread first = new Thread(() -> selected[0] = source.stripe());
+        Thread second = new Thread(() -> selected[1] = source.stripe());
+        while ((second.getId() & 3) == (first.getId() & 3)) {
+            second = new Thread(() -> selected[1] = source.stripe());
+        }
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        assertNotNull(selected[0]);
+        assertNotNull(selected[1]);
+        assertNotSame(selected[0], selected[1]);
+        // 同一個執行緒固定使用同一個 DRBG
+        assertSame(source.stripe(), source.stripe());
+    }
+
+    @Test
+    public void testSecureRandomForwardsParameterizedCallsToStripe() {
+        RandomSource source = RandomSource.striped(2);
+        SecureRandom random = source.secureRandom();
+        SecureRandom stripe = source.stripe();
+
+        // 帶參數的取值與重新播種都交給目前執行緒的 DRBG，不會落到不支援的 SPI
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes, DrbgParameters.nextBytes(256, false, "nonce".getBytes()));
+        assertFalse(java.util.Arrays.equals(new byte[32], bytes));
+        random.reseed();
+        random.reseed(DrbgParameters.reseed(false, "reseed".getBytes()));
+        DrbgParameters.Instantiation expected = (DrbgParameters.Instantiation) stripe.getParameters();
+        DrbgParameters.Instantiation actual = (DrbgParameters.Instantiation) random.getParameters();
+        assertEquals(expected.getStrength(), actual.getStrength());
+        assertEquals(expected.getCapability(), actual.getCapability());
+        assertArrayEquals(expected.getPersonalizationString(), actual.getPersonalizationString());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReplayGuard 的單元測試
+ */
+public class ReplayGuardTest {
+
+    @Test
+    public void testCheckRejectsReplaysUntilRetainedStepsHavePassed() {
+        AtomicLong step = new AtomicLong(1000);
+        ReplayGuard guard = new ReplayGuard(step::get, 3, 1024);
+        long fingerprint = ReplayGuard.fingerprint("QR-1".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(ReplayGuard.Result.FIRST_SEEN, guard.check(fingerprint));
+        assertEquals(ReplayGuard.Result.REPLAYED, guard.check(fingerprint));
+
+        // 保留期間內（寫入的時間區間與之後 2 個）都視為重複使用
+        step.incrementAndGet();
+        assertEquals(ReplayGuard.Result.REPLAYED, guard.check(fingerprint));
+        step.incrementAndGet();
+        assertEquals(ReplayGuard.Result.REPLAYED, guard.check(fingerprint));
+        assertEquals(ReplayGuard.Result.FIRST_SEEN,
+                     guard.check(ReplayGuard.fingerprint("QR-2".getBytes(StandardCharsets.UTF_8))));
+
+        // 超過保留期間後桶被清空
+        step.addAndGet(3);
+        assertEquals(ReplayGuard.Result.FIRST_SEEN, guard.check(fingerprint));
+        assertEquals(1L, guard.getStats().get("occupancy"));
+        assertEquals(3L * 1024, guard.getStats().get("capacity"));
+        assertEquals(3L, guard.getStats().get("accepted"));
+        assertEquals(3L, guard.getStats().get("replaysRejected"));
+    }
+
+    @Test
+    public void testCheckRejectsReplayFromThreadStillOnPreviousStep() {
+        // 第一次檢查時已進入下一個時間區間，第二次檢查的執行緒仍取得前一個時間區間
+        long[] steps = {11, 10};
+        int[] calls = {0};
+        ReplayGuard guard = new ReplayGuard(() -> steps[Math.min(calls[0]++, 1)], 3, 1024);
+
+        assertEquals(ReplayGuard.Result.FIRST_SEEN, guard.check(42));
+        assertEquals(ReplayGuard.Result.REPLAYED, guard.check(42));
+    }
+
+    @Test
+    public void testCheckReportsFullBucketInsteadOfAccepting() {
+        ReplayGuard guard = new ReplayGuard(() -> 7, 3, 32);
+        int accepted = 0;
+        int full = 0;
+        for (int i = 1; i <= 64; i++) {
+            ReplayGuard.Result result = guard.check(i);
+            if (result == ReplayGuard.Result.FIRST_SEEN) {
+                accepted++;
+            } else if (result == ReplayGuard.Result.FULL) {
+                full++;
+            }
+        }
+        assertEquals(32, accepted);
+        assertEquals(32, full);
+        assertEquals(32L, guard.getStats().get("overflows"));
+        assertEquals(32L, guard.getStats().get("occupancy"));
+    }
+
+    @Test
+    public void testCheckAcceptsEachFingerprintExactlyOnceAcrossThreadsAndSteps() throws Exception {
+        AtomicLong step = new AtomicLong(0);
+        ReplayGuard guard = new ReplayGuard(step::get, 3, 1 << 16);
+        int threads = 4;
+        int fingerprints = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int accepted = 0;
+                    for (int i = 1; i <= fingerprints; i++) {
+                        // 中途推進時間區間（仍在保留期間內），同一個指紋可能分別寫入相鄰的桶
+                        if (i == fingerprints / 2) {
+                            step.compareAndSet(0, 1);
+                        }
+                        if (guard.check(i * 0x9E3779B97F4A7C15L) == ReplayGuard.Result.FIRST_SEEN) {
+                            accepted++;
+                        }
+                    }
+                    return accepted;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get(30, TimeUnit.SECONDS);
+            }
+            // 跨過邊界的極少數情形下兩個執行緒可能都拒絕，但同一個指紋絕不會通過兩次
+            assertTrue(total <= fingerprints);
+            Map<String, Long> stats = guard.getStats();
+            assertEquals((long) threads * fingerprints, stats.get("accepted") + stats.get("replaysRejected"));
+            assertEquals(0L, stats.get("overflows"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
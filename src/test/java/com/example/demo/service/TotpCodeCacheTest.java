@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TotpCodeCache 的單元測試
+ */
+public class TotpCodeCacheTest {
+
+    @Test
+    public void testCodesMatchEngineAndReuseOverlappingWindowsAcrossSteps() throws Exception {
+        MutableClock clock = new MutableClock(1_700_000_000);
+        TotpEngine engine = new TotpEngine(clock, 60, 30, 1);
+        TotpCodeCache cache = new TotpCodeCache(engine, 16);
+        SecretKey key = TotpEngine.decodeKey(new TOTPService().generateTOTPKey().get("totpKey"));
+
+        for (int offset = -1; offset <= 1; offset++) {
+            assertEquals(engine.generate(key, offset), cache.code(key, offset));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(cache.verify(key, TotpEngine.format(engine.generate(key, 0))));
+        }
+        assertEquals(1L, cache.getStats().get("misses"));
+        assertEquals(3L, cache.getStats().get("computed"));
+
+        // 下一個時間區間只需要計算新的後一個窗口，其餘沿用
+        clock.advance(60);
+        for (int offset = -1; offset <= 1; offset++) {
+            assertEquals(engine.generate(key, offset), cache.code(key, offset));
+        }
+        assertEquals(2L, cache.getStats().get("misses"));
+        assertEquals(4L, cache.getStats().get("computed"));
+        String code = TotpEngine.format(engine.generate(key, -2));
+        assertEquals(engine.verify(key, code), cache.verify(key, code));
+        assertFalse(cache.verify(key, "12345"));
+        assertThrows(IllegalArgumentException.class, () -> cache.code(key, 2));
+    }
+
+    @Test
+    public void testStaleAndExcessKeysAreEvicted() throws Exception {
+        MutableClock clock = new MutableClock(1_700_000_000);
+        TotpCodeCache cache = new TotpCodeCache(new TotpEngine(clock, 60, 30, 1), 2);
+        TOTPService totpService = new TOTPService();
+        SecretKey first = TotpEngine.decodeKey(totpService.generateTOTPKey().get("totpKey"));
+        SecretKey second = TotpEngine.decodeKey(totpService.generateTOTPKey().get("totpKey"));
+        SecretKey third = TotpEngine.decodeKey(totpService.generateTOTPKey().get("totpKey"));
+
+        cache.code(first, 0);
+        cache.code(second, 0);
+        cache.code(first, 0);
+        cache.code(third, 0);
+        // 超過上限時移除最久未使用的 second
+        assertEquals(2L, cache.getStats().get("size"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+
+        // 整個時間區間都沒有使用的金鑰在跨過邊界後移除，上一個時間區間用過的金鑰保留
+        clock.advance(60);
+        cache.code(third, 0);
+        assertEquals(2L, cache.getStats().get("size"));
+        clock.advance(60);
+        cache.code(third, 0);
+        assertEquals(1L, cache.getStats().get("size"));
+        assertEquals(2L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    public void testTotpServiceGenerationAndVerificationShareCachedCodes() throws Exception {
+        MutableClock clock = new MutableClock(1_700_000_000);
+        TOTPService service = new TOTPService(clock, 16);
+        String base64Key = service.generateTOTPKey().get("totpKey");
+
+        String code = service.generateTOTP(base64Key);
+        assertTrue(service.verifyTOTP(code, base64Key));
+        assertTrue(service.verifyTOTP(code, TotpEngine.decodeKey(base64Key)));
+        assertEquals(1L, service.getCodeCacheStats().get("size"));
+        assertEquals(2L, service.getCodeCacheStats().get("hits"));
+
+        clock.advance(120);
+        assertFalse(service.verifyTOTP(code, base64Key));
+    }
+
+    /**
+     * 可手動推進的時間來源
+     */
+    private static final class MutableClock extends Clock {
+        private volatile long epochSecond;
+
+        private MutableClock(long epochSecond) {
+            this.epochSecond = epochSecond;
+        }
+
+        private void advance(long seconds) {
+            epochSecond += seconds;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochSecond(epochSecond);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TotpEngine 的單元測試
+ */
+public class TotpEngineTest {
+
+    // RFC 6238 附錄 B 的 HMAC-SHA256 測試金鑰
+    private static final SecretKey RFC_KEY = new SecretKeySpec(
+        "12345678901234567890123456789012".getBytes(StandardCharsets.US_ASCII), "HmacSHA256");
+
+    @Test
+    public void testGenerateMatchesRfc6238Vectors() throws Exception {
+        // RFC 的 8 位數結果取後 6 位；1111111109 的結果需要補零
+        assertEquals("119246", TotpEngine.format(engineAt(59, 30, 0).generate(RFC_KEY, 0)));
+        assertEquals("084774", TotpEngine.format(engineAt(1111111109, 30, 0).generate(RFC_KEY, 0)));
+        assertEquals("062674", TotpEngine.format(engineAt(1111111111, 30, 0).generate(RFC_KEY, 0)));
+        assertEquals("698825", TotpEngine.format(engineAt(2000000000, 30, 0).generate(RFC_KEY, 0)));
+    }
+
+    @Test
+    public void testVerifyAcceptsAdjacentWindowsOnlyAndRejectsMalformedCodes() throws Exception {
+        TotpEngine engine = engineAt(1_700_000_000, 60, 30);
+        long step = engine.currentTimeStep();
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(RFC_KEY);
+
+        for (long offset = -1; offset <= 1; offset++) {
+            assertTrue(engine.verify(RFC_KEY, TotpEngine.format(TotpEngine.generate(mac, step + offset))));
+        }
+        for (long offset : new long[] {-3, -2, 2, 3}) {
+            String code = TotpEngine.format(TotpEngine.generate(mac, step + offset));
+            boolean inWindow = false;
+            for (long w = -1; w <= 1; w++) {
+                inWindow |= code.equals(TotpEngine.format(TotpEngine.generate(mac, step + w)));
+            }
+            assertEquals(inWindow, engine.verify(RFC_KEY, code));
+        }
+
+        String valid = TotpEngine.format(engine.generate(RFC_KEY, 0));
+        assertFalse(engine.verify(RFC_KEY, null));
+        assertFalse(engine.verify(RFC_KEY, ""));
+        assertFalse(engine.verify(RFC_KEY, valid + "0"));
+        assertFalse(engine.verify(RFC_KEY, valid.substring(1)));
+        assertFalse(engine.verify(RFC_KEY, "12a456"));
+        assertFalse(engine.verify(RFC_KEY, "-12345"));
+        assertFalse(engine.verify(RFC_KEY, "１２３４５６"));
+    }
+
+    @Test
+    public void testTotpServiceMatchesPreviousFormulaAndVerifiesWithDecodedKey() throws Exception {
+        String base64Key = new TOTPService().generateTOTPKey().get("totpKey");
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        long epochSecond = 1_700_000_029;
+        TOTPService service = new TOTPService(Clock.fixed(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC));
+
+        for (int offset = -1; offset <= 1; offset++) {
+            assertEquals(previousFormula(keyBytes, epochSecond, offset), service.generateTOTP(base64Key, offset));
+        }
+        String code = service.generateTOTP(base64Key);
+        assertTrue(service.verifyTOTP(code, base64Key));
+        assertTrue(service.verifyTOTP(code, TotpEngine.decodeKey(base64Key)));
+        assertFalse(service.verifyTOTP(code, (SecretKey) null));
+        assertFalse(service.verifyTOTP(code, "不是 Base64"));
+    }
+
+    private static TotpEngine engineAt(long epochSecond, int period, int skew) {
+        return new TotpEngine(Clock.fixed(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC), period, skew, 1);
+    }
+
+    /**
+     * 改寫前 TOTPService 的計算方式（60 秒區間、加 30 秒、String.format 補零）
+     */
+    private static String previousFormula(byte[] keyBytes, long epochSecond, int offset) throws Exception {
+        long timeStep = (epochSecond + 30) / 60 + offset;
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(keyBytes, "HmacSHA256"));
+        byte[] hash = mac.doFinal(ByteBuffer.allocate(8).putLong(timeStep).array());
+        int index = hash[hash.length - 1] & 0xf;
+        int binary = ((hash[index] & 0x7f) << 24) | ((hash[index + 1] & 0xff) << 16)
+            | ((hash[index + 2] & 0xff) << 8) | (hash[index + 3] & 0xff);
+        return String.format("%06d", binary % 1000000);
+    }
+}